@@ -25,7 +25,7 @@
 package org.openjdk.jmh.validation;
 
 import joptsimple.*;
-import org.openjdk.jmh.runner.CompilerHints;
+import org.openjdk.jmh.runner.BlackholeMode;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.*;
 import org.openjdk.jmh.util.Utils;
@@ -34,7 +34,6 @@ import org.openjdk.jmh.validation.tests.*;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.List;
 
@@ -237,15 +236,9 @@ public class Main {
     }
 
     private static void setBlackholeInline(boolean inline) {
-        System.getProperties().setProperty("jmh.blackhole.forceInline", String.valueOf(inline));
-
-        try {
-            Field f = CompilerHints.class.getDeclaredField("hintsFile");
-            f.setAccessible(true);
-            f.set(null, null);
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
-        }
+        // hints files are cached per blackhole mode, selecting the mode is enough
+        BlackholeMode mode = inline ? BlackholeMode.FULL : BlackholeMode.FULL_DONTINLINE;
+        System.getProperties().setProperty(BlackholeMode.PROPERTY, mode.label());
     }
 
 }
@@ -46,6 +46,11 @@ public class CompileTest {
 
     private static final String SRC_PREFIX = "SRC: ";
 
+    /**
+     * Generated code should compile at the lowest language level the benchmarks may use.
+     */
+    private static final List<String> SOURCE_LEVEL = Arrays.asList("-source", "1.7", "-Xlint:-options");
+
     public static void assertFail(Class<?> klass) {
         InMemoryGeneratorDestination destination = new InMemoryGeneratorDestination();
         boolean success = doTest(klass, destination);
@@ -125,7 +130,10 @@ public class CompileTest {
             sources.add(new JavaSourceFromString(e.getKey(), e.getValue()));
         }
 
-        JavaCompiler.CompilationTask task = javac.getTask(null, fm, diagnostics, Collections.singleton("-proc:none"), null, sources);
+        List<String> opts = new ArrayList<>(SOURCE_LEVEL);
+        opts.add("-proc:none");
+
+        JavaCompiler.CompilationTask task = javac.getTask(null, fm, diagnostics, opts, null, sources);
         boolean success = task.call();
 
         if (!success) {
@@ -158,7 +166,7 @@ public class CompileTest {
             String file = Utils.join(lines, "\n");
 
             Collection<JavaSourceFromString> sources = Collections.singleton(new JavaSourceFromString(shortName, file));
-            JavaCompiler.CompilationTask task = javac.getTask(null, fm, diagnostics, null, null, sources);
+            JavaCompiler.CompilationTask task = javac.getTask(null, fm, diagnostics, SOURCE_LEVEL, null, sources);
 
             boolean success = task.call();
 
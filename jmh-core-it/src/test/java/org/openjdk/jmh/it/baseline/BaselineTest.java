@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.baseline;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the baseline twin runs neither the payload nor its fixtures,
+ * and that the baseline results are reported.
+ */
+@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(2)
+public class BaselineTest {
+
+    @State(Scope.Thread)
+    public static class MyState {
+        private final AtomicInteger countInvocations = new AtomicInteger();
+        private final AtomicInteger countSetupIteration = new AtomicInteger();
+        private final AtomicInteger countTearDownIteration = new AtomicInteger();
+        private final AtomicInteger countSetupInvocation = new AtomicInteger();
+        private final AtomicInteger countTearDownInvocation = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setupIteration() {
+            countSetupIteration.incrementAndGet();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownIteration() {
+            countTearDownIteration.incrementAndGet();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            countSetupInvocation.incrementAndGet();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDownInvocation() {
+            countTearDownInvocation.incrementAndGet();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Assert.assertEquals("Iteration setup runs for the benchmark iterations only", 5, countSetupIteration.get());
+            Assert.assertEquals("Iteration tear down runs for the benchmark iterations only", 5, countTearDownIteration.get());
+            Assert.assertEquals("Invocation setup = invocation count", countInvocations.get(), countSetupInvocation.get());
+            Assert.assertEquals("Invocation tear down = invocation count", countInvocations.get(), countTearDownInvocation.get());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        private final AtomicInteger countSetupIteration = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setupIteration() {
+            countSetupIteration.incrementAndGet();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Assert.assertEquals("Iteration setup runs for the benchmark iterations only", 5, countSetupIteration.get());
+        }
+    }
+
+    @Benchmark
+    public int test(MyState state, SharedState shared) {
+        Fixtures.work();
+        return state.countInvocations.incrementAndGet();
+    }
+
+    @Test
+    public void invokeCLI() throws RunnerException, CommandLineOptionException {
+        for (Mode mode : new Mode[]{Mode.Throughput, Mode.AverageTime, Mode.SampleTime}) {
+            for (int c = 0; c < Fixtures.repetitionCount(); c++) {
+                Options opts = new CommandLineOptions(
+                        "-bm", mode.shortLabel(),
+                        "-bl", "correct",
+                        "-foe", "true",
+                        Fixtures.getTestMask(this.getClass()));
+
+                RunResult result = new Runner(opts).runSingle();
+                Result prim = result.getPrimaryResult();
+                Result baseline = result.getSecondaryResults().get(Defaults.PREFIX + "baseline");
+                Result corrected = result.getSecondaryResults().get(Defaults.PREFIX + "baseline.corrected");
+
+                Assert.assertNotNull("Baseline is reported for " + mode, baseline);
+                Assert.assertNotNull("Corrected score is reported for " + mode, corrected);
+                Assert.assertEquals(prim.getScoreUnit(), baseline.getScoreUnit());
+                Assert.assertEquals(prim.getScoreUnit(), corrected.getScoreUnit());
+
+                // The payload sleeps, the harness cost is negligible against it.
+                if (mode == Mode.Throughput) {
+                    Assert.assertTrue("Baseline is faster than the benchmark", baseline.getScore() > prim.getScore());
+                } else {
+                    Assert.assertTrue("Baseline is faster than the benchmark", baseline.getScore() < prim.getScore());
+                }
+                Assert.assertEquals(prim.getScore(), corrected.getScore(), prim.getScore() * 0.05);
+            }
+        }
+    }
+
+}
@@ -96,6 +96,7 @@ public class OpsPerInvSanityTest {
                 break;
             case AverageTime:
             case SampleTime:
+            case RateLimited:
                 expectedScore = 1.0 * SLEEP_TIME_MS / opsPerInv;
                 actualScore   = statistics.getMin();
                 break;
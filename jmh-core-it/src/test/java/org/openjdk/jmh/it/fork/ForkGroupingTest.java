@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.fork;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ForkGrouping;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that benchmarks in the same fork group share the trial state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+public class ForkGroupingTest {
+
+    static final AtomicInteger SETUPS = new AtomicInteger();
+    static volatile boolean test1Done, test2Done;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Assert.assertEquals("Setup once per fork", 1, SETUPS.incrementAndGet());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Assert.assertTrue("Tear down after all benchmarks", test1Done && test2Done);
+    }
+
+    @Benchmark
+    public void test1() {
+        Fixtures.work();
+        test1Done = true;
+    }
+
+    @Benchmark
+    public void test2() {
+        Fixtures.work();
+        test2Done = true;
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .forks(2)
+                .forkGrouping(ForkGrouping.CLASS)
+                .build();
+        Collection<RunResult> results = new Runner(opt).run();
+        Assert.assertEquals(2, results.size());
+        for (RunResult r : results) {
+            Assert.assertEquals(4, r.getPrimaryResult().getStatistics().getN());
+
+            // metadata comes back for each benchmark in the group
+            for (BenchmarkResult br : r.getBenchmarkResults()) {
+                Assert.assertNotNull(br.getMetadata());
+                Assert.assertTrue(br.getMetadata().getMeasurementOps() > 0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.pollstride;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the measurement loop keeps the operation count exact and the overshoot bounded
+ * when checking for the iteration end every few invocations.
+ */
+@Warmup(iterations = 2, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class PollStrideTest {
+
+    private static final int OVERSHOOT_MS = 5;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long invocations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            invocations = 0;
+        }
+    }
+
+    @Benchmark
+    public void test(Counters cnt) {
+        cnt.invocations++;
+        Blackhole.consumeCPU(100);
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        for (Mode mode : new Mode[]{Mode.Throughput, Mode.AverageTime}) {
+            for (int c = 0; c < Fixtures.repetitionCount(); c++) {
+                Options opts = new OptionsBuilder()
+                        .include(Fixtures.getTestMask(this.getClass()))
+                        .mode(mode)
+                        .pollOvershoot(TimeValue.milliseconds(OVERSHOOT_MS))
+                        .shouldFailOnError(true)
+                        .build();
+
+                RunResult result = new Runner(opts).runSingle();
+
+                // Every invocation is counted: the payload count matches the harness count.
+                Result prim = result.getPrimaryResult();
+                Result scnd = result.getSecondaryResults().get("invocations");
+                Assert.assertNotNull(scnd);
+                Assert.assertEquals(prim.getSampleCount(), scnd.getSampleCount());
+                Assert.assertEquals(prim.getScore(), scnd.getScore(), prim.getScore() * 1e-9);
+
+                // The measurement ends within the allowed overshoot, modulo scheduling noise.
+                for (IterationResult ir : result.getBenchmarkResults().iterator().next().getIterationResults()) {
+                    IterationResultMetaData md = ir.getMetadata();
+                    long duration = md.getStopTime() - md.getStartTime();
+                    Assert.assertTrue("Iteration took " + duration + " ms", duration < 200 + OVERSHOOT_MS + 100);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.profilers;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.profile.HotspotPerfDataProfiler;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+
+public class HotspotPerfDataProfilerTest extends AbstractHotspotProfilerTest {
+
+    @Test
+    public void test() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .addProfiler(HotspotPerfDataProfiler.class)
+                .build();
+        RunResult rr = new Runner(opts).runSingle();
+
+        if (isHotspotVM()) {
+            Map<String, Result> sr = rr.getSecondaryResults();
+            Assert.assertTrue("Should have safepoint counters: " + sr.keySet(),
+                    sr.containsKey(Defaults.PREFIX + "sun.rt.safepoints"));
+        }
+    }
+}
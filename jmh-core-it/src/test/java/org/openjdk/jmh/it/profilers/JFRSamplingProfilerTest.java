@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.profilers;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.profile.JFRSamplingProfiler;
+import org.openjdk.jmh.profile.ProfilerException;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests JFR sampling profiler.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1) // 0 to enable debugging
+@Warmup(iterations = 2, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class JFRSamplingProfilerTest {
+
+    @Benchmark
+    public Object alloc() {
+        return new byte[1024];
+    }
+
+    @Test
+    public void test() throws RunnerException {
+        try {
+            new JFRSamplingProfiler("");
+        } catch (ProfilerException e) {
+            // JFR streaming is not available
+            return;
+        }
+
+        Options opts = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .addProfiler(JFRSamplingProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(opts).run();
+
+        for (RunResult rr : results) {
+            for (BenchmarkResult br : rr.getBenchmarkResults()) {
+                // every measured iteration gets its own share of the trial-wide stream
+                for (IterationResult ir : br.getIterationResults()) {
+                    Result r = ir.getSecondaryResults().get("·jfr");
+                    Assert.assertNotNull("JFR result is expected in every iteration", r);
+                }
+            }
+
+            Result r = rr.getSecondaryResults().get("·jfr");
+            Assert.assertNotNull(r);
+            String info = r.extendedInfo();
+            Assert.assertTrue(info, info.contains(JFRSamplingProfilerTest.class.getSimpleName()));
+            Assert.assertFalse(info, info.contains("<no samples>"));
+        }
+    }
+}
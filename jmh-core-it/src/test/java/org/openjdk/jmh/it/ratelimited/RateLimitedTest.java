@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.ratelimited;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that rate-limited mode keeps the schedule, and accounts for the calls delayed by the stalls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.RateLimited)
+@Rate(RateLimitedTest.RATE)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class RateLimitedTest {
+
+    static final int RATE = 100;
+    static final int STALL_EVERY = 20;
+    static final int STALL_MS = 50;
+
+    int calls;
+
+    @Benchmark
+    public void test() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep((++calls % STALL_EVERY == 0) ? STALL_MS : 1);
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .build();
+        RunResult run = new Runner(opt).runSingle();
+
+        Result requested = run.getSecondaryResults().get(Defaults.PREFIX + "rate.requested");
+        Result achieved = run.getSecondaryResults().get(Defaults.PREFIX + "rate.achieved");
+        Assert.assertNotNull(requested);
+        Assert.assertNotNull(achieved);
+        Assert.assertEquals(RATE, requested.getScore(), 0.001);
+        Assert.assertEquals(RATE, achieved.getScore(), RATE * 0.2);
+
+        // Every stall delays the next few scheduled calls, and they should all record the delay.
+        // Closed-loop measurement would only see the single slow call.
+        Assert.assertTrue("Delayed calls are accounted: " + run.getPrimaryResult().getStatistics().getPercentile(90),
+                run.getPrimaryResult().getStatistics().getPercentile(90) > 5);
+    }
+
+}
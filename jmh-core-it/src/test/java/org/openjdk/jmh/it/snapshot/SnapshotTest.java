@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.snapshot;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Snapshot;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the first fork sets up the snapshot state, and the next forks restore it.
+ */
+@State(Scope.Benchmark)
+@Snapshot
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+public class SnapshotTest {
+
+    static final String LOG_PROPERTY = "jmh.it.snapshot.log";
+
+    int[] data;
+
+    private static void log(String event) throws IOException {
+        try (FileWriter fw = new FileWriter(System.getProperty(LOG_PROPERTY), true)) {
+            fw.write(event + " " + System.getProperty("jmh.snapshot.runDir") + System.lineSeparator());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = new int[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        log("setup");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Assert.assertNotNull("State is set up or restored", data);
+        Assert.assertEquals(999, data[999]);
+        log("teardown");
+    }
+
+    @Benchmark
+    public void test() {
+        Fixtures.work();
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException, IOException {
+        File log = FileUtils.tempFile("snapshot-log");
+        Options opt = new OptionsBuilder()
+                .include(Fixtures.getTestMask(this.getClass()))
+                .shouldFailOnError(true)
+                .forks(3)
+                .jvmArgsAppend("-D" + LOG_PROPERTY + "=" + log.getAbsolutePath())
+                .build();
+        new Runner(opt).run();
+
+        Collection<String> lines = FileUtils.readAllLines(log);
+        int setups = 0;
+        int tearDowns = 0;
+        for (String line : lines) {
+            String[] parts = line.split(" ", 2);
+            if (parts[0].equals("setup")) {
+                setups++;
+            } else {
+                tearDowns++;
+            }
+            Assert.assertFalse("Snapshots are deleted after the run: " + line, new File(parts[1]).exists());
+        }
+        Assert.assertEquals("Only the first fork sets up the state", 1, setups);
+        Assert.assertEquals(3, tearDowns);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.it.threads;
+
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.it.Fixtures;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that virtual thread executor keeps the worker identity across iterations,
+ * and runs all the requested workers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 2, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djmh.executor=VIRTUAL")
+@Threads(VirtualThreadsTest.THREADS)
+public class VirtualThreadsTest {
+
+    static final int THREADS = 2000;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final Set<Integer> indexes = Collections.synchronizedSet(new HashSet<Integer>());
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            Assert.assertEquals("all workers should run", THREADS, indexes.size());
+            indexes.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Local {
+        int index = -1;
+
+        @Setup(Level.Trial)
+        public void setup(ThreadParams tp) {
+            index = tp.getThreadIndex();
+        }
+
+        @Setup(Level.Iteration)
+        public void check(ThreadParams tp) {
+            Assert.assertEquals("worker should keep its thread params", index, tp.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public void test(Shared s, Local l) throws InterruptedException {
+        s.indexes.add(l.index);
+        TimeUnit.MILLISECONDS.sleep(1);
+    }
+
+    @Test
+    public void invokeAPI() throws RunnerException {
+        try {
+            Class.forName("java.lang.Thread$Builder$OfVirtual");
+        } catch (ClassNotFoundException e) {
+            // virtual threads are not supported by this VM
+            Assume.assumeTrue(false);
+        }
+
+        for (int c = 0; c < Fixtures.repetitionCount(); c++) {
+            Options opt = new OptionsBuilder()
+                    .include(Fixtures.getTestMask(this.getClass()))
+                    .shouldFailOnError(true)
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+
+}
@@ -24,12 +24,14 @@
  */
 package org.openjdk.jmh;
 
+import org.openjdk.jmh.results.format.ResultComparator;
 import org.openjdk.jmh.runner.*;
 import org.openjdk.jmh.runner.options.CommandLineOptionException;
 import org.openjdk.jmh.runner.options.CommandLineOptions;
 import org.openjdk.jmh.runner.options.VerboseMode;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Main program entry point
@@ -67,6 +69,15 @@ public class Main {
                 return;
             }
 
+            if (cmdOptions.shouldCompare()) {
+                List<String> files = cmdOptions.getCompareFiles();
+                ResultComparator comparator = new ResultComparator(cmdOptions.getCompareThreshold());
+                if (comparator.compare(files.get(0), files.get(1), System.out) > 0) {
+                    System.exit(1);
+                }
+                return;
+            }
+
             try {
                 runner.run();
             } catch (NoBenchmarksException e) {
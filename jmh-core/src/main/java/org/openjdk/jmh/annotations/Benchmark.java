@@ -63,6 +63,11 @@ import java.lang.annotation.Target;
  *
  * <p>Benchmark method may declare Exceptions and Throwables to throw. Any exception actually
  * raised and thrown will be treated as benchmark failure.</p>
+ *
+ * <p>Benchmark method returning {@code java.util.concurrent.CompletionStage} or
+ * {@code java.util.concurrent.CompletableFuture} is treated as asynchronous: the operation
+ * is counted when the returned stage completes, and the stage completed exceptionally
+ * is treated as benchmark failure. See {@link InFlight} for more details.</p>
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>InFlight annotation limits the number of outstanding operations for asynchronous
+ * {@link Benchmark} methods.</p>
+ *
+ * <p>{@link Benchmark} method is asynchronous when it returns
+ * {@code java.util.concurrent.CompletionStage} or {@code java.util.concurrent.CompletableFuture}.
+ * Each benchmark thread then issues new calls as long as there are less than {@code value}
+ * returned stages not yet completed, and waits for the completions otherwise. The operation
+ * is counted, and its time is measured, when the returned stage completes. The outstanding
+ * operations are drained at the end of each iteration. Without this annotation, asynchronous
+ * benchmarks keep a single operation in flight.</p>
+ *
+ * <p>This annotation may be put at {@link Benchmark} method to have effect on that method
+ * only, or at the enclosing class instance to have the effect over all {@link Benchmark}
+ * methods in the class.</p>
+ */
+@Inherited
+@Target({ElementType.METHOD,ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface InFlight {
+
+    /**
+     * @return Maximum number of outstanding operations, per thread.
+     */
+    int value();
+
+}
@@ -79,6 +79,26 @@ public enum Mode {
      */
     SingleShotTime("ss", "Single shot invocation time"),
 
+    /**
+     * <p>Rate-limited time: measures the time for each operation issued at a fixed rate.</p>
+     *
+     * <p>Runs by calling {@link Benchmark} methods on a fixed schedule, set with {@link Rate},
+     * and records the time for every call, starting from the time the call was scheduled to
+     * start. Unlike {@link #SampleTime}, slow calls do not delay the schedule, and the calls
+     * queued up behind the slow call record the waiting time as well. This mode is time-based,
+     * and it will run until the iteration time expires.</p>
+     *
+     * Caveats for this mode include:
+     * <ul>
+     *  <li>Target rate should be chosen for the benchmark, either with {@link Rate}, or with
+     *  the runtime options. The default rate is rarely the one the benchmark is interested in.</li>
+     *  <li>If the benchmark cannot sustain the target rate, the recorded times would grow
+     *  throughout the iteration. Compare the achieved and requested rates reported in
+     *  the secondary results.</li>
+     * </ul>
+     */
+    RateLimited("rate", "Rate-limited time, time/op"),
+
     /**
      * Meta-mode: all the benchmark modes.
      * This is mostly useful for internal JMH testing.
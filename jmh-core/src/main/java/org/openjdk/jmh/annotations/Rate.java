@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Rate annotation sets the target operation rate for {@link Mode#RateLimited} mode.</p>
+ *
+ * <p>Each benchmark thread issues {@link Benchmark} calls on a fixed schedule, one every
+ * {@code 1/value} seconds, regardless of how long the previous calls took. The latency
+ * of each call is measured from its scheduled start, so calls that queued up behind
+ * a slow call are not omitted from the distribution.</p>
+ *
+ * <p>This annotation may be put at {@link Benchmark} method to have effect on that method
+ * only, or at the enclosing class instance to have the effect over all {@link Benchmark}
+ * methods in the class. This annotation may be overridden with the runtime options.</p>
+ */
+@Inherited
+@Target({ElementType.METHOD,ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Rate {
+
+    /**
+     * @return Target number of operations per second, per thread.
+     */
+    int value();
+
+}
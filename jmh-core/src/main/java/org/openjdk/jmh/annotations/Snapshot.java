@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>{@link Snapshot} annotation marks {@link State} objects which are expensive to set up
+ * at {@link Level#Trial}, and whose initialized contents can be persisted and reused.
+ * The first fork that sets up the state saves its snapshot into the file; the subsequent
+ * forks map that file read-only, and restore the state from it instead of calling
+ * the {@link Level#Trial} {@link Setup} methods.</p>
+ *
+ * <p>Properties:</p>
+ *
+ * <ul>
+ *     <li>Snapshots are keyed by the state class and the benchmark parameters:
+ *     every combination of {@link Param} values has its own snapshot.</li>
+ *
+ *     <li>By default, all non-static non-transient fields of the state class and its
+ *     superclasses are persisted with Java serialization, and field values should be
+ *     serializable. Mark the fields that should not be persisted {@code transient}.
+ *     Alternatively, the state class can implement
+ *     {@link org.openjdk.jmh.infra.StateSnapshot} to write and read the snapshot
+ *     itself. That also allows to use the mapped snapshot contents directly,
+ *     without copying them.</li>
+ *
+ *     <li>Only the state fields are restored. {@link Level#Trial} {@link Setup} methods
+ *     are skipped, and the side effects they have outside the state object would not
+ *     happen. Setup methods of other levels, and all {@link TearDown} methods
+ *     run as usual.</li>
+ *
+ *     <li>Snapshot is discarded and set up again when it is stale: when the
+ *     state class changes, when {@link #version()} changes, or when the snapshot
+ *     file fails the integrity checks.</li>
+ *
+ *     <li>Snapshots live for the run: they are kept in the temporary directory
+ *     that is deleted when the run is over. To reuse the snapshots in the next runs,
+ *     set the {@code jmh.snapshot.dir} system property of the forked VM to the directory
+ *     to keep them in. Only the staleness checks above guard such snapshots: bump
+ *     {@link #version()} when anything else the state is set up from changes.</li>
+ * </ul>
+ *
+ * <p><b>CAVEAT: THIS IS AN EXPERIMENTAL API, it may be changed or removed in future
+ * without prior warning. This is a sharp tool, use with care.</b></p>
+ */
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Snapshot {
+
+    /**
+     * Snapshot version. Change it to discard the existing snapshots, for example
+     * when the data the state is set up from had changed.
+     *
+     * @return snapshot version
+     */
+    String version() default "";
+
+}
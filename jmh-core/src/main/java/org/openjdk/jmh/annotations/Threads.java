@@ -37,6 +37,10 @@ import java.lang.annotation.Target;
  * on that method only, or at the enclosing class instance to have the effect
  * over all {@link Benchmark} methods in the class. This annotation may be
  * overridden with the runtime options.</p>
+ *
+ * <p>Running with thousands of threads is best done on virtual threads (JDK 21+),
+ * which are requested with {@code -Djmh.executor=VIRTUAL} passed to the forked VM,
+ * for example with {@code @Fork(jvmArgsAppend = "-Djmh.executor=VIRTUAL")}.</p>
  */
 @Inherited
 @Target({ElementType.METHOD,ElementType.TYPE})
@@ -31,6 +31,7 @@ import org.openjdk.jmh.runner.*;
 import org.openjdk.jmh.runner.Defaults;
 import org.openjdk.jmh.util.HashMultimap;
 import org.openjdk.jmh.util.Multimap;
+import org.openjdk.jmh.util.ConcurrentSampleBuffer;
 import org.openjdk.jmh.util.SampleBuffer;
 
 import java.io.*;
@@ -49,6 +50,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class BenchmarkGenerator {
 
     private static final String JMH_STUB_SUFFIX = "_jmhStub";
+    private static final String JMH_BASELINE_SUFFIX = "_jmhBaseline";
+    private static final int ASYNC_SAMPLE_STRIPES = 8;
     private static final String JMH_TESTCLASS_SUFFIX = "_jmhTest";
     protected static final String JMH_GENERATED_SUBPACKAGE = "jmh_generated";
 
@@ -102,6 +105,7 @@ public class BenchmarkGenerator {
              */
             for (Mode mode : Mode.values()) {
                 compilerControl.alwaysDontInline("*", "*_" + mode.shortLabel() + JMH_STUB_SUFFIX);
+                compilerControl.alwaysDontInline("*", "*_" + mode.shortLabel() + JMH_BASELINE_SUFFIX);
             }
 
             compilerControl.process(source, destination);
@@ -169,6 +173,7 @@ public class BenchmarkGenerator {
                             group.getParams(),
                             group.getOutputTimeUnit(),
                             group.getOperationsPerInvocation(),
+                            group.getRate(),
                             group.getTimeout()
                     );
 
@@ -288,6 +293,12 @@ public class BenchmarkGenerator {
                         + " method can not be abstract.", m);
             }
 
+            InFlight inFlight = BenchmarkGeneratorUtils.getAnnSuper(m, InFlight.class);
+            if (inFlight != null && inFlight.value() <= 0) {
+                throw new GenerationException("@" + InFlight.class.getSimpleName()
+                        + " should allow at least one operation in flight.", m);
+            }
+
             if (m.isSynchronized()) {
                 State annState = BenchmarkGeneratorUtils.getAnnSuper(m, State.class);
                 if (annState == null) {
@@ -311,6 +322,12 @@ public class BenchmarkGenerator {
                 throw new GenerationException("The " + OperationsPerInvocation.class.getSimpleName() +
                         " needs to be greater than 0.", m);
             }
+
+            Rate rate = BenchmarkGeneratorUtils.getAnnSuper(m, clazz, Rate.class);
+            if (rate != null && rate.value() < 1) {
+                throw new GenerationException("The " + Rate.class.getSimpleName() +
+                        " needs to be greater than 0.", m);
+            }
         }
 
         // validate @Group-s
@@ -467,6 +484,10 @@ public class BenchmarkGenerator {
         writer.println(ident(1) + "ThreadParams threadParams;");
         writer.println(ident(1) + "Blackhole blackhole;");
         writer.println(ident(1) + "Control notifyControl;");
+        writer.println(ident(1) + "ConcurrentSampleBuffer sampleBuffer;");
+        if (hasAsync(info.methodGroup)) {
+            writer.println(ident(1) + "InFlightTracker inFlight;");
+        }
 
         // write all methods
         for (Mode benchmarkKind : Mode.values()) {
@@ -474,6 +495,20 @@ public class BenchmarkGenerator {
             generateMethod(benchmarkKind, writer, info.methodGroup, states);
         }
 
+        // completion stages are only available since JDK 8, keep them out of non-async benchmarks;
+        // generated code should still compile at the language level without lambdas
+        if (hasAsync(info.methodGroup)) {
+            writer.println(ident(1) + "static void _jmh_track(final InFlightTracker inFlight, final long start, java.util.concurrent.CompletionStage<?> stage) {");
+            writer.println(ident(2) + "stage.whenComplete(new java.util.function.BiConsumer<Object, Throwable>() {");
+            writer.println(ident(3) + "@Override");
+            writer.println(ident(3) + "public void accept(Object r, Throwable t) {");
+            writer.println(ident(4) + "inFlight.complete(start, t);");
+            writer.println(ident(3) + "}");
+            writer.println(ident(2) + "});");
+            writer.println(ident(1) + "}");
+            writer.println();
+        }
+
         // Write out state initializers
         for (String s : states.getStateInitializers()) {
             writer.println(ident(1) + s);
@@ -504,11 +539,11 @@ public class BenchmarkGenerator {
                 InfraControl.class, ThreadParams.class,
                 BenchmarkTaskResult.class,
                 Result.class, ThroughputResult.class, AverageTimeResult.class,
-                SampleTimeResult.class, SingleShotResult.class, SampleBuffer.class,
+                SampleTimeResult.class, SingleShotResult.class, SampleBuffer.class, ConcurrentSampleBuffer.class,
                 Mode.class, Fork.class, Measurement.class, Threads.class, Warmup.class,
                 BenchmarkMode.class, RawResults.class, ResultRole.class,
                 Field.class, BenchmarkParams.class, IterationParams.class,
-                Blackhole.class, Control.class,
+                Blackhole.class, Control.class, InFlightTracker.class,
                 ScalarResult.class, AggregationPolicy.class,
                 FailureAssistException.class
         };
@@ -537,6 +572,9 @@ public class BenchmarkGenerator {
             case SingleShotTime:
                 generateSingleShotTime(writer, benchmarkKind, methodGroup, states);
                 break;
+            case RateLimited:
+                generateRateLimited(writer, benchmarkKind, methodGroup, states);
+                break;
             default:
                 throw new AssertionError("Shouldn't be here");
         }
@@ -555,6 +593,7 @@ public class BenchmarkGenerator {
 
             writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
             writer.println(ident(3) + "RawResults res = new RawResults();");
+            asyncProlog(writer, methodGroup, method);
 
             iterationProlog(writer, 3, method, states);
 
@@ -564,9 +603,7 @@ public class BenchmarkGenerator {
             // synchronize iterations prolog: catchup loop
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
-            invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 4, method, states, false);
+            syncBody(writer, 4, method, states);
 
             writer.println(ident(4) + "res.allOps++;");
             writer.println(ident(3) + "}");
@@ -576,12 +613,14 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "notifyControl.startMeasurement = true;");
 
             // measurement loop call
-            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX +
-                    "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+            stubCall(writer, benchmarkKind, method, getStubArgs(method) + prefix(states.getArgList(method)));
 
             // control objects get a special treatment
             writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
 
+            // async operations issued during measurement complete before warmdown
+            asyncDrain(writer, 3, method);
+
             // synchronize iterations epilog: announce ready
             writer.println(ident(3) + "control.announceWarmdownReady();");
 
@@ -589,12 +628,11 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "try {");
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
-            invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 5, method, states, false);
+            syncBody(writer, 5, method, states);
 
             writer.println(ident(5) + "res.allOps++;");
             writer.println(ident(4) + "}");
+            asyncDrain(writer, 4, method);
             writer.println(ident(4) + "control.preTearDown();");
             writer.println(ident(3) + "} catch (InterruptedException ie) {");
             writer.println(ident(4) + "control.preTearDownForce();");
@@ -647,28 +685,94 @@ public class BenchmarkGenerator {
 
         // measurement loop bodies
         for (MethodInfo method : methodGroup.methods()) {
-            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
-
             compilerControl.defaultForceInline(method);
+            loopStub(writer, benchmarkKind, methodGroup, method, states, false);
+            loopStub(writer, benchmarkKind, methodGroup, method, states, true);
+        }
+    }
 
-            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
-                    getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
-            writer.println(ident(2) + "long operations = 0;");
-            writer.println(ident(2) + "long realTime = 0;");
-            writer.println(ident(2) + "result.startTime = System.nanoTime();");
-            writer.println(ident(2) + "do {");
-
-            invocationProlog(writer, 3, method, states, true);
-            writer.println(ident(3) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 3, method, states, true);
+    /**
+     * Emits the call to the measurement loop stub. The harness may ask to run the
+     * baseline twin instead, that has the same loop, but does not call the payload.
+     */
+    private void stubCall(PrintWriter writer, Mode benchmarkKind, MethodInfo method, String args) {
+        String name = method.getName() + "_" + benchmarkKind.shortLabel();
+        writer.println(ident(3) + "if (control.baseline) {");
+        writer.println(ident(4) + name + JMH_BASELINE_SUFFIX + "(" + args + ");");
+        writer.println(ident(3) + "} else {");
+        writer.println(ident(4) + name + JMH_STUB_SUFFIX + "(" + args + ");");
+        writer.println(ident(3) + "}");
+    }
 
-            writer.println(ident(3) + "operations++;");
-            writer.println(ident(2) + "} while(!control.isDone);");
-            writer.println(ident(2) + "result.stopTime = System.nanoTime();");
-            writer.println(ident(2) + "result.realTime = realTime;");
+    /**
+     * Emits the measurement loop stub for Throughput and AverageTime modes.
+     */
+    private void loopStub(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, MethodInfo method, StateObjectHandler states, boolean baseline) {
+        String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + (baseline ? JMH_BASELINE_SUFFIX : JMH_STUB_SUFFIX);
+        boolean isAsync = !baseline && BenchmarkGeneratorUtils.isAsync(method);
+
+        writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
+                getStubTypeArgs(method) + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+        writer.println(ident(2) + "long operations = 0;");
+        writer.println(ident(2) + "long realTime = 0;");
+        writer.println(ident(2) + "result.startTime = System.nanoTime();");
+        if (isAsync) {
+            writer.println(ident(2) + "inFlight.startMeasurement(null, 1);");
+        }
+        measurementLoop(writer, method, states, baseline);
+        writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+        writer.println(ident(2) + "result.realTime = realTime;");
+        if (isAsync) {
+            // async operations are counted on completion
+            writer.println(ident(2) + "result.measuredOps = inFlight.stopMeasurement();");
+        } else {
             writer.println(ident(2) + "result.measuredOps = operations;");
-            writer.println(ident(1) + "}");
-            writer.println();
+        }
+        writer.println(ident(1) + "}");
+        writer.println();
+    }
+
+    /**
+     * Emits the measurement loop for the modes that run the payload until the iteration is done.
+     * The harness may ask to check for the iteration end every {@code control.pollStride} invocations:
+     * the loop runs a whole stride between the checks, which keeps the operation count exact.
+     */
+    private void measurementLoop(PrintWriter writer, MethodInfo method, StateObjectHandler states, boolean baseline) {
+        if (!baseline && BenchmarkGeneratorUtils.isAsync(method)) {
+            plainMeasurementLoop(writer, 2, method, states, false);
+            return;
+        }
+
+        writer.println(ident(2) + "int pollStride = control.pollStride;");
+        writer.println(ident(2) + "if (pollStride > 1) {");
+        writer.println(ident(3) + "do {");
+        writer.println(ident(4) + "for (int pollCount = 0; pollCount < pollStride; pollCount++) {");
+        loopBody(writer, 5, method, states, baseline);
+        writer.println(ident(4) + "}");
+        writer.println(ident(4) + "operations += pollStride;");
+        writer.println(ident(3) + "} while(!control.isDone);");
+        writer.println(ident(2) + "} else {");
+        plainMeasurementLoop(writer, 3, method, states, baseline);
+        writer.println(ident(2) + "}");
+    }
+
+    private void plainMeasurementLoop(PrintWriter writer, int prefix, MethodInfo method, StateObjectHandler states, boolean baseline) {
+        writer.println(ident(prefix) + "do {");
+        loopBody(writer, prefix + 1, method, states, baseline);
+        writer.println(ident(prefix + 1) + "operations++;");
+        writer.println(ident(prefix) + "} while(!control.isDone);");
+    }
+
+    private void loopBody(PrintWriter writer, int prefix, MethodInfo method, StateObjectHandler states, boolean baseline) {
+        if (baseline) {
+            String call = emitBaselineCall(method);
+            if (call != null) {
+                writer.println(ident(prefix) + call + ';');
+            }
+        } else {
+            invocationProlog(writer, prefix, method, states, true);
+            writer.println(ident(prefix) + emitCall(method, states) + ';');
+            invocationEpilog(writer, prefix, method, states, true);
         }
     }
 
@@ -691,6 +795,7 @@ public class BenchmarkGenerator {
 
             writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
             writer.println(ident(3) + "RawResults res = new RawResults();");
+            asyncProlog(writer, methodGroup, method);
 
             iterationProlog(writer, 3, method, states);
 
@@ -700,9 +805,7 @@ public class BenchmarkGenerator {
             // synchronize iterations prolog: catchup loop
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
-            invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 4, method, states, false);
+            syncBody(writer, 4, method, states);
 
             writer.println(ident(4) + "res.allOps++;");
             writer.println(ident(3) + "}");
@@ -712,11 +815,14 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "notifyControl.startMeasurement = true;");
 
             // measurement loop call
-            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" + getStubArgs() + prefix(states.getArgList(method)) + ");");
+            stubCall(writer, benchmarkKind, method, getStubArgs(method) + prefix(states.getArgList(method)));
 
             // control objects get a special treatment
             writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
 
+            // async operations issued during measurement complete before warmdown
+            asyncDrain(writer, 3, method);
+
             // synchronize iterations epilog: announce ready
             writer.println(ident(3) + "control.announceWarmdownReady();");
 
@@ -724,12 +830,11 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "try {");
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
-            invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 5, method, states, false);
+            syncBody(writer, 5, method, states);
 
             writer.println(ident(5) + "res.allOps++;");
             writer.println(ident(4) + "}");
+            asyncDrain(writer, 4, method);
             writer.println(ident(4) + "control.preTearDown();");
             writer.println(ident(3) + "} catch (InterruptedException ie) {");
             writer.println(ident(4) + "control.preTearDownForce();");
@@ -779,38 +884,36 @@ public class BenchmarkGenerator {
 
         // measurement loop bodies
         for (MethodInfo method : methodGroup.methods()) {
-            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
             compilerControl.defaultForceInline(method);
+            loopStub(writer, benchmarkKind, methodGroup, method, states, false);
+            loopStub(writer, benchmarkKind, methodGroup, method, states, true);
+        }
+    }
 
-            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName +
-                    "(" + getStubTypeArgs() + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
-            writer.println(ident(2) + "long operations = 0;");
-            writer.println(ident(2) + "long realTime = 0;");
-            writer.println(ident(2) + "result.startTime = System.nanoTime();");
-            writer.println(ident(2) + "do {");
-
-            invocationProlog(writer, 3, method, states, true);
-            writer.println(ident(3) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 3, method, states, true);
-
-            writer.println(ident(3) + "operations++;");
-            writer.println(ident(2) + "} while(!control.isDone);");
-            writer.println(ident(2) + "result.stopTime = System.nanoTime();");
-            writer.println(ident(2) + "result.realTime = realTime;");
-            writer.println(ident(2) + "result.measuredOps = operations;");
-            writer.println(ident(1) + "}");
-            writer.println();
+    /**
+     * Emits the lazy creation of the per-worker sample buffer. Async completions arrive on the
+     * threads the benchmark picked, and those record into the stripes of their own.
+     */
+    private void newSampleBuffer(PrintWriter writer, MethodInfo method) {
+        writer.println(ident(3) + "if (sampleBuffer == null) {");
+        if (BenchmarkGeneratorUtils.isAsync(method)) {
+            writer.println(ident(4) + "sampleBuffer = new ConcurrentSampleBuffer(Math.min(" + ASYNC_SAMPLE_STRIPES + ", Runtime.getRuntime().availableProcessors()));");
+        } else {
+            writer.println(ident(4) + "sampleBuffer = new ConcurrentSampleBuffer();");
         }
+        writer.println(ident(3) + "}");
     }
 
-    private String getStubArgs() {
-        return "control, res, benchmarkParams, iterationParams, threadParams, blackhole, notifyControl, startRndMask";
+    private String getStubArgs(MethodInfo method) {
+        return "control, res, benchmarkParams, iterationParams, threadParams, blackhole, notifyControl, startRndMask" +
+                (BenchmarkGeneratorUtils.isAsync(method) ? ", inFlight" : "");
     }
 
-    private String getStubTypeArgs() {
+    private String getStubTypeArgs(MethodInfo method) {
         return "InfraControl control, RawResults result, " +
                 "BenchmarkParams benchmarkParams, IterationParams iterationParams, ThreadParams threadParams, " +
-                "Blackhole blackhole, Control notifyControl, int startRndMask";
+                "Blackhole blackhole, Control notifyControl, int startRndMask" +
+                (BenchmarkGeneratorUtils.isAsync(method) ? ", InFlightTracker inFlight" : "");
     }
 
     private void methodProlog(PrintWriter writer) {
@@ -849,6 +952,7 @@ public class BenchmarkGenerator {
 
             writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
             writer.println(ident(3) + "RawResults res = new RawResults();");
+            asyncProlog(writer, methodGroup, method);
 
             iterationProlog(writer, 3, method, states);
 
@@ -858,9 +962,7 @@ public class BenchmarkGenerator {
             // synchronize iterations prolog: catchup loop
             writer.println(ident(3) + "while (control.warmupShouldWait) {");
 
-            invocationProlog(writer, 4, method, states, false);
-            writer.println(ident(4) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 4, method, states, false);
+            syncBody(writer, 4, method, states);
 
             writer.println(ident(4) + "res.allOps++;");
             writer.println(ident(3) + "}");
@@ -873,13 +975,16 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "int targetSamples = (int) (control.getDuration(TimeUnit.MILLISECONDS) * 20); // at max, 20 timestamps per millisecond");
             writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
             writer.println(ident(3) + "int opsPerInv = benchmarkParams.getOpsPerInvocation();");
-            writer.println(ident(3) + "SampleBuffer buffer = new SampleBuffer();");
-            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
-                    getStubArgs() + ", buffer, targetSamples, opsPerInv, batchSize" + prefix(states.getArgList(method)) + ");");
+            newSampleBuffer(writer, method);
+            stubCall(writer, benchmarkKind, method,
+                    getStubArgs(method) + ", sampleBuffer, targetSamples, opsPerInv, batchSize" + prefix(states.getArgList(method)));
 
             // control objects get a special treatment
             writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
 
+            // async operations issued during measurement complete before warmdown
+            asyncDrain(writer, 3, method);
+
             // synchronize iterations epilog: announce ready
             writer.println(ident(3) + "control.announceWarmdownReady();");
 
@@ -887,12 +992,11 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "try {");
             writer.println(ident(4) + "while (control.warmdownShouldWait) {");
 
-            invocationProlog(writer, 5, method, states, false);
-            writer.println(ident(5) + emitCall(method, states) + ';');
-            invocationEpilog(writer, 5, method, states, false);
+            syncBody(writer, 5, method, states);
 
             writer.println(ident(5) + "res.allOps++;");
             writer.println(ident(4) + "}");
+            asyncDrain(writer, 4, method);
             writer.println(ident(4) + "control.preTearDown();");
             writer.println(ident(3) + "} catch (InterruptedException ie) {");
             writer.println(ident(4) + "control.preTearDownForce();");
@@ -915,6 +1019,10 @@ public class BenchmarkGenerator {
             writer.println(ident(3) + "res.allOps /= batchSize;");
             writer.println(ident(3) + "res.measuredOps *= opsPerInv;");
 
+            // drain the pre-sized buffer outside of measurement, and keep it for the next iteration
+            writer.println(ident(3) + "SampleBuffer buffer = new SampleBuffer();");
+            writer.println(ident(3) + "sampleBuffer.drainTo(buffer);");
+
             writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
             if (isSingleMethod) {
                 writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
@@ -934,33 +1042,57 @@ public class BenchmarkGenerator {
 
         // measurement loop bodies
         for (MethodInfo method : methodGroup.methods()) {
-            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
             compilerControl.defaultForceInline(method);
+            sampleStub(writer, benchmarkKind, methodGroup, method, states, false);
+            sampleStub(writer, benchmarkKind, methodGroup, method, states, true);
+        }
+    }
 
-            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
-                    getStubTypeArgs() + ", SampleBuffer buffer, int targetSamples, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
-
-            writer.println(ident(2) + "long realTime = 0;");
-            writer.println(ident(2) + "long operations = 0;");
-            writer.println(ident(2) + "int rnd = (int)System.nanoTime();");
-            writer.println(ident(2) + "int rndMask = startRndMask;");
-            writer.println(ident(2) + "long time = 0;");
-            writer.println(ident(2) + "int currentStride = 0;");
-            writer.println(ident(2) + "do {");
+    /**
+     * Emits the measurement loop stub for SampleTime mode.
+     */
+    private void sampleStub(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, MethodInfo method, StateObjectHandler states, boolean baseline) {
+        String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + (baseline ? JMH_BASELINE_SUFFIX : JMH_STUB_SUFFIX);
+
+        writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
+                getStubTypeArgs(method) + ", ConcurrentSampleBuffer buffer, int targetSamples, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+
+        writer.println(ident(2) + "long realTime = 0;");
+        writer.println(ident(2) + "long operations = 0;");
+        writer.println(ident(2) + "int rnd = (int)System.nanoTime();");
+        writer.println(ident(2) + "int rndMask = startRndMask;");
+        writer.println(ident(2) + "long time = 0;");
+        writer.println(ident(2) + "int currentStride = 0;");
+
+        // baseline samples the way synchronous benchmarks do
+        boolean isAsync = !baseline && BenchmarkGeneratorUtils.isAsync(method);
+        if (isAsync) {
+            // completions are cheap to record, take every one of them
+            writer.println(ident(2) + "inFlight.startMeasurement(buffer, opsPerInv);");
+        }
+        writer.println(ident(2) + "do {");
 
+        if (!baseline) {
             invocationProlog(writer, 3, method, states, true);
+        }
 
+        if (!isAsync) {
             writer.println(ident(3) + "rnd = (rnd * 1664525 + 1013904223);");
             writer.println(ident(3) + "boolean sample = (rnd & rndMask) == 0;");
             writer.println(ident(3) + "if (sample) {");
             writer.println(ident(4) + "time = System.nanoTime();");
             writer.println(ident(3) + "}");
+        }
 
-            writer.println(ident(3) + "for (int b = 0; b < batchSize; b++) {");
-            writer.println(ident(4) + "if (control.volatileSpoiler) return;");
-            writer.println(ident(4) + "" + emitCall(method, states) + ';');
-            writer.println(ident(3) + "}");
+        String call = baseline ? emitBaselineCall(method) : emitCall(method, states);
+        writer.println(ident(3) + "for (int b = 0; b < batchSize; b++) {");
+        writer.println(ident(4) + "if (control.volatileSpoiler) return;");
+        if (call != null) {
+            writer.println(ident(4) + "" + call + ';');
+        }
+        writer.println(ident(3) + "}");
 
+        if (!isAsync) {
             writer.println(ident(3) + "if (sample) {");
             writer.println(ident(4) + "buffer.add((System.nanoTime() - time) / opsPerInv);");
             writer.println(ident(4) + "if (currentStride++ > targetSamples) {");
@@ -969,18 +1101,25 @@ public class BenchmarkGenerator {
             writer.println(ident(5) + "rndMask = (rndMask << 1) + 1;");
             writer.println(ident(4) + "}");
             writer.println(ident(3) + "}");
+        }
 
+        if (!baseline) {
             invocationEpilog(writer, 3, method, states, true);
+        }
 
-            writer.println(ident(3) + "operations++;");
-            writer.println(ident(2) + "} while(!control.isDone);");
-            writer.println(ident(2) + "startRndMask = Math.max(startRndMask, rndMask);");
+        writer.println(ident(3) + "operations++;");
+        writer.println(ident(2) + "} while(!control.isDone);");
+        writer.println(ident(2) + "startRndMask = Math.max(startRndMask, rndMask);");
 
-            writer.println(ident(2) + "result.realTime = realTime;");
+        writer.println(ident(2) + "result.realTime = realTime;");
+        if (isAsync) {
+            // async operations are counted on completion, in batches as the synchronous ones
+            writer.println(ident(2) + "result.measuredOps = inFlight.stopMeasurement() / batchSize;");
+        } else {
             writer.println(ident(2) + "result.measuredOps = operations;");
-            writer.println(ident(1) + "}");
-            writer.println();
         }
+        writer.println(ident(1) + "}");
+        writer.println();
     }
 
     private void generateSingleShotTime(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, StateObjectHandler states) {
@@ -1004,9 +1143,10 @@ public class BenchmarkGenerator {
 
             // measurement loop call
             writer.println(ident(3) + "RawResults res = new RawResults();");
+            asyncProlog(writer, methodGroup, method);
             writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
             writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
-                    getStubArgs() + ", batchSize" + prefix(states.getArgList(method)) + ");");
+                    getStubArgs(method) + ", batchSize" + prefix(states.getArgList(method)) + ");");
 
             writer.println(ident(3) + "control.preTearDown();");
 
@@ -1045,7 +1185,7 @@ public class BenchmarkGenerator {
             compilerControl.defaultForceInline(method);
 
             writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName +
-                    "(" + getStubTypeArgs() + ", int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+                    "(" + getStubTypeArgs(method) + ", int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
 
             writer.println(ident(2) + "long realTime = 0;");
             writer.println(ident(2) + "result.startTime = System.nanoTime();");
@@ -1059,8 +1199,182 @@ public class BenchmarkGenerator {
             invocationEpilog(writer, 3, method, states, true);
 
             writer.println(ident(2) + "}");
+
+            // single shot time covers the completion of all operations
+            asyncDrain(writer, 2, method);
+
+            writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+            writer.println(ident(2) + "result.realTime = realTime;");
+            writer.println(ident(1) + "}");
+            writer.println();
+        }
+    }
+
+    private void generateRateLimited(PrintWriter writer, Mode benchmarkKind, MethodGroup methodGroup, StateObjectHandler states) {
+        writer.println(ident(1) + "public BenchmarkTaskResult " + methodGroup.getName() + "_" + benchmarkKind +
+                "(InfraControl control, ThreadParams threadParams) throws Throwable {");
+
+        methodProlog(writer);
+
+        boolean isSingleMethod = (methodGroup.methods().size() == 1);
+        int subGroup = -1;
+        for (MethodInfo method : methodGroup.methods()) {
+            subGroup++;
+
+            writer.println(ident(2) + "if (threadParams.getSubgroupIndex() == " + subGroup + ") {");
+            writer.println(ident(3) + "RawResults res = new RawResults();");
+            asyncProlog(writer, methodGroup, method);
+
+            iterationProlog(writer, 3, method, states);
+
+            // synchronize iterations prolog: announce ready
+            writer.println(ident(3) + "control.announceWarmupReady();");
+
+            // synchronize iterations prolog: catchup loop
+            writer.println(ident(3) + "while (control.warmupShouldWait) {");
+
+            invocationProlog(writer, 4, method, states, false);
+            writer.println(ident(4) + emitCall(method, states) + ';');
+            invocationEpilog(writer, 4, method, states, false);
+
+            writer.println(ident(4) + "res.allOps++;");
+            writer.println(ident(3) + "}");
+            writer.println();
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.startMeasurement = true;");
+
+            // measurement loop call
+            writer.println(ident(3) + "int rate = benchmarkParams.getRate();");
+            writer.println(ident(3) + "long intervalNs = Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate);");
+            writer.println(ident(3) + "int batchSize = iterationParams.getBatchSize();");
+            writer.println(ident(3) + "int opsPerInv = benchmarkParams.getOpsPerInvocation();");
+            newSampleBuffer(writer, method);
+            writer.println(ident(3) + method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX + "(" +
+                    getStubArgs(method) + ", sampleBuffer, intervalNs, opsPerInv, batchSize" + prefix(states.getArgList(method)) + ");");
+
+            // control objects get a special treatment
+            writer.println(ident(3) + "notifyControl.stopMeasurement = true;");
+
+            // async operations issued during measurement complete before warmdown
+            asyncDrain(writer, 3, method);
+
+            // synchronize iterations epilog: announce ready
+            writer.println(ident(3) + "control.announceWarmdownReady();");
+
+            // synchronize iterations epilog: catchup loop
+            writer.println(ident(3) + "try {");
+            writer.println(ident(4) + "while (control.warmdownShouldWait) {");
+
+            invocationProlog(writer, 5, method, states, false);
+            writer.println(ident(5) + emitCall(method, states) + ';');
+            invocationEpilog(writer, 5, method, states, false);
+
+            writer.println(ident(5) + "res.allOps++;");
+            writer.println(ident(4) + "}");
+            asyncDrain(writer, 4, method);
+            writer.println(ident(4) + "control.preTearDown();");
+            writer.println(ident(3) + "} catch (InterruptedException ie) {");
+            writer.println(ident(4) + "control.preTearDownForce();");
+            writer.println(ident(3) + "}");
+
+            iterationEpilog(writer, 3, method, states);
+
+            /*
+               Achieved rate counts the scheduled operations, i.e. the batched @Benchmark invocations,
+               to be comparable with the target rate. Compute it before adjusting the operation counts.
+             */
+            writer.println(ident(3) + "double achievedRate = 1.0D * res.measuredOps * TimeUnit.SECONDS.toNanos(1) / Math.max(1, res.stopTime - res.startTime);");
+
+            /*
+               Adjust the operation counts, same as in sample time mode.
+             */
+            writer.println(ident(3) + "res.allOps += res.measuredOps * batchSize;");
+
+            writer.println(ident(3) + "res.allOps *= opsPerInv;");
+            writer.println(ident(3) + "res.allOps /= batchSize;");
+            writer.println(ident(3) + "res.measuredOps *= opsPerInv;");
+
+            // drain the pre-sized buffer outside of measurement, and keep it for the next iteration
+            writer.println(ident(3) + "SampleBuffer buffer = new SampleBuffer();");
+            writer.println(ident(3) + "sampleBuffer.drainTo(buffer);");
+
+            writer.println(ident(3) + "BenchmarkTaskResult results = new BenchmarkTaskResult(res.allOps, res.measuredOps);");
+            if (isSingleMethod) {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            } else {
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.PRIMARY, \"" + methodGroup.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+                writer.println(ident(3) + "results.add(new SampleTimeResult(ResultRole.SECONDARY, \"" + method.getName() + "\", buffer, benchmarkParams.getTimeUnit()));");
+            }
+            writer.println(ident(3) + "results.add(new ScalarResult(\"\\u00b7rate.requested\", rate, \"ops/s\", AggregationPolicy.AVG));");
+            writer.println(ident(3) + "results.add(new ScalarResult(\"\\u00b7rate.achieved\", achievedRate, \"ops/s\", AggregationPolicy.AVG));");
+            methodEpilog(writer);
+
+            writer.println(ident(3) + "return results;");
+            writer.println(ident(2) + "} else");
+        }
+        writer.println(ident(3) + "throw new IllegalStateException(\"Harness failed to distribute threads among groups properly\");");
+        writer.println(ident(1) + "}");
+
+        writer.println();
+
+        // measurement loop bodies
+        for (MethodInfo method : methodGroup.methods()) {
+            String methodName = method.getName() + "_" + benchmarkKind.shortLabel() + JMH_STUB_SUFFIX;
+            compilerControl.defaultForceInline(method);
+
+            writer.println(ident(1) + "public static" + (methodGroup.isStrictFP() ? " strictfp" : "") + " void " + methodName + "(" +
+                    getStubTypeArgs(method) + ", ConcurrentSampleBuffer buffer, long intervalNs, long opsPerInv, int batchSize" + prefix(states.getTypeArgList(method)) + ") throws Throwable {");
+
+            writer.println(ident(2) + "long realTime = 0;");
+            writer.println(ident(2) + "long operations = 0;");
+            writer.println(ident(2) + "long scheduled = System.nanoTime();");
+            writer.println(ident(2) + "result.startTime = scheduled;");
+
+            boolean isAsync = BenchmarkGeneratorUtils.isAsync(method);
+            if (isAsync) {
+                writer.println(ident(2) + "inFlight.startMeasurement(buffer, opsPerInv);");
+            }
+            writer.println(ident(2) + "do {");
+
+            invocationProlog(writer, 3, method, states, true);
+
+            // open loop: the latency is counted from the scheduled start, not from the actual one,
+            // so that the operations delayed by the slow ones are accounted for;
+            // the operation that is not yet due when the iteration ends is not run at all
+            writer.println(ident(3) + "if (!control.awaitSchedule(scheduled)) {");
+            invocationEpilog(writer, 4, method, states, false);
+            writer.println(ident(4) + "break;");
+            writer.println(ident(3) + "}");
+
+            writer.println(ident(3) + "for (int b = 0; b < batchSize; b++) {");
+            writer.println(ident(4) + "if (control.volatileSpoiler) return;");
+            if (isAsync) {
+                // the time spent waiting for the in-flight slot counts too
+                writer.println(ident(4) + "inFlight.acquire();");
+                writer.println(ident(4) + emitAsyncCall(method, states, "scheduled") + ';');
+            } else {
+                writer.println(ident(4) + "" + emitCall(method, states) + ';');
+            }
+            writer.println(ident(3) + "}");
+
+            if (!isAsync) {
+                writer.println(ident(3) + "buffer.add((System.nanoTime() - scheduled) / opsPerInv);");
+            }
+            writer.println(ident(3) + "scheduled += intervalNs;");
+
+            invocationEpilog(writer, 3, method, states, true);
+
+            writer.println(ident(3) + "operations++;");
+            writer.println(ident(2) + "} while(!control.isDone);");
+
             writer.println(ident(2) + "result.stopTime = System.nanoTime();");
+            if (isAsync) {
+                // rate counts the issued operations, completions only record the times
+                writer.println(ident(2) + "inFlight.stopMeasurement();");
+            }
             writer.println(ident(2) + "result.realTime = realTime;");
+            writer.println(ident(2) + "result.measuredOps = operations;");
             writer.println(ident(1) + "}");
             writer.println();
         }
@@ -1090,8 +1404,8 @@ public class BenchmarkGenerator {
 
         writer.println(ident(prefix) + "control.preSetup();");
 
-        for (String s : states.getIterationSetups(method)) writer.println(ident(prefix) + s);
-        writer.println();
+        // baseline twin does not call the payload, and does not need the iteration fixtures
+        iterationHelpers(writer, prefix, states.getIterationSetups(method));
 
         // reset @AuxCounters
         for (String s : states.getAuxResets(method)) writer.println(ident(prefix) + s);
@@ -1100,8 +1414,7 @@ public class BenchmarkGenerator {
     }
 
     private void iterationEpilog(PrintWriter writer, int prefix, MethodInfo method, StateObjectHandler states) {
-        for (String s : states.getIterationTearDowns(method)) writer.println(ident(prefix) + s);
-        writer.println();
+        iterationHelpers(writer, prefix, states.getIterationTearDowns(method));
 
         writer.println(ident(prefix) + "if (control.isLastIteration()) {");
         for (String s : states.getRunTearDowns(method)) writer.println(ident(prefix + 1) + s);
@@ -1109,14 +1422,104 @@ public class BenchmarkGenerator {
         writer.println(ident(prefix) + "}");
     }
 
+    private void iterationHelpers(PrintWriter writer, int prefix, Collection<String> helpers) {
+        if (!helpers.isEmpty()) {
+            writer.println(ident(prefix) + "if (!control.baseline) {");
+            for (String s : helpers) writer.println(ident(prefix + 1) + s);
+            writer.println(ident(prefix) + "}");
+        }
+        writer.println();
+    }
+
+    /**
+     * Emits the body of the loops that keep the thread busy while the others catch up
+     * before and after the measurement. The baseline twin runs its own body there too,
+     * so that the payload does not run in the baseline iterations at all.
+     */
+    private void syncBody(PrintWriter writer, int prefix, MethodInfo method, StateObjectHandler states) {
+        String call = emitBaselineCall(method);
+        writer.println(ident(prefix) + "if (control.baseline) {");
+        if (call != null) {
+            writer.println(ident(prefix + 1) + call + ';');
+        }
+        writer.println(ident(prefix) + "} else {");
+        invocationProlog(writer, prefix + 1, method, states, false);
+        writer.println(ident(prefix + 1) + emitCall(method, states) + ';');
+        invocationEpilog(writer, prefix + 1, method, states, false);
+        writer.println(ident(prefix) + "}");
+    }
+
+    private boolean hasAsync(MethodGroup methodGroup) {
+        for (MethodInfo method : methodGroup.methods()) {
+            if (BenchmarkGeneratorUtils.isAsync(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void asyncProlog(PrintWriter writer, MethodGroup methodGroup, MethodInfo method) {
+        if (BenchmarkGeneratorUtils.isAsync(method)) {
+            writer.println(ident(3) + "if (inFlight == null) {");
+            writer.println(ident(4) + "inFlight = new InFlightTracker(" + methodGroup.getInFlight().orElse(1) + ");");
+            writer.println(ident(3) + "}");
+        }
+    }
+
+    private void asyncDrain(PrintWriter writer, int prefix, MethodInfo method) {
+        if (BenchmarkGeneratorUtils.isAsync(method)) {
+            writer.println(ident(prefix) + "inFlight.drain();");
+        }
+    }
+
+    private String emitAsyncCall(MethodInfo method, StateObjectHandler states, String start) {
+        return "_jmh_track(inFlight, " + start + ", " + states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + "))";
+    }
+
     private String emitCall(MethodInfo method, StateObjectHandler states) {
-        if ("void".equalsIgnoreCase(method.getReturnType())) {
+        if (BenchmarkGeneratorUtils.isAsync(method)) {
+            // acquire the slot before the call: arguments are evaluated left to right
+            return emitAsyncCall(method, states, "inFlight.acquire()");
+        } else if ("void".equalsIgnoreCase(method.getReturnType())) {
             return states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + ")";
         } else {
             return "blackhole.consume(" + states.getImplicit("bench").localIdentifier + "." + method.getName() + "(" + states.getBenchmarkArgList(method) + "))";
         }
     }
 
+    /**
+     * Emits the baseline replacement for the payload call: the result of the same type
+     * is still sunk into the Blackhole, so the baseline pays for the Blackhole as well.
+     *
+     * @return the call, or null if nothing should be called
+     */
+    private String emitBaselineCall(MethodInfo method) {
+        if (BenchmarkGeneratorUtils.isAsync(method)) {
+            return "blackhole.consume((Object) null)";
+        }
+        String type = method.getReturnType();
+        switch (type) {
+            case "void":
+                return null;
+            case "boolean":
+                return "blackhole.consume(false)";
+            case "byte":
+            case "short":
+            case "char":
+                return "blackhole.consume((" + type + ") 0)";
+            case "int":
+                return "blackhole.consume(0)";
+            case "long":
+                return "blackhole.consume(0L)";
+            case "float":
+                return "blackhole.consume(0F)";
+            case "double":
+                return "blackhole.consume(0D)";
+            default:
+                return "blackhole.consume((Object) null)";
+        }
+    }
+
     static volatile String[] INDENTS;
     static final Object INDENTS_LOCK = new Object();
 
@@ -31,11 +31,14 @@ import org.openjdk.jmh.annotations.CompilerControl;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Group;
 import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.InFlight;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Rate;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Snapshot;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
@@ -60,9 +63,9 @@ class BenchmarkGeneratorUtils {
     static {
         JMH_ANNOTATIONS = Arrays.asList(
                 AuxCounters.class, BenchmarkMode.class, CompilerControl.class, Fork.class,
-                Benchmark.class, Group.class, GroupThreads.class, Measurement.class,
-                OperationsPerInvocation.class, OutputTimeUnit.class, Param.class, Setup.class,
-                State.class, TearDown.class, Threads.class, Warmup.class
+                Benchmark.class, Group.class, GroupThreads.class, InFlight.class, Measurement.class,
+                OperationsPerInvocation.class, OutputTimeUnit.class, Param.class, Rate.class,
+                Setup.class, Snapshot.class, State.class, TearDown.class, Threads.class, Warmup.class
         );
 
         JMH_ANNOTATION_TARGETS = new HashMultimap<>();
@@ -220,6 +223,25 @@ class BenchmarkGeneratorUtils {
         return results;
     }
 
+    /**
+     * Checks if the method is asynchronous, i.e. returns the completion stage.
+     * Only the standard {@code CompletionStage} and {@code CompletableFuture} are recognized,
+     * since generators see the return type by name only.
+     *
+     * @param mi method to check
+     * @return true, if method is asynchronous
+     */
+    public static boolean isAsync(MethodInfo mi) {
+        String type = mi.getReturnType();
+        int generic = type.indexOf('<');
+        if (generic != -1) {
+            type = type.substring(0, generic);
+        }
+        type = type.trim();
+        return "java.util.concurrent.CompletionStage".equals(type) ||
+                "java.util.concurrent.CompletableFuture".equals(type);
+    }
+
     public static String getGeneratedName(ClassInfo ci) {
         String name = "";
         do {
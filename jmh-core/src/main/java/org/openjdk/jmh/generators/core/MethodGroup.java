@@ -156,6 +156,20 @@ class MethodGroup implements Comparable<MethodGroup> {
         return Optional.none();
     }
 
+    public Optional<Integer> getRate() {
+        for (Rate ann : getAll(Rate.class)) {
+            return Optional.of(ann.value());
+        }
+        return Optional.none();
+    }
+
+    public Optional<Integer> getInFlight() {
+        for (InFlight ann : getAll(InFlight.class)) {
+            return Optional.of(ann.value());
+        }
+        return Optional.none();
+    }
+
     public Optional<TimeUnit> getOutputTimeUnit() {
         for (OutputTimeUnit ann : getAll(OutputTimeUnit.class)) {
             return Optional.of(ann.value());
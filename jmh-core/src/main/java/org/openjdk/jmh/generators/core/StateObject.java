@@ -25,6 +25,7 @@
 package org.openjdk.jmh.generators.core;
 
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Snapshot;
 import org.openjdk.jmh.util.HashMultimap;
 import org.openjdk.jmh.util.Multimap;
 import org.openjdk.jmh.util.TreeMultimap;
@@ -44,6 +45,7 @@ class StateObject {
     public final String userType;
     public final String type;
     public final Scope scope;
+    public final boolean snapshot;
     public final String localIdentifier;
     public final String fieldIdentifier;
     public final Multimap<String, FieldInfo> params;
@@ -56,6 +58,7 @@ class StateObject {
         this.userType = info.getQualifiedName();
         this.type = identifiers.getJMHtype(info);
         this.scope = scope;
+        this.snapshot = BenchmarkGeneratorUtils.getAnnSuper(info, Snapshot.class) != null;
 
         String id = identifiers.collapseTypeName(userType) + identifiers.identifier(scope);
         this.localIdentifier = "l_" + id;
@@ -646,47 +646,62 @@ class StateObjectHandler {
                 }
             }
 
-            if (so.scope == Scope.Benchmark || so.scope == Scope.Group) {
-                result.add("if (" + so.type + ".tear" + helperLevel + "MutexUpdater.compareAndSet(" + so.localIdentifier + ", 0, 1)) {");
-                result.add("    try {");
-                result.add("        if (control.isFailing) throw new FailureAssistException();");
-                result.add("        if (" + so.localIdentifier + ".ready" + helperLevel + ") {");
-                for (HelperMethodInvocation mi : so.getHelpers()) {
-                    if (mi.helperLevel == helperLevel && mi.type == HelperType.TEARDOWN) {
-                        Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
-                        result.add("            " + so.localIdentifier + "." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
-                    }
-                }
-                result.add("            " + so.localIdentifier + ".ready" + helperLevel + " = false;");
-                result.add("        }");
-                result.add("    } catch (Throwable t) {");
-                result.add("        control.isFailing = true;");
-                result.add("        throw t;");
-                result.add("    } finally {");
-                result.add("        " + so.type + ".tear" + helperLevel + "MutexUpdater.set(" + so.localIdentifier + ", 0);");
-                result.add("    }");
-                result.add("} else {");
-
-                // We don't need to actively busy-wait for Trial, it is way past the measurement window,
-                // and we would not need measurement threads anymore after this is over. Therefore, it
-                // is OK to exponentially back off.
-                if (helperLevel == Level.Trial) {
-                    result.add("    long " + so.localIdentifier + "_backoff = 1;");
+            if (so.scope == Scope.Benchmark && helperLevel == Level.Trial) {
+                // shared states are torn down after all benchmarks in the fork are done
+                result.add("if (!control.isSharedState(" + so.localIdentifier + ")) {");
+                for (String line : getTearDownBlock(so, helperLevel)) {
+                    result.add("    " + line);
                 }
+                result.add("}");
+            } else if (so.scope == Scope.Benchmark || so.scope == Scope.Group) {
+                result.addAll(getTearDownBlock(so, helperLevel));
+            }
+        }
 
-                result.add("    while (" + so.type + ".tear" + helperLevel + "MutexUpdater.get(" + so.localIdentifier + ") == 1) {");
+        return result;
+    }
 
-                if (helperLevel == Level.Trial) {
-                    result.add("        TimeUnit.MILLISECONDS.sleep(" + so.localIdentifier + "_backoff);");
-                    result.add("        " + so.localIdentifier + "_backoff = Math.max(1024, " + so.localIdentifier + "_backoff * 2);");
-                }
+    private List<String> getTearDownBlock(StateObject so, Level helperLevel) {
+        List<String> result = new ArrayList<>();
 
-                result.add("        if (control.isFailing) throw new FailureAssistException();");
-                result.add("        if (Thread.interrupted()) throw new InterruptedException();");
-                result.add("    }");
-                result.add("}");
+        result.add("if (" + so.type + ".tear" + helperLevel + "MutexUpdater.compareAndSet(" + so.localIdentifier + ", 0, 1)) {");
+        result.add("    try {");
+        result.add("        if (control.isFailing) throw new FailureAssistException();");
+        result.add("        if (" + so.localIdentifier + ".ready" + helperLevel + ") {");
+        for (HelperMethodInvocation mi : so.getHelpers()) {
+            if (mi.helperLevel == helperLevel && mi.type == HelperType.TEARDOWN) {
+                Collection<String> args = so.helperArgs.get(mi.method.getQualifiedName());
+                result.add("            " + so.localIdentifier + "." + mi.method.getName() + "(" + Utils.join(args, ",") + ");");
             }
         }
+        result.add("            " + so.localIdentifier + ".ready" + helperLevel + " = false;");
+        result.add("        }");
+        result.add("    } catch (Throwable t) {");
+        result.add("        control.isFailing = true;");
+        result.add("        throw t;");
+        result.add("    } finally {");
+        result.add("        " + so.type + ".tear" + helperLevel + "MutexUpdater.set(" + so.localIdentifier + ", 0);");
+        result.add("    }");
+        result.add("} else {");
+
+        // We don't need to actively busy-wait for Trial, it is way past the measurement window,
+        // and we would not need measurement threads anymore after this is over. Therefore, it
+        // is OK to exponentially back off.
+        if (helperLevel == Level.Trial) {
+            result.add("    long " + so.localIdentifier + "_backoff = 1;");
+        }
+
+        result.add("    while (" + so.type + ".tear" + helperLevel + "MutexUpdater.get(" + so.localIdentifier + ") == 1) {");
+
+        if (helperLevel == Level.Trial) {
+            result.add("        TimeUnit.MILLISECONDS.sleep(" + so.localIdentifier + "_backoff);");
+            result.add("        " + so.localIdentifier + "_backoff = Math.max(1024, " + so.localIdentifier + "_backoff * 2);");
+        }
+
+        result.add("        if (control.isFailing) throw new FailureAssistException();");
+        result.add("        if (Thread.interrupted()) throw new InterruptedException();");
+        result.add("    }");
+        result.add("}");
 
         return result;
     }
@@ -742,6 +757,11 @@ class StateObjectHandler {
             result.add("        if (val != null) {");
             result.add("            return val;");
             result.add("        }");
+            result.add("        val = (" + so.type + ") control.getSharedState(" + getSharedStateKey(so) + ");");
+            result.add("        if (val != null) {");
+            result.add("            " + so.fieldIdentifier + " = val;");
+            result.add("            return val;");
+            result.add("        }");
             result.add("        val = new " + so.type + "();");
             if (!so.getParamsLabels().isEmpty()) {
                 result.add("        Field f;");
@@ -753,14 +773,17 @@ class StateObjectHandler {
                     result.add("        f.set(val, " + so.getParamAccessor(paramField) + ");");
                 }
             }
-            for (HelperMethodInvocation hmi : so.getHelpers()) {
-                if (hmi.helperLevel != Level.Trial) continue;
-                if (hmi.type != HelperType.SETUP) continue;
-                Collection<String> args = so.helperArgs.get(hmi.method.getQualifiedName());
-                result.add("        val." + hmi.method.getName() + "(" + Utils.join(args, ",") + ");");
+            for (String line : getTrialSetups(so)) {
+                result.add("        " + line);
             }
             result.add("        val.ready" + Level.Trial + " = true;");
             result.add("        " + so.fieldIdentifier + " = val;");
+            if (hasTrialTearDowns(so)) {
+                result.add("        control.putSharedState(" + getSharedStateKey(so) + ", val, this, \"_jmh_tearTrial_" + so.fieldIdentifier + "\", " +
+                        "new Object[] { control, val" + soDependency_Args(so) + " });");
+            } else {
+                result.add("        control.putSharedState(" + getSharedStateKey(so) + ", val, this, null, null);");
+            }
             result.add("        } catch (Throwable t) {");
             result.add("            control.isFailing = true;");
             result.add("            throw t;");
@@ -768,6 +791,16 @@ class StateObjectHandler {
             result.add("    }");
             result.add("    return val;");
             result.add("}");
+
+            if (hasTrialTearDowns(so)) {
+                // Shared state is torn down outside of any benchmark, when the fork is done
+                result.add("");
+                result.add("public void _jmh_tearTrial_" + so.fieldIdentifier + "(InfraControl control, " + so.toTypeDef() + soDependency_TypeArgs(so) + ") throws Throwable {");
+                for (String line : getTearDownBlock(so, Level.Trial)) {
+                    result.add("    " + line);
+                }
+                result.add("}");
+            }
         }
 
         for (StateObject so : sos) {
@@ -792,11 +825,8 @@ class StateObjectHandler {
                     result.add("            f.set(val, " + so.getParamAccessor(paramField) + ");");
                 }
             }
-            for (HelperMethodInvocation hmi : so.getHelpers()) {
-                if (hmi.helperLevel != Level.Trial) continue;
-                if (hmi.type != HelperType.SETUP) continue;
-                Collection<String> args = so.helperArgs.get(hmi.method.getQualifiedName());
-                result.add("        val." + hmi.method.getName() + "(" + Utils.join(args, ",") + ");");
+            for (String line : getTrialSetups(so)) {
+                result.add("        " + line);
             }
             result.add("        " + so.fieldIdentifier + " = val;");
             result.add("    }");
@@ -834,11 +864,8 @@ class StateObjectHandler {
                     result.add("        f.set(val, " + so.getParamAccessor(paramField) + ");");
                 }
             }
-            for (HelperMethodInvocation hmi : so.getHelpers()) {
-                if (hmi.helperLevel != Level.Trial) continue;
-                if (hmi.type != HelperType.SETUP) continue;
-                Collection<String> args = so.helperArgs.get(hmi.method.getQualifiedName());
-                result.add("        val." + hmi.method.getName() + "(" + Utils.join(args, ",") + ");");
+            for (String line : getTrialSetups(so)) {
+                result.add("        " + line);
             }
             result.add("        " + "val.ready" + Level.Trial + " = true;");
             result.add("        " + so.fieldIdentifier + "_map.put(groupIdx, val);");
@@ -853,6 +880,46 @@ class StateObjectHandler {
         return result;
     }
 
+    private List<String> getTrialSetups(StateObject so) {
+        List<String> result = new ArrayList<>();
+        for (HelperMethodInvocation hmi : so.getHelpers()) {
+            if (hmi.helperLevel != Level.Trial) continue;
+            if (hmi.type != HelperType.SETUP) continue;
+            Collection<String> args = so.helperArgs.get(hmi.method.getQualifiedName());
+            result.add("val." + hmi.method.getName() + "(" + Utils.join(args, ",") + ");");
+        }
+
+        // Snapshot replaces the trial setup, if there is a valid one
+        if (so.snapshot) {
+            List<String> setups = result;
+            result = new ArrayList<>();
+            result.add("if (!control.restoreSnapshot(val, " + so.userType + ".class)) {");
+            for (String line : setups) {
+                result.add("    " + line);
+            }
+            result.add("    control.saveSnapshot(val, " + so.userType + ".class);");
+            result.add("}");
+        }
+        return result;
+    }
+
+    private boolean hasTrialTearDowns(StateObject so) {
+        for (HelperMethodInvocation hmi : so.getHelpers()) {
+            if (hmi.helperLevel == Level.Trial && hmi.type == HelperType.TEARDOWN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getSharedStateKey(StateObject so) {
+        List<String> names = new ArrayList<>();
+        for (String paramName : so.getParamsLabels()) {
+            names.add("\"" + paramName + "\"");
+        }
+        return "\"" + so.packageName + "." + so.type + "\", new String[] {" + Utils.join(names, ", ") + "}";
+    }
+
     private String soDependency_TypeArgs(StateObject so) {
         return (so.depends.isEmpty() ? "" : ", " + getTypeArgList(so.depends));
     }
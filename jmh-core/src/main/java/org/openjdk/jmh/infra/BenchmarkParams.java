@@ -25,6 +25,7 @@
 package org.openjdk.jmh.infra;
 
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.runner.BlackholeMode;
 import org.openjdk.jmh.runner.WorkloadParams;
 import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.util.Utils;
@@ -72,7 +73,7 @@ public class BenchmarkParams extends BenchmarkParamsL4 {
                            TimeUnit timeUnit, int opsPerInvocation,
                            String jvm, Collection<String> jvmArgs,
                            String jdkVersion, String vmName, String vmVersion, String jmhVersion,
-                           TimeValue timeout) {
+                           TimeValue timeout, int forkCpus, BlackholeMode blackholeMode, int rate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -81,7 +82,7 @@ public class BenchmarkParams extends BenchmarkParamsL4 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmName, vmVersion, jmhVersion,
-                timeout);
+                timeout, forkCpus, blackholeMode, rate);
     }
 }
 
@@ -97,7 +98,7 @@ abstract class BenchmarkParamsL4 extends BenchmarkParamsL3 {
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmName, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, int forkCpus, BlackholeMode blackholeMode, int rate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -106,7 +107,7 @@ abstract class BenchmarkParamsL4 extends BenchmarkParamsL3 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmName, vmVersion, jmhVersion,
-                timeout);
+                timeout, forkCpus, blackholeMode, rate);
     }
 }
 
@@ -138,7 +139,7 @@ abstract class BenchmarkParamsL3 extends BenchmarkParamsL2 {
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmName, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, int forkCpus, BlackholeMode blackholeMode, int rate) {
         super(benchmark, generatedTarget, synchIterations,
                 threads, threadGroups, threadGroupLabels,
                 forks, warmupForks,
@@ -147,7 +148,7 @@ abstract class BenchmarkParamsL3 extends BenchmarkParamsL2 {
                 timeUnit, opsPerInvocation,
                 jvm, jvmArgs,
                 jdkVersion, vmName, vmVersion, jmhVersion,
-                timeout);
+                timeout, forkCpus, blackholeMode, rate);
     }
 }
 
@@ -198,6 +199,9 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
     protected final String vmName;
     protected final String vmVersion;
     protected final TimeValue timeout;
+    protected final int forkCpus;
+    protected final BlackholeMode blackholeMode;
+    protected final int rate;
 
     public BenchmarkParamsL2(String benchmark, String generatedTarget, boolean synchIterations,
                              int threads, int[] threadGroups, Collection<String> threadGroupLabels,
@@ -207,7 +211,7 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
                              TimeUnit timeUnit, int opsPerInvocation,
                              String jvm, Collection<String> jvmArgs,
                              String jdkVersion, String vmName, String vmVersion, String jmhVersion,
-                             TimeValue timeout) {
+                             TimeValue timeout, int forkCpus, BlackholeMode blackholeMode, int rate) {
         this.benchmark = benchmark;
         this.generatedTarget = generatedTarget;
         this.synchIterations = synchIterations;
@@ -229,6 +233,9 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         this.vmVersion = vmVersion;
         this.jmhVersion = jmhVersion;
         this.timeout = timeout;
+        this.forkCpus = forkCpus;
+        this.blackholeMode = blackholeMode;
+        this.rate = rate;
     }
 
     /**
@@ -296,6 +303,20 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         return warmupForks;
     }
 
+    /**
+     * @return number of CPUs each forked VM is pinned to; 0, if forked VMs are not pinned
+     */
+    public int getForkCpus() {
+        return forkCpus;
+    }
+
+    /**
+     * @return blackhole mode used in forked VMs
+     */
+    public BlackholeMode getBlackholeMode() {
+        return blackholeMode;
+    }
+
     /**
      * @return benchmark mode
      */
@@ -324,6 +345,13 @@ abstract class BenchmarkParamsL2 extends BenchmarkParamsL1 implements Serializab
         return opsPerInvocation;
     }
 
+    /**
+     * @return target operations per second, per thread, for {@link Mode#RateLimited}; 0, if not set
+     */
+    public int getRate() {
+        return rate;
+    }
+
     /**
      * @return all workload parameters
      */
@@ -26,6 +26,7 @@ package org.openjdk.jmh.infra;
 
 import org.openjdk.jmh.util.Utils;
 
+import java.lang.management.ManagementFactory;
 import java.lang.ref.WeakReference;
 import java.util.Random;
 
@@ -244,9 +245,28 @@ public final class Blackhole extends BlackholeL4 {
      * IMPLEMENTING AN EFFICIENT / CORRECT BLACKHOLE IS NOT A SIMPLE TASK YOU CAN
      * DO OVERNIGHT. IT REQUIRES A SIGNIFICANT JVM/COMPILER/PERFORMANCE EXPERTISE,
      * AND LOTS OF TIME OVER THAT. ADJUST YOUR PLANS ACCORDINGLY.
+     *
+     * Modern VMs can do the blackholing in the compiler itself, see CompileCommand=blackhole.
+     * When runner detects the forked VM supports it, it instructs the compiler to treat
+     * consumeCompiler() methods as blackholes, and selects the compiler mode with the system
+     * property. In that mode, consume() delegates to consumeCompiler(), which gets no
+     * code generated at all, but still makes the compiler believe the argument is used.
+     * The mode flag is static final, so the unused branch in consume() is folded away.
+     *
+     * The property alone is not enough: without the compile command, consumeCompiler()
+     * is an ordinary empty method, and the compiler would happily eliminate the consumed
+     * computations. Therefore, the compiler mode also requires the command on the VM
+     * command line.
      */
 
+    private static final String COMPILER_BLACKHOLE_COMMAND =
+            "-XX:CompileCommand=blackhole,org/openjdk/jmh/infra/Blackhole.consumeCompiler";
+
+    private static final boolean COMPILER_BLACKHOLE;
+
     static {
+        COMPILER_BLACKHOLE = isCompilerMode();
+
         Utils.check(Blackhole.class, "b1", "b2");
         Utils.check(Blackhole.class, "bool1", "bool2");
         Utils.check(Blackhole.class, "c1", "c2");
@@ -258,6 +278,17 @@ public final class Blackhole extends BlackholeL4 {
         Utils.check(Blackhole.class, "obj1");
     }
 
+    private static boolean isCompilerMode() {
+        try {
+            if (!"compiler".equalsIgnoreCase(System.getProperty("jmh.blackhole.mode"))) {
+                return false;
+            }
+            return ManagementFactory.getRuntimeMXBean().getInputArguments().contains(COMPILER_BLACKHOLE_COMMAND);
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
     public Blackhole(String challengeResponse) {
         /*
          * Prevent instantiation by user code. Without additional countermeasures
@@ -304,12 +335,16 @@ public final class Blackhole extends BlackholeL4 {
      * @param obj object to consume.
      */
     public final void consume(Object obj) {
-        int tlrMask = this.tlrMask; // volatile read
-        int tlr = (this.tlr = (this.tlr * 1664525 + 1013904223));
-        if ((tlr & tlrMask) == 0) {
-            // SHOULD ALMOST NEVER HAPPEN IN MEASUREMENT
-            this.obj1 = new WeakReference<>(obj);
-            this.tlrMask = (tlrMask << 1) + 1;
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(obj);
+        } else {
+            int tlrMask = this.tlrMask; // volatile read
+            int tlr = (this.tlr = (this.tlr * 1664525 + 1013904223));
+            if ((tlr & tlrMask) == 0) {
+                // SHOULD ALMOST NEVER HAPPEN IN MEASUREMENT
+                this.obj1 = new WeakReference<>(obj);
+                this.tlrMask = (tlrMask << 1) + 1;
+            }
         }
     }
 
@@ -319,11 +354,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param b object to consume.
      */
     public final void consume(byte b) {
-        byte b1 = this.b1; // volatile read
-        byte b2 = this.b2;
-        if ((b ^ b1) == (b ^ b2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.b1 = b; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(b);
+        } else {
+            byte b1 = this.b1; // volatile read
+            byte b2 = this.b2;
+            if ((b ^ b1) == (b ^ b2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.b1 = b; // implicit null pointer exception
+            }
         }
     }
 
@@ -333,11 +372,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param bool object to consume.
      */
     public final void consume(boolean bool) {
-        boolean bool1 = this.bool1; // volatile read
-        boolean bool2 = this.bool2;
-        if ((bool ^ bool1) == (bool ^ bool2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.bool1 = bool; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(bool);
+        } else {
+            boolean bool1 = this.bool1; // volatile read
+            boolean bool2 = this.bool2;
+            if ((bool ^ bool1) == (bool ^ bool2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.bool1 = bool; // implicit null pointer exception
+            }
         }
     }
 
@@ -347,11 +390,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param c object to consume.
      */
     public final void consume(char c) {
-        char c1 = this.c1; // volatile read
-        char c2 = this.c2;
-        if ((c ^ c1) == (c ^ c2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.c1 = c; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(c);
+        } else {
+            char c1 = this.c1; // volatile read
+            char c2 = this.c2;
+            if ((c ^ c1) == (c ^ c2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.c1 = c; // implicit null pointer exception
+            }
         }
     }
 
@@ -361,11 +408,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param s object to consume.
      */
     public final void consume(short s) {
-        short s1 = this.s1; // volatile read
-        short s2 = this.s2;
-        if ((s ^ s1) == (s ^ s2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.s1 = s; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(s);
+        } else {
+            short s1 = this.s1; // volatile read
+            short s2 = this.s2;
+            if ((s ^ s1) == (s ^ s2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.s1 = s; // implicit null pointer exception
+            }
         }
     }
 
@@ -375,11 +426,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param i object to consume.
      */
     public final void consume(int i) {
-        int i1 = this.i1; // volatile read
-        int i2 = this.i2;
-        if ((i ^ i1) == (i ^ i2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.i1 = i; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(i);
+        } else {
+            int i1 = this.i1; // volatile read
+            int i2 = this.i2;
+            if ((i ^ i1) == (i ^ i2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.i1 = i; // implicit null pointer exception
+            }
         }
     }
 
@@ -389,11 +444,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param l object to consume.
      */
     public final void consume(long l) {
-        long l1 = this.l1; // volatile read
-        long l2 = this.l2;
-        if ((l ^ l1) == (l ^ l2)) {
-            // SHOULD NEVER HAPPEN
-            nullBait.l1 = l; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(l);
+        } else {
+            long l1 = this.l1; // volatile read
+            long l2 = this.l2;
+            if ((l ^ l1) == (l ^ l2)) {
+                // SHOULD NEVER HAPPEN
+                nullBait.l1 = l; // implicit null pointer exception
+            }
         }
     }
 
@@ -403,11 +462,15 @@ public final class Blackhole extends BlackholeL4 {
      * @param f object to consume.
      */
     public final void consume(float f) {
-        float f1 = this.f1; // volatile read
-        float f2 = this.f2;
-        if (f == f1 & f == f2) {
-            // SHOULD NEVER HAPPEN
-            nullBait.f1 = f; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(f);
+        } else {
+            float f1 = this.f1; // volatile read
+            float f2 = this.f2;
+            if (f == f1 & f == f2) {
+                // SHOULD NEVER HAPPEN
+                nullBait.f1 = f; // implicit null pointer exception
+            }
         }
     }
 
@@ -417,14 +480,60 @@ public final class Blackhole extends BlackholeL4 {
      * @param d object to consume.
      */
     public final void consume(double d) {
-        double d1 = this.d1; // volatile read
-        double d2 = this.d2;
-        if (d == d1 & d == d2) {
-            // SHOULD NEVER HAPPEN
-            nullBait.d1 = d; // implicit null pointer exception
+        if (COMPILER_BLACKHOLE) {
+            consumeCompiler(d);
+        } else {
+            double d1 = this.d1; // volatile read
+            double d2 = this.d2;
+            if (d == d1 & d == d2) {
+                // SHOULD NEVER HAPPEN
+                nullBait.d1 = d; // implicit null pointer exception
+            }
         }
     }
 
+    /*
+     * Compiler blackholes. The bodies are empty: when the compiler blackhole mode is enabled,
+     * the JIT compiler is instructed to treat these methods as the blackholes, which keep
+     * the arguments alive, but do not generate any code to consume them.
+     */
+
+    private static void consumeCompiler(Object v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(byte v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(boolean v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(char v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(short v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(int v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(long v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(float v) {
+        // intentionally blank, compiler blackhole
+    }
+
+    private static void consumeCompiler(double v) {
+        // intentionally blank, compiler blackhole
+    }
+
     private static volatile long consumedCPU = System.nanoTime();
 
     /**
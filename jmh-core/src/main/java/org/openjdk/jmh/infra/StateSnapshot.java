@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.infra;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Custom serializer for the {@link org.openjdk.jmh.annotations.Snapshot} states.
+ * State classes that implement this interface write and read their snapshots
+ * themselves, instead of having all their fields serialized.
+ */
+public interface StateSnapshot {
+
+    /**
+     * Writes the snapshot of the state, after it was set up.
+     *
+     * @param out output stream
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeSnapshot(OutputStream out) throws IOException;
+
+    /**
+     * Reads the snapshot into the state, instead of setting it up. The buffer
+     * is the read-only view of the memory-mapped snapshot file: the state can
+     * keep it, and access the contents without copying them to heap.
+     *
+     * @param snapshot snapshot contents, exactly as written by {@link #writeSnapshot(OutputStream)}
+     * @throws IOException if the snapshot cannot be read
+     */
+    void readSnapshot(ByteBuffer snapshot) throws IOException;
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.infra;
+
+import org.openjdk.jmh.runner.link.TelemetryRing;
+
+/**
+ * Telemetry channel from the forked VM to the host VM.
+ *
+ * <p>Harness and profilers register the telemetry keys once, and then record the values
+ * under those keys while the benchmark runs. Recording does not lock, allocate, or
+ * call into the OS: the values go straight to the shared memory, where host VM picks
+ * them up. Host VM reports the values recorded during each measurement iteration as
+ * the secondary results of that iteration.</p>
+ *
+ * <p>Telemetry is only available in the forked VM. Without the forked VM, or when keys
+ * run out, registration returns the invalid key, and recording under that key does
+ * nothing. Every thread gets its own ring in the shared memory; when the ring overflows,
+ * or when there are more recording threads than rings, the values are dropped, and
+ * their count is reported under {@code telemetry.dropped}.</p>
+ *
+ * WARNING: The API for this class is considered unstable, and can be changed without notice.
+ */
+public final class Telemetry {
+
+    private Telemetry() {
+        // prevent instantiation
+    }
+
+    /**
+     * Registers the counter: the values recorded during the iteration are summed up.
+     *
+     * @param name counter name
+     * @param unit value unit
+     * @return key to record the values with
+     */
+    public static int counter(String name, String unit) {
+        return register(TelemetryRing.KIND_COUNTER, name, unit);
+    }
+
+    /**
+     * Registers the sample: the values recorded during the iteration are averaged.
+     *
+     * @param name sample name
+     * @param unit value unit
+     * @return key to record the values with
+     */
+    public static int sample(String name, String unit) {
+        return register(TelemetryRing.KIND_SAMPLE, name, unit);
+    }
+
+    private static int register(int kind, String name, String unit) {
+        TelemetryRing ring = TelemetryRing.getCurrent();
+        if (ring == null) {
+            return -1;
+        }
+        return ring.register(kind, name, unit);
+    }
+
+    /**
+     * Records the value.
+     *
+     * @param key key, as returned by {@link #counter(String, String)} or {@link #sample(String, String)}
+     * @param value value to record
+     */
+    public static void record(int key, long value) {
+        if (key < 0) {
+            return;
+        }
+        TelemetryRing ring = TelemetryRing.getCurrent();
+        if (ring != null) {
+            ring.write(key, value);
+        }
+    }
+
+}
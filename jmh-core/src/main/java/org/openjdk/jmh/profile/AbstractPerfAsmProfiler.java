@@ -235,6 +235,16 @@ public abstract class AbstractPerfAsmProfiler implements ExternalProfiler {
 
     protected abstract void addMyOptions(OptionParser parser);
 
+    /**
+     * Tells if the forked VM itself confines the event collection to the measurement
+     * iterations. If so, delay/length heuristics are not needed, and all events are read.
+     *
+     * @return true, if collection is controlled by the forked VM
+     */
+    protected boolean isMeasurementControlled() {
+        return false;
+    }
+
     @Override
     public Collection<String> addJVMOptions(BenchmarkParams params) {
         if (!skipAssembly) {
@@ -353,23 +363,32 @@ public abstract class AbstractPerfAsmProfiler implements ExternalProfiler {
          */
 
         long skipMs;
-        if (delayMsec == -1) { // not set
-            skipMs = ProfilerUtils.measurementDelayMs(br);
-        } else {
-            skipMs = delayMsec;
-        }
-
         double lenMs;
-        if (lengthMsec == -1) { // not set
-            lenMs = ProfilerUtils.measuredTimeMs(br);
+        if (isMeasurementControlled()) {
+            skipMs = 0;
+            lenMs = Double.POSITIVE_INFINITY;
         } else {
-            lenMs = lengthMsec;
+            if (delayMsec == -1) { // not set
+                skipMs = ProfilerUtils.measurementDelayMs(br);
+            } else {
+                skipMs = delayMsec;
+            }
+
+            if (lengthMsec == -1) { // not set
+                lenMs = ProfilerUtils.measuredTimeMs(br);
+            } else {
+                lenMs = lengthMsec;
+            }
         }
 
         final PerfEvents events = readEvents(skipMs, lenMs);
 
         if (!events.isEmpty()) {
-            pw.printf("Perf output processed (skipped %.3f seconds):%n", skipMs / 1000D);
+            if (isMeasurementControlled()) {
+                pw.printf("Perf output processed (measurement iterations only):%n");
+            } else {
+                pw.printf("Perf output processed (skipped %.3f seconds):%n", skipMs / 1000D);
+            }
             int cnt = 1;
             for (String event : this.events) {
                 pw.printf(" Column %d: %s (%d events)%n", cnt, event, events.get(event).size());
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the HotSpot performance data ("hsperfdata") file of a running VM.
+ *
+ * <p>The file is memory-mapped, and the counters are read right from the memory
+ * the target VM updates, without running any code in the target VM. Only the
+ * version 2 of the format is supported, which is used by all current VMs.</p>
+ */
+class HotspotPerfData {
+
+    // Prologue layout
+    private static final int PROLOGUE_MAGIC = 0xCAFEC0C0;
+    private static final int PROLOGUE_BYTE_ORDER = 4;
+    private static final int PROLOGUE_MAJOR = 5;
+    private static final int PROLOGUE_ACCESSIBLE = 7;
+    private static final int PROLOGUE_ENTRY_OFFSET = 24;
+    private static final int PROLOGUE_NUM_ENTRIES = 28;
+
+    // Entry layout
+    private static final int ENTRY_LENGTH = 0;
+    private static final int ENTRY_NAME_OFFSET = 4;
+    private static final int ENTRY_VECTOR_LENGTH = 8;
+    private static final int ENTRY_DATA_TYPE = 12;
+    private static final int ENTRY_UNITS = 14;
+    private static final int ENTRY_VARIABILITY = 15;
+    private static final int ENTRY_DATA_OFFSET = 16;
+
+    static final int UNITS_NONE = 1;
+    static final int UNITS_BYTES = 2;
+    static final int UNITS_TICKS = 3;
+    static final int UNITS_EVENTS = 4;
+    static final int UNITS_STRING = 5;
+    static final int UNITS_HERTZ = 6;
+
+    static final int VARIABILITY_CONSTANT = 1;
+    static final int VARIABILITY_MONOTONIC = 2;
+    static final int VARIABILITY_VARIABLE = 3;
+
+    private final ByteBuffer buf;
+    private final boolean initialized;
+
+    private final List<Entry> entries;
+    private final Map<String, Entry> byName;
+    private int nextEntryOffset;
+
+    HotspotPerfData(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel ch = raf.getChannel()) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        entries = new ArrayList<>();
+        byName = new HashMap<>();
+
+        // Target VM might still be creating the file
+        if (buf.capacity() < PROLOGUE_NUM_ENTRIES + 4 || buf.getInt(0) == 0) {
+            initialized = false;
+            return;
+        }
+
+        // Magic is always big-endian, the rest is in the byte order of the target VM
+        buf.order(ByteOrder.BIG_ENDIAN);
+        if (buf.getInt(0) != PROLOGUE_MAGIC) {
+            throw new IOException("Not a perfdata file: " + file);
+        }
+        buf.order(buf.get(PROLOGUE_BYTE_ORDER) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+
+        int major = buf.get(PROLOGUE_MAJOR);
+        if (major != 2) {
+            throw new IOException("Unsupported perfdata version " + major + ": " + file);
+        }
+        initialized = true;
+    }
+
+    /**
+     * @return true, if target VM had finished initializing the perfdata; the instance
+     * is not usable otherwise, and the file should be opened again later
+     */
+    boolean isAccessible() {
+        return initialized && buf.get(PROLOGUE_ACCESSIBLE) != 0;
+    }
+
+    /**
+     * Picks up the entries the target VM had added since the last call.
+     *
+     * @return all entries known so far, in the order of creation
+     */
+    List<Entry> refresh() {
+        if (nextEntryOffset == 0) {
+            nextEntryOffset = buf.getInt(PROLOGUE_ENTRY_OFFSET);
+        }
+
+        int count = buf.getInt(PROLOGUE_NUM_ENTRIES);
+        while (entries.size() < count) {
+            int off = nextEntryOffset;
+            if (off <= 0 || off + ENTRY_DATA_OFFSET + 4 > buf.capacity()) {
+                break;
+            }
+
+            // Target VM bumps the entry count before it fills the entry,
+            // stop at the half-baked entry, and try again later.
+            int length = buf.getInt(off + ENTRY_LENGTH);
+            int nameOffset = buf.getInt(off + ENTRY_NAME_OFFSET);
+            int dataOffset = buf.getInt(off + ENTRY_DATA_OFFSET);
+            if (length <= 0 || nameOffset <= 0 || dataOffset <= 0 || off + length > buf.capacity()) {
+                break;
+            }
+            String name = readString(off + nameOffset, length - nameOffset);
+            if (name.isEmpty()) {
+                break;
+            }
+
+            Entry e = new Entry(name,
+                    (char) buf.get(off + ENTRY_DATA_TYPE),
+                    buf.getInt(off + ENTRY_VECTOR_LENGTH),
+                    buf.get(off + ENTRY_UNITS),
+                    buf.get(off + ENTRY_VARIABILITY),
+                    off + dataOffset);
+            entries.add(e);
+            byName.put(name, e);
+            nextEntryOffset = off + length;
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @param name counter name
+     * @return entry, or null if there is no such entry yet
+     */
+    Entry get(String name) {
+        return byName.get(name);
+    }
+
+    private String readString(int from, int maxLen) {
+        int len = 0;
+        while (len < maxLen && buf.get(from + len) != 0) {
+            len++;
+        }
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buf.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    class Entry {
+        private final String name;
+        private final char type;
+        private final int vectorLength;
+        private final int units;
+        private final int variability;
+        private final int dataOffset;
+
+        Entry(String name, char type, int vectorLength, int units, int variability, int dataOffset) {
+            this.name = name;
+            this.type = type;
+            this.vectorLength = vectorLength;
+            this.units = units;
+            this.variability = variability;
+            this.dataOffset = dataOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getUnits() {
+            return units;
+        }
+
+        int getVariability() {
+            return variability;
+        }
+
+        boolean isLong() {
+            return type == 'J' && vectorLength == 0;
+        }
+
+        boolean isString() {
+            return type == 'B' && vectorLength > 0;
+        }
+
+        long longValue() {
+            return buf.getLong(dataOffset);
+        }
+
+        String stringValue() {
+            return readString(dataOffset, vectorLength);
+        }
+    }
+
+}
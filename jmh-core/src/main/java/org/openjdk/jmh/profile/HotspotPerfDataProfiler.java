@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples HotSpot counters from the host VM, by reading the "hsperfdata" file of the forked VM.
+ *
+ * <p>Unlike the internal HotSpot profilers, this profiler runs no code in the forked VM:
+ * the counters are read from the memory-mapped file the forked VM updates. The samples are
+ * then matched against the start and stop times of each measurement iteration.</p>
+ */
+public class HotspotPerfDataProfiler implements ExternalProfiler {
+
+    private static final String TOKEN_PROPERTY = "jmh.perfdata.token";
+
+    /**
+     * Give up waiting for the forked VM perfdata file after this time.
+     */
+    private static final long DISCOVERY_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Look for the new perfdata files this often.
+     */
+    private static final long SCAN_INTERVAL_MS = 100;
+
+    private static final String[] DEFAULT_COUNTERS = new String[] {
+            "sun.gc.collector.",
+            "java.ci.",
+            "sun.ci.",
+            "java.cls.",
+            "sun.cls.",
+            "sun.rt.safepoint",
+            "java.threads.",
+    };
+
+    private final List<String> counters;
+    private final long intervalMs;
+
+    private final String token;
+    private final File perfDataDir;
+
+    private final Map<Long, Target> targets = new HashMap<>();
+    private final Set<Long> rejected = new HashSet<>();
+
+    private Sampler sampler;
+    private long awaitingSince;
+
+    public HotspotPerfDataProfiler(String initLine) throws ProfilerException {
+        OptionParser parser = new OptionParser();
+        parser.formatHelpWith(new ProfilerOptionFormatter(HotspotPerfDataProfiler.class.getCanonicalName()));
+
+        OptionSpec<String> optCounters = parser.accepts("counters",
+                        "Counter name prefixes to gather. Default covers GC, compilation, class loading, safepoints and threads.")
+                .withRequiredArg().ofType(String.class).withValuesSeparatedBy(",").describedAs("prefix+");
+
+        OptionSpec<Long> optInterval = parser.accepts("interval",
+                        "Sampling interval. Lower values align the samples with iteration boundaries more precisely, " +
+                        "at the expense of host CPU time.")
+                .withRequiredArg().ofType(Long.class).describedAs("ms").defaultsTo(10L);
+
+        OptionSet set = ProfilerUtils.parseInitLine(initLine, parser);
+
+        try {
+            intervalMs = set.valueOf(optInterval);
+            List<String> userCounters = set.valuesOf(optCounters);
+            if (userCounters == null || userCounters.isEmpty()) {
+                counters = Arrays.asList(DEFAULT_COUNTERS);
+            } else {
+                counters = new ArrayList<>(userCounters);
+            }
+        } catch (OptionException e) {
+            throw new ProfilerException(e.getMessage());
+        }
+
+        if (intervalMs <= 0) {
+            throw new ProfilerException("Sampling interval should be positive: " + intervalMs);
+        }
+
+        perfDataDir = new File(tempDir(), "hsperfdata_" + System.getProperty("user.name"));
+        token = UUID.randomUUID().toString();
+    }
+
+    private static String tempDir() {
+        // HotSpot ignores java.io.tmpdir on Linux, and always uses /tmp
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.contains("linux")) {
+            return "/tmp";
+        }
+        return System.getProperty("java.io.tmpdir");
+    }
+
+    @Override
+    public String getDescription() {
+        return "HotSpot (tm) counters, sampled from the host VM via perfdata file";
+    }
+
+    @Override
+    public Collection<String> addJVMInvokeOptions(BenchmarkParams params) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> addJVMOptions(BenchmarkParams params) {
+        // Mark the forked VM, so that we can tell its perfdata file from others
+        return Arrays.asList("-XX:+UsePerfData", "-D" + TOKEN_PROPERTY + "=" + token);
+    }
+
+    @Override
+    public synchronized void beforeTrial(BenchmarkParams benchmarkParams) {
+        // Previous forks are over, and their results are consumed
+        Iterator<Target> it = targets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().finished) {
+                it.remove();
+            }
+        }
+
+        awaitingSince = System.currentTimeMillis();
+        if (sampler == null) {
+            sampler = new Sampler();
+            sampler.start();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterTrial(BenchmarkResult br, long pid, File stdOut, File stdErr) {
+        Target target = awaitFinished(pid);
+        if (target == null) {
+            return Collections.emptyList();
+        }
+
+        // Fit the samples with the measurement iterations
+        Collection<Result> results = new ArrayList<>();
+        for (IterationResult ir : br.getIterationResults()) {
+            IterationResultMetaData md = ir.getMetadata();
+            if (md.getStartTime() == 0 || md.getStopTime() == 0) {
+                continue;
+            }
+            results.addAll(target.resultsFor(md.getStartTime(), md.getStopTime()));
+        }
+        return results;
+    }
+
+    private Target awaitFinished(long pid) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+        synchronized (this) {
+            while (true) {
+                Target target = targets.get(pid);
+                if (target != null && target.finished) {
+                    return target;
+                }
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0 || sampler == null) {
+                    return null;
+                }
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean allowPrintOut() {
+        return true;
+    }
+
+    @Override
+    public boolean allowPrintErr() {
+        return true;
+    }
+
+    private synchronized boolean step(long now, boolean scan) {
+        if (scan) {
+            discover();
+        }
+
+        boolean live = false;
+        for (Target t : targets.values()) {
+            if (!t.finished) {
+                t.sample(now);
+                if (!t.file.exists()) {
+                    // Target VM is gone, the mapping still holds the final values
+                    t.sample(System.currentTimeMillis());
+                    t.finished = true;
+                    notifyAll();
+                } else {
+                    live = true;
+                }
+            }
+        }
+
+        boolean awaiting = (awaitingSince != 0) && (now - awaitingSince < DISCOVERY_TIMEOUT_MS);
+        if (!live && !awaiting) {
+            // Nothing to do, beforeTrial would start another sampler
+            sampler = null;
+            notifyAll();
+            return false;
+        }
+        return true;
+    }
+
+    private void discover() {
+        File[] files = perfDataDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            long pid;
+            try {
+                pid = Long.parseLong(f.getName());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (targets.containsKey(pid) || rejected.contains(pid)) {
+                continue;
+            }
+
+            try {
+                HotspotPerfData data = new HotspotPerfData(f);
+                if (!data.isAccessible()) {
+                    // Not yet initialized, try again later
+                    continue;
+                }
+                data.refresh();
+                HotspotPerfData.Entry args = data.get("java.rt.vmArgs");
+                if (args == null || !args.isString()) {
+                    continue;
+                }
+                if (args.stringValue().contains(token)) {
+                    targets.put(pid, new Target(f, data));
+                    awaitingSince = 0;
+                } else {
+                    rejected.add(pid);
+                }
+            } catch (IOException e) {
+                // Not readable, or not a perfdata file; ignore it
+                rejected.add(pid);
+            }
+        }
+    }
+
+    private class Sampler extends Thread {
+        Sampler() {
+            setName("jmh-perfdata-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long lastScan = 0;
+            while (true) {
+                long now = System.currentTimeMillis();
+                boolean scan = (now - lastScan >= SCAN_INTERVAL_MS);
+                if (scan) {
+                    lastScan = now;
+                }
+                if (!step(now, scan)) {
+                    return;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(intervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forked VM under sampling.
+     */
+    private class Target {
+        private final File file;
+        private final HotspotPerfData data;
+
+        // Counters are picked up as target VM creates them; samples taken before
+        // the counter appears are shorter than the list of counters.
+        private final List<HotspotPerfData.Entry> tracked = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private final List<long[]> samples = new ArrayList<>();
+        private int seenEntries;
+        private boolean finished;
+
+        Target(File file, HotspotPerfData data) {
+            this.file = file;
+            this.data = data;
+        }
+
+        void sample(long time) {
+            List<HotspotPerfData.Entry> entries = data.refresh();
+            for (int i = seenEntries; i < entries.size(); i++) {
+                HotspotPerfData.Entry e = entries.get(i);
+                if (e.isLong() && isInteresting(e) && matches(e.getName())) {
+                    tracked.add(e);
+                }
+            }
+            seenEntries = entries.size();
+
+            long[] values = new long[tracked.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tracked.get(i).longValue();
+            }
+            times.add(time);
+            samples.add(values);
+        }
+
+        private boolean isInteresting(HotspotPerfData.Entry e) {
+            switch (e.getVariability()) {
+                case HotspotPerfData.VARIABILITY_MONOTONIC:
+                    return true;
+                case HotspotPerfData.VARIABILITY_VARIABLE:
+                    // level counters in ticks are timestamps, averaging those is pointless
+                    return e.getUnits() != HotspotPerfData.UNITS_TICKS;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean matches(String name) {
+            for (String prefix : counters) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return index of the last sample taken at or before the given time, or the first sample
+         */
+        private int sampleAt(long time) {
+            int idx = Collections.binarySearch(times, time);
+            if (idx < 0) {
+                idx = -idx - 2;
+            } else {
+                // the last of the samples with the same time
+                while (idx + 1 < times.size() && times.get(idx + 1) == time) {
+                    idx++;
+                }
+            }
+            return Math.max(0, idx);
+        }
+
+        Collection<Result> resultsFor(long startTime, long stopTime) {
+            Collection<Result> results = new ArrayList<>();
+            if (samples.isEmpty()) {
+                return results;
+            }
+
+            int from = sampleAt(startTime);
+            int to = sampleAt(stopTime);
+
+            double tickMs = Double.NaN;
+            HotspotPerfData.Entry freq = data.get("sun.os.hrt.frequency");
+            if (freq != null && freq.isLong() && freq.longValue() > 0) {
+                tickMs = 1000D / freq.longValue();
+            }
+
+            for (int c = 0; c < tracked.size(); c++) {
+                HotspotPerfData.Entry e = tracked.get(c);
+                long[] start = samples.get(from);
+                long[] stop = samples.get(to);
+                if (stop.length <= c) {
+                    // Counter did not exist by the end of iteration
+                    continue;
+                }
+
+                double value;
+                if (e.getVariability() == HotspotPerfData.VARIABILITY_MONOTONIC) {
+                    // Counters that appeared within the iteration start from zero
+                    long before = (start.length > c) ? start[c] : 0;
+                    value = stop[c] - before;
+                } else {
+                    // Level counters, report the average over the iteration
+                    long sum = 0;
+                    int cnt = 0;
+                    for (int s = from; s <= to; s++) {
+                        long[] sample = samples.get(s);
+                        if (sample.length > c) {
+                            sum += sample[c];
+                            cnt++;
+                        }
+                    }
+                    value = 1D * sum / cnt;
+                }
+
+                String unit;
+                switch (e.getUnits()) {
+                    case HotspotPerfData.UNITS_TICKS:
+                        if (Double.isNaN(tickMs)) {
+                            unit = "ticks";
+                        } else {
+                            value *= tickMs;
+                            unit = "ms";
+                        }
+                        break;
+                    case HotspotPerfData.UNITS_BYTES:
+                        unit = "bytes";
+                        break;
+                    case HotspotPerfData.UNITS_HERTZ:
+                        unit = "Hz";
+                        break;
+                    default:
+                        unit = "#";
+                }
+
+                results.add(new ScalarResult(Defaults.PREFIX + e.getName(), value, unit, AggregationPolicy.AVG));
+            }
+            return results;
+        }
+    }
+
+}
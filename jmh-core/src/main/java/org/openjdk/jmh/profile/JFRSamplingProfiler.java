@@ -0,0 +1,550 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.options.IntegerValueConverter;
+import org.openjdk.jmh.util.HashMultiset;
+import org.openjdk.jmh.util.Multiset;
+import org.openjdk.jmh.util.Multisets;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sampling profiler driven by JDK Flight Recorder events.
+ *
+ * <p>Unlike {@link StackProfiler}, this profiler does not stop the world to take the samples:
+ * JFR samples the threads asynchronously, and delivers the {@code jdk.ExecutionSample} and
+ * {@code jdk.ObjectAllocationSample} events via {@code jdk.jfr.consumer.RecordingStream}, which
+ * are then aggregated in the background thread. Only the samples from benchmark threads are accounted.</p>
+ *
+ * <p>A single stream runs for the whole trial, and the events are attributed to iterations by their
+ * timestamps. The stream delivers the events recorded before a flush only on the next one, so at the
+ * end of each iteration the profiler waits for two stream flushes to have all events of the iteration
+ * delivered. This takes up to two seconds with the default JFR flush interval.</p>
+ *
+ * <p>JFR streaming API is accessed reflectively, and requires JDK 14+. Allocation samples require JDK 16+.</p>
+ */
+public class JFRSamplingProfiler implements InternalProfiler, Closeable {
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+
+    private static final String WORKER_THREAD_MARKER = "-jmh-worker-";
+
+    /**
+     * How long to wait for the stream flushes at the end of iteration, in milliseconds.
+     * JFR flushes once per second by default.
+     */
+    private static final long FLUSH_TIMEOUT_MS = 3000;
+
+    private final int stackLines;
+    private final int topStacks;
+    private final int periodMsec;
+    private final boolean sampleLine;
+    private final boolean sampleAllocations;
+
+    private Sampler sampler;
+
+    public JFRSamplingProfiler(String initLine) throws ProfilerException {
+        OptionParser parser = new OptionParser();
+        parser.formatHelpWith(new ProfilerOptionFormatter(JFRSamplingProfiler.class.getCanonicalName()));
+
+        OptionSpec<Integer> optStackLines = parser.accepts("lines", "Number of stack lines to save in each stack trace. " +
+                "Larger values provide more insight into who is calling the top stack method, as the expense " +
+                "of more stack trace shapes to collect.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(1);
+
+        OptionSpec<Integer> optTopStacks = parser.accepts("top", "Number of top stacks to show in the profiling results. " +
+                "Larger values may catch some stack traces that linger in the distribution tail.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(10);
+
+        OptionSpec<Integer> optSamplePeriod = parser.accepts("period", "Execution sampling period, in milliseconds. " +
+                "Smaller values improve accuracy, at the expense of more profiling overhead.")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int").defaultsTo(10);
+
+        OptionSpec<Boolean> optDetailLine = parser.accepts("detailLine", "Record detailed source line info. " +
+                "This adds the line numbers to the recorded stack traces.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(false);
+
+        OptionSpec<Boolean> optAlloc = parser.accepts("alloc", "Sample the allocation sites, " +
+                "weighted by the allocated bytes.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(true);
+
+        OptionSet set = ProfilerUtils.parseInitLine(initLine, parser);
+
+        try {
+            sampleLine = set.valueOf(optDetailLine);
+            periodMsec = set.valueOf(optSamplePeriod);
+            topStacks = set.valueOf(optTopStacks);
+            stackLines = set.valueOf(optStackLines);
+            sampleAllocations = set.valueOf(optAlloc);
+        } catch (OptionException e) {
+            throw new ProfilerException(e.getMessage());
+        }
+
+        if (JFR.INIT_ERROR != null) {
+            throw new ProfilerException("JFR streaming is not available, JDK 14+ is required: " + JFR.INIT_ERROR);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "JFR-based execution and allocation sampling profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        if (sampler == null) {
+            sampler = new Sampler();
+            sampler.start();
+        }
+        sampler.iterationStarted(System.currentTimeMillis());
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        Multiset<String> methods = new HashMultiset<>();
+        Multiset<String> allocations = new HashMultiset<>();
+        sampler.iterationFinished(System.currentTimeMillis(), methods, allocations);
+        return Collections.singleton(new JFRSampleResult(methods, allocations, topStacks));
+    }
+
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Sampled event, already resolved to the aggregation key.
+     */
+    private static class Sample {
+        final long time;
+        final boolean allocation;
+        final String key;
+        final long weight;
+
+        Sample(long time, boolean allocation, String key, long weight) {
+            this.time = time;
+            this.allocation = allocation;
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Holds the RecordingStream for the trial, and buckets the events it delivers into iterations.
+     */
+    private class Sampler implements InvocationHandler {
+        private final List<Sample> pending = new ArrayList<>();
+        private long flushes;
+        private long iterationStart;
+        private Object stream;
+
+        void start() {
+            try {
+                stream = JFR.STREAM_CTOR.newInstance();
+                Object settings = JFR.STREAM_ENABLE.invoke(stream, EXECUTION_SAMPLE);
+                JFR.SETTINGS_WITH_PERIOD.invoke(settings, JFR.DURATION_OF_MILLIS.invoke(null, (long) periodMsec));
+                JFR.STREAM_ON_EVENT.invoke(stream, EXECUTION_SAMPLE, consumer());
+
+                if (sampleAllocations) {
+                    // unknown events are ignored by JFR, so this is safe on older JDKs
+                    JFR.STREAM_ENABLE.invoke(stream, ALLOCATION_SAMPLE);
+                    JFR.STREAM_ON_EVENT.invoke(stream, ALLOCATION_SAMPLE, consumer());
+                }
+
+                JFR.STREAM_ON_FLUSH.invoke(stream, proxy(Runnable.class));
+                JFR.STREAM_START_ASYNC.invoke(stream);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot start JFR recording stream", e);
+            }
+        }
+
+        void stop() {
+            try {
+                JFR.STREAM_CLOSE.invoke(stream);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot stop JFR recording stream", e);
+            }
+        }
+
+        synchronized void iterationStarted(long time) {
+            iterationStart = time;
+        }
+
+        synchronized void iterationFinished(long time, Multiset<String> methods, Multiset<String> allocations) {
+            // Events are delivered in batches one flush late, wait until the batch
+            // covering the iteration end arrives.
+            long target = flushes + 2;
+            long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+            while (flushes < target) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    break;
+                }
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            // samples taken between the iterations are of no interest
+            for (Sample s : pending) {
+                if (s.time < iterationStart || s.time > time) {
+                    continue;
+                }
+                if (s.allocation) {
+                    allocations.add(s.key, s.weight);
+                } else {
+                    methods.add(s.key);
+                }
+            }
+            pending.clear();
+        }
+
+        private synchronized void onFlush() {
+            flushes++;
+            notifyAll();
+        }
+
+        private Object consumer() {
+            return proxy(JFR.CONSUMER);
+        }
+
+        private Object proxy(Class<?> iface) {
+            return Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "accept":
+                    onEvent(args[0]);
+                    return null;
+                case "run":
+                    onFlush();
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "JFR sampler";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private void onEvent(Object event) throws ReflectiveOperationException {
+            Object type = JFR.EVENT_GET_TYPE.invoke(event);
+            boolean isAllocation = ALLOCATION_SAMPLE.equals(JFR.TYPE_GET_NAME.invoke(type));
+
+            Object thread = isAllocation ?
+                    JFR.EVENT_GET_THREAD.invoke(event) :
+                    JFR.OBJECT_GET_THREAD.invoke(event, "sampledThread");
+            if (thread == null) {
+                return;
+            }
+            String threadName = (String) JFR.THREAD_GET_JAVA_NAME.invoke(thread);
+            if (threadName == null || !threadName.contains(WORKER_THREAD_MARKER)) {
+                return;
+            }
+
+            long time = (Long) JFR.INSTANT_TO_EPOCH_MILLI.invoke(JFR.EVENT_GET_START_TIME.invoke(event));
+            String stack = stack(event, isAllocation ? 1 : stackLines);
+
+            Sample sample;
+            if (isAllocation) {
+                Object klass = JFR.OBJECT_GET_CLASS.invoke(event, "objectClass");
+                String className = (klass == null) ? "<unknown>" : (String) JFR.CLASS_GET_NAME.invoke(klass);
+                long weight = (Long) JFR.OBJECT_GET_LONG.invoke(event, "weight");
+                sample = new Sample(time, true, className + " @ " + stack, weight);
+            } else {
+                sample = new Sample(time, false, stack, 1);
+            }
+
+            synchronized (this) {
+                pending.add(sample);
+            }
+        }
+
+        private String stack(Object event, int lines) throws ReflectiveOperationException {
+            Object trace = JFR.EVENT_GET_STACK_TRACE.invoke(event);
+            if (trace == null) {
+                return "<no stack trace>";
+            }
+
+            List<String> frames = new ArrayList<>();
+            for (Object frame : (List<?>) JFR.TRACE_GET_FRAMES.invoke(trace)) {
+                if (!(Boolean) JFR.FRAME_IS_JAVA.invoke(frame)) {
+                    continue;
+                }
+                Object method = JFR.FRAME_GET_METHOD.invoke(frame);
+                String className = (String) JFR.CLASS_GET_NAME.invoke(JFR.METHOD_GET_TYPE.invoke(method));
+                String name = className + '.' + JFR.METHOD_GET_NAME.invoke(method);
+                if (sampleLine) {
+                    name += ":" + JFR.FRAME_GET_LINE.invoke(frame);
+                }
+                frames.add(name);
+                if (frames.size() >= lines) {
+                    break;
+                }
+            }
+
+            if (frames.isEmpty()) {
+                return "<no java frames>";
+            }
+
+            StringBuilder sb = new StringBuilder(frames.get(0));
+            for (int i = 1; i < frames.size(); i++) {
+                sb.append('\n').append(frames.get(i));
+            }
+            return sb.toString();
+        }
+    }
+
+    public static class JFRSampleResult extends Result<JFRSampleResult> {
+        private static final long serialVersionUID = -3466437219813052271L;
+
+        private final Multiset<String> methods;
+        private final Multiset<String> allocations;
+        private final int topStacks;
+
+        public JFRSampleResult(Multiset<String> methods, Multiset<String> allocations, int topStacks) {
+            super(ResultRole.SECONDARY, Defaults.PREFIX + "jfr", of(Double.NaN), "---", AggregationPolicy.AVG);
+            this.methods = methods;
+            this.allocations = allocations;
+            this.topStacks = topStacks;
+        }
+
+        @Override
+        protected Aggregator<JFRSampleResult> getThreadAggregator() {
+            return new JFRSampleResultAggregator();
+        }
+
+        @Override
+        protected Aggregator<JFRSampleResult> getIterationAggregator() {
+            return new JFRSampleResultAggregator();
+        }
+
+        @Override
+        public String toString() {
+            return "<delayed till summary>";
+        }
+
+        @Override
+        public String extendedInfo() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("JFR sampling profiler:\n\n");
+            print(sb, "Hot methods, by execution samples", methods, "samples");
+            print(sb, "Allocation sites, by sampled bytes", allocations, "bytes");
+            return sb.toString();
+        }
+
+        private void print(StringBuilder sb, String header, Multiset<String> set, String unit) {
+            sb.append(StackProfiler.dottedLine(header));
+            long total = set.size();
+            if (total == 0) {
+                sb.append("<no samples>\n\n");
+                return;
+            }
+
+            long displayed = 0;
+            for (String s : Multisets.countHighest(set, topStacks)) {
+                long count = set.count(s);
+                displayed += count;
+                String[] lines = s.split("\n");
+                sb.append(String.format("%5.1f%% %s%n", count * 100.0 / total, lines[0]));
+                for (int i = 1; i < lines.length; i++) {
+                    sb.append(String.format("%6s %s%n", "", lines[i]));
+                }
+            }
+            if (displayed < total) {
+                sb.append(String.format("%5.1f%% %s%n", (total - displayed) * 100.0 / total, "<other>"));
+            }
+            sb.append(String.format("%n%d %s total%n%n", total, unit));
+        }
+    }
+
+    public static class JFRSampleResultAggregator implements Aggregator<JFRSampleResult> {
+        @Override
+        public JFRSampleResult aggregate(Collection<JFRSampleResult> results) {
+            int topStacks = 0;
+            Multiset<String> methods = new HashMultiset<>();
+            Multiset<String> allocations = new HashMultiset<>();
+            for (JFRSampleResult r : results) {
+                merge(methods, r.methods);
+                merge(allocations, r.allocations);
+                topStacks = r.topStacks;
+            }
+            return new JFRSampleResult(methods, allocations, topStacks);
+        }
+
+        private static void merge(Multiset<String> dst, Multiset<String> src) {
+            for (String key : src.keys()) {
+                dst.add(key, src.count(key));
+            }
+        }
+    }
+
+    /**
+     * Reflective handles to JFR streaming API, which is not available at compile time.
+     */
+    private static class JFR {
+        static final String INIT_ERROR;
+
+        static final Class<?> CONSUMER;
+        static final java.lang.reflect.Constructor<?> STREAM_CTOR;
+        static final Method STREAM_ENABLE;
+        static final Method STREAM_ON_EVENT;
+        static final Method STREAM_ON_FLUSH;
+        static final Method STREAM_START_ASYNC;
+        static final Method STREAM_CLOSE;
+        static final Method SETTINGS_WITH_PERIOD;
+        static final Method DURATION_OF_MILLIS;
+        static final Method INSTANT_TO_EPOCH_MILLI;
+        static final Method EVENT_GET_TYPE;
+        static final Method EVENT_GET_START_TIME;
+        static final Method EVENT_GET_THREAD;
+        static final Method EVENT_GET_STACK_TRACE;
+        static final Method TYPE_GET_NAME;
+        static final Method OBJECT_GET_THREAD;
+        static final Method OBJECT_GET_CLASS;
+        static final Method OBJECT_GET_LONG;
+        static final Method THREAD_GET_JAVA_NAME;
+        static final Method TRACE_GET_FRAMES;
+        static final Method FRAME_IS_JAVA;
+        static final Method FRAME_GET_METHOD;
+        static final Method FRAME_GET_LINE;
+        static final Method METHOD_GET_TYPE;
+        static final Method METHOD_GET_NAME;
+        static final Method CLASS_GET_NAME;
+
+        static {
+            String error = null;
+            Class<?> consumer = null;
+            java.lang.reflect.Constructor<?> streamCtor = null;
+            Method streamEnable = null, streamOnEvent = null, streamOnFlush = null, streamStartAsync = null, streamClose = null;
+            Method settingsWithPeriod = null, durationOfMillis = null, instantToEpochMilli = null;
+            Method eventGetType = null, eventGetStartTime = null, eventGetThread = null, eventGetStackTrace = null, typeGetName = null;
+            Method objectGetThread = null, objectGetClass = null, objectGetLong = null, threadGetJavaName = null;
+            Method traceGetFrames = null, frameIsJava = null, frameGetMethod = null, frameGetLine = null;
+            Method methodGetType = null, methodGetName = null, classGetName = null;
+
+            try {
+                consumer = Class.forName("java.util.function.Consumer");
+                Class<?> duration = Class.forName("java.time.Duration");
+                Class<?> instant = Class.forName("java.time.Instant");
+                Class<?> stream = Class.forName("jdk.jfr.consumer.RecordingStream");
+                Class<?> settings = Class.forName("jdk.jfr.EventSettings");
+                Class<?> eventType = Class.forName("jdk.jfr.EventType");
+                Class<?> object = Class.forName("jdk.jfr.consumer.RecordedObject");
+                Class<?> event = Class.forName("jdk.jfr.consumer.RecordedEvent");
+                Class<?> thread = Class.forName("jdk.jfr.consumer.RecordedThread");
+                Class<?> trace = Class.forName("jdk.jfr.consumer.RecordedStackTrace");
+                Class<?> frame = Class.forName("jdk.jfr.consumer.RecordedFrame");
+                Class<?> method = Class.forName("jdk.jfr.consumer.RecordedMethod");
+                Class<?> klass = Class.forName("jdk.jfr.consumer.RecordedClass");
+
+                streamCtor = stream.getConstructor();
+                streamEnable = stream.getMethod("enable", String.class);
+                streamOnEvent = stream.getMethod("onEvent", String.class, consumer);
+                streamOnFlush = stream.getMethod("onFlush", Runnable.class);
+                streamStartAsync = stream.getMethod("startAsync");
+                streamClose = stream.getMethod("close");
+                settingsWithPeriod = settings.getMethod("withPeriod", duration);
+                durationOfMillis = duration.getMethod("ofMillis", long.class);
+                instantToEpochMilli = instant.getMethod("toEpochMilli");
+                eventGetType = event.getMethod("getEventType");
+                eventGetStartTime = event.getMethod("getStartTime");
+                eventGetThread = event.getMethod("getThread");
+                eventGetStackTrace = event.getMethod("getStackTrace");
+                typeGetName = eventType.getMethod("getName");
+                objectGetThread = object.getMethod("getThread", String.class);
+                objectGetClass = object.getMethod("getClass", String.class);
+                objectGetLong = object.getMethod("getLong", String.class);
+                threadGetJavaName = thread.getMethod("getJavaName");
+                traceGetFrames = trace.getMethod("getFrames");
+                frameIsJava = frame.getMethod("isJavaFrame");
+                frameGetMethod = frame.getMethod("getMethod");
+                frameGetLine = frame.getMethod("getLineNumber");
+                methodGetType = method.getMethod("getType");
+                methodGetName = method.getMethod("getName");
+                classGetName = klass.getMethod("getName");
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                error = e.toString();
+            }
+
+            INIT_ERROR = error;
+            CONSUMER = consumer;
+            STREAM_CTOR = streamCtor;
+            STREAM_ENABLE = streamEnable;
+            STREAM_ON_EVENT = streamOnEvent;
+            STREAM_ON_FLUSH = streamOnFlush;
+            STREAM_START_ASYNC = streamStartAsync;
+            STREAM_CLOSE = streamClose;
+            SETTINGS_WITH_PERIOD = settingsWithPeriod;
+            DURATION_OF_MILLIS = durationOfMillis;
+            INSTANT_TO_EPOCH_MILLI = instantToEpochMilli;
+            EVENT_GET_TYPE = eventGetType;
+            EVENT_GET_START_TIME = eventGetStartTime;
+            EVENT_GET_THREAD = eventGetThread;
+            EVENT_GET_STACK_TRACE = eventGetStackTrace;
+            TYPE_GET_NAME = typeGetName;
+            OBJECT_GET_THREAD = objectGetThread;
+            OBJECT_GET_CLASS = objectGetClass;
+            OBJECT_GET_LONG = objectGetLong;
+            THREAD_GET_JAVA_NAME = threadGetJavaName;
+            TRACE_GET_FRAMES = traceGetFrames;
+            FRAME_IS_JAVA = frameIsJava;
+            FRAME_GET_METHOD = frameGetMethod;
+            FRAME_GET_LINE = frameGetLine;
+            METHOD_GET_TYPE = methodGetType;
+            METHOD_GET_NAME = methodGetName;
+            CLASS_GET_NAME = classGetName;
+        }
+    }
+
+}
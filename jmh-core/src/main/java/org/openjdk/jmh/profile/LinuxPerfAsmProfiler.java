@@ -40,8 +40,10 @@ import java.util.*;
 public class LinuxPerfAsmProfiler extends AbstractPerfAsmProfiler {
 
     private final long sampleFrequency;
+    private final PerfControl control;
 
     private OptionSpec<Long> optFrequency;
+    private OptionSpec<Boolean> optControl;
 
     public LinuxPerfAsmProfiler(String initLine) throws ProfilerException {
         super(initLine, "cycles");
@@ -51,11 +53,19 @@ public class LinuxPerfAsmProfiler extends AbstractPerfAsmProfiler {
             throw new ProfilerException(failMsg.toString());
         }
 
+        boolean useControl;
         try {
             sampleFrequency = set.valueOf(optFrequency);
+            useControl = set.valueOf(optControl);
         } catch (OptionException e) {
             throw new ProfilerException(e.getMessage());
         }
+
+        if (useControl) {
+            control = PerfControl.create(PerfSupport.PERF_EXEC, "record", "--output", perfBinData.getAbsolutePath());
+        } else {
+            control = null;
+        }
     }
 
     @Override
@@ -63,11 +73,35 @@ public class LinuxPerfAsmProfiler extends AbstractPerfAsmProfiler {
         optFrequency = parser.accepts("frequency",
                 "Sampling frequency. This is synonymous to perf record --freq #")
                 .withRequiredArg().ofType(Long.class).describedAs("freq").defaultsTo(1000L);
+
+        optControl = parser.accepts("control",
+                "Have the forked VM enable the sampling only for the measurement iterations, " +
+                "using \"perf record --control\". Falls back to delay/length if perf does not support it.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(true);
+    }
+
+    @Override
+    protected boolean isMeasurementControlled() {
+        return control != null;
     }
 
     @Override
     public Collection<String> addJVMInvokeOptions(BenchmarkParams params) {
-        return Arrays.asList(PerfSupport.PERF_EXEC, "record", "--freq", String.valueOf(sampleFrequency), "--event", Utils.join(events, ","), "--output", perfBinData.getAbsolutePath());
+        List<String> cmd = new ArrayList<>();
+        cmd.addAll(Arrays.asList(PerfSupport.PERF_EXEC, "record", "--freq", String.valueOf(sampleFrequency), "--event", Utils.join(events, ","), "--output", perfBinData.getAbsolutePath()));
+        if (control != null) {
+            cmd.addAll(control.perfOptions());
+        }
+        return cmd;
+    }
+
+    @Override
+    public Collection<String> addJVMOptions(BenchmarkParams params) {
+        Collection<String> opts = new ArrayList<>(super.addJVMOptions(params));
+        if (control != null) {
+            opts.addAll(control.jvmOptions());
+        }
+        return opts;
     }
 
     @Override
@@ -63,6 +63,8 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
     private final long highPassFilter;
     private final int incrementInterval;
     private final boolean isIncrementable;
+    private final boolean perIteration;
+    private final PerfControl control;
 
     private final Collection<String> supportedEvents = new ArrayList<>();
 
@@ -95,9 +97,20 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
                         "Use \"perf stat -d -d -d\" instead of explicit counter list.")
                 .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(false);
 
+        OptionSpec<Boolean> optControl = parser.accepts("control",
+                        "Have the forked VM enable the counters only for the measurement iterations, " +
+                        "using \"perf stat --control\". Falls back to delay/length if perf does not support it.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(true);
+
+        OptionSpec<Boolean> optPerIteration = parser.accepts("perIteration",
+                        "Normalize the counters for each measurement iteration separately, and report " +
+                        "the average over the iterations along with its error. Requires the perf control.")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool").defaultsTo(false);
+
         OptionSet set = ProfilerUtils.parseInitLine(initLine, parser);
 
         Collection<String> userEvents;
+        boolean useControl;
 
         try {
             delayMs = set.valueOf(optDelay);
@@ -106,6 +119,8 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
             highPassFilter = set.valueOf(optHighPassFilter);
             useDefaultStats = set.valueOf(optDefaultStat);
             userEvents = set.valuesOf(optEvents);
+            useControl = set.valueOf(optControl);
+            perIteration = set.valueOf(optPerIteration);
         } catch (OptionException e) {
             throw new ProfilerException(e.getMessage());
         }
@@ -118,6 +133,12 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
         Collection<String> incremental = Utils.tryWith(PerfSupport.PERF_EXEC, "stat", "--log-fd", "2", "--field-separator", ",", "--interval-print", String.valueOf(incrementInterval), "echo", "1");
         isIncrementable = incremental.isEmpty();
 
+        if (useControl) {
+            control = PerfControl.create(PerfSupport.PERF_EXEC, "stat", "--log-fd", "2", "--field-separator", ",");
+        } else {
+            control = null;
+        }
+
         if (userEvents != null) {
             for (String ev : userEvents) {
                 if (ev.trim().isEmpty()) continue;
@@ -146,11 +167,17 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
         if (isIncrementable) {
             cmd.addAll(Arrays.asList("-I", String.valueOf(incrementInterval)));
         }
+        if (control != null) {
+            cmd.addAll(control.perfOptions());
+        }
         return cmd;
     }
 
     @Override
     public Collection<String> addJVMOptions(BenchmarkParams params) {
+        if (control != null) {
+            return control.jvmOptions();
+        }
         return Collections.emptyList();
     }
 
@@ -182,6 +209,9 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
     private Collection<? extends Result> process(BenchmarkResult br, File stdOut, File stdErr) {
         Multiset<String> events = new HashMultiset<>();
 
+        // Counts within each enabled window, when perf is controlled by the forked VM
+        List<Multiset<String>> windows = new ArrayList<>();
+
         try (FileReader fr = new FileReader(stdErr);
              BufferedReader reader = new BufferedReader(fr)) {
 
@@ -211,6 +241,11 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("#")) continue;
 
+                if (control != null && line.contains(PerfControl.ENABLED_MARKER)) {
+                    windows.add(new HashMultiset<String>());
+                    continue;
+                }
+
                 if (isIncrementable) {
                     String[] split = line.split(",");
 
@@ -234,46 +269,49 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
                     }
 
                     double multiplier = 1D;
-                    try {
-                        double timeSec = nf.parse(time).doubleValue();
-                        if (timeSec < readFrom) {
-                            // warmup, ignore
+                    if (control == null) {
+                        // Forked VM did not control perf, guess the measurement window
+                        try {
+                            double timeSec = nf.parse(time).doubleValue();
+                            if (timeSec < readFrom) {
+                                // warmup, ignore
+                                continue nextline;
+                            }
+                            if (timeSec > readTo) {
+                                // post-run, ignore
+                                continue nextline;
+                            }
+
+                            // Handle partial events:
+                            double intervalSec = incrementInterval / 1000D;
+                            if (timeSec - intervalSec < readFrom) {
+                                // Event _starts_ before the measurement window
+                                //     .............[============|============
+                                //               readFrom     timeSec
+                                //           [<----------------->|  // event
+                                //             incrementInterval
+                                //
+                                // Only count the tail after readFrom:
+
+                                multiplier = (timeSec - readFrom) / intervalSec;
+                            }
+                            if (timeSec > softTo) {
+                                // Event is past the measurement window
+                                //    =============].............|............
+                                //               softTo       timeSec
+                                //           [<----------------->|  // event
+                                //             incrementInterval
+                                //
+                                // Only count the head before softTo:
+                                multiplier = 1 - (timeSec - softTo) / intervalSec;
+                            }
+
+                            // Defensive, keep multiplier in bounds:
+                            multiplier = Math.max(1D, Math.min(0D, multiplier));
+                        } catch (ParseException e) {
+                            // don't care then, continue
                             continue nextline;
                         }
-                        if (timeSec > readTo) {
-                            // post-run, ignore
-                            continue nextline;
-                        }
-
-                        // Handle partial events:
-                        double intervalSec = incrementInterval / 1000D;
-                        if (timeSec - intervalSec < readFrom) {
-                            // Event _starts_ before the measurement window
-                            //     .............[============|============
-                            //               readFrom     timeSec
-                            //           [<----------------->|  // event
-                            //             incrementInterval
-                            //
-                            // Only count the tail after readFrom:
-
-                            multiplier = (timeSec - readFrom) / intervalSec;
-                        }
-                        if (timeSec > softTo) {
-                            // Event is past the measurement window
-                            //    =============].............|............
-                            //               softTo       timeSec
-                            //           [<----------------->|  // event
-                            //             incrementInterval
-                            //
-                            // Only count the head before softTo:
-                            multiplier = 1 - (timeSec - softTo) / intervalSec;
-                        }
-
-                        // Defensive, keep multiplier in bounds:
-                        multiplier = Math.max(1D, Math.min(0D, multiplier));
-                    } catch (ParseException e) {
-                        // don't care then, continue
-                        continue nextline;
                     }
 
                     try {
@@ -283,6 +321,9 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
                             continue nextline;
                         }
                         events.add(event, (long) (lValue * multiplier));
+                        if (!windows.isEmpty()) {
+                            windows.get(windows.size() - 1).add(event, lValue);
+                        }
                     } catch (ParseException e) {
                         // do nothing, continue
                         continue nextline;
@@ -308,7 +349,7 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
 
             }
 
-            if (!isIncrementable) {
+            if (!isIncrementable && control == null) {
                 System.out.println();
                 System.out.println();
                 System.out.println("WARNING: Your system uses old \"perf\", which cannot print data incrementally (-I).\n" +
@@ -319,12 +360,37 @@ public class LinuxPerfNormProfiler implements ExternalProfiler {
 
             BenchmarkResultMetaData md = br.getMetadata();
             if (md != null) {
-                if (isIncrementable) {
+                if (isIncrementable || control != null) {
                     totalOpts = md.getMeasurementOps();
                 } else {
                     totalOpts = md.getWarmupOps() + md.getMeasurementOps();
                 }
                 Collection<Result> results = new ArrayList<>();
+
+                if (perIteration && windows.size() == br.getIterationResults().size()) {
+                    // Report every iteration separately, the results with the same label
+                    // get aggregated across iterations and forks.
+                    int i = 0;
+                    for (IterationResult ir : br.getIterationResults()) {
+                        Multiset<String> window = windows.get(i++);
+                        long ops = ir.getMetadata().getMeasuredOps();
+                        for (String key : events.keys()) {
+                            results.add(new PerfResult(key, window.count(key) * 1.0 / ops));
+                        }
+                        long cycles = window.count("cycles");
+                        long instructions = window.count("instructions");
+                        if (cycles != 0 && instructions != 0) {
+                            results.add(new PerfResult("CPI", 1.0 * cycles / instructions));
+                        }
+                    }
+                    return results;
+                }
+
+                if (perIteration) {
+                    System.out.println();
+                    System.out.println("WARNING: Cannot split perf data by measurement iterations, reporting totals.");
+                }
+
                 for (String key : events.keys()) {
                     results.add(new PerfResult(key, events.count(key) * 1.0 / totalOpts));
                 }
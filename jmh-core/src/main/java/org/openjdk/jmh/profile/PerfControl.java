@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Controls the "perf" session wrapping the forked VM over the "--control fifo:" channel.
+ *
+ * <p>Host side creates the control and acknowledgement FIFOs, and asks "perf" to start
+ * with counters disabled. Forked VM side then enables the counters once all benchmark
+ * threads had entered the measured part of the measurement iteration, and disables them
+ * once all threads had left it, so that warmup, compilation, iteration setups and
+ * teardowns do not pollute the perf data.</p>
+ */
+public class PerfControl {
+
+    static final String CTL_PROPERTY = "jmh.perf.control.ctl";
+    static final String ACK_PROPERTY = "jmh.perf.control.ack";
+
+    /**
+     * Message perf prints on the log stream when counters get enabled.
+     */
+    static final String ENABLED_MARKER = "Events enabled";
+
+    private final File ctl;
+    private final File ack;
+
+    private PerfControl(File ctl, File ack) {
+        this.ctl = ctl;
+        this.ack = ack;
+    }
+
+    /**
+     * Creates the control FIFOs, and checks the given perf command accepts them.
+     *
+     * @param probe perf command prefix to test, e.g. "perf stat"
+     * @return perf control, or null if either FIFOs or perf do not support the control
+     */
+    static PerfControl create(String... probe) {
+        File ctl;
+        File ack;
+        try {
+            ctl = makeFifo("ctl");
+            ack = makeFifo("ack");
+        } catch (IOException e) {
+            return null;
+        }
+
+        PerfControl control = new PerfControl(ctl, ack);
+
+        List<String> cmd = new ArrayList<>();
+        cmd.addAll(Arrays.asList(probe));
+        cmd.addAll(control.perfOptions());
+        cmd.addAll(Arrays.asList("echo", "1"));
+        if (!Utils.tryWith(cmd.toArray(new String[0])).isEmpty()) {
+            ctl.delete();
+            ack.delete();
+            return null;
+        }
+        return control;
+    }
+
+    private static File makeFifo(String suffix) throws IOException {
+        File f = FileUtils.tempFile("." + suffix);
+        if (!f.delete()) {
+            throw new IOException("Cannot delete " + f);
+        }
+        Collection<String> errs = Utils.tryWith("mkfifo", f.getAbsolutePath());
+        if (!errs.isEmpty()) {
+            throw new IOException(errs.toString());
+        }
+        return f;
+    }
+
+    /**
+     * @return options to pass to perf: start disabled, and listen to the control FIFO
+     */
+    List<String> perfOptions() {
+        return Arrays.asList("--delay", "-1",
+                "--control", "fifo:" + ctl.getAbsolutePath() + "," + ack.getAbsolutePath());
+    }
+
+    /**
+     * @return options to pass to forked VM, so that it could find the control FIFO
+     */
+    List<String> jvmOptions() {
+        return Arrays.asList(
+                "-D" + CTL_PROPERTY + "=" + ctl.getAbsolutePath(),
+                "-D" + ACK_PROPERTY + "=" + ack.getAbsolutePath());
+    }
+
+    // ------------------------------ Forked VM side ------------------------------
+
+    private static boolean initialized;
+    private static Channel channel;
+
+    /**
+     * Enables perf counters, if forked VM runs under the controlled perf.
+     */
+    public static synchronized void enable() {
+        command("enable");
+    }
+
+    /**
+     * Disables perf counters, if forked VM runs under the controlled perf.
+     */
+    public static synchronized void disable() {
+        command("disable");
+    }
+
+    private static void command(String cmd) {
+        if (!initialized) {
+            initialized = true;
+            String ctlName = System.getProperty(CTL_PROPERTY);
+            String ackName = System.getProperty(ACK_PROPERTY);
+            if (ctlName != null && ackName != null) {
+                try {
+                    channel = new Channel(ctlName, ackName);
+                } catch (IOException e) {
+                    // no control then
+                }
+            }
+        }
+
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.command(cmd);
+        } catch (IOException e) {
+            // perf went away, do not bother it anymore
+            channel.close();
+            channel = null;
+        }
+    }
+
+    static class Channel {
+        private final OutputStream ctl;
+        private final InputStream ack;
+
+        Channel(String ctlName, String ackName) throws IOException {
+            // perf holds both FIFOs open for read-write, so neither open blocks
+            ctl = new FileOutputStream(ctlName);
+            try {
+                ack = new FileInputStream(ackName);
+            } catch (IOException e) {
+                FileUtils.safelyClose(ctl);
+                throw e;
+            }
+        }
+
+        void command(String cmd) throws IOException {
+            ctl.write((cmd + "\n").getBytes(StandardCharsets.US_ASCII));
+            ctl.flush();
+
+            // Wait for perf to acknowledge, so that the counters are indeed
+            // flipped by the time we return. perf replies with "ack\n",
+            // possibly followed by zero bytes.
+            int c;
+            while ((c = ack.read()) != '\n') {
+                if (c == -1) {
+                    throw new IOException("perf closed the acknowledgement FIFO");
+                }
+            }
+        }
+
+        void close() {
+            FileUtils.safelyClose(ctl);
+            FileUtils.safelyClose(ack);
+        }
+    }
+
+}
@@ -170,6 +170,7 @@ public class ProfilerFactory {
         BUILT_IN.put("hs_cl",    HotspotClassloadingProfiler.class);
         BUILT_IN.put("hs_comp",  HotspotCompilationProfiler.class);
         BUILT_IN.put("hs_gc",    HotspotMemoryProfiler.class);
+        BUILT_IN.put("hs_perfdata", HotspotPerfDataProfiler.class);
         BUILT_IN.put("hs_rt",    HotspotRuntimeProfiler.class);
         BUILT_IN.put("hs_thr",   HotspotThreadProfiler.class);
         BUILT_IN.put("stack",    StackProfiler.class);
@@ -180,6 +181,7 @@ public class ProfilerFactory {
         BUILT_IN.put("dtraceasm", DTraceAsmProfiler.class);
         BUILT_IN.put("pauses",   PausesProfiler.class);
         BUILT_IN.put("safepoints", SafepointsProfiler.class);
+        BUILT_IN.put("jfrsample", JFRSamplingProfiler.class);
     }
 
     private static List<Class<? extends Profiler>> getDiscoveredProfilers() {
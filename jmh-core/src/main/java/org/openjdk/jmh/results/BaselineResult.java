@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The score of the empty-body twin of the benchmark, measured in the same fork.
+ *
+ * <p>The result also tracks the primary scores corrected for the baseline in each
+ * iteration. The twin runs right before the paired benchmark iteration, and both
+ * share the slow drifts of the machine state; the correction is therefore derived
+ * from the per-iteration differences, rather than from two independent means.</p>
+ */
+public class BaselineResult extends Result<BaselineResult> {
+    private static final long serialVersionUID = -4720613276839208458L;
+
+    private final Statistics corrected;
+    private final boolean correct;
+
+    /**
+     * @param baseline baseline score
+     * @param primary primary score of the paired iteration
+     * @param unit score unit
+     * @param throughput true, if the scores are throughputs; average times otherwise
+     * @param correct true, if the corrected score should be derived
+     */
+    public BaselineResult(double baseline, double primary, String unit, boolean throughput, boolean correct) {
+        this(of(baseline), of(correct(baseline, primary, throughput)), unit, correct);
+    }
+
+    BaselineResult(Statistics baseline, Statistics corrected, String unit, boolean correct) {
+        super(ResultRole.SECONDARY, Defaults.PREFIX + "baseline", baseline, unit, AggregationPolicy.AVG);
+        this.corrected = corrected;
+        this.correct = correct;
+    }
+
+    /**
+     * Subtracts the baseline time per operation from the primary score.
+     * Throughputs that are not below the baseline have nothing sensible to
+     * subtract from, and produce NaN; aggregation skips those iterations.
+     */
+    private static double correct(double baseline, double primary, boolean throughput) {
+        if (throughput) {
+            return (baseline > primary) ? primary * baseline / (baseline - primary) : Double.NaN;
+        } else {
+            return primary - baseline;
+        }
+    }
+
+    Statistics getCorrectedStatistics() {
+        return corrected;
+    }
+
+    boolean isCorrect() {
+        return correct;
+    }
+
+    @Override
+    protected Aggregator<BaselineResult> getThreadAggregator() {
+        return new BaselineResultAggregator();
+    }
+
+    @Override
+    protected Aggregator<BaselineResult> getIterationAggregator() {
+        return new BaselineResultAggregator();
+    }
+
+    @Override
+    protected Collection<? extends Result> getDerivativeResults() {
+        if (!correct) {
+            return Collections.emptyList();
+        }
+        return Collections.singleton(new CorrectedResult(corrected, unit));
+    }
+
+    static class BaselineResultAggregator implements Aggregator<BaselineResult> {
+        @Override
+        public BaselineResult aggregate(Collection<BaselineResult> results) {
+            ListStatistics baseline = new ListStatistics();
+            ListStatistics corrected = new ListStatistics();
+            boolean correct = false;
+            for (BaselineResult r : results) {
+                baseline.addValue(r.getScore());
+                // the iterations that had nothing to correct do not spoil the rest
+                double c = r.corrected.getMean();
+                if (!Double.isNaN(c)) {
+                    corrected.addValue(c);
+                }
+                correct |= r.correct;
+            }
+            return new BaselineResult(
+                    baseline,
+                    corrected,
+                    AggregatorUtils.aggregateUnits(results),
+                    correct
+            );
+        }
+    }
+
+    /**
+     * The primary score corrected for the baseline. The error comes from the
+     * spread of the per-iteration corrected scores.
+     */
+    static class CorrectedResult extends Result<CorrectedResult> {
+        private static final long serialVersionUID = 6302960893734829121L;
+
+        CorrectedResult(Statistics corrected, String unit) {
+            super(ResultRole.SECONDARY_DERIVATIVE, Defaults.PREFIX + "baseline.corrected", corrected, unit, AggregationPolicy.AVG);
+        }
+
+        @Override
+        protected Aggregator<CorrectedResult> getThreadAggregator() {
+            return null;
+        }
+
+        @Override
+        protected Aggregator<CorrectedResult> getIterationAggregator() {
+            return null;
+        }
+
+        @Override
+        public String extendedInfo() {
+            return "";
+        }
+    }
+
+}
@@ -36,14 +36,23 @@ public class BenchmarkResultMetaData implements Serializable {
     private final long stopTime;
     private final long warmupOps;
     private final long measurementOps;
+    private final int warmupIterations;
+    private final boolean warmupSteady;
 
     public BenchmarkResultMetaData(long warmupTime, long measurementTime, long stopTime, long warmupOps, long measurementOps) {
+        this(warmupTime, measurementTime, stopTime, warmupOps, measurementOps, -1, false);
+    }
+
+    public BenchmarkResultMetaData(long warmupTime, long measurementTime, long stopTime, long warmupOps, long measurementOps,
+                                   int warmupIterations, boolean warmupSteady) {
         this.startTime = Long.MIN_VALUE;
         this.warmupTime = warmupTime;
         this.measurementTime = measurementTime;
         this.stopTime = stopTime;
         this.warmupOps = warmupOps;
         this.measurementOps = measurementOps;
+        this.warmupIterations = warmupIterations;
+        this.warmupSteady = warmupSteady;
     }
 
     public long getStartTime() {
@@ -73,6 +82,20 @@ public class BenchmarkResultMetaData implements Serializable {
         return warmupOps;
     }
 
+    /**
+     * @return number of warmup iterations actually run, -1 if unknown
+     */
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * @return true, if warmup was stopped early because the steady state was detected
+     */
+    public boolean isWarmupSteady() {
+        return warmupSteady;
+    }
+
     public void adjustStart(long startTime) {
         this.startTime = startTime;
     }
@@ -32,10 +32,18 @@ public class IterationResultMetaData implements Serializable {
 
     private final long allOps;
     private final long measuredOps;
+    private final long startTime;
+    private final long stopTime;
 
     public IterationResultMetaData(long allOps, long measuredOps) {
+        this(allOps, measuredOps, 0, 0);
+    }
+
+    public IterationResultMetaData(long allOps, long measuredOps, long startTime, long stopTime) {
         this.allOps = allOps;
         this.measuredOps = measuredOps;
+        this.startTime = startTime;
+        this.stopTime = stopTime;
     }
 
     public long getMeasuredOps() {
@@ -45,4 +53,18 @@ public class IterationResultMetaData implements Serializable {
     public long getAllOps() {
         return allOps;
     }
+
+    /**
+     * @return wall clock time, in milliseconds, when all workers entered the measurement; 0 if unknown
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return wall clock time, in milliseconds, when all workers left the measurement; 0 if unknown
+     */
+    public long getStopTime() {
+        return stopTime;
+    }
 }
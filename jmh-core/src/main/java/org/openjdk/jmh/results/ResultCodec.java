@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.SingletonStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact binary encoding for the built-in results.
+ *
+ * <p>This is the infrastructure class for the binary link between the host and forked VMs.
+ * It only handles the results produced by harness itself; everything else, notably the user
+ * {@link Result} subclasses, is not supported here, and should go through Java serialization.
+ */
+public final class ResultCodec {
+
+    private static final byte THROUGHPUT   = 1;
+    private static final byte AVERAGE_TIME = 2;
+    private static final byte SAMPLE_TIME  = 3;
+    private static final byte SINGLE_SHOT  = 4;
+    private static final byte SCALAR       = 5;
+    private static final byte BASELINE     = 6;
+
+    private ResultCodec() {
+        // prevent instantiation
+    }
+
+    /**
+     * Checks if result can be encoded with this codec.
+     *
+     * @param r result to check
+     * @return true, if result is supported
+     */
+    public static boolean isSupported(Result r) {
+        return kindOf(r) != 0;
+    }
+
+    private static byte kindOf(Result r) {
+        Class<?> k = r.getClass();
+        if (k == SampleTimeResult.class) {
+            return SAMPLE_TIME;
+        }
+
+        // Other results are expected to carry a single value.
+        if (r.getStatistics().getClass() != SingletonStatistics.class) {
+            return 0;
+        }
+        if (k == ThroughputResult.class)  return THROUGHPUT;
+        if (k == AverageTimeResult.class) return AVERAGE_TIME;
+        if (k == SingleShotResult.class)  return SINGLE_SHOT;
+        if (k == ScalarResult.class)      return SCALAR;
+        if (k == BaselineResult.class &&
+                ((BaselineResult) r).getCorrectedStatistics().getClass() == SingletonStatistics.class) {
+            return BASELINE;
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the result out.
+     *
+     * @param r result to write, should be supported
+     * @param out output to write to
+     * @throws IOException if output fails
+     * @see #isSupported(Result)
+     */
+    public static void write(Result r, DataOutput out) throws IOException {
+        byte kind = kindOf(r);
+        if (kind == 0) {
+            throw new IllegalArgumentException("Unsupported result: " + r.getClass());
+        }
+
+        out.writeByte(kind);
+        out.writeByte(r.getRole().ordinal());
+        out.writeUTF(r.getLabel());
+        out.writeUTF(r.getScoreUnit());
+
+        switch (kind) {
+            case THROUGHPUT:
+            case SCALAR:
+                out.writeByte(r.policy.ordinal());
+                out.writeDouble(r.getStatistics().getMean());
+                break;
+            case AVERAGE_TIME:
+            case SINGLE_SHOT:
+                out.writeDouble(r.getStatistics().getMean());
+                break;
+            case SAMPLE_TIME:
+                SampleTimeResult str = (SampleTimeResult) r;
+                out.writeUTF(str.getOutputTimeUnit().name());
+                str.getBuffer().writeTo(out);
+                break;
+            case BASELINE:
+                BaselineResult br = (BaselineResult) r;
+                out.writeDouble(br.getStatistics().getMean());
+                out.writeDouble(br.getCorrectedStatistics().getMean());
+                out.writeBoolean(br.isCorrect());
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+    }
+
+    /**
+     * Reads the result written by {@link #write(Result, DataOutput)}.
+     *
+     * @param in input to read from
+     * @return result
+     * @throws IOException if input fails
+     */
+    public static Result read(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        ResultRole role = ResultRole.values()[in.readUnsignedByte()];
+        String label = in.readUTF();
+        String unit = in.readUTF();
+
+        switch (kind) {
+            case THROUGHPUT: {
+                AggregationPolicy policy = AggregationPolicy.values()[in.readUnsignedByte()];
+                Statistics s = new SingletonStatistics(in.readDouble());
+                return new ThroughputResult(role, label, s, unit, policy);
+            }
+            case SCALAR: {
+                AggregationPolicy policy = AggregationPolicy.values()[in.readUnsignedByte()];
+                Statistics s = new SingletonStatistics(in.readDouble());
+                return new ScalarResult(label, s, unit, policy);
+            }
+            case AVERAGE_TIME:
+                return new AverageTimeResult(role, label, new SingletonStatistics(in.readDouble()), unit);
+            case SINGLE_SHOT:
+                return new SingleShotResult(role, label, new SingletonStatistics(in.readDouble()), unit);
+            case SAMPLE_TIME: {
+                TimeUnit tu = TimeUnit.valueOf(in.readUTF());
+                SampleBuffer buffer = SampleBuffer.readFrom(in);
+                return new SampleTimeResult(role, label, buffer, unit, tu);
+            }
+            case BASELINE: {
+                Statistics b = new SingletonStatistics(in.readDouble());
+                Statistics c = new SingletonStatistics(in.readDouble());
+                boolean correct = in.readBoolean();
+                return new BaselineResult(b, c, unit, correct);
+            }
+            default:
+                throw new IOException("Unknown result kind: " + kind);
+        }
+    }
+
+}
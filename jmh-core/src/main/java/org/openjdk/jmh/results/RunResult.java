@@ -29,7 +29,9 @@ import org.openjdk.jmh.infra.BenchmarkParams;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -90,6 +92,26 @@ public class RunResult implements Serializable {
         return params;
     }
 
+    /**
+     * Returns the warmup iterations actually run in each fork, if the steady state
+     * detection has cut the warmup short in any of them.
+     *
+     * @return warmup iterations per fork; empty, if warmup ran in full, or it is unknown
+     */
+    public List<Integer> getDetectedWarmupIterations() {
+        List<Integer> iterations = new ArrayList<>();
+        boolean detected = false;
+        for (BenchmarkResult br : benchmarkResults) {
+            BenchmarkResultMetaData md = br.getMetadata();
+            if (md == null || md.getWarmupIterations() < 0) {
+                return Collections.emptyList();
+            }
+            iterations.add(md.getWarmupIterations());
+            detected |= md.isWarmupSteady();
+        }
+        return detected ? iterations : Collections.<Integer>emptyList();
+    }
+
     public static final Comparator<RunResult> DEFAULT_SORT_COMPARATOR = new Comparator<RunResult>() {
         @Override
         public int compare(RunResult o1, RunResult o2) {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.SampleBuffer;
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.SingletonStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recreates the results from the scores stored in the machine-readable result files.
+ *
+ * <p>The stored scores are final, and the restored results only carry these scores,
+ * not the raw measurements. This is enough to aggregate, print and store them again.
+ * Secondary results are restored as averaged scalars, since the stored file does not
+ * record how they were aggregated.</p>
+ */
+public final class StoredResults {
+
+    private StoredResults() {
+        // prevent instantiation
+    }
+
+    /**
+     * Restores the primary result of a single iteration.
+     *
+     * @param mode benchmark mode
+     * @param label result label
+     * @param score stored score
+     * @param unit stored score unit
+     * @return result
+     */
+    public static Result primary(Mode mode, String label, double score, String unit) {
+        SingletonStatistics s = new SingletonStatistics(score);
+        switch (mode) {
+            case Throughput:
+                return new ThroughputResult(ResultRole.PRIMARY, label, s, unit, AggregationPolicy.SUM);
+            case AverageTime:
+                return new AverageTimeResult(ResultRole.PRIMARY, label, s, unit);
+            case SingleShotTime:
+                return new SingleShotResult(ResultRole.PRIMARY, label, s, unit);
+            case SampleTime:
+            case RateLimited:
+                SampleBuffer buffer = new SampleBuffer();
+                TimeUnit tu = timeUnitOf(unit);
+                buffer.add(toNanos(score, tu));
+                return new SampleTimeResult(ResultRole.PRIMARY, label, buffer, unit, tu);
+            default:
+                throw new IllegalArgumentException("Unsupported mode: " + mode);
+        }
+    }
+
+    /**
+     * Restores the primary result of a single sample time iteration from its histogram.
+     *
+     * @param label result label
+     * @param histogram stored histogram, value to count
+     * @param unit stored score unit
+     * @return result
+     */
+    public static Result primaryHistogram(String label, Map<Double, Long> histogram, String unit) {
+        SampleBuffer buffer = new SampleBuffer();
+        TimeUnit tu = timeUnitOf(unit);
+        for (Map.Entry<Double, Long> e : histogram.entrySet()) {
+            buffer.add(toNanos(e.getKey(), tu), e.getValue());
+        }
+        return new SampleTimeResult(ResultRole.PRIMARY, label, buffer, unit, tu);
+    }
+
+    /**
+     * Restores the secondary result of a single iteration.
+     *
+     * @param label result label
+     * @param score stored score
+     * @param unit stored score unit
+     * @return result
+     */
+    public static Result secondary(String label, double score, String unit) {
+        return new StoredScalarResult(label, new SingletonStatistics(score), unit);
+    }
+
+    /**
+     * Checks if the stored secondary result would be derived from the restored primary result
+     * again, and therefore should not be restored on its own.
+     *
+     * @param mode benchmark mode
+     * @param primaryLabel primary result label
+     * @param label secondary result label
+     * @return true, if secondary result is derivative
+     */
+    public static boolean isDerivative(Mode mode, String primaryLabel, String label) {
+        return (mode == Mode.SampleTime || mode == Mode.RateLimited) &&
+                label.startsWith(primaryLabel + Defaults.PREFIX + "p");
+    }
+
+    /**
+     * Averages the stored scores. Unlike {@link ScalarResult}, does not pretend the iterations
+     * without the result had zero scores: the stored raw data only lists the present ones.
+     */
+    static class StoredScalarResult extends Result<StoredScalarResult> {
+        private static final long serialVersionUID = -4506221427125094126L;
+
+        StoredScalarResult(String label, Statistics s, String unit) {
+            super(ResultRole.SECONDARY, label, s, unit, AggregationPolicy.AVG);
+        }
+
+        @Override
+        protected Aggregator<StoredScalarResult> getThreadAggregator() {
+            return new StoredScalarAggregator();
+        }
+
+        @Override
+        protected Aggregator<StoredScalarResult> getIterationAggregator() {
+            return new StoredScalarAggregator();
+        }
+    }
+
+    static class StoredScalarAggregator implements Aggregator<StoredScalarResult> {
+        @Override
+        public StoredScalarResult aggregate(Collection<StoredScalarResult> results) {
+            ListStatistics stats = new ListStatistics();
+            for (StoredScalarResult r : results) {
+                stats.addValue(r.getScore());
+            }
+            return new StoredScalarResult(
+                    AggregatorUtils.aggregateLabels(results),
+                    stats,
+                    AggregatorUtils.aggregateUnits(results)
+            );
+        }
+    }
+
+    private static TimeUnit timeUnitOf(String unit) {
+        for (TimeUnit tu : TimeUnit.values()) {
+            if (unit.startsWith(TimeValue.tuToString(tu) + "/")) {
+                return tu;
+            }
+        }
+        throw new IllegalArgumentException("Cannot infer time unit from: " + unit);
+    }
+
+    /**
+     * Infers the output time unit from the stored primary score unit,
+     * either "ops/[tu]" or "[tu]/op".
+     *
+     * @param unit stored score unit
+     * @return time unit, or null if the unit does not mention one
+     */
+    public static TimeUnit outputTimeUnitOf(String unit) {
+        for (TimeUnit tu : TimeUnit.values()) {
+            String s = TimeValue.tuToString(tu);
+            if (unit.startsWith(s + "/") || unit.endsWith("/" + s)) {
+                return tu;
+            }
+        }
+        return null;
+    }
+
+    private static long toNanos(double v, TimeUnit tu) {
+        return Math.round(v * TimeUnit.NANOSECONDS.convert(1, tu));
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.WorkloadParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+abstract class AbstractStreamingResultFormat implements StreamingResultFormat {
+
+    protected final File file;
+    private final Set<String> present;
+
+    AbstractStreamingResultFormat(String file) {
+        this.file = new File(file);
+        this.present = new HashSet<>();
+    }
+
+    @Override
+    public void append(RunResult result) {
+        try {
+            doAppend(result);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        BenchmarkParams params = result.getParams();
+        SortedMap<String, String> ps = new TreeMap<>();
+        for (String k : params.getParamsKeys()) {
+            ps.put(k, params.getParam(k));
+        }
+        markPresent(params.getBenchmark(), params.getMode().shortLabel(), ps);
+    }
+
+    @Override
+    public boolean isPresent(String benchmark, Mode mode, WorkloadParams params) {
+        SortedMap<String, String> ps = new TreeMap<>();
+        if (params != null) {
+            for (String k : params.keys()) {
+                ps.put(k, params.get(k));
+            }
+        }
+        return present.contains(key(benchmark, mode.shortLabel(), ps));
+    }
+
+    protected abstract void doAppend(RunResult result) throws IOException;
+
+    protected void markPresent(String benchmark, String mode, Map<String, String> params) {
+        present.add(key(benchmark, mode, params));
+    }
+
+    protected String readFile() throws IOException {
+        if (!file.exists()) {
+            return "";
+        }
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static String key(String benchmark, String mode, Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(benchmark).append(' ').append(mode);
+        for (Map.Entry<String, String> e : new TreeMap<>(params).entrySet()) {
+            sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader, enough to read back the files produced by {@link JSONResultFormat}.
+ *
+ * <p>Objects are read as {@link Map}s, arrays as {@link List}s, numbers as {@link Double}s,
+ * and literals as {@link Boolean}s or nulls. The top-level array can be read element by
+ * element, which allows to process large files without holding them in memory, and
+ * to salvage the complete elements from the truncated file.</p>
+ *
+ * <p>Malformed input is reported with {@link IllegalArgumentException}, and I/O errors
+ * with {@link IllegalStateException}.</p>
+ */
+class JSONReader {
+
+    private static final int EOF = -1;
+
+    private final Reader src;
+    private final char[] buf;
+    private int bufPos;
+    private int bufLen;
+
+    /**
+     * Characters consumed so far.
+     */
+    private int pos;
+
+    private int lastElementEnd;
+    private boolean complete;
+    private boolean first;
+
+    JSONReader(String src) {
+        this(new StringReader(src));
+    }
+
+    JSONReader(Reader src) {
+        this.src = src;
+        this.buf = new char[8192];
+    }
+
+    /**
+     * Reads the top-level array, stopping at the first malformed or truncated element.
+     *
+     * @return all complete elements
+     * @throws IllegalArgumentException if the source is not the JSON array at all
+     */
+    List<Object> readElements() {
+        List<Object> elements = new ArrayList<>();
+        beginArray();
+        try {
+            while (nextElement()) {
+                elements.add(readValue());
+            }
+        } catch (IllegalArgumentException e) {
+            // truncated or corrupted tail, return what we have
+        }
+        return elements;
+    }
+
+    /**
+     * Starts reading the top-level array.
+     * @throws IllegalArgumentException if the source is not the JSON array
+     */
+    void beginArray() {
+        skipWhitespace();
+        expect('[');
+        lastElementEnd = pos;
+        complete = false;
+        first = true;
+    }
+
+    /**
+     * Advances to the next element of the top-level array, which should be read
+     * with {@link #readValue()} then.
+     *
+     * @return true, if there is the next element; false, if the array is closed
+     */
+    boolean nextElement() {
+        if (!first) {
+            lastElementEnd = pos;
+        }
+        skipWhitespace();
+        char c = peek();
+        if (c == ']') {
+            next();
+            complete = true;
+            return false;
+        }
+        if (!first) {
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+            next();
+        }
+        first = false;
+        return true;
+    }
+
+    /**
+     * @return offset right after the last complete element, or after the opening bracket if there are none
+     */
+    int lastElementEnd() {
+        return lastElementEnd;
+    }
+
+    /**
+     * @return true, if the top-level array was properly closed
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    Object readValue() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expectWord("true");
+                return Boolean.TRUE;
+            case 'f':
+                expectWord("false");
+                return Boolean.FALSE;
+            case 'n':
+                expectWord("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            next();
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            map.put(key, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return map;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            next();
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return list;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = next();
+            switch (e) {
+                case '"':  sb.append('"'); break;
+                case '\\': sb.append('\\'); break;
+                case '/':  sb.append('/'); break;
+                case 'b':  sb.append('\b'); break;
+                case 'f':  sb.append('\f'); break;
+                case 'n':  sb.append('\n'); break;
+                case 'r':  sb.append('\r'); break;
+                case 't':  sb.append('\t'); break;
+                case 'u':
+                    StringBuilder hex = new StringBuilder();
+                    for (int i = 0; i < 4; i++) {
+                        hex.append(next());
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(hex.toString(), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Malformed escape");
+                    }
+                    break;
+                default:
+                    throw error("Unknown escape: " + e);
+            }
+        }
+    }
+
+    private Double readNumber() {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = peekOrEOF()) != EOF && "+-0123456789.eE".indexOf(c) != -1) {
+            sb.append(next());
+        }
+        if (sb.length() == 0) {
+            throw error("Unexpected character");
+        }
+        try {
+            return Double.valueOf(sb.toString());
+        } catch (NumberFormatException e) {
+            throw error("Malformed number");
+        }
+    }
+
+    private void expectWord(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (next() != word.charAt(i)) {
+                throw error("Expected " + word);
+            }
+        }
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private int peekOrEOF() {
+        if (bufPos == bufLen) {
+            try {
+                bufLen = src.read(buf);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            bufPos = 0;
+            if (bufLen <= 0) {
+                bufLen = 0;
+                return EOF;
+            }
+        }
+        return buf[bufPos];
+    }
+
+    private char peek() {
+        int c = peekOrEOF();
+        if (c == EOF) {
+            throw error("Unexpected end of input");
+        }
+        return (char) c;
+    }
+
+    private char next() {
+        char c = peek();
+        bufPos++;
+        pos++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        int c;
+        while ((c = peekOrEOF()) != EOF && Character.isWhitespace(c)) {
+            bufPos++;
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at offset " + pos);
+    }
+
+}
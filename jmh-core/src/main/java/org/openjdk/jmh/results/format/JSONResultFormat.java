@@ -29,6 +29,7 @@ import org.openjdk.jmh.results.BenchmarkResult;
 import org.openjdk.jmh.results.IterationResult;
 import org.openjdk.jmh.results.Result;
 import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.BlackholeMode;
 import org.openjdk.jmh.util.Statistics;
 import org.openjdk.jmh.util.Utils;
 
@@ -36,7 +37,9 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 class JSONResultFormat implements ResultFormat {
@@ -59,8 +62,6 @@ class JSONResultFormat implements ResultFormat {
 
         pw.println("[");
         for (RunResult runResult : results) {
-            BenchmarkParams params = runResult.getParams();
-
             if (first) {
                 first = false;
                 pw.println();
@@ -68,92 +69,134 @@ class JSONResultFormat implements ResultFormat {
                 pw.println(",");
             }
 
-            pw.println("{");
-            pw.println("\"jmhVersion\" : \"" + params.getJmhVersion() + "\",");
-            pw.println("\"benchmark\" : \"" + params.getBenchmark() + "\",");
-            pw.println("\"mode\" : \"" + params.getMode().shortLabel() + "\",");
-            pw.println("\"threads\" : " + params.getThreads() + ",");
-            pw.println("\"forks\" : " + params.getForks() + ",");
-            pw.println("\"jvm\" : " + toJsonString(params.getJvm()) + ",");
-            // if empty, write an empty array.
-            pw.println("\"jvmArgs\" : [");
-            printStringArray(pw, params.getJvmArgs());
-            pw.println("],");
-            pw.println("\"jdkVersion\" : " + toJsonString(params.getJdkVersion()) + ",");
-            pw.println("\"vmName\" : " + toJsonString(params.getVmName()) + ",");
-            pw.println("\"vmVersion\" : " + toJsonString(params.getVmVersion()) + ",");
-            pw.println("\"warmupIterations\" : " + params.getWarmup().getCount() + ",");
-            pw.println("\"warmupTime\" : \"" + params.getWarmup().getTime() + "\",");
-            pw.println("\"warmupBatchSize\" : " + params.getWarmup().getBatchSize() + ",");
-            pw.println("\"measurementIterations\" : " + params.getMeasurement().getCount() + ",");
-            pw.println("\"measurementTime\" : \"" + params.getMeasurement().getTime() + "\",");
-            pw.println("\"measurementBatchSize\" : " + params.getMeasurement().getBatchSize() + ",");
-
-            if (!params.getParamsKeys().isEmpty()) {
-                pw.println("\"params\" : {");
-                pw.println(emitParams(params));
-                pw.println("},");
-            }
+            printResult(pw, runResult);
+        }
+        pw.println("]");
 
-            Result primaryResult = runResult.getPrimaryResult();
-            pw.println("\"primaryMetric\" : {");
-            pw.println("\"score\" : " + emit(primaryResult.getScore()) + ",");
-            pw.println("\"scoreError\" : " + emit(primaryResult.getScoreError()) + ",");
-            pw.println("\"scoreConfidence\" : " + emit(primaryResult.getScoreConfidence()) + ",");
-            pw.println(emitPercentiles(primaryResult.getStatistics()));
-            pw.println("\"scoreUnit\" : \"" + primaryResult.getScoreUnit() + "\",");
-
-            switch (params.getMode()) {
-                case SampleTime:
-                    pw.println("\"rawDataHistogram\" :");
-                    pw.println(getRawData(runResult, true));
-                    break;
-                default:
-                    pw.println("\"rawData\" :");
-                    pw.println(getRawData(runResult, false));
-            }
+        out.println(tidy(sw.toString()));
+    }
 
-            pw.println("},"); // primaryMetric end
-
-            Collection<String> secondaries = new ArrayList<>();
-            for (Map.Entry<String, Result> e : runResult.getSecondaryResults().entrySet()) {
-                String secondaryName = e.getKey();
-                Result result = e.getValue();
-
-                StringBuilder sb = new StringBuilder();
-                sb.append("\"").append(secondaryName).append("\" : {");
-                sb.append("\"score\" : ").append(emit(result.getScore())).append(",");
-                sb.append("\"scoreError\" : ").append(emit(result.getScoreError())).append(",");
-                sb.append("\"scoreConfidence\" : ").append(emit(result.getScoreConfidence())).append(",");
-                sb.append(emitPercentiles(result.getStatistics()));
-                sb.append("\"scoreUnit\" : \"").append(result.getScoreUnit()).append("\",");
-                sb.append("\"rawData\" : ");
-
-                Collection<String> l2 = new ArrayList<>();
-                for (BenchmarkResult benchmarkResult : runResult.getBenchmarkResults()) {
-                    Collection<String> scores = new ArrayList<>();
-                    for (IterationResult r : benchmarkResult.getIterationResults()) {
-                        Result rr = r.getSecondaryResults().get(secondaryName);
-                        if (rr != null) {
-                            scores.add(emit(rr.getScore()));
-                        }
+    /**
+     * Renders the single result exactly as {@link #writeOut(Collection)} renders it
+     * within the top-level array: indented, without the trailing separator or newline.
+     */
+    String renderEntry(RunResult runResult) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        pw.println("[");
+        pw.println();
+        printResult(pw, runResult);
+        pw.println("]");
+        pw.flush();
+
+        String s = tidy(sw.toString());
+        int start = s.indexOf('\n') + 1;
+        int end = s.lastIndexOf("\n]");
+        return s.substring(start, end);
+    }
+
+    private void printResult(PrintWriter pw, RunResult runResult) {
+        BenchmarkParams params = runResult.getParams();
+
+        pw.println("{");
+        pw.println("\"jmhVersion\" : \"" + params.getJmhVersion() + "\",");
+        pw.println("\"benchmark\" : \"" + params.getBenchmark() + "\",");
+        pw.println("\"mode\" : \"" + params.getMode().shortLabel() + "\",");
+        pw.println("\"threads\" : " + params.getThreads() + ",");
+        pw.println("\"forks\" : " + params.getForks() + ",");
+        if (params.getForkCpus() > 0) {
+            pw.println("\"forkCpus\" : " + params.getForkCpus() + ",");
+        }
+        if (params.getThreadGroups().length > 1) {
+            pw.println("\"threadGroups\" : " + Arrays.toString(params.getThreadGroups()) + ",");
+        }
+        if (params.getRate() > 0) {
+            pw.println("\"rate\" : " + params.getRate() + ",");
+        }
+        if (params.getBlackholeMode() != null && params.getBlackholeMode() != BlackholeMode.FULL_DONTINLINE) {
+            pw.println("\"blackholeMode\" : \"" + params.getBlackholeMode().label() + "\",");
+        }
+        pw.println("\"jvm\" : " + toJsonString(params.getJvm()) + ",");
+        // if empty, write an empty array.
+        pw.println("\"jvmArgs\" : [");
+        printStringArray(pw, params.getJvmArgs());
+        pw.println("],");
+        pw.println("\"jdkVersion\" : " + toJsonString(params.getJdkVersion()) + ",");
+        pw.println("\"vmName\" : " + toJsonString(params.getVmName()) + ",");
+        pw.println("\"vmVersion\" : " + toJsonString(params.getVmVersion()) + ",");
+        pw.println("\"warmupIterations\" : " + params.getWarmup().getCount() + ",");
+        pw.println("\"warmupTime\" : \"" + params.getWarmup().getTime() + "\",");
+        pw.println("\"warmupBatchSize\" : " + params.getWarmup().getBatchSize() + ",");
+        pw.println("\"measurementIterations\" : " + params.getMeasurement().getCount() + ",");
+        pw.println("\"measurementTime\" : \"" + params.getMeasurement().getTime() + "\",");
+        pw.println("\"measurementBatchSize\" : " + params.getMeasurement().getBatchSize() + ",");
+        List<Integer> detectedWarmup = runResult.getDetectedWarmupIterations();
+        if (!detectedWarmup.isEmpty()) {
+            pw.println("\"detectedWarmupIterations\" : " + detectedWarmup + ",");
+        }
+
+        if (!params.getParamsKeys().isEmpty()) {
+            pw.println("\"params\" : {");
+            pw.println(emitParams(params));
+            pw.println("},");
+        }
+
+        Result primaryResult = runResult.getPrimaryResult();
+        pw.println("\"primaryMetric\" : {");
+        pw.println("\"score\" : " + emit(primaryResult.getScore()) + ",");
+        pw.println("\"scoreError\" : " + emit(primaryResult.getScoreError()) + ",");
+        pw.println("\"scoreConfidence\" : " + emit(primaryResult.getScoreConfidence()) + ",");
+        pw.println(emitPercentiles(primaryResult.getStatistics()));
+        pw.println("\"scoreUnit\" : \"" + primaryResult.getScoreUnit() + "\",");
+
+        switch (params.getMode()) {
+            case SampleTime:
+            case RateLimited:
+                pw.println("\"rawDataHistogram\" :");
+                pw.println(getRawData(runResult, true));
+                break;
+            default:
+                pw.println("\"rawData\" :");
+                pw.println(getRawData(runResult, false));
+        }
+
+        pw.println("},"); // primaryMetric end
+
+        Collection<String> secondaries = new ArrayList<>();
+        for (Map.Entry<String, Result> e : runResult.getSecondaryResults().entrySet()) {
+            String secondaryName = e.getKey();
+            Result result = e.getValue();
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("\"").append(secondaryName).append("\" : {");
+            sb.append("\"score\" : ").append(emit(result.getScore())).append(",");
+            sb.append("\"scoreError\" : ").append(emit(result.getScoreError())).append(",");
+            sb.append("\"scoreConfidence\" : ").append(emit(result.getScoreConfidence())).append(",");
+            sb.append(emitPercentiles(result.getStatistics()));
+            sb.append("\"scoreUnit\" : \"").append(result.getScoreUnit()).append("\",");
+            sb.append("\"rawData\" : ");
+
+            Collection<String> l2 = new ArrayList<>();
+            for (BenchmarkResult benchmarkResult : runResult.getBenchmarkResults()) {
+                Collection<String> scores = new ArrayList<>();
+                for (IterationResult r : benchmarkResult.getIterationResults()) {
+                    Result rr = r.getSecondaryResults().get(secondaryName);
+                    if (rr != null) {
+                        scores.add(emit(rr.getScore()));
                     }
-                    l2.add(printMultiple(scores, "[", "]"));
                 }
-
-                sb.append(printMultiple(l2, "[", "]"));
-                sb.append("}");
-                secondaries.add(sb.toString());
+                l2.add(printMultiple(scores, "[", "]"));
             }
-            pw.println("\"secondaryMetrics\" : {");
-            pw.println(printMultiple(secondaries, "", ""));
-            pw.println("}");
 
-            pw.print("}"); // benchmark end
+            sb.append(printMultiple(l2, "[", "]"));
+            sb.append("}");
+            secondaries.add(sb.toString());
         }
-        pw.println("]");
+        pw.println("\"secondaryMetrics\" : {");
+        pw.println(printMultiple(secondaries, "", ""));
+        pw.println("}");
 
-        out.println(tidy(sw.toString()));
+        pw.print("}"); // benchmark end
     }
 
     private String getRawData(RunResult runResult, boolean histogram) {
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.StoredResults;
+import org.openjdk.jmh.runner.BlackholeMode;
+import org.openjdk.jmh.runner.Defaults;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.WorkloadParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads back the results written by {@link JSONResultFormat}.
+ *
+ * <p>The file does not carry everything the run knew about the benchmark, so the parameters
+ * which are not stored are set to their defaults. Malformed entries are skipped.</p>
+ */
+class JSONResultReader {
+
+    private JSONResultReader() {
+        // prevent instantiation
+    }
+
+    /**
+     * Receives the results as they are read.
+     */
+    interface Callback {
+        void accept(RunResult result);
+    }
+
+    static Collection<RunResult> read(String src) {
+        final List<RunResult> results = new ArrayList<>();
+        read(new StringReader(src), new Callback() {
+            @Override
+            public void accept(RunResult result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Reads the results one by one, without holding the entire file in memory.
+     *
+     * @param src source to read from
+     * @param callback callback to receive the results
+     * @throws IllegalArgumentException if the source is not the JSON array at all
+     */
+    static void read(Reader src, Callback callback) {
+        JSONReader reader = new JSONReader(src);
+        reader.beginArray();
+        while (true) {
+            Object o;
+            try {
+                if (!reader.nextElement()) {
+                    return;
+                }
+                o = reader.readValue();
+            } catch (IllegalArgumentException e) {
+                // truncated or corrupted tail, stop here
+                return;
+            }
+            if (!(o instanceof Map)) {
+                continue;
+            }
+            RunResult result;
+            try {
+                result = readResult((Map<?, ?>) o);
+            } catch (RuntimeException e) {
+                // malformed entry, skip it
+                continue;
+            }
+            callback.accept(result);
+        }
+    }
+
+    private static RunResult readResult(Map<?, ?> m) {
+        BenchmarkParams params = readParams(m);
+
+        String benchmark = params.getBenchmark();
+        String label = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+        Mode mode = params.getMode();
+
+        Map<?, ?> primary = (Map<?, ?>) m.get("primaryMetric");
+        String unit = asString(primary.get("scoreUnit"));
+
+        List<List<Result>> forks = new ArrayList<>();
+        if (mode == Mode.SampleTime || mode == Mode.RateLimited) {
+            for (Object fork : asList(primary.get("rawDataHistogram"))) {
+                List<Result> iters = new ArrayList<>();
+                for (Object iter : asList(fork)) {
+                    Map<Double, Long> histogram = new TreeMap<>();
+                    for (Object bin : asList(iter)) {
+                        List<?> pair = asList(bin);
+                        histogram.put(asDouble(pair.get(0)), (long) asDouble(pair.get(1)));
+                    }
+                    iters.add(StoredResults.primaryHistogram(label, histogram, unit));
+                }
+                forks.add(iters);
+            }
+        } else {
+            for (Object fork : asList(primary.get("rawData"))) {
+                List<Result> iters = new ArrayList<>();
+                for (Object iter : asList(fork)) {
+                    iters.add(StoredResults.primary(mode, label, asDouble(iter), unit));
+                }
+                forks.add(iters);
+            }
+        }
+
+        // No raw data stored, the final score is the best we have
+        if (countIterations(forks) == 0) {
+            forks.clear();
+            forks.add(Collections.singletonList(
+                    StoredResults.primary(mode, label, asDouble(primary.get("score")), unit)));
+        }
+
+        Collection<BenchmarkResult> benchmarkResults = new ArrayList<>();
+        for (int f = 0; f < forks.size(); f++) {
+            List<IterationResult> iterationResults = new ArrayList<>();
+            for (Result r : forks.get(f)) {
+                IterationResult ir = new IterationResult(params, params.getMeasurement(), null);
+                ir.addResult(r);
+                iterationResults.add(ir);
+            }
+
+            Object secondaries = m.get("secondaryMetrics");
+            if (secondaries instanceof Map) {
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) secondaries).entrySet()) {
+                    String secLabel = String.valueOf(e.getKey());
+                    if (StoredResults.isDerivative(mode, label, secLabel)) {
+                        continue;
+                    }
+                    Map<?, ?> sec = (Map<?, ?>) e.getValue();
+                    String secUnit = asString(sec.get("scoreUnit"));
+                    List<?> secForks = asList(sec.get("rawData"));
+                    if (f < secForks.size()) {
+                        List<?> secIters = asList(secForks.get(f));
+                        for (int i = 0; i < Math.min(secIters.size(), iterationResults.size()); i++) {
+                            iterationResults.get(i).addResult(StoredResults.secondary(secLabel, asDouble(secIters.get(i)), secUnit));
+                        }
+                    }
+                }
+            }
+
+            benchmarkResults.add(new BenchmarkResult(params, iterationResults));
+        }
+
+        return new RunResult(params, benchmarkResults);
+    }
+
+    private static BenchmarkParams readParams(Map<?, ?> m) {
+        String benchmark = asString(m.get("benchmark"));
+        Mode mode = Mode.deepValueOf(asString(m.get("mode")));
+        int threads = asInt(m.get("threads"));
+        int forks = asInt(m.get("forks"));
+
+        WorkloadParams ps = new WorkloadParams();
+        Object params = m.get("params");
+        if (params instanceof Map) {
+            int order = 0;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) params).entrySet()) {
+                ps.put(String.valueOf(e.getKey()), asString(e.getValue()), order++);
+            }
+        }
+
+        List<String> jvmArgs = new ArrayList<>();
+        for (Object a : asList(m.get("jvmArgs"))) {
+            jvmArgs.add(asString(a));
+        }
+
+        IterationParams warmup = new IterationParams(IterationType.WARMUP,
+                asInt(m.get("warmupIterations")),
+                asTime(m.get("warmupTime")),
+                asInt(m.get("warmupBatchSize")));
+        IterationParams measurement = new IterationParams(IterationType.MEASUREMENT,
+                asInt(m.get("measurementIterations")),
+                asTime(m.get("measurementTime")),
+                asInt(m.get("measurementBatchSize")));
+
+        int[] threadGroups = new int[]{threads};
+        Object groups = m.get("threadGroups");
+        if (groups != null) {
+            List<?> gs = asList(groups);
+            threadGroups = new int[gs.size()];
+            for (int i = 0; i < threadGroups.length; i++) {
+                threadGroups[i] = asInt(gs.get(i));
+            }
+        }
+
+        TimeUnit timeUnit = null;
+        Object primary = m.get("primaryMetric");
+        if (primary instanceof Map) {
+            Object unit = ((Map<?, ?>) primary).get("scoreUnit");
+            if (unit != null) {
+                timeUnit = StoredResults.outputTimeUnitOf(asString(unit));
+            }
+        }
+
+        Object forkCpus = m.get("forkCpus");
+        Object blackholeMode = m.get("blackholeMode");
+        Object rate = m.get("rate");
+
+        return new BenchmarkParams(
+                benchmark, benchmark, Defaults.SYNC_ITERATIONS,
+                threads, threadGroups, Collections.<String>emptyList(),
+                forks, Defaults.WARMUP_FORKS,
+                warmup, measurement,
+                mode, ps,
+                (timeUnit == null) ? Defaults.OUTPUT_TIMEUNIT : timeUnit, Defaults.OPS_PER_INVOCATION,
+                asString(m.get("jvm")), jvmArgs,
+                asString(m.get("jdkVersion")), asString(m.get("vmName")), asString(m.get("vmVersion")),
+                asString(m.get("jmhVersion")),
+                Defaults.TIMEOUT, (forkCpus == null) ? 0 : asInt(forkCpus),
+                (blackholeMode == null) ? BlackholeMode.FULL_DONTINLINE : BlackholeMode.deepValueOf(asString(blackholeMode)),
+                (rate == null) ? 0 : asInt(rate));
+    }
+
+    private static int countIterations(List<List<Result>> forks) {
+        int count = 0;
+        for (List<Result> f : forks) {
+            count += f.size();
+        }
+        return count;
+    }
+
+    private static String asString(Object o) {
+        if (o == null) {
+            throw new IllegalArgumentException("Missing value");
+        }
+        return String.valueOf(o);
+    }
+
+    private static List<?> asList(Object o) {
+        if (o instanceof List) {
+            return (List<?>) o;
+        }
+        throw new IllegalArgumentException("Expected array: " + o);
+    }
+
+    private static double asDouble(Object o) {
+        if (o instanceof Double) {
+            return (Double) o;
+        }
+        // special values are stored as strings
+        String s = asString(o);
+        switch (s) {
+            case "NaN":
+                return Double.NaN;
+            case "+INF":
+                return Double.POSITIVE_INFINITY;
+            case "-INF":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(s);
+        }
+    }
+
+    private static int asInt(Object o) {
+        return (int) asDouble(o);
+    }
+
+    private static TimeValue asTime(Object o) {
+        String s = asString(o);
+        if (s.equals(TimeValue.NONE.toString())) {
+            return TimeValue.NONE;
+        }
+        return TimeValue.fromString(s);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the results into JSON file. The file always ends with the closing bracket of the
+ * top-level array, which is overwritten with the next result on every append. The complete
+ * file is identical to the one {@link JSONResultFormat} produces for the same results.
+ */
+class JSONStreamingResultFormat extends AbstractStreamingResultFormat {
+
+    private static final String TAIL = "\n]\n\n" + System.lineSeparator();
+
+    private final JSONResultFormat format;
+
+    private long tailOffset;
+    private boolean empty;
+
+    JSONStreamingResultFormat(String file, boolean resume) throws IOException {
+        super(file);
+        this.format = new JSONResultFormat(null);
+
+        tailOffset = 0;
+        empty = true;
+
+        boolean recovered = resume && recover();
+
+        // Start with the empty array, or cut off the partially written tail
+        writeTail(recovered ? "" : "[", TAIL);
+    }
+
+    private boolean recover() throws IOException {
+        String src = readFile();
+
+        JSONReader reader = new JSONReader(src);
+        List<Object> elements;
+        try {
+            elements = reader.readElements();
+        } catch (IllegalArgumentException e) {
+            // Not a JSON array, start from scratch
+            return false;
+        }
+
+        for (Object o : elements) {
+            if (!(o instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> m = (Map<?, ?>) o;
+            Object params = m.get("params");
+            Map<String, String> ps = new HashMap<>();
+            if (params instanceof Map) {
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) params).entrySet()) {
+                    ps.put(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
+                }
+            }
+            markPresent(String.valueOf(m.get("benchmark")), String.valueOf(m.get("mode")), ps);
+        }
+
+        empty = elements.isEmpty();
+        tailOffset = src.substring(0, reader.lastElementEnd()).getBytes(StandardCharsets.UTF_8).length;
+        return true;
+    }
+
+    @Override
+    protected void doAppend(RunResult result) throws IOException {
+        String entry = format.renderEntry(result);
+        writeTail(empty ? "\n" + entry : ",\n" + entry, TAIL);
+        empty = false;
+    }
+
+    private void writeTail(String body, String tail) throws IOException {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] tailBytes = tail.getBytes(StandardCharsets.UTF_8);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(tailOffset);
+            raf.write(bodyBytes);
+            raf.write(tailBytes);
+            raf.setLength(tailOffset + bodyBytes.length + tailBytes.length);
+        }
+
+        tailOffset += bodyBytes.length;
+    }
+
+}
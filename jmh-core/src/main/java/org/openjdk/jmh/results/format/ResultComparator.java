@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.apache.commons.math3.stat.inference.MannWhitneyUTest;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.util.ScoreFormatter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the JSON results of two runs, and reports the significant changes.
+ *
+ * <p>Benchmarks are matched by name, mode and parameters. The per-iteration scores of
+ * the matching benchmarks are compared with Mann-Whitney U test, which does not assume
+ * the scores are normally distributed. The change is deemed the regression when it is
+ * statistically significant, and the score got worse more than by the given threshold.</p>
+ *
+ * <p>Only the baseline results are kept in memory, the candidate file is read and
+ * compared entry by entry.</p>
+ */
+public class ResultComparator {
+
+    /**
+     * Default significance level for the test.
+     */
+    public static final double DEFAULT_ALPHA = 0.01;
+
+    private static final String REGRESSION = "REGRESSION";
+    private static final String IMPROVEMENT = "improvement";
+
+    private static final String[] HEADER = {"Benchmark", "Mode", "Baseline", "Candidate", "Units", "Change", "p-value", ""};
+
+    private final double threshold;
+    private final double alpha;
+
+    /**
+     * @param threshold regression threshold, in percent
+     */
+    public ResultComparator(double threshold) {
+        this(threshold, DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param threshold regression threshold, in percent
+     * @param alpha significance level for the test
+     */
+    public ResultComparator(double threshold, double alpha) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold should be non-negative, but was " + threshold);
+        }
+        if (alpha <= 0 || alpha >= 1) {
+            throw new IllegalArgumentException("Significance level should be within (0; 1), but was " + alpha);
+        }
+        this.threshold = threshold;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Compares the result files, and prints the report.
+     *
+     * @param baselineFile baseline JSON file
+     * @param candidateFile candidate JSON file
+     * @param out stream to print the report to
+     * @return number of significant regressions above the threshold
+     * @throws IllegalStateException if files are not readable
+     */
+    public int compare(String baselineFile, String candidateFile, PrintStream out) {
+        try (Reader baseline = open(baselineFile);
+             Reader candidate = open(candidateFile)) {
+            return compare(baseline, candidate, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compares the results, and prints the report.
+     *
+     * @param baseline baseline JSON results
+     * @param candidate candidate JSON results
+     * @param out stream to print the report to
+     * @return number of significant regressions above the threshold
+     */
+    public int compare(Reader baseline, Reader candidate, PrintStream out) {
+        final Map<String, Entry> baselines = new LinkedHashMap<>();
+        JSONResultReader.read(baseline, new JSONResultReader.Callback() {
+            @Override
+            public void accept(RunResult result) {
+                Entry e = new Entry(result);
+                baselines.put(e.key, e);
+            }
+        });
+
+        final List<String[]> rows = new ArrayList<>();
+        final List<String> added = new ArrayList<>();
+        final int[] regressions = new int[1];
+
+        JSONResultReader.read(candidate, new JSONResultReader.Callback() {
+            @Override
+            public void accept(RunResult result) {
+                Entry cand = new Entry(result);
+                Entry base = baselines.remove(cand.key);
+                if (base == null) {
+                    added.add(cand.name);
+                    return;
+                }
+                String[] row = compare(base, cand);
+                if (row[row.length - 1].equals(REGRESSION)) {
+                    regressions[0]++;
+                }
+                rows.add(row);
+            }
+        });
+
+        printTable(rows, out);
+
+        if (!baselines.isEmpty()) {
+            out.println();
+            out.println("Missing in candidate:");
+            for (Entry e : baselines.values()) {
+                out.println("  " + e.name);
+            }
+        }
+        if (!added.isEmpty()) {
+            out.println();
+            out.println("Missing in baseline:");
+            for (String name : added) {
+                out.println("  " + name);
+            }
+        }
+
+        out.println();
+        out.printf("%d significant regression(s) above %.1f%% threshold, at %.1f%% confidence.%n",
+                regressions[0], threshold, (1 - alpha) * 100);
+        return regressions[0];
+    }
+
+    private String[] compare(Entry base, Entry cand) {
+        double change = (cand.score - base.score) / base.score * 100;
+        if (!cand.higherIsBetter) {
+            change = -change;
+        }
+
+        double p = Double.NaN;
+        if (base.samples.length >= 2 && cand.samples.length >= 2) {
+            p = new MannWhitneyUTest().mannWhitneyUTest(base.samples, cand.samples);
+        }
+
+        String verdict = "";
+        if (p < alpha) {
+            if (change < -threshold) {
+                verdict = REGRESSION;
+            } else if (change > threshold) {
+                verdict = IMPROVEMENT;
+            }
+        }
+
+        return new String[]{
+                cand.name,
+                cand.mode,
+                ScoreFormatter.format(base.score),
+                ScoreFormatter.format(cand.score),
+                cand.unit + (base.unit.equals(cand.unit) ? "" : " (was " + base.unit + ")"),
+                Double.isNaN(change) ? "n/a" : String.format("%+.2f%%", change),
+                Double.isNaN(p) ? "n/a" : String.format("%.4f", p),
+                verdict,
+        };
+    }
+
+    private static void printTable(List<String[]> rows, PrintStream out) {
+        int[] widths = new int[HEADER.length];
+        for (int c = 0; c < HEADER.length; c++) {
+            widths[c] = HEADER[c].length();
+        }
+        for (String[] row : rows) {
+            for (int c = 0; c < row.length; c++) {
+                widths[c] = Math.max(widths[c], row[c].length());
+            }
+        }
+
+        printRow(HEADER, widths, out);
+        for (String[] row : rows) {
+            printRow(row, widths, out);
+        }
+    }
+
+    private static void printRow(String[] row, int[] widths, PrintStream out) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < row.length; c++) {
+            if (c == 0) {
+                sb.append(row[c]);
+                pad(sb, widths[c] - row[c].length());
+            } else {
+                pad(sb, 2 + widths[c] - row[c].length());
+                sb.append(row[c]);
+            }
+        }
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') {
+            end--;
+        }
+        sb.setLength(end);
+        out.println(sb.toString());
+    }
+
+    private static void pad(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(' ');
+        }
+    }
+
+    private static Reader open(String file) throws IOException {
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compact representation of the benchmark result, enough to compare it.
+     */
+    private static class Entry {
+        final String key;
+        final String name;
+        final String mode;
+        final String unit;
+        final boolean higherIsBetter;
+        final double score;
+        final double[] samples;
+
+        Entry(RunResult result) {
+            BenchmarkParams params = result.getParams();
+
+            Map<String, String> ps = new TreeMap<>();
+            for (String k : params.getParamsKeys()) {
+                ps.put(k, params.getParam(k));
+            }
+
+            StringBuilder sb = new StringBuilder(params.getBenchmark());
+            if (!ps.isEmpty()) {
+                sb.append(ps.toString().replace('{', '(').replace('}', ')'));
+            }
+
+            this.name = sb.toString();
+            this.mode = params.getMode().shortLabel();
+            this.key = name + " " + mode;
+            this.unit = result.getPrimaryResult().getScoreUnit();
+            this.higherIsBetter = (params.getMode() == Mode.Throughput);
+            this.score = result.getPrimaryResult().getScore();
+
+            List<Double> scores = new ArrayList<>();
+            for (BenchmarkResult br : result.getBenchmarkResults()) {
+                for (IterationResult ir : br.getIterationResults()) {
+                    scores.add(ir.getPrimaryResult().getScore());
+                }
+            }
+            this.samples = new double[scores.size()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = scores.get(i);
+            }
+        }
+    }
+
+}
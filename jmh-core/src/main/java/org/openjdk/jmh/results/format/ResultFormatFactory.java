@@ -28,6 +28,9 @@ import org.openjdk.jmh.results.RunResult;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Collection;
 
 public class ResultFormatFactory {
@@ -57,6 +60,71 @@ public class ResultFormatFactory {
         };
     }
 
+    /**
+     * Reads back the results from the file written in the given result format.
+     * Only {@link ResultFormatType#JSON} can be read back.
+     *
+     * @param type result format type
+     * @param file source file
+     * @return results found in the file; malformed entries are skipped
+     */
+    public static Collection<RunResult> readResults(ResultFormatType type, String file) {
+        if (type != ResultFormatType.JSON) {
+            throw new IllegalStateException("Unsupported result format for reading: " + type);
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(file));
+            return JSONResultReader.read(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks if the result format of given type can be streamed into the file.
+     * @param type result format type
+     * @return true, if streaming is supported
+     * @see #getStreamingInstance(ResultFormatType, String, Collection, boolean)
+     */
+    public static boolean isStreamingSupported(ResultFormatType type) {
+        switch (type) {
+            case CSV:
+            case SCSV:
+            case JSON:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get the instance of StreamingResultFormat of given type which appends the results to file
+     * as they arrive. Unless resuming, the file is truncated.
+     *
+     * @param type result format type
+     * @param file target file
+     * @param paramKeys all parameter keys the results may have
+     * @param resume keep the complete results already in the file, and append after them
+     * @return streaming result format
+     */
+    public static StreamingResultFormat getStreamingInstance(ResultFormatType type, String file,
+                                                             Collection<String> paramKeys, boolean resume) {
+        try {
+            switch (type) {
+                case CSV:
+                    return new XSVStreamingResultFormat(file, ",", paramKeys, resume);
+                case SCSV:
+                    return new XSVStreamingResultFormat(file, ";", paramKeys, resume);
+                case JSON:
+                    return new JSONStreamingResultFormat(file, resume);
+                default:
+                    throw new IllegalStateException("Unsupported streaming result format: " + type);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Get the instance of ResultFormat of given type which write the result to out.
      * It is a user responsibility to initialize and finish the out as appropriate.
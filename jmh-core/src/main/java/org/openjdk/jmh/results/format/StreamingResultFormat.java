@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.WorkloadParams;
+
+/**
+ * Result format that writes the results into the file one by one, as soon as they
+ * are available. The file is kept well-formed after every append, so that the results
+ * of completed benchmarks survive if the run is terminated abruptly.
+ */
+public interface StreamingResultFormat {
+
+    /**
+     * Appends the result to the file.
+     * @param result result to append
+     */
+    void append(RunResult result);
+
+    /**
+     * Checks if the result for the given benchmark is already in the file.
+     * This includes the results found in the file when it was resumed.
+     *
+     * @param benchmark benchmark name
+     * @param mode benchmark mode
+     * @param params benchmark parameters
+     * @return true, if result is present
+     */
+    boolean isPresent(String benchmark, Mode mode, WorkloadParams params);
+
+}
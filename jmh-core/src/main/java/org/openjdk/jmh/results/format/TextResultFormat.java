@@ -34,6 +34,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -189,5 +190,27 @@ class TextResultFormat implements ResultFormat {
             }
         }
 
+        boolean headerPrinted = false;
+        for (RunResult res : runResults) {
+            List<Integer> detectedWarmup = res.getDetectedWarmupIterations();
+            if (detectedWarmup.isEmpty()) {
+                continue;
+            }
+            if (!headerPrinted) {
+                out.println();
+                out.println("Warmup reached the steady state early, warmup iterations run per fork:");
+                headerPrinted = true;
+            }
+            out.printf("%-" + nameLen + "s", benchPrefixes.get(res.getParams().getBenchmark()));
+            for (String k : params) {
+                String v = res.getParams().getParam(k);
+                out.printf("%" + paramLengths.get(k) + "s", (v == null) ? "N/A" : v);
+            }
+            out.printf("%" + modeLen + "s", res.getParams().getMode().shortLabel());
+            out.print("  ");
+            out.print(detectedWarmup);
+            out.println();
+        }
+
     }
 }
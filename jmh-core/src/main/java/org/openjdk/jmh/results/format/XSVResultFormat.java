@@ -56,19 +56,23 @@ class XSVResultFormat implements ResultFormat {
         printHeader(params);
 
         for (RunResult rr : results) {
-            BenchmarkParams benchParams = rr.getParams();
-            Result res = rr.getPrimaryResult();
+            printResult(rr, params);
+        }
+    }
 
-            printLine(benchParams.getBenchmark(), benchParams, params, res);
+    void printResult(RunResult rr, SortedSet<String> params) {
+        BenchmarkParams benchParams = rr.getParams();
+        Result res = rr.getPrimaryResult();
 
-            for (String label : rr.getSecondaryResults().keySet()) {
-                Result subRes = rr.getSecondaryResults().get(label);
-                printLine(benchParams.getBenchmark() + ":" + subRes.getLabel(), benchParams, params, subRes);
-            }
+        printLine(benchParams.getBenchmark(), benchParams, params, res);
+
+        for (String label : rr.getSecondaryResults().keySet()) {
+            Result subRes = rr.getSecondaryResults().get(label);
+            printLine(benchParams.getBenchmark() + ":" + subRes.getLabel(), benchParams, params, subRes);
         }
     }
 
-    private void printHeader(SortedSet<String> params) {
+    void printHeader(SortedSet<String> params) {
         out.print("\"Benchmark\"");
         out.print(delimiter);
         out.print("\"Mode\"");
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Streams the results into CSV/SCSV file. The header is written upfront, and every
+ * result appends its lines. Since the header should be known beforehand, all
+ * parameter keys the run would produce should be provided.
+ */
+class XSVStreamingResultFormat extends AbstractStreamingResultFormat {
+
+    private static final String PARAM_PREFIX = "Param: ";
+
+    private final String delimiter;
+    private final SortedSet<String> params;
+
+    XSVStreamingResultFormat(String file, String delimiter, Collection<String> paramKeys, boolean resume) throws IOException {
+        super(file);
+        this.delimiter = delimiter;
+        this.params = new TreeSet<>(paramKeys);
+
+        if (!(resume && recover())) {
+            try (PrintStream ps = new PrintStream(new FileOutputStream(this.file, false), false, "UTF-8")) {
+                new XSVResultFormat(ps, delimiter).printHeader(params);
+            }
+        }
+    }
+
+    private boolean recover() throws IOException {
+        String src = readFile();
+
+        int[] end = new int[1];
+        List<List<String>> records = parse(src, end);
+        if (records.isEmpty() || !"Benchmark".equals(records.get(0).get(0))) {
+            // Not a result file, start from scratch
+            return false;
+        }
+
+        List<String> header = records.get(0);
+        SortedSet<String> fileParams = new TreeSet<>();
+        for (int c = 7; c < header.size(); c++) {
+            String h = header.get(c);
+            if (h.startsWith(PARAM_PREFIX)) {
+                fileParams.add(h.substring(PARAM_PREFIX.length()));
+            }
+        }
+
+        if (!fileParams.equals(params)) {
+            throw new IllegalStateException("Cannot resume " + file + ": it has parameters " + fileParams +
+                    ", but the run has parameters " + params);
+        }
+
+        for (List<String> r : records.subList(1, records.size())) {
+            // Secondary results are labeled as "benchmark:label", skip them
+            if (r.size() < 2 || r.get(0).contains(":")) {
+                continue;
+            }
+            Map<String, String> ps = new HashMap<>();
+            for (int c = 7; c < Math.min(header.size(), r.size()); c++) {
+                String h = header.get(c);
+                if (h.startsWith(PARAM_PREFIX) && !r.get(c).isEmpty()) {
+                    ps.put(h.substring(PARAM_PREFIX.length()), r.get(c));
+                }
+            }
+            markPresent(r.get(0), r.get(1), ps);
+        }
+
+        // Cut off the partially written line, if any
+        long len = src.substring(0, end[0]).getBytes(StandardCharsets.UTF_8).length;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(len);
+        }
+        return true;
+    }
+
+    /**
+     * Parses the complete CRLF-terminated records, honoring the quotes.
+     * @param src source
+     * @param end receives the offset right after the last complete record
+     * @return records
+     */
+    private List<List<String>> parse(String src, int[] end) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> cur = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        int pos = 0;
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (quoted) {
+                if (c == '"') {
+                    if (pos + 1 < src.length() && src.charAt(pos + 1) == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (src.startsWith(delimiter, pos)) {
+                cur.add(field.toString());
+                field.setLength(0);
+                pos += delimiter.length() - 1;
+            } else if (src.startsWith("\r\n", pos)) {
+                cur.add(field.toString());
+                field.setLength(0);
+                records.add(cur);
+                cur = new ArrayList<>();
+                pos++;
+                end[0] = pos + 1;
+            } else {
+                field.append(c);
+            }
+            pos++;
+        }
+        return records;
+    }
+
+    @Override
+    protected void doAppend(RunResult result) throws IOException {
+        // Buffer all lines of the result, so that they are written at once
+        try (PrintStream ps = new PrintStream(new BufferedOutputStream(new FileOutputStream(file, true)), false, "UTF-8")) {
+            new XSVResultFormat(ps, delimiter).printResult(result, params);
+        }
+    }
+
+}
@@ -45,6 +45,11 @@ enum ActionMode {
      * Do both warmup and measurement
      */
     WARMUP_MEASUREMENT(true, true),
+
+    /**
+     * Load the benchmark, and run no iterations.
+     */
+    LOAD(false, false),
     ;
 
     private final boolean doWarmup;
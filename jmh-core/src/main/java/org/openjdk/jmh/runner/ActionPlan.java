@@ -24,6 +24,8 @@
  */
 package org.openjdk.jmh.runner;
 
+import org.openjdk.jmh.infra.BenchmarkParams;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -69,4 +71,15 @@ public class ActionPlan implements Serializable {
         return result;
     }
 
+    /**
+     * @return parameters of the measured benchmarks, in the plan order
+     */
+    public List<BenchmarkParams> getMeasurementParams() {
+        List<BenchmarkParams> result = new ArrayList<>();
+        for (Action action : getMeasurementActions()) {
+            result.add(action.getParams());
+        }
+        return result;
+    }
+
 }
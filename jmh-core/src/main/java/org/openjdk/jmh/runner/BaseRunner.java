@@ -27,15 +27,21 @@ package org.openjdk.jmh.runner;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BaselineResult;
 import org.openjdk.jmh.results.BenchmarkResult;
 import org.openjdk.jmh.results.BenchmarkResultMetaData;
 import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
 import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.options.BaselineMode;
 import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.util.Multimap;
+import org.openjdk.jmh.util.Optional;
 import org.openjdk.jmh.util.TreeMultimap;
 import org.openjdk.jmh.util.Utils;
 
+import java.lang.management.CompilationMXBean;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
@@ -48,6 +54,22 @@ import java.util.concurrent.TimeUnit;
  */
 abstract class BaseRunner {
 
+    /**
+     * Adaptive measurement does not trust the score error estimated from fewer iterations.
+     */
+    static final int ADAPTIVE_MIN_ITERATIONS = 3;
+
+    /**
+     * Adaptive measurement needs at least this many forks to see the fork-to-fork variance.
+     */
+    static final int ADAPTIVE_MIN_FORKS = 2;
+
+    /**
+     * Baseline twin iterations run no longer than this. The twin loop is cheap and steady,
+     * and it does not need the full iteration time to get its score.
+     */
+    static final TimeValue BASELINE_TIME = TimeValue.milliseconds(100);
+
     private long projectedTotalTime;
     private long projectedRunningTime;
     private long actualRunningTime;
@@ -68,12 +90,44 @@ abstract class BaseRunner {
     }
 
     protected void runBenchmarksForked(ActionPlan actionPlan, IterationResultAcceptor acceptor) {
+        // Fork group runs several benchmarks one after another, and they share the trial states.
+        // The host does not know which benchmark runs at the moment, so we announce each one here.
+        boolean grouped = actionPlan.getMeasurementActions().size() > 1;
+        if (grouped) {
+            SharedTrialStates.enable();
+        }
+
         for (Action action : actionPlan.getActions()) {
             BenchmarkParams params = action.getParams();
             ActionMode mode = action.getMode();
 
+            if (grouped && mode.doMeasurement()) {
+                out.startBenchmark(params);
+                out.println("");
+            }
+
             doSingle(params, mode, acceptor);
         }
+
+        if (grouped) {
+            tearDownSharedStates();
+        }
+    }
+
+    private void tearDownSharedStates() {
+        List<Throwable> errors = SharedTrialStates.tearDownAll();
+        if (!errors.isEmpty()) {
+            out.println("<failure: shared state tear down>");
+            out.println("");
+            for (Throwable err : errors) {
+                out.println(Utils.throwableToString(err));
+            }
+            out.println("");
+
+            if (options.shouldFailOnError().orElse(Defaults.FAIL_ON_ERROR)) {
+                throw new BenchmarkException("Shared state tear down failed", errors);
+            }
+        }
     }
 
     protected Multimap<BenchmarkParams, BenchmarkResult> runBenchmarksEmbedded(ActionPlan actionPlan) {
@@ -102,7 +156,7 @@ abstract class BaseRunner {
                 }
 
                 @Override
-                public void acceptMeta(BenchmarkResultMetaData md) {
+                public void acceptMeta(BenchmarkParams params, BenchmarkResultMetaData md) {
                     mds.add(md);
                 }
             };
@@ -138,6 +192,10 @@ abstract class BaseRunner {
                     runBenchmark(params, acceptor);
                     break;
                 }
+                case LOAD: {
+                    loadBenchmark(params);
+                    break;
+                }
                 default:
                     throw new IllegalStateException("Unknown mode: " + mode);
 
@@ -242,6 +300,23 @@ abstract class BaseRunner {
         }
     }
 
+    /**
+     * Loads the benchmark classes along with the infrastructure that runs them,
+     * and runs no iterations.
+     */
+    void loadBenchmark(BenchmarkParams benchParams) {
+        BenchmarkHandler handler = null;
+        try {
+            handler = new BenchmarkHandler(out, options, benchParams);
+        } catch (Throwable ex) {
+            throw new BenchmarkException(ex);
+        } finally {
+            if (handler != null) {
+                handler.shutdown();
+            }
+        }
+    }
+
     protected void runBenchmark(BenchmarkParams benchParams, BenchmarkHandler handler, IterationResultAcceptor acceptor) {
         long warmupTime = System.currentTimeMillis();
 
@@ -250,35 +325,97 @@ abstract class BaseRunner {
 
         // warmup
         IterationParams wp = benchParams.getWarmup();
+        boolean isLastWarmup = (benchParams.getMeasurement().getCount() == 0);
+
+        // Cutting warmup short makes no sense when warmup is everything we run.
+        SteadyStateDetector detector = null;
+        if (options.shouldDetectWarmup().orElse(Defaults.DETECT_WARMUP) && !isLastWarmup) {
+            if (wp.getCount() > SteadyStateDetector.WINDOW) {
+                detector = new SteadyStateDetector();
+            } else {
+                out.println("# WARNING: Warmup end detection needs more than " + SteadyStateDetector.WINDOW +
+                        " warmup iterations, running all " + wp.getCount() + " of them.");
+            }
+        }
+
+        // The empty-body twin warms up along with the benchmark, so that its loop
+        // is compiled before the measurement. Nothing to warm up when there is no
+        // measurement to pair the twin with.
+        BaselineMode baselineMode = options.getBaselineMode().orElse(Defaults.BASELINE_MODE);
+        boolean runBaseline = baselineMode.shouldRun() && supportsBaseline(benchParams.getMode()) && !isLastWarmup;
+
+        int warmupIterations = 0;
+        boolean warmupSteady = false;
         for (int i = 1; i <= wp.getCount(); i++) {
             // will run system gc if we should
             if (runSystemGC()) {
                 out.verbosePrintln("System.gc() executed");
             }
 
+            if (runBaseline) {
+                handler.runIteration(benchParams, baselineParams(wp), false, true);
+            }
+
             out.iteration(benchParams, wp, i);
-            boolean isLastIteration = (benchParams.getMeasurement().getCount() == 0);
-            IterationResult ir = handler.runIteration(benchParams, wp, isLastIteration);
+            long compileBefore = compilationTime();
+            long start = System.nanoTime();
+            IterationResult ir = handler.runIteration(benchParams, wp, isLastWarmup);
+            long duration = System.nanoTime() - start;
+            long compileAfter = compilationTime();
             out.iterationResult(benchParams, wp, i, ir);
 
             allWarmup += ir.getMetadata().getAllOps();
+            warmupIterations = i;
+
+            if (detector != null) {
+                long compile = (compileBefore < 0 || compileAfter < 0) ? -1 : (compileAfter - compileBefore);
+                detector.add(ir.getPrimaryResult().getScore(), duration, compile);
+                if (i < wp.getCount() && detector.isSteady()) {
+                    out.println("# Warmup reached the steady state after " + i + " iterations");
+                    warmupSteady = true;
+                    break;
+                }
+            }
         }
 
         long measurementTime = System.currentTimeMillis();
 
         // measurement
         IterationParams mp = benchParams.getMeasurement();
+        Optional<Double> targetError = options.getTargetError();
+        List<IterationResult> measured = new ArrayList<>();
+        boolean converged = false;
         for (int i = 1; i <= mp.getCount(); i++) {
             // will run system gc if we should
             if (runSystemGC()) {
                 out.verbosePrintln("System.gc() executed");
             }
 
+            // Run the empty-body twin right before the paired measurement iteration.
+            // It is never the last iteration, so that the trial tear down runs with
+            // the benchmark itself.
+            IterationResult baseline = null;
+            if (runBaseline) {
+                baseline = handler.runIteration(benchParams, baselineParams(mp), false, true);
+            }
+
             // run benchmark iteration
             out.iteration(benchParams, mp, i);
 
-            boolean isLastIteration = (i == mp.getCount());
+            // Once converged, the next iteration should be the last one, so that the trial
+            // tear down can run with it.
+            boolean isLastIteration = (i == mp.getCount()) || converged;
+
             IterationResult ir = handler.runIteration(benchParams, mp, isLastIteration);
+
+            if (baseline != null) {
+                ir.addResult(new BaselineResult(
+                        baseline.getPrimaryResult().getScore(),
+                        ir.getPrimaryResult().getScore(),
+                        ir.getScoreUnit(),
+                        benchParams.getMode() == Mode.Throughput,
+                        baselineMode.shouldCorrect()));
+            }
             out.iterationResult(benchParams, mp, i, ir);
 
             allMeasurement += ir.getMetadata().getAllOps();
@@ -286,17 +423,73 @@ abstract class BaseRunner {
             if (acceptor != null) {
                 acceptor.accept(ir);
             }
+
+            if (isLastIteration) {
+                break;
+            }
+
+            if (targetError.hasValue()) {
+                measured.add(ir);
+                if (i >= ADAPTIVE_MIN_ITERATIONS) {
+                    Result r = new BenchmarkResult(benchParams, measured).getPrimaryResult();
+                    if (isConverged(r, targetError.get())) {
+                        out.println(String.format("# Score error converged: %s, running the last iteration", formatError(r)));
+                        converged = true;
+                    }
+                }
+            }
         }
 
         long stopTime = System.currentTimeMillis();
 
         BenchmarkResultMetaData md = new BenchmarkResultMetaData(
                 warmupTime, measurementTime, stopTime,
-                allWarmup, allMeasurement);
+                allWarmup, allMeasurement,
+                warmupIterations, warmupSteady);
 
         if (acceptor != null) {
-            acceptor.acceptMeta(md);
+            acceptor.acceptMeta(benchParams, md);
+        }
+    }
+
+    /**
+     * Checks if the score error relative to the score is within the target.
+     *
+     * @param r aggregated result
+     * @param targetError target relative error
+     * @return true, if converged
+     */
+    static boolean isConverged(Result r, double targetError) {
+        double score = Math.abs(r.getScore());
+        double error = r.getScoreError();
+        return !Double.isNaN(error) && score > 0 && (error / score) <= targetError;
+    }
+
+    private static IterationParams baselineParams(IterationParams params) {
+        TimeValue time = params.getTime();
+        if (time.convertTo(TimeUnit.NANOSECONDS) <= BASELINE_TIME.convertTo(TimeUnit.NANOSECONDS)) {
+            return params;
+        }
+        return new IterationParams(params.getType(), params.getCount(), BASELINE_TIME, params.getBatchSize());
+    }
+
+    private static boolean supportsBaseline(Mode mode) {
+        return mode == Mode.Throughput || mode == Mode.AverageTime || mode == Mode.SampleTime;
+    }
+
+    static String formatError(Result r) {
+        return String.format("%.2f%% of score", 100.0 * r.getScoreError() / Math.abs(r.getScore()));
+    }
+
+    /**
+     * @return accumulated JIT compilation time, in nanoseconds; negative if unknown
+     */
+    private static long compilationTime() {
+        CompilationMXBean bean = ManagementFactory.getCompilationMXBean();
+        if (bean == null || !bean.isCompilationTimeMonitoringSupported()) {
+            return -1;
         }
+        return TimeUnit.MILLISECONDS.toNanos(bean.getTotalCompilationTime());
     }
 
     /**
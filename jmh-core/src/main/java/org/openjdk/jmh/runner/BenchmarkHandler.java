@@ -24,11 +24,13 @@
  */
 package org.openjdk.jmh.runner;
 
+import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.Control;
 import org.openjdk.jmh.infra.IterationParams;
 import org.openjdk.jmh.infra.ThreadParams;
 import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.PerfControl;
 import org.openjdk.jmh.profile.ProfilerFactory;
 import org.openjdk.jmh.results.*;
 import org.openjdk.jmh.runner.format.OutputFormat;
@@ -37,6 +39,8 @@ import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.util.ClassUtils;
 import org.openjdk.jmh.util.Utils;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -56,12 +60,39 @@ class BenchmarkHandler {
     // (Aleksey) Forgive me, Father, for I have sinned.
     private final ThreadLocal<ThreadData> threadData;
 
+    /**
+     * Per-worker data for executors that do not reuse threads between iterations.
+     * Indexed by worker number instead of bound to the executing thread.
+     */
+    private final ThreadData[] workerData;
+
     private final OutputFormat out;
     private final List<InternalProfiler> profilers;
     private final List<InternalProfiler> profilersRev;
 
     private final Method method;
 
+    /**
+     * Upper bound for the invocations between the iteration end checks.
+     */
+    private static final int MAX_POLL_STRIDE = 4096;
+
+    /**
+     * How far the measurement loop is allowed to run past the iteration end, in nanoseconds;
+     * zero, if measurement loop checks for the iteration end after every invocation.
+     */
+    private final long pollOvershoot;
+
+    /**
+     * Invocations between the iteration end checks, calibrated after the first warmup iteration.
+     */
+    private int pollStride;
+
+    /**
+     * Warmup iterations of the benchmark itself run so far.
+     */
+    private int warmupsRun;
+
     public BenchmarkHandler(OutputFormat out, Options options, BenchmarkParams executionParams) {
         String target = executionParams.generatedBenchmark();
         int lastDot = target.lastIndexOf('.');
@@ -78,20 +109,34 @@ class BenchmarkHandler {
         this.threadData = new ThreadLocal<ThreadData>() {
             @Override
             protected ThreadData initialValue() {
-                try {
-                    Object o = clazz.getConstructor().newInstance();
-                    ThreadParams t = tps.poll();
-                    if (t == null) {
-                        throw new IllegalStateException("Cannot get another thread params");
-                    }
-                    return new ThreadData(o, t);
-                } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-                    throw new RuntimeException("Class " + clazz.getName() + " instantiation error ", e);
-                }
+                return newThreadData(clazz, tps);
             }
         };
 
+        if (EXECUTOR_TYPE.reusesThreads()) {
+            this.workerData = null;
+        } else {
+            this.workerData = new ThreadData[executionParams.getThreads()];
+            for (int i = 0; i < workerData.length; i++) {
+                workerData[i] = newThreadData(clazz, tps);
+            }
+        }
+
         this.out = out;
+
+        // The stride is picked after the first warmup iteration, and at least one more warmup
+        // iteration should run with it, so that the loop recompiles before the measurement.
+        long overshoot = options.getPollOvershoot().hasValue() ?
+                options.getPollOvershoot().get().convertTo(TimeUnit.NANOSECONDS) : 0;
+        Mode mode = executionParams.getMode();
+        if (overshoot > 0 && (mode == Mode.Throughput || mode == Mode.AverageTime) && executionParams.getWarmup().getCount() < 2) {
+            out.println("# WARNING: Polling stride needs at least 2 warmup iterations to settle before the measurement, " +
+                    "checking for the iteration end after every invocation.");
+            overshoot = 0;
+        }
+        this.pollOvershoot = overshoot;
+        this.pollStride = 1;
+
         try {
             this.executor = EXECUTOR_TYPE.createExecutor(executionParams.getThreads(), executionParams.getBenchmark());
         } catch (Exception e) {
@@ -99,6 +144,19 @@ class BenchmarkHandler {
         }
     }
 
+    private static ThreadData newThreadData(Class<?> clazz, BlockingQueue<ThreadParams> tps) {
+        try {
+            Object o = clazz.getConstructor().newInstance();
+            ThreadParams t = tps.poll();
+            if (t == null) {
+                throw new IllegalStateException("Cannot get another thread params");
+            }
+            return new ThreadData(o, t);
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new RuntimeException("Class " + clazz.getName() + " instantiation error ", e);
+        }
+    }
+
     static List<ThreadParams> distributeThreads(int threads, int[] groups) {
         List<ThreadParams> result = new ArrayList<>();
         int totalGroupThreads = Utils.sum(groups);
@@ -236,6 +294,36 @@ class BenchmarkHandler {
 
         },
 
+        /**
+         * Use a new virtual thread for every task (JDK 21+).
+         * Workers keep their benchmark instances and thread params across iterations,
+         * even though every iteration runs on the fresh virtual thread. Warmup and warmdown
+         * synchronization parks the virtual threads instead of running the catch-up loops,
+         * so that all workers eventually get their carriers.
+         */
+        VIRTUAL {
+            @Override
+            ExecutorService createExecutor(int maxThreads, String prefix) throws Exception {
+                // reflection unties us from JDK 21 compile-time dependencies
+                Class<?> ofVirtual;
+                try {
+                    ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Virtual threads are not supported by this VM: " + System.getProperty("java.vm.version"), e);
+                }
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix + "-jmh-worker-", 1L);
+                ThreadFactory factory = (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, factory);
+            }
+
+            @Override
+            boolean reusesThreads() {
+                return false;
+            }
+        },
+
         CUSTOM {
             @Override
             ExecutorService createExecutor(int maxThreads, String prefix) throws Exception {
@@ -252,6 +340,13 @@ class BenchmarkHandler {
         boolean shutdownForbidden() {
             return false;
         }
+
+        /**
+         * @return true, if executor runs the tasks on the same threads from iteration to iteration
+         */
+        boolean reusesThreads() {
+            return true;
+        }
     }
 
     protected void startProfilers(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
@@ -280,6 +375,17 @@ class BenchmarkHandler {
      * Do required shutdown actions.
      */
     public void shutdown() {
+        // profilers holding resources for the whole trial release them now
+        for (InternalProfiler prof : profilersRev) {
+            if (prof instanceof Closeable) {
+                try {
+                    ((Closeable) prof).close();
+                } catch (IOException | RuntimeException e) {
+                    out.println("Failed to close profiler " + prof.getClass().getName() + ": " + e.getMessage());
+                }
+            }
+        }
+
         if (EXECUTOR_TYPE.shutdownForbidden() || (executor == null)) {
             return;
         }
@@ -308,6 +414,19 @@ class BenchmarkHandler {
      * @return IterationResult
      */
     public IterationResult runIteration(BenchmarkParams benchmarkParams, IterationParams params, boolean last) {
+        return runIteration(benchmarkParams, params, last, false);
+    }
+
+    /**
+     * Runs an iteration on the handled benchmark, or on its empty-body twin.
+     *
+     * @param benchmarkParams Benchmark parameters
+     * @param params  Iteration parameters
+     * @param last    Should this iteration considered to be the last
+     * @param baseline Should the empty-body twin run instead of the benchmark
+     * @return IterationResult
+     */
+    public IterationResult runIteration(BenchmarkParams benchmarkParams, IterationParams params, boolean last, boolean baseline) {
         int numThreads = benchmarkParams.getThreads();
         TimeValue runtime = params.getTime();
 
@@ -319,19 +438,21 @@ class BenchmarkHandler {
 
         InfraControl control = new InfraControl(benchmarkParams, params,
                 preSetupBarrier, preTearDownBarrier, last,
-                new Control());
+                new Control(), !EXECUTOR_TYPE.reusesThreads(), pollStride, baseline);
 
         // preparing the worker runnables
         BenchmarkTask[] runners = new BenchmarkTask[numThreads];
         for (int i = 0; i < runners.length; i++) {
-            runners[i] = new BenchmarkTask(control);
+            runners[i] = new BenchmarkTask(control, i);
         }
 
         long waitDeadline = System.nanoTime() + benchmarkParams.getTimeout().convertTo(TimeUnit.NANOSECONDS);
 
         // profilers start way before the workload starts to capture
-        // the edge behaviors.
-        startProfilers(benchmarkParams, params);
+        // the edge behaviors. Baseline is not profiled.
+        if (!baseline) {
+            startProfilers(benchmarkParams, params);
+        }
 
         // submit tasks to threadpool
         List<Future<BenchmarkTaskResult>> completed = new ArrayList<>();
@@ -342,6 +463,13 @@ class BenchmarkHandler {
 
         // wait for all workers to transit to measurement
         control.awaitWarmupReady();
+        long startTime = System.currentTimeMillis();
+
+        // let the controlling perf, if any, count only the measured part of measurement iterations
+        boolean perfControl = !baseline && params.getType() == IterationType.MEASUREMENT;
+        if (perfControl) {
+            PerfControl.enable();
+        }
 
         // wait for the iteration time to expire
         switch (benchmarkParams.getMode()) {
@@ -368,6 +496,11 @@ class BenchmarkHandler {
 
         // wait for all workers to transit to teardown
         control.awaitWarmdownReady();
+        long stopTime = System.currentTimeMillis();
+
+        if (perfControl) {
+            PerfControl.disable();
+        }
 
         // Wait for the result, handling timeouts
         while (completed.size() < numThreads) {
@@ -417,29 +550,68 @@ class BenchmarkHandler {
             }
         }
 
-        IterationResult result = new IterationResult(benchmarkParams, params, new IterationResultMetaData(allOps, measuredOps));
+        IterationResult result = new IterationResult(benchmarkParams, params, new IterationResultMetaData(allOps, measuredOps, startTime, stopTime));
         result.addResults(iterationResults);
 
         // profilers stop when after all threads are confirmed to be
         // finished to capture the edge behaviors; or, on a failure path
-        stopProfilers(benchmarkParams, params, result);
+        if (!baseline) {
+            stopProfilers(benchmarkParams, params, result);
+        }
 
         if (!errors.isEmpty()) {
             throw new BenchmarkException("Benchmark error during the run", errors);
         }
 
+        if (params.getType() == IterationType.WARMUP && !baseline && ++warmupsRun == 1) {
+            calibratePollStride(benchmarkParams, params, result);
+        }
+
         return result;
     }
 
+    /**
+     * Picks the number of invocations between the iteration end checks, so that
+     * the invocations in between take no longer than the allowed overshoot.
+     * The stride is picked once: the measurement loop is recompiled when it first
+     * goes the stride path, and that should happen in the remaining warmup iterations,
+     * not in the measurement.
+     */
+    private void calibratePollStride(BenchmarkParams benchmarkParams, IterationParams params, IterationResult result) {
+        if (pollOvershoot <= 0) {
+            return;
+        }
+
+        Mode mode = benchmarkParams.getMode();
+        if (mode != Mode.Throughput && mode != Mode.AverageTime) {
+            return;
+        }
+
+        // Measured ops are adjusted for batch size and ops per invocation, recover the invocations.
+        long invocations = result.getMetadata().getMeasuredOps() * params.getBatchSize() / benchmarkParams.getOpsPerInvocation();
+        if (invocations <= 0) {
+            return;
+        }
+
+        double nsPerInvocation = 1D * params.getTime().convertTo(TimeUnit.NANOSECONDS) * benchmarkParams.getThreads() / invocations;
+        int stride = (int) Math.max(1, Math.min(MAX_POLL_STRIDE, pollOvershoot / nsPerInvocation));
+        if (stride != pollStride) {
+            pollStride = stride;
+            out.verbosePrintln("Checking for the iteration end every " + stride + " invocations");
+        }
+    }
+
     /**
      * Worker body.
      */
     class BenchmarkTask implements Callable<BenchmarkTaskResult> {
         private volatile Thread runner;
         private final InfraControl control;
+        private final int worker;
 
-        BenchmarkTask(InfraControl control) {
+        BenchmarkTask(InfraControl control, int worker) {
             this.control = control;
+            this.worker = worker;
         }
 
         @Override
@@ -449,7 +621,7 @@ class BenchmarkHandler {
                 runner = Thread.currentThread();
 
                 // go for the run
-                ThreadData td = threadData.get();
+                ThreadData td = (workerData != null) ? workerData[worker] : threadData.get();
                 return (BenchmarkTaskResult) method.invoke(td.instance, control, td.params);
             } catch (Throwable e) {
                 // about to fail the iteration;
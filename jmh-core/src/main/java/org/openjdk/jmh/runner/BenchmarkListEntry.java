@@ -60,6 +60,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
     private final Optional<Map<String, String[]>> params;
     private final Optional<TimeUnit> tu;
     private final Optional<Integer> opsPerInvocation;
+    private final Optional<Integer> rate;
     private final Optional<TimeValue> timeout;
 
     private WorkloadParams workloadParams;
@@ -71,7 +72,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
                               Optional<Integer> forks, Optional<Integer> warmupForks,
                               Optional<String> jvm, Optional<Collection<String>> jvmArgs, Optional<Collection<String>> jvmArgsPrepend, Optional<Collection<String>> jvmArgsAppend,
                               Optional<Map<String, String[]>> params, Optional<TimeUnit> tu, Optional<Integer> opsPerInv,
-                              Optional<TimeValue> timeout) {
+                              Optional<Integer> rate, Optional<TimeValue> timeout) {
         this.userClassQName = userClassQName;
         this.generatedClassQName = generatedClassQName;
         this.method = method;
@@ -95,6 +96,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         this.workloadParams = new WorkloadParams();
         this.tu = tu;
         this.opsPerInvocation = opsPerInv;
+        this.rate = rate;
         this.timeout = timeout;
     }
 
@@ -129,6 +131,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         this.params                 = reader.nextOptionalParamCollection();
         this.tu                     = reader.nextOptionalTimeUnit();
         this.opsPerInvocation       = reader.nextOptionalInt();
+        this.rate                   = reader.nextOptionalInt();
         this.timeout                = reader.nextOptionalTimeValue();
     }
 
@@ -157,6 +160,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         writer.putOptionalParamCollection(params);
         writer.putOptionalTimeUnit(tu);
         writer.putOptionalInt(opsPerInvocation);
+        writer.putOptionalInt(rate);
         writer.putOptionalTimeValue(timeout);
 
         return writer.toString();
@@ -170,7 +174,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
                 forks, warmupForks,
                 jvm, jvmArgs, jvmArgsPrepend, jvmArgsAppend,
                 params, tu, opsPerInvocation,
-                timeout);
+                rate, timeout);
     }
 
     public BenchmarkListEntry cloneWith(WorkloadParams p) {
@@ -181,7 +185,7 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
                 forks, warmupForks,
                 jvm, jvmArgs, jvmArgsPrepend, jvmArgsAppend,
                 params, tu, opsPerInvocation,
-                timeout);
+                rate, timeout);
         br.workloadParams = p;
         return br;
     }
@@ -326,6 +330,10 @@ public class BenchmarkListEntry implements Comparable<BenchmarkListEntry> {
         return opsPerInvocation;
     }
 
+    public Optional<Integer> getRate() {
+        return rate;
+    }
+
     public Optional<TimeValue> getTimeout() {
         return timeout;
     }
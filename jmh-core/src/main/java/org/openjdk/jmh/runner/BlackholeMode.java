@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+/**
+ * Blackhole mode, which is selected by the host VM for every benchmark.
+ */
+public enum BlackholeMode {
+
+    /**
+     * Full blackhole, its methods are not inlined.
+     */
+    FULL_DONTINLINE("full-dontinline", "full blackhole + dont-inline hint"),
+
+    /**
+     * Full blackhole, its methods are inlined.
+     */
+    FULL("full", "full blackhole + inline hint"),
+
+    /**
+     * Compiler blackholes: JIT compiler consumes the values, without doing
+     * any work in generated code. Requires VM support.
+     */
+    COMPILER("compiler", "compiler blackholes"),
+
+    ;
+
+    /**
+     * System property that selects the blackhole mode in both host and forked VMs.
+     */
+    public static final String PROPERTY = "jmh.blackhole.mode";
+
+    private final String label;
+    private final String desc;
+
+    BlackholeMode(String label, String desc) {
+        this.label = label;
+        this.desc = desc;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String desc() {
+        return desc;
+    }
+
+    public boolean isCompiler() {
+        return this == COMPILER;
+    }
+
+    /**
+     * @param label mode label
+     * @return blackhole mode
+     * @throws IllegalArgumentException if label is unknown
+     */
+    public static BlackholeMode deepValueOf(String label) {
+        for (BlackholeMode m : values()) {
+            if (m.label.equalsIgnoreCase(label) || m.name().equalsIgnoreCase(label)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Unknown blackhole mode: " + label);
+    }
+
+    /**
+     * @return blackhole mode requested by system properties, or null if it should be figured out
+     */
+    static BlackholeMode requested() {
+        String mode = System.getProperty(PROPERTY);
+        if (mode != null) {
+            return deepValueOf(mode);
+        }
+        if (Boolean.getBoolean("jmh.blackhole.forceInline")) {
+            return FULL;
+        }
+        return null;
+    }
+
+    /**
+     * @return blackhole mode without any VM support
+     */
+    static BlackholeMode fallback() {
+        return Boolean.getBoolean("jmh.blackhole.forceInline") ? FULL : FULL_DONTINLINE;
+    }
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the dynamic CDS archives for forked VMs. The archive is dumped at exit by
+ * the fork that runs before the measured forks, and is discarded, so that all measured
+ * forks run with the same archive. Archives are cached between runs, keyed by the hash
+ * of VM, VM options, and classpath, including sizes and modification times of classpath
+ * files. Only the most recently used archives are kept in the cache.
+ */
+class CDSArchives {
+
+    static final String DIR_PROPERTY = "jmh.cds.dir";
+
+    private static final String DUMP_OPTION = "-XX:ArchiveClassesAtExit=";
+    private static final String SHARE_OPTION = "-XX:SharedArchiveFile=";
+
+    /**
+     * CDS warnings about the classes it cannot archive, or the archives it cannot map,
+     * are printed to stdout, and would get mixed with benchmark output.
+     */
+    private static final String QUIET_OPTION = "-Xlog:cds*=off";
+
+    /**
+     * Makes the VM fail to start when it cannot map the archive, instead of
+     * silently running without it.
+     */
+    private static final String REQUIRE_OPTION = "-Xshare:on";
+
+    /**
+     * The number of archives to keep in the cache directory.
+     */
+    static final int MAX_ARCHIVES = 16;
+
+    /**
+     * The age at which the leftover temporary files are deleted. The files that
+     * are younger may be dumped by the concurrent runs.
+     */
+    private static final long STALE_TEMP_MS = TimeUnit.HOURS.toMillis(24);
+
+    private final File dir;
+    private final Map<String, Boolean> supported;
+    private final Map<String, String> dumping;
+    private final Set<String> failed;
+    private final Set<String> validated;
+    private boolean cleaned;
+
+    CDSArchives() {
+        this(new File(System.getProperty(DIR_PROPERTY, System.getProperty("java.io.tmpdir") + File.separator + "jmh-cds")));
+    }
+
+    CDSArchives(File dir) {
+        this.dir = dir;
+        this.supported = new HashMap<>();
+        this.dumping = new HashMap<>();
+        this.failed = new HashSet<>();
+        this.validated = new HashSet<>();
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    /**
+     * @param jvm target VM
+     * @param jvmArgs target VM options
+     * @param classpath target VM classpath
+     * @return options to share the archive, if it exists and the VM accepts it;
+     *         or no options at all
+     */
+    synchronized List<String> options(String jvm, Collection<String> jvmArgs, String classpath) {
+        if (!isSupported(jvm)) {
+            return Collections.emptyList();
+        }
+
+        String key = key(jvm, jvmArgs, classpath);
+        File archive = new File(dir, key + ".jsa");
+        if (!archive.isFile()) {
+            return Collections.emptyList();
+        }
+
+        // CDS silently runs without the archive it cannot map, check it once per run;
+        // the rejected archive is deleted, and dumped again.
+        if (!validated.contains(key)) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(jvm);
+            cmd.addAll(jvmArgs);
+            cmd.add(QUIET_OPTION);
+            cmd.add(REQUIRE_OPTION);
+            cmd.add(SHARE_OPTION + archive.getAbsolutePath());
+            cmd.add("-cp");
+            cmd.add(classpath);
+            cmd.add("-version");
+            if (exitCode(cmd) != 0) {
+                archive.delete();
+                return Collections.emptyList();
+            }
+            validated.add(key);
+        }
+
+        // keep the used archives longer in the cache
+        archive.setLastModified(System.currentTimeMillis());
+
+        return Arrays.asList(QUIET_OPTION, SHARE_OPTION + archive.getAbsolutePath());
+    }
+
+    /**
+     * @param jvm target VM
+     * @param jvmArgs target VM options
+     * @param classpath target VM classpath
+     * @return options to dump the archive at exit, if there is no usable archive yet;
+     *         or no options at all, if the archive exists, is being dumped by another
+     *         fork, or cannot be dumped
+     */
+    synchronized List<String> dumpOptions(String jvm, Collection<String> jvmArgs, String classpath) {
+        if (!options(jvm, jvmArgs, classpath).isEmpty() || !isSupported(jvm)) {
+            return Collections.emptyList();
+        }
+
+        String key = key(jvm, jvmArgs, classpath);
+        if (failed.contains(key) || dumping.containsValue(key)) {
+            return Collections.emptyList();
+        }
+
+        // Dump into the temporary file first: other forks and runs should not see
+        // the archive until it is complete.
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            evict();
+            File tmp = File.createTempFile(key + "-", ".tmp", dir);
+            dumping.put(tmp.getAbsolutePath(), key);
+            return Arrays.asList(QUIET_OPTION, DUMP_OPTION + tmp.getAbsolutePath());
+        } catch (IOException e) {
+            failed.add(key);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Publishes the archive the fork had dumped, if any.
+     * CDS does not dump the archive when some classpath entries are non-empty directories,
+     * and those archives are not attempted again for the rest of the run.
+     *
+     * @param command forked VM command line
+     */
+    synchronized void afterFork(List<String> command) {
+        String path = dumpPath(command);
+        if (path == null) {
+            return;
+        }
+
+        String key = dumping.remove(path);
+        if (key == null) {
+            return;
+        }
+
+        File tmp = new File(path);
+        File archive = new File(dir, key + ".jsa");
+        if (tmp.length() == 0 || !(archive.isFile() || tmp.renameTo(archive))) {
+            failed.add(key);
+        }
+        tmp.delete();
+        validated.remove(key);
+    }
+
+    /**
+     * Deletes the least recently used archives over {@link #MAX_ARCHIVES}, and the
+     * temporary files the crashed runs had left behind. Done once per run, before
+     * the first dump.
+     */
+    private void evict() {
+        if (cleaned) {
+            return;
+        }
+        cleaned = true;
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> archives = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (File f : files) {
+            if (f.getName().endsWith(".jsa")) {
+                archives.add(f);
+            } else if (f.getName().endsWith(".tmp") && now - f.lastModified() > STALE_TEMP_MS) {
+                f.delete();
+            }
+        }
+
+        Collections.sort(archives, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o2.lastModified(), o1.lastModified());
+            }
+        });
+
+        // leave room for the archive about to be dumped
+        for (int i = MAX_ARCHIVES - 1; i < archives.size(); i++) {
+            archives.get(i).delete();
+        }
+    }
+
+    /**
+     * @param command forked VM command line
+     * @return true, if the forked VM dumps the archive at exit
+     */
+    static boolean isDumping(List<String> command) {
+        return dumpPath(command) != null;
+    }
+
+    private static String dumpPath(List<String> command) {
+        for (String opt : command) {
+            if (opt.startsWith(DUMP_OPTION)) {
+                return opt.substring(DUMP_OPTION.length());
+            }
+        }
+        return null;
+    }
+
+    private boolean isSupported(String jvm) {
+        Boolean s = supported.get(jvm);
+        if (s == null) {
+            s = probe(jvm);
+            supported.put(jvm, s);
+        }
+        return s;
+    }
+
+    /**
+     * Dynamic archives need JDK 13+, and the base CDS archive loaded. Try to dump
+     * the trivial archive to see if both are in place.
+     */
+    private static boolean probe(String jvm) {
+        try {
+            File tmp = FileUtils.tempFile("probe.jsa");
+            tmp.delete();
+            Utils.runWith(Arrays.asList(jvm, QUIET_OPTION, DUMP_OPTION + tmp.getAbsolutePath(), "-version"));
+            boolean result = tmp.length() > 0;
+            tmp.delete();
+            return result;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int exitCode(List<String> cmd) {
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            try (InputStream is = p.getInputStream()) {
+                byte[] buf = new byte[4096];
+                while (is.read(buf) != -1) {
+                    // drain, else we might lock up
+                }
+            }
+            return p.waitFor();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String key(String jvm, Collection<String> jvmArgs, String classpath) {
+        List<String> parts = new ArrayList<>();
+        parts.add(jvm);
+        parts.addAll(jvmArgs);
+        parts.add(classpath);
+        for (String cp : classpath.split(File.pathSeparator)) {
+            File f = new File(cp);
+            if (f.isFile()) {
+                parts.add(f.length() + ":" + f.lastModified());
+            }
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String p : parts) {
+                md.update(p.getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -25,6 +25,7 @@
 package org.openjdk.jmh.runner;
 
 import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -42,13 +43,15 @@ public class CompilerHints extends AbstractResourceReader {
     static final String JVM_ZING = "Zing";
 
     private static volatile CompilerHints defaultList;
-    private static volatile String hintsFile;
+    private static final Map<BlackholeMode, String> hintsFiles = new EnumMap<>(BlackholeMode.class);
 
 
     private final Set<String> hints;
 
     static final String XX_COMPILE_COMMAND_FILE = "-XX:CompileCommandFile=";
 
+    static final String BLACKHOLE_COMPILER_METHODS = "org/openjdk/jmh/infra/Blackhole.consumeCompiler";
+
     public static CompilerHints defaultList() {
         if (defaultList == null) {
             defaultList = fromResource(LIST);
@@ -57,18 +60,34 @@ public class CompilerHints extends AbstractResourceReader {
     }
 
     public static String hintsFile() {
+        return hintsFile(BlackholeMode.fallback());
+    }
+
+    public static synchronized String hintsFile(BlackholeMode mode) {
+        String hintsFile = hintsFiles.get(mode);
         if (hintsFile == null) {
             try {
                 final Set<String> defaultHints = defaultList().get();
                 List<String> hints = new ArrayList<>(defaultHints.size() + 2);
                 hints.add("quiet");
-                if (Boolean.getBoolean("jmh.blackhole.forceInline")) {
-                    hints.add("inline,org/openjdk/jmh/infra/Blackhole.*");
-                } else {
-                    hints.add("dontinline,org/openjdk/jmh/infra/Blackhole.*");
+                switch (mode) {
+                    case FULL:
+                        hints.add("inline,org/openjdk/jmh/infra/Blackhole.*");
+                        break;
+                    case FULL_DONTINLINE:
+                        hints.add("dontinline,org/openjdk/jmh/infra/Blackhole.*");
+                        break;
+                    case COMPILER:
+                        // Blackhole.consume dispatches to compiler blackholes, and should inline;
+                        // blackhole command itself needs to be on the command line, see addCompilerHints
+                        hints.add("inline,org/openjdk/jmh/infra/Blackhole.consume");
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown blackhole mode: " + mode);
                 }
                 hints.addAll(defaultHints);
                 hintsFile = FileUtils.createTempFileWithLines("compilecommand", hints);
+                hintsFiles.put(mode, hintsFile);
             } catch (IOException e) {
                 throw new IllegalStateException("Error creating compiler hints file", e);
             }
@@ -76,6 +95,35 @@ public class CompilerHints extends AbstractResourceReader {
         return hintsFile;
     }
 
+    /**
+     * Probes the target VM for compiler blackholes support.
+     *
+     * @param jvm target VM
+     * @return true, if target VM accepts the blackhole compile command
+     */
+    public static boolean isCompilerBlackholeSupported(String jvm) {
+        List<String> command = new ArrayList<>();
+        command.add(jvm);
+        command.addAll(compilerBlackholeOptions());
+        command.add("-version");
+
+        for (String out : Utils.runWith(command)) {
+            // Unsupported commands are reported, but VM still starts
+            if (out.contains("rror") || out.contains("nrecognized") || !out.contains("version")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> compilerBlackholeOptions() {
+        // Blackhole looks for the exact blackhole command before enabling the compiler mode
+        return Arrays.asList(
+                "-XX:+UnlockExperimentalVMOptions",
+                "-XX:CompileCommand=quiet",
+                "-XX:CompileCommand=blackhole," + BLACKHOLE_COMPILER_METHODS);
+    }
+
     public static CompilerHints fromResource(String resource) {
         return new CompilerHints(null, resource);
     }
@@ -176,6 +224,16 @@ public class CompilerHints extends AbstractResourceReader {
      * @param command all -XX:CompileCommandLine args will be removed and a merged file will be set
      */
     public static void addCompilerHints(List<String> command) {
+        addCompilerHints(command, BlackholeMode.fallback());
+    }
+
+    /**
+     * Same as {@link #addCompilerHints(List)}, but also sets up the given blackhole mode.
+     *
+     * @param command all -XX:CompileCommandLine args will be removed and a merged file will be set
+     * @param mode blackhole mode to use in the forked VM
+     */
+    public static void addCompilerHints(List<String> command, BlackholeMode mode) {
         if (!isHintCompatibleVM()) {
             System.err.println("WARNING: Not a HotSpot compiler command compatible VM (\""
                     + System.getProperty("java.vm.name") + "-" + System.getProperty("java.version")
@@ -183,8 +241,13 @@ public class CompilerHints extends AbstractResourceReader {
             return;
         }
 
+        command.add("-D" + BlackholeMode.PROPERTY + "=" + mode.label());
+        if (mode.isCompiler()) {
+            command.addAll(compilerBlackholeOptions());
+        }
+
         List<String> hintFiles = new ArrayList<>();
-        hintFiles.add(hintsFile());
+        hintFiles.add(hintsFile(mode));
         removeCompileCommandFiles(command, hintFiles);
         if (hintFiles.size() == 1) {
             File hotspotCompilerFile = new File(".hotspot_compiler");
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Discovers the CPUs available to host VM, splits them into disjoint sets,
+ * and builds the command prefixes that pin forked VMs to those sets.
+ */
+class CpuAffinity {
+
+    static final String TASKSET = "taskset";
+    static final String NUMACTL = "numactl";
+
+    private CpuAffinity() {
+        // prevent instantiation
+    }
+
+    /**
+     * @return CPUs host VM is allowed to run on, in ascending order
+     */
+    static List<Integer> allowedCpus() {
+        File status = new File("/proc/self/status");
+        if (status.canRead()) {
+            try {
+                for (String line : FileUtils.readAllLines(status)) {
+                    if (line.startsWith("Cpus_allowed_list:")) {
+                        List<Integer> cpus = parseList(line.substring(line.indexOf(':') + 1));
+                        if (!cpus.isEmpty()) {
+                            return cpus;
+                        }
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // fall through to the conservative guess
+            }
+        }
+
+        List<Integer> cpus = new ArrayList<>();
+        for (int c = 0; c < Runtime.getRuntime().availableProcessors(); c++) {
+            cpus.add(c);
+        }
+        return cpus;
+    }
+
+    /**
+     * Parses the CPU list in the usual Linux format, e.g. "0-3,8,10-11".
+     *
+     * @param list list to parse
+     * @return CPU numbers, in ascending order
+     */
+    static List<Integer> parseList(String list) {
+        TreeSet<Integer> cpus = new TreeSet<>();
+        for (String range : list.trim().split(",")) {
+            range = range.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            try {
+                int dash = range.indexOf('-');
+                if (dash == -1) {
+                    cpus.add(Integer.parseInt(range));
+                } else {
+                    int from = Integer.parseInt(range.substring(0, dash).trim());
+                    int to = Integer.parseInt(range.substring(dash + 1).trim());
+                    if (from > to) {
+                        throw new IllegalArgumentException("Malformed CPU range: " + range);
+                    }
+                    for (int c = from; c <= to; c++) {
+                        cpus.add(c);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed CPU list: " + list, e);
+            }
+        }
+        return new ArrayList<>(cpus);
+    }
+
+    /**
+     * Formats the CPU list in the usual Linux format, collapsing the adjacent CPUs into ranges.
+     *
+     * @param cpus CPU numbers
+     * @return formatted list
+     */
+    static String formatList(Collection<Integer> cpus) {
+        List<String> ranges = new ArrayList<>();
+        int from = -1;
+        int to = -1;
+        for (int c : new TreeSet<>(cpus)) {
+            if (from != -1 && c == to + 1) {
+                to = c;
+                continue;
+            }
+            if (from != -1) {
+                ranges.add(formatRange(from, to));
+            }
+            from = c;
+            to = c;
+        }
+        if (from != -1) {
+            ranges.add(formatRange(from, to));
+        }
+        return Utils.join(ranges, ",");
+    }
+
+    private static String formatRange(int from, int to) {
+        return (from == to) ? String.valueOf(from) : from + "-" + to;
+    }
+
+    /**
+     * Splits CPUs into the disjoint sets of equal size. Adjacent CPUs are kept together,
+     * which usually keeps the set within the same core and/or socket. The leftover CPUs
+     * are not assigned to any set.
+     *
+     * @param cpus CPUs to split
+     * @param count number of sets
+     * @return CPU sets; empty, if there are not enough CPUs for every set
+     */
+    static List<List<Integer>> partition(List<Integer> cpus, int count) {
+        if (count <= 0 || cpus.size() < count) {
+            return Collections.emptyList();
+        }
+        int per = cpus.size() / count;
+        List<List<Integer>> sets = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            sets.add(Collections.unmodifiableList(new ArrayList<>(cpus.subList(s * per, (s + 1) * per))));
+        }
+        return sets;
+    }
+
+    /**
+     * Figures out which pinning tool is usable on this host.
+     *
+     * @param cpus CPUs to try pinning to
+     * @return {@link #TASKSET}, {@link #NUMACTL}, or null if no tool is usable
+     */
+    static String detectTool(List<Integer> cpus) {
+        if (Utils.isWindows() || cpus.isEmpty()) {
+            return null;
+        }
+        for (String tool : Arrays.asList(TASKSET, NUMACTL)) {
+            List<String> cmd = new ArrayList<>(pinningPrefix(tool, Collections.singletonList(cpus.get(0))));
+            cmd.add("true");
+            if (Utils.tryWith(cmd.toArray(new String[0])).isEmpty()) {
+                return tool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param tool pinning tool, as returned by {@link #detectTool(List)}
+     * @param cpus CPUs to pin to
+     * @return command prefix that pins the command to given CPUs
+     */
+    static List<String> pinningPrefix(String tool, Collection<Integer> cpus) {
+        if (tool == null || cpus.isEmpty()) {
+            return Collections.emptyList();
+        }
+        switch (tool) {
+            case TASKSET:
+                return Arrays.asList(TASKSET, "-c", formatList(cpus));
+            case NUMACTL:
+                return Arrays.asList(NUMACTL, "--physcpubind=" + formatList(cpus));
+            default:
+                throw new IllegalArgumentException("Unknown pinning tool: " + tool);
+        }
+    }
+
+}
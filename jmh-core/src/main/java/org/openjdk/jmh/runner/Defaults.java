@@ -26,6 +26,8 @@ package org.openjdk.jmh.runner;
 
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.options.BaselineMode;
+import org.openjdk.jmh.runner.options.ForkGrouping;
 import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.runner.options.VerboseMode;
 import org.openjdk.jmh.runner.options.WarmupMode;
@@ -47,6 +49,17 @@ public class Defaults {
      */
     public static final int WARMUP_ITERATIONS_SINGLESHOT = 0;
 
+    /**
+     * Should JMH detect the end of warmup automatically?
+     */
+    public static final boolean DETECT_WARMUP = false;
+
+    /**
+     * Number of warmup iterations, when the end of warmup is detected automatically.
+     * This is the upper bound, the warmup usually stops earlier.
+     */
+    public static final int WARMUP_ITERATIONS_DETECT = 20;
+
     /**
      * The batch size in warmup mode.
      */
@@ -82,6 +95,12 @@ public class Defaults {
      */
     public static final int THREADS = 1;
 
+    /**
+     * Name of the workload parameter that holds the thread count in the thread sweep.
+     * Sweep points show up as the usual parameterized benchmarks in results.
+     */
+    public static final String THREADS_SWEEP_PARAM = "threads";
+
     /**
      * Number of forks in which we measure the workload.
      */
@@ -92,6 +111,26 @@ public class Defaults {
      */
     public static final int WARMUP_FORKS = 0;
 
+    /**
+     * Number of forks we run concurrently.
+     */
+    public static final int PARALLEL_FORKS = 1;
+
+    /**
+     * Number of idle forked VMs we pre-launch.
+     */
+    public static final int WARM_FORKS = 0;
+
+    /**
+     * Should forked VMs share the dynamic CDS archive?
+     */
+    public static final boolean CDS_ARCHIVE = false;
+
+    /**
+     * Default {@link org.openjdk.jmh.runner.options.ForkGrouping}.
+     */
+    public static final ForkGrouping FORK_GROUPING = ForkGrouping.NONE;
+
     /**
      * Should JMH fail on benchmark error?
      */
@@ -112,6 +151,16 @@ public class Defaults {
      */
     public static final ResultFormatType RESULT_FORMAT = ResultFormatType.CSV;
 
+    /**
+     * Should results be streamed into the result file?
+     */
+    public static final boolean STREAM_RESULTS = false;
+
+    /**
+     * Should the run resume from the existing result file?
+     */
+    public static final boolean RESUME = false;
+
     /**
      * Default prefix of the result file.
      */
@@ -122,6 +171,11 @@ public class Defaults {
      */
     public static final WarmupMode WARMUP_MODE = WarmupMode.INDI;
 
+    /**
+     * Default {@link org.openjdk.jmh.runner.options.BaselineMode}.
+     */
+    public static final BaselineMode BASELINE_MODE = BaselineMode.NONE;
+
     /**
      * Default {@link org.openjdk.jmh.runner.options.VerboseMode}.
      */
@@ -142,11 +196,21 @@ public class Defaults {
      */
     public static final Integer OPS_PER_INVOCATION = 1;
 
+    /**
+     * Default target rate for {@link Mode#RateLimited}, operations per second per thread.
+     */
+    public static final Integer RATE = 1000;
+
     /**
      * Default timeout.
      */
     public static final TimeValue TIMEOUT = TimeValue.minutes(10);
 
+    /**
+     * Default regression threshold when comparing the result files, in percent.
+     */
+    public static final double COMPARE_THRESHOLD = 5.0;
+
     /**
      * Default benchmarks to include.
      */
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.format.OutputFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Output format that records all the calls, and replays them later into
+ * another output format. Used to keep the output of concurrently running
+ * forks apart. All consecutive raw writes are coalesced together.
+ */
+class DeferredOutputFormat implements OutputFormat {
+
+    private final List<Event> events = new ArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * Replays all recorded calls into the given output format.
+     * @param dst output format to replay to
+     */
+    public synchronized void replay(OutputFormat dst) {
+        flushPending();
+        try {
+            for (Event e : events) {
+                e.replay(dst);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        events.clear();
+    }
+
+    private void flushPending() {
+        if (pending.size() > 0) {
+            final byte[] bytes = pending.toByteArray();
+            pending.reset();
+            events.add(new Event() {
+                @Override
+                void replay(OutputFormat dst) throws IOException {
+                    dst.write(bytes);
+                }
+            });
+        }
+    }
+
+    private synchronized void record(Event e) {
+        flushPending();
+        events.add(e);
+    }
+
+    @Override
+    public void iteration(final BenchmarkParams benchParams, final IterationParams params, final int iteration) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.iteration(benchParams, params, iteration);
+            }
+        });
+    }
+
+    @Override
+    public void iterationResult(final BenchmarkParams benchParams, final IterationParams params, final int iteration, final IterationResult data) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.iterationResult(benchParams, params, iteration, data);
+            }
+        });
+    }
+
+    @Override
+    public void startBenchmark(final BenchmarkParams benchParams) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.startBenchmark(benchParams);
+            }
+        });
+    }
+
+    @Override
+    public void endBenchmark(final BenchmarkResult result) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.endBenchmark(result);
+            }
+        });
+    }
+
+    @Override
+    public void startRun() {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.startRun();
+            }
+        });
+    }
+
+    @Override
+    public void endRun(final Collection<RunResult> result) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.endRun(result);
+            }
+        });
+    }
+
+    @Override
+    public void print(final String s) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.print(s);
+            }
+        });
+    }
+
+    @Override
+    public void println(final String s) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.println(s);
+            }
+        });
+    }
+
+    @Override
+    public void flush() {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.flush();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        // the destination format is owned by the caller
+    }
+
+    @Override
+    public void verbosePrintln(final String s) {
+        record(new Event() {
+            @Override
+            void replay(OutputFormat dst) {
+                dst.verbosePrintln(s);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        pending.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b) {
+        pending.write(b, 0, b.length);
+    }
+
+    private static abstract class Event {
+        abstract void replay(OutputFormat dst) throws IOException;
+    }
+
+}
@@ -25,8 +25,10 @@
 package org.openjdk.jmh.runner;
 
 import org.openjdk.jmh.runner.link.BinaryLinkClient;
+import org.openjdk.jmh.runner.link.TelemetryRing;
 import org.openjdk.jmh.runner.options.Options;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Map;
@@ -74,6 +76,16 @@ class ForkedMain {
 
                 Options options = link.handshake();
 
+                // attach to the telemetry channel, if host VM offered one
+                String telemetryFile = link.getTelemetryFile();
+                if (telemetryFile != null) {
+                    try {
+                        TelemetryRing.setCurrent(TelemetryRing.open(new File(telemetryFile)));
+                    } catch (IOException e) {
+                        // run without telemetry
+                    }
+                }
+
                 // dump outputs into binary link
                 nakedErr = System.err;
                 System.setErr(link.getErrStream());
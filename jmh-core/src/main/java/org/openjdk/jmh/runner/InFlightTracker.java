@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.ConcurrentSampleBuffer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tracks the outstanding operations of asynchronous benchmarks.
+ *
+ * <p>The benchmark thread acquires the slot before issuing the operation,
+ * and waits if all slots are taken. The completion callbacks may run in any
+ * thread: they release the slot, count the operation, and record its time
+ * while the measurement is in progress. Only the operations that started after
+ * the measurement had started are counted: the ones still in flight from
+ * the warmup ramp are not.</p>
+ */
+public class InFlightTracker {
+
+    private final int limit;
+    private final AtomicInteger inFlight;
+    private final AtomicLong completed;
+    private final AtomicReference<Throwable> failure;
+
+    private volatile Thread waiter;
+    private volatile boolean measuring;
+    private volatile ConcurrentSampleBuffer buffer;
+    private volatile long opsPerInv;
+    private volatile long measurementStart;
+
+    public InFlightTracker(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Should allow at least one operation in flight: " + limit);
+        }
+        this.limit = limit;
+        this.inFlight = new AtomicInteger();
+        this.completed = new AtomicLong();
+        this.failure = new AtomicReference<>();
+    }
+
+    /**
+     * Waits until the new operation can be issued, and takes the slot for it.
+     * Only the benchmark thread is expected to call this method.
+     *
+     * @return operation start, as {@link System#nanoTime()} timestamp
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        awaitBelow(limit);
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases the slot taken by the operation. This is the completion callback,
+     * and it can be called from any thread.
+     *
+     * @param start operation start, as {@link System#nanoTime()} timestamp
+     * @param error operation failure; null, if operation completed normally
+     */
+    public void complete(long start, Throwable error) {
+        if (error != null) {
+            failure.compareAndSet(null, error);
+        }
+        if (measuring && start >= measurementStart) {
+            completed.incrementAndGet();
+            ConcurrentSampleBuffer b = buffer;
+            if (b != null) {
+                b.add((System.nanoTime() - start) / opsPerInv);
+            }
+        }
+        inFlight.decrementAndGet();
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * Starts counting the completed operations.
+     *
+     * @param buffer buffer to record the operation times to; null, if times are not needed
+     * @param opsPerInv operations per invocation, to normalize the recorded times
+     */
+    public void startMeasurement(ConcurrentSampleBuffer buffer, long opsPerInv) {
+        this.buffer = buffer;
+        this.opsPerInv = opsPerInv;
+        this.completed.set(0);
+        this.measurementStart = System.nanoTime();
+        this.measuring = true;
+    }
+
+    /**
+     * Stops counting the completed operations.
+     *
+     * @return number of operations completed since the measurement started
+     */
+    public long stopMeasurement() {
+        measuring = false;
+        return completed.get();
+    }
+
+    /**
+     * Waits for all outstanding operations to complete.
+     *
+     * @throws Throwable the failure of any operation completed since the last drain
+     */
+    public void drain() throws Throwable {
+        awaitBelow(1);
+        Throwable t = failure.getAndSet(null);
+        if (t != null) {
+            throw t;
+        }
+    }
+
+    private void awaitBelow(int count) throws InterruptedException {
+        if (inFlight.get() < count) {
+            return;
+        }
+        waiter = Thread.currentThread();
+        try {
+            // re-check after publishing the waiter, so that we do not miss the wake up
+            while (inFlight.get() >= count) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+}
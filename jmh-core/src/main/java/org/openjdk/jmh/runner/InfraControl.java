@@ -32,6 +32,7 @@ import org.openjdk.jmh.util.Utils;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The InfraControl logic class.
@@ -52,13 +53,19 @@ public class InfraControl extends InfraControlL4 {
         Utils.check(InfraControl.class, "warmupShouldWait", "warmdownShouldWait");
         Utils.check(InfraControl.class, "warmupDone", "warmdownDone");
         Utils.check(InfraControl.class, "benchmarkParams", "iterationParams");
-        Utils.check(InfraControl.class, "shouldSynchIterations", "threads");
+        Utils.check(InfraControl.class, "shouldSynchIterations", "threads", "blockingSync");
     }
 
+    /**
+     * How close to the scheduled start we stop parking, and start spinning.
+     * Parking is not precise enough to hit the start on its own.
+     */
+    private static final long SCHEDULE_SPIN_NS = TimeUnit.MICROSECONDS.toNanos(50);
+
     public InfraControl(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                         CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                        Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+                        Control notifyControl, boolean blockingSync, int pollStride, boolean baseline) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSync, pollStride, baseline);
     }
 
     /**
@@ -107,6 +114,72 @@ public class InfraControl extends InfraControlL4 {
         notifyControl.stopMeasurement = true;
     }
 
+    /**
+     * Waits for the scheduled start of the next operation in rate-limited mode.
+     * Returns immediately if the start has already passed, or the iteration is done.
+     *
+     * @param deadline scheduled start, as {@link System#nanoTime()} timestamp
+     * @return true, if the scheduled start was reached; false, if the iteration ended before it
+     */
+    public boolean awaitSchedule(long deadline) {
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            if (isDone) return false;
+            if (left > SCHEDULE_SPIN_NS) {
+                LockSupport.parkNanos(left - SCHEDULE_SPIN_NS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param type state type
+     * @param paramNames state parameter names
+     * @return state instance shared with the previous benchmarks in this VM; null, if there is none
+     */
+    public Object getSharedState(String type, String[] paramNames) {
+        return SharedTrialStates.get(benchmarkParams, type, paramNames);
+    }
+
+    /**
+     * Shares the state instance with the next benchmarks in this VM.
+     *
+     * @param type state type
+     * @param paramNames state parameter names
+     * @param state state instance, already set up at trial level
+     * @param owner object holding the tear down method
+     * @param tearDown name of the public method doing the trial tear down; null, if there is nothing to do
+     * @param args tear down method arguments
+     */
+    public void putSharedState(String type, String[] paramNames, Object state, Object owner, String tearDown, Object[] args) {
+        SharedTrialStates.put(benchmarkParams, type, paramNames, state, owner, tearDown, args);
+    }
+
+    /**
+     * @param state state instance
+     * @return true, if the state is shared, and its trial tear down is deferred until all benchmarks are done
+     */
+    public boolean isSharedState(Object state) {
+        return SharedTrialStates.contains(state);
+    }
+
+    /**
+     * @param state state instance, not yet set up
+     * @param stateClass user state class, annotated with {@link org.openjdk.jmh.annotations.Snapshot}
+     * @return true, if the state was restored from the snapshot, and should not be set up
+     */
+    public boolean restoreSnapshot(Object state, Class<?> stateClass) {
+        return StateSnapshots.getInstance().restore(state, stateClass, benchmarkParams);
+    }
+
+    /**
+     * @param state state instance, just set up
+     * @param stateClass user state class, annotated with {@link org.openjdk.jmh.annotations.Snapshot}
+     */
+    public void saveSnapshot(Object state, Class<?> stateClass) {
+        StateSnapshots.getInstance().save(state, stateClass, benchmarkParams);
+    }
+
 }
 
 abstract class InfraControlL0 {
@@ -159,12 +232,32 @@ abstract class InfraControlL2 extends InfraControlL1 {
     public final IterationParams iterationParams;
     public final Control notifyControl;
 
+    /**
+     * Number of invocations between the {@link #isDone} checks in the measurement loop.
+     * This is specifically the public field, so to spare one virtual call.
+     */
+    public final int pollStride;
+
+    /**
+     * Run the empty-body twin of the benchmark instead of the benchmark itself.
+     * The twin skips the iteration and invocation fixtures as well. This is specifically the public field, so to spare one virtual call.
+     */
+    public final boolean baseline;
+
     private final boolean shouldSynchIterations;
     private final int threads;
 
+    /**
+     * Park the threads arriving at warmup/warmdown barriers, instead of letting them
+     * run the catch-up payload loops. This is needed for virtual threads: the spinning
+     * threads would otherwise hog all the carriers, and the threads which have not yet
+     * arrived would never get scheduled.
+     */
+    private final boolean blockingSync;
+
     public InfraControlL2(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
+                          Control notifyControl, boolean blockingSync, int pollStride, boolean baseline) {
         warmupVisited = new AtomicInteger();
         warmdownVisited = new AtomicInteger();
 
@@ -177,6 +270,10 @@ abstract class InfraControlL2 extends InfraControlL1 {
         warmupShouldWait = shouldSynchIterations;
         warmdownShouldWait = shouldSynchIterations;
 
+        this.blockingSync = blockingSync;
+        this.pollStride = pollStride;
+        this.baseline = baseline;
+
         this.notifyControl = notifyControl;
 
         this.preSetup = preSetup;
@@ -198,6 +295,10 @@ abstract class InfraControlL2 extends InfraControlL1 {
         if (v > threads) {
             throw new IllegalStateException("More threads than expected");
         }
+
+        if (blockingSync) {
+            awaitBlocking(warmupDone);
+        }
     }
 
     public void announceWarmdownReady() {
@@ -211,6 +312,21 @@ abstract class InfraControlL2 extends InfraControlL1 {
         if (v > threads) {
             throw new IllegalStateException("More threads than expected");
         }
+
+        if (blockingSync) {
+            awaitBlocking(warmdownDone);
+        }
+    }
+
+    private void awaitBlocking(CountDownLatch latch) {
+        // failing threads only announce themselves, and leave as soon as possible
+        if (isFailing) return;
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            // timeout handling kicks the threads, let the caller observe the interrupt
+            Thread.currentThread().interrupt();
+        }
     }
 
     public void awaitWarmupReady() {
@@ -263,8 +379,8 @@ abstract class InfraControlL3 extends InfraControlL2 {
 
     public InfraControlL3(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+                          Control notifyControl, boolean blockingSync, int pollStride, boolean baseline) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSync, pollStride, baseline);
     }
 }
 
@@ -273,8 +389,8 @@ abstract class InfraControlL4 extends InfraControlL3 {
 
     public InfraControlL4(BenchmarkParams benchmarkParams, IterationParams iterationParams,
                           CountDownLatch preSetup, CountDownLatch preTearDown, boolean lastIteration,
-                          Control notifyControl) {
-        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl);
+                          Control notifyControl, boolean blockingSync, int pollStride, boolean baseline) {
+        super(benchmarkParams, iterationParams, preSetup, preTearDown, lastIteration, notifyControl, blockingSync, pollStride, baseline);
     }
 }
 
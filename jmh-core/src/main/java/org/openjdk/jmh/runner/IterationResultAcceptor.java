@@ -24,11 +24,12 @@
  */
 package org.openjdk.jmh.runner;
 
+import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.results.BenchmarkResultMetaData;
 import org.openjdk.jmh.results.IterationResult;
 
 interface IterationResultAcceptor {
     void accept(IterationResult iterationData);
 
-    void acceptMeta(BenchmarkResultMetaData md);
+    void acceptMeta(BenchmarkParams params, BenchmarkResultMetaData md);
 }
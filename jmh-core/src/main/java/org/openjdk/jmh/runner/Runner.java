@@ -33,6 +33,8 @@ import org.openjdk.jmh.profile.ProfilerException;
 import org.openjdk.jmh.profile.ProfilerFactory;
 import org.openjdk.jmh.results.*;
 import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.results.format.StreamingResultFormat;
 import org.openjdk.jmh.runner.format.OutputFormat;
 import org.openjdk.jmh.runner.format.OutputFormatFactory;
 import org.openjdk.jmh.runner.link.BinaryLinkServer;
@@ -47,7 +49,11 @@ import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.jar.*;
 import java.util.zip.*;
 
@@ -68,6 +74,13 @@ public class Runner extends BaseRunner {
 
     private final BenchmarkList list;
     private int cpuCount;
+    private ForkScheduler forkScheduler;
+    private WarmForkPool forkPool;
+    private final CDSArchives cdsArchives = new CDSArchives();
+    private File snapshotDir;
+    private ForkGrouping forkGrouping = ForkGrouping.NONE;
+    private final Map<String, Boolean> compilerBlackholes = new HashMap<>();
+    private boolean compilerBlackholeWarned;
 
     /**
      * Create runner with the custom OutputFormat.
@@ -317,14 +330,71 @@ public class Runner extends BaseRunner {
             benchmarks.addAll(newBenchmarks);
         }
 
-        Collection<RunResult> results = runBenchmarks(benchmarks);
+        // clone with all thread counts in the sweep;
+        // thread count rides along as the workload parameter
+        if (options.getThreadsSweep().hasValue()) {
+            int[] sweep = options.getThreadsSweep().get();
+            List<BenchmarkListEntry> newBenchmarks = new ArrayList<>();
+            for (BenchmarkListEntry br : benchmarks) {
+                WorkloadParams wp = br.getWorkloadParams();
+                if (wp != null && wp.containsKey(Defaults.THREADS_SWEEP_PARAM)) {
+                    throw new RunnerException("Benchmark \"" + br.getUsername() +
+                            "\" defines the parameter \"" + Defaults.THREADS_SWEEP_PARAM + "\", which clashes with the thread sweep.");
+                }
+                for (int i = 0; i < sweep.length; i++) {
+                    WorkloadParams p = (wp != null) ? wp.copy() : new WorkloadParams();
+                    p.put(Defaults.THREADS_SWEEP_PARAM, String.valueOf(sweep[i]), i);
+                    newBenchmarks.add(br.cloneWith(p));
+                }
+            }
+            benchmarks.clear();
+            benchmarks.addAll(newBenchmarks);
+        }
+
+        // If user requested streaming the results, prepare the result file for it,
+        // and skip the benchmarks which results are already there.
+        StreamingResultFormat stream = null;
+        if (resultFile != null) {
+            stream = newResultStream(resultFile, benchmarks);
+            if (stream != null) {
+                for (Iterator<BenchmarkListEntry> it = benchmarks.iterator(); it.hasNext(); ) {
+                    BenchmarkListEntry br = it.next();
+                    if (stream.isPresent(br.getUsername(), br.getMode(), br.getWorkloadParams())) {
+                        out.println("# Resume: skipping " + describe(br) + ", result is already in " + resultFile);
+                        it.remove();
+                    }
+                }
+                if (benchmarks.isEmpty()) {
+                    out.println("# Resume: all benchmark results are already in " + resultFile + ", nothing to run");
+                    out.flush();
+                    out.close();
+                    return Collections.emptyList();
+                }
+            }
+        }
+
+        // If user provided the previous results, re-use them instead of running
+        // the same benchmarks again.
+        Collection<RunResult> previous = Collections.emptyList();
+        if (options.getPreviousResults().hasValue()) {
+            previous = reusePreviousResults(options.getPreviousResults().get(), benchmarks);
+            if (stream != null) {
+                for (RunResult rr : previous) {
+                    stream.append(rr);
+                }
+            }
+        }
+
+        Collection<RunResult> results = runBenchmarks(benchmarks, stream, previous);
 
         // If user requested the result file, write it out.
         if (resultFile != null) {
-            ResultFormatFactory.getInstance(
-                        options.getResultFormat().orElse(Defaults.RESULT_FORMAT),
-                        resultFile
-            ).writeOut(results);
+            if (stream == null) {
+                ResultFormatFactory.getInstance(
+                            options.getResultFormat().orElse(Defaults.RESULT_FORMAT),
+                            resultFile
+                ).writeOut(results);
+            }
 
             out.println("");
             out.println("Benchmark result is saved to " + resultFile);
@@ -359,6 +429,7 @@ public class Runner extends BaseRunner {
         boolean addEmbedded = false;
 
         List<ActionPlan> result = new ArrayList<>();
+        Map<String, ActionPlan> groups = new HashMap<>();
         for (BenchmarkListEntry br : benchmarks) {
             BenchmarkParams params = newBenchmarkParams(br, ActionMode.UNDEF);
 
@@ -372,14 +443,22 @@ public class Runner extends BaseRunner {
             }
 
             if (params.getForks() > 0) {
-                ActionPlan r = new ActionPlan(ActionType.FORKED);
-                r.mixIn(base);
+                // fork group runs at the place of its first benchmark
+                String group = forkGroupKey(params);
+                ActionPlan r = (group != null) ? groups.get(group) : null;
+                if (r == null) {
+                    r = new ActionPlan(ActionType.FORKED);
+                    r.mixIn(base);
+                    result.add(r);
+                    if (group != null) {
+                        groups.put(group, r);
+                    }
+                }
                 if (options.getWarmupMode().orElse(Defaults.WARMUP_MODE).isIndi()) {
                     r.add(newAction(br, ActionMode.WARMUP_MEASUREMENT));
                 } else {
                     r.add(newAction(br, ActionMode.MEASUREMENT));
                 }
-                result.add(r);
             }
         }
 
@@ -390,6 +469,28 @@ public class Runner extends BaseRunner {
         return result;
     }
 
+    /**
+     * Benchmarks with the same key run in the same forks. The benchmarks that would
+     * run in the different forked VMs, or with the different number of forks, are never
+     * grouped together.
+     *
+     * @return fork group key; null, if benchmark runs in its own forks
+     */
+    private String forkGroupKey(BenchmarkParams params) {
+        String fork = params.getJvm() + " " + params.getJvmArgs() + " " + params.getForks() + " " + params.getWarmupForks();
+        switch (forkGrouping) {
+            case NONE:
+                return null;
+            case CLASS:
+                String benchmark = params.getBenchmark();
+                return benchmark.substring(0, benchmark.lastIndexOf('.')) + " " + fork;
+            case ALL:
+                return fork;
+            default:
+                throw new IllegalStateException("Unknown fork grouping: " + forkGrouping);
+        }
+    }
+
     private Action newAction(BenchmarkListEntry br, ActionMode mode) {
         return new Action(newBenchmarkParams(br, mode), mode);
     }
@@ -397,20 +498,8 @@ public class Runner extends BaseRunner {
     private BenchmarkParams newBenchmarkParams(BenchmarkListEntry benchmark, ActionMode mode) {
         int[] threadGroups = options.getThreadGroups().orElse(benchmark.getThreadGroups());
 
-        int threads = options.getThreads().orElse(
-                benchmark.getThreads().orElse(
-                        Defaults.THREADS));
-
-        if (threads == Threads.MAX) {
-            if (cpuCount == 0) {
-                out.print("# Detecting actual CPU count: ");
-                cpuCount = Utils.figureOutHotCPUs();
-                out.println(cpuCount + " detected");
-            }
-            threads = cpuCount;
-        }
+        int threads = threadsOf(benchmark, threadGroups);
 
-        threads = Utils.roundUp(threads, Utils.sum(threadGroups));
 
         boolean synchIterations = (benchmark.getMode() != Mode.SingleShotTime) &&
                 options.shouldSyncIterations().orElse(Defaults.SYNC_ITERATIONS);
@@ -439,7 +528,9 @@ public class Runner extends BaseRunner {
                         IterationType.WARMUP,
                         options.getWarmupIterations().orElse(
                                 benchmark.getWarmupIterations().orElse(
-                                        (benchmark.getMode() == Mode.SingleShotTime) ? Defaults.WARMUP_ITERATIONS_SINGLESHOT : Defaults.WARMUP_ITERATIONS
+                                        (benchmark.getMode() == Mode.SingleShotTime) ? Defaults.WARMUP_ITERATIONS_SINGLESHOT :
+                                                options.shouldDetectWarmup().orElse(Defaults.DETECT_WARMUP) ? Defaults.WARMUP_ITERATIONS_DETECT :
+                                                        Defaults.WARMUP_ITERATIONS
                                 )),
                         options.getWarmupTime().orElse(
                                 benchmark.getWarmupTime().orElse(
@@ -469,6 +560,12 @@ public class Runner extends BaseRunner {
                 benchmark.getOperationsPerInvocation().orElse(
                         Defaults.OPS_PER_INVOCATION));
 
+        int rate = (benchmark.getMode() == Mode.RateLimited) ?
+                options.getRate().orElse(
+                        benchmark.getRate().orElse(
+                                Defaults.RATE)) :
+                0;
+
         String jvm = options.getJvm().orElse(
                 benchmark.getJvm().orElse(Utils.getCurrentJvm()));
 
@@ -479,6 +576,50 @@ public class Runner extends BaseRunner {
             targetProperties = Utils.readPropertiesFromCommand(getPrintPropertiesCommand(jvm));
         }
 
+        Collection<String> jvmArgs = jvmArgsOf(benchmark);
+
+        TimeValue timeout = options.getTimeout().orElse(
+                benchmark.getTimeout().orElse(Defaults.TIMEOUT));
+
+        String jdkVersion = targetProperties.getProperty("java.version");
+        String vmVersion = targetProperties.getProperty("java.vm.version");
+        String vmName = targetProperties.getProperty("java.vm.name");
+        return new BenchmarkParams(benchmark.getUsername(), benchmark.generatedTarget(), synchIterations,
+                threads, threadGroups, benchmark.getThreadGroupLabels().orElse(Collections.<String>emptyList()),
+                forks, warmupForks,
+                warmup, measurement, benchmark.getMode(), benchmark.getWorkloadParams(), timeUnit, opsPerInvocation,
+                jvm, jvmArgs,
+                jdkVersion, vmName, vmVersion, Version.getPlainVersion(),
+                timeout, (forkScheduler != null) ? forkScheduler.forkCpus() : 0,
+                blackholeMode(jvm, forks), rate);
+    }
+
+    private int threadsOf(BenchmarkListEntry benchmark, int[] threadGroups) {
+        int threads = options.getThreads().orElse(
+                benchmark.getThreads().orElse(
+                        Defaults.THREADS));
+
+        WorkloadParams sweepParams = benchmark.getWorkloadParams();
+        if (options.getThreadsSweep().hasValue() && sweepParams != null && sweepParams.containsKey(Defaults.THREADS_SWEEP_PARAM)) {
+            threads = Integer.parseInt(sweepParams.get(Defaults.THREADS_SWEEP_PARAM));
+        }
+
+        if (threads == Threads.MAX && forkScheduler != null) {
+            // parallel forks only get their own share of CPUs, pinned or not
+            threads = forkScheduler.cpuShare();
+        } else if (threads == Threads.MAX) {
+            if (cpuCount == 0) {
+                out.print("# Detecting actual CPU count: ");
+                cpuCount = Utils.figureOutHotCPUs();
+                out.println(cpuCount + " detected");
+            }
+            threads = cpuCount;
+        }
+
+        return Utils.roundUp(threads, Utils.sum(threadGroups));
+    }
+
+    private Collection<String> jvmArgsOf(BenchmarkListEntry benchmark) {
         Collection<String> jvmArgs = new ArrayList<>();
 
         jvmArgs.addAll(options.getJvmArgsPrepend().orElse(
@@ -497,19 +638,53 @@ public class Runner extends BaseRunner {
         jvmArgs.addAll(options.getJvmArgsAppend().orElse(
                 benchmark.getJvmArgsAppend().orElse(Collections.<String>emptyList())));
 
-        TimeValue timeout = options.getTimeout().orElse(
-                benchmark.getTimeout().orElse(Defaults.TIMEOUT));
+        return jvmArgs;
+    }
 
-        String jdkVersion = targetProperties.getProperty("java.version");
-        String vmVersion = targetProperties.getProperty("java.vm.version");
-        String vmName = targetProperties.getProperty("java.vm.name");
-        return new BenchmarkParams(benchmark.getUsername(), benchmark.generatedTarget(), synchIterations,
-                threads, threadGroups, benchmark.getThreadGroupLabels().orElse(Collections.<String>emptyList()),
-                forks, warmupForks,
-                warmup, measurement, benchmark.getMode(), benchmark.getWorkloadParams(), timeUnit, opsPerInvocation,
-                jvm, jvmArgs,
-                jdkVersion, vmName, vmVersion, Version.getPlainVersion(),
-                timeout);
+    /**
+     * Selects the blackhole mode for the forked VM: compiler blackholes are used
+     * when the VM supports them, unless the mode is requested explicitly. Compiler
+     * blackholes requested explicitly are still checked against the VM.
+     * Non-forked runs never use compiler blackholes, since compiler commands cannot
+     * be changed in the running host VM.
+     */
+    private BlackholeMode blackholeMode(String jvm, int forks) {
+        BlackholeMode requested = BlackholeMode.requested();
+        if (requested != null && !requested.isCompiler()) {
+            return requested;
+        }
+
+        if (forks <= 0) {
+            if (requested != null) {
+                warnCompilerBlackholes("non-forked runs cannot use them");
+            }
+            return BlackholeMode.fallback();
+        }
+
+        if (requested == null && !Boolean.parseBoolean(System.getProperty("jmh.blackhole.autoDetect", "true"))) {
+            return BlackholeMode.fallback();
+        }
+
+        Boolean supported = compilerBlackholes.get(jvm);
+        if (supported == null) {
+            supported = CompilerHints.isCompilerBlackholeSupported(jvm);
+            compilerBlackholes.put(jvm, supported);
+        }
+        if (!supported) {
+            if (requested != null) {
+                warnCompilerBlackholes(jvm + " does not support them");
+            }
+            return BlackholeMode.fallback();
+        }
+        return BlackholeMode.COMPILER;
+    }
+
+    private void warnCompilerBlackholes(String reason) {
+        if (!compilerBlackholeWarned) {
+            out.println("# WARNING: Compiler blackholes are requested, but " + reason +
+                    ", using " + BlackholeMode.fallback().desc() + " instead.");
+            compilerBlackholeWarned = true;
+        }
     }
 
     private List<WorkloadParams> explodeAllParams(BenchmarkListEntry br) throws RunnerException {
@@ -549,15 +724,172 @@ public class Runner extends BaseRunner {
         return ps;
     }
 
-    private Collection<RunResult> runBenchmarks(SortedSet<BenchmarkListEntry> benchmarks) throws RunnerException {
+    private static String describe(BenchmarkListEntry br) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(br.getUsername()).append(" (").append(br.getMode().shortLabel());
+        WorkloadParams wp = br.getWorkloadParams();
+        if (wp != null) {
+            for (String k : wp.keys()) {
+                sb.append(", ").append(k).append(" = ").append(wp.get(k));
+            }
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    private Collection<RunResult> reusePreviousResults(String file, SortedSet<BenchmarkListEntry> benchmarks) throws RunnerException {
+        Collection<RunResult> stored;
+        try {
+            stored = ResultFormatFactory.readResults(ResultFormatType.JSON, file);
+        } catch (IllegalStateException e) {
+            throw new RunnerException("Can not read the previous results file: " + file, e);
+        }
+
+        // Failed benchmarks have either no results at all, or no usable score
+        Map<String, RunResult> complete = new HashMap<>();
+        for (RunResult rr : stored) {
+            if (!Double.isNaN(rr.getPrimaryResult().getScore())) {
+                complete.put(rr.getParams().id(), rr);
+            }
+        }
+
+        List<RunResult> reused = new ArrayList<>();
+        for (Iterator<BenchmarkListEntry> it = benchmarks.iterator(); it.hasNext(); ) {
+            BenchmarkListEntry br = it.next();
+            RunResult rr = complete.get(idOf(br));
+            if (rr == null) {
+                continue;
+            }
+            String mismatch = previousMismatch(br, rr.getParams());
+            if (mismatch != null) {
+                out.println("# Previous results: not re-using " + describe(br) + ", " + mismatch);
+            } else {
+                out.println("# Previous results: re-using " + describe(br) + " from " + file);
+                reused.add(rr);
+                it.remove();
+            }
+        }
+        if (!reused.isEmpty()) {
+            out.println("");
+        }
+        return reused;
+    }
+
+    /**
+     * Stored results match on benchmark, mode and params only, make sure they were also
+     * measured with the configuration this run would use.
+     *
+     * @return description of the first difference, or null if the stored result can be re-used
+     */
+    private String previousMismatch(BenchmarkListEntry br, BenchmarkParams stored) {
+        int[] threadGroups = options.getThreadGroups().orElse(br.getThreadGroups());
+        if ((threadGroups.length > 1 || stored.getThreadGroups().length > 1) &&
+                !Arrays.equals(threadGroups, stored.getThreadGroups())) {
+            return "thread groups differ: " + Arrays.toString(stored.getThreadGroups()) + " were used, " +
+                    Arrays.toString(threadGroups) + " requested";
+        }
+
+        // Fork scheduler is not set up yet, so Threads.MAX resolves to all CPUs here:
+        // results of parallel forks with max threads are conservatively measured again.
+        int threads = threadsOf(br, threadGroups);
+        if (threads != stored.getThreads()) {
+            return "thread count differs: " + stored.getThreads() + " were used, " + threads + " requested";
+        }
+
+        TimeUnit timeUnit = options.getTimeUnit().orElse(
+                br.getTimeUnit().orElse(
+                        Defaults.OUTPUT_TIMEUNIT));
+        if (timeUnit != stored.getTimeUnit()) {
+            return "time unit differs: " + TimeValue.tuToString(stored.getTimeUnit()) + " was used, " +
+                    TimeValue.tuToString(timeUnit) + " requested";
+        }
+
+        String jvm = options.getJvm().orElse(
+                br.getJvm().orElse(Utils.getCurrentJvm()));
+        if (!jvm.equals(stored.getJvm())) {
+            return "JVM differs: " + stored.getJvm() + " was used, " + jvm + " requested";
+        }
+
+        List<String> jvmArgs = new ArrayList<>(jvmArgsOf(br));
+        if (!jvmArgs.equals(new ArrayList<>(stored.getJvmArgs()))) {
+            return "JVM options differ: " + stored.getJvmArgs() + " were used, " + jvmArgs + " requested";
+        }
+
+        return null;
+    }
+
+    /**
+     * @see BenchmarkParams#id()
+     */
+    private static String idOf(BenchmarkListEntry br) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(br.getUsername()).append("-");
+        sb.append(br.getMode());
+        WorkloadParams wp = br.getWorkloadParams();
+        if (wp != null) {
+            for (String key : wp.keys()) {
+                sb.append("-");
+                sb.append(key).append("-").append(wp.get(key));
+            }
+        }
+        return sb.toString();
+    }
+
+    private StreamingResultFormat newResultStream(String resultFile, Collection<BenchmarkListEntry> benchmarks) {
+        boolean resume = options.shouldResume().orElse(Defaults.RESUME);
+        if (!resume && !options.shouldStreamResults().orElse(Defaults.STREAM_RESULTS)) {
+            return null;
+        }
+
+        ResultFormatType type = options.getResultFormat().orElse(Defaults.RESULT_FORMAT);
+        if (!ResultFormatFactory.isStreamingSupported(type)) {
+            out.println("# WARNING: " + type + " result format cannot be streamed, results would be written at the end of the run.");
+            out.println("");
+            return null;
+        }
+
+        Set<String> paramKeys = new TreeSet<>();
+        for (BenchmarkListEntry br : benchmarks) {
+            WorkloadParams wp = br.getWorkloadParams();
+            if (wp != null) {
+                paramKeys.addAll(wp.keys());
+            }
+        }
+
+        return ResultFormatFactory.getStreamingInstance(type, resultFile, paramKeys, resume);
+    }
+
+    private Collection<RunResult> runBenchmarks(SortedSet<BenchmarkListEntry> benchmarks, StreamingResultFormat stream,
+                                                Collection<RunResult> previous) throws RunnerException {
         out.startRun();
 
         Multimap<BenchmarkParams, BenchmarkResult> results = new TreeMultimap<>();
+
+        forkScheduler = newForkScheduler();
+        forkPool = newWarmForkPool();
+        forkGrouping = newForkGrouping();
+
+        if (useCDSArchive()) {
+            out.println("# CDS archives: " + cdsArchives.getDir());
+            out.println("");
+        }
+
+        try {
+            snapshotDir = StateSnapshots.createRunDir();
+        } catch (IOException e) {
+            out.println("# WARNING: Cannot create the directory for state snapshots, states would be set up in each fork: " + e.getMessage());
+            out.println("");
+        }
+
         List<ActionPlan> plan = getActionPlans(benchmarks);
 
         etaBeforeBenchmarks(plan);
 
         try {
+            if (forkScheduler != null) {
+                forkScheduler.setPlans(plan);
+            }
+
             for (ActionPlan r : plan) {
                 Multimap<BenchmarkParams, BenchmarkResult> res;
                 switch (r.getType()) {
@@ -565,7 +897,7 @@ public class Runner extends BaseRunner {
                         res = runBenchmarksEmbedded(r);
                         break;
                     case FORKED:
-                        res = runSeparate(r);
+                        res = (forkScheduler != null) ? forkScheduler.runSeparate(r) : runSeparate(r);
                         break;
                     default:
                         throw new IllegalStateException("Unknown action plan type: " + r.getType());
@@ -573,16 +905,193 @@ public class Runner extends BaseRunner {
 
                 for (BenchmarkParams br : res.keys()) {
                     results.putAll(br, res.get(br));
+                    if (stream != null && !res.get(br).isEmpty()) {
+                        stream.append(new RunResult(br, res.get(br)));
+                    }
                 }
             }
 
             etaAfterBenchmarks();
 
             SortedSet<RunResult> runResults = mergeRunResults(results);
+            runResults.addAll(previous);
+            if (options.getThreadsSweep().hasValue()) {
+                addScalabilityFits(runResults);
+            }
             out.endRun(runResults);
             return runResults;
         } catch (BenchmarkException be) {
             throw new RunnerException("Benchmark caught the exception", be);
+        } finally {
+            if (forkScheduler != null) {
+                forkScheduler.shutdown();
+                forkScheduler = null;
+            }
+            if (forkPool != null) {
+                forkPool.shutdown();
+                forkPool = null;
+            }
+            if (snapshotDir != null) {
+                StateSnapshots.deleteRunDir(snapshotDir);
+                snapshotDir = null;
+            }
+        }
+    }
+
+    private ForkScheduler newForkScheduler() {
+        int parallelForks = options.getParallelForks().orElse(Defaults.PARALLEL_FORKS);
+        if (parallelForks <= 1) {
+            return null;
+        }
+
+        if (!ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+            out.println("# WARNING: External profilers require forks to run one after another, ignoring parallel forks.");
+            out.println("");
+            return null;
+        }
+
+        List<Integer> cpus = CpuAffinity.allowedCpus();
+        List<List<Integer>> slots = CpuAffinity.partition(cpus, parallelForks);
+        String tool = CpuAffinity.detectTool(cpus);
+
+        if (slots.isEmpty()) {
+            out.println("# WARNING: Not enough CPUs (" + cpus.size() + ") to pin " + parallelForks + " parallel forks, forks would not be pinned.");
+            tool = null;
+        } else if (tool == null) {
+            out.println("# WARNING: Neither " + CpuAffinity.TASKSET + " nor " + CpuAffinity.NUMACTL + " is usable, parallel forks would not be pinned.");
+        }
+
+        int cpuShare;
+        if (tool == null) {
+            slots = new ArrayList<>();
+            for (int c = 0; c < parallelForks; c++) {
+                slots.add(Collections.<Integer>emptyList());
+            }
+            // Unpinned forks still compete for the same CPUs, give each its share
+            cpuShare = Math.max(1, cpus.size() / parallelForks);
+            out.println("# Parallel forks: " + parallelForks + ", not pinned, " + cpuShare + " CPU(s) per fork are assumed for max threads");
+        } else {
+            cpuShare = slots.get(0).size();
+            List<String> sets = new ArrayList<>();
+            for (List<Integer> slot : slots) {
+                sets.add(CpuAffinity.formatList(slot));
+            }
+            out.println("# Parallel forks: " + parallelForks + ", pinned with " + tool + " to CPU sets: " + Utils.join(sets, " "));
+        }
+        out.println("");
+
+        return new ForkScheduler(tool, slots, cpuShare);
+    }
+
+    private WarmForkPool newWarmForkPool() {
+        int warmForks = options.getWarmForks().orElse(Defaults.WARM_FORKS);
+        if (warmForks <= 0) {
+            return null;
+        }
+
+        if (forkScheduler != null) {
+            out.println("# WARNING: Parallel forks are launched on demand, ignoring warm forks.");
+            out.println("");
+            return null;
+        }
+
+        if (!ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+            out.println("# WARNING: External profilers need to prepare before the forked VM is launched, ignoring warm forks.");
+            out.println("");
+            return null;
+        }
+
+        out.println("# Warm forks: " + warmForks + " idle VM(s) are pre-launched while the forks run");
+        out.println("");
+
+        return new WarmForkPool(options, out, warmForks);
+    }
+
+    private ForkGrouping newForkGrouping() {
+        ForkGrouping grouping = options.getForkGrouping().orElse(Defaults.FORK_GROUPING);
+        if (grouping == ForkGrouping.NONE) {
+            return grouping;
+        }
+
+        if (forkScheduler != null) {
+            out.println("# WARNING: Parallel forks run one benchmark each, ignoring fork grouping.");
+            out.println("");
+            return ForkGrouping.NONE;
+        }
+
+        if (!ProfilerFactory.getSupportedExternal(options.getProfilers()).isEmpty()) {
+            out.println("# WARNING: External profilers attribute the whole fork to one benchmark, ignoring fork grouping.");
+            out.println("");
+            return ForkGrouping.NONE;
+        }
+
+        out.println("# Fork grouping: " + grouping + ", benchmarks in the same group share the forked VMs and @State(Scope.Benchmark) objects");
+        out.println("");
+
+        return grouping;
+    }
+
+    /**
+     * Fits the Universal Scalability Law model to each thread sweep, and reports the model
+     * with the secondary results of the sweep point with the most threads.
+     */
+    private void addScalabilityFits(Collection<RunResult> runResults) {
+        Map<String, List<RunResult>> sweeps = new TreeMap<>();
+        for (RunResult rr : runResults) {
+            BenchmarkParams params = rr.getParams();
+            if (params.getMode() != Mode.Throughput && params.getMode() != Mode.AverageTime) {
+                continue;
+            }
+            if (rr.getBenchmarkResults().isEmpty() || !params.getParamsKeys().contains(Defaults.THREADS_SWEEP_PARAM)) {
+                continue;
+            }
+
+            StringBuilder key = new StringBuilder();
+            key.append(params.getBenchmark()).append("-").append(params.getMode());
+            for (String k : params.getParamsKeys()) {
+                if (!k.equals(Defaults.THREADS_SWEEP_PARAM)) {
+                    key.append("-").append(k).append("-").append(params.getParam(k));
+                }
+            }
+
+            List<RunResult> sweep = sweeps.get(key.toString());
+            if (sweep == null) {
+                sweep = new ArrayList<>();
+                sweeps.put(key.toString(), sweep);
+            }
+            sweep.add(rr);
+        }
+
+        for (List<RunResult> sweep : sweeps.values()) {
+            Map<Integer, Double> throughputs = new TreeMap<>();
+            RunResult last = null;
+            for (RunResult rr : sweep) {
+                int threads = rr.getParams().getThreads();
+                double score = rr.getPrimaryResult().getScore();
+
+                // average time is per thread, convert it to the total throughput
+                double x = (rr.getParams().getMode() == Mode.AverageTime) ? threads / score : score;
+                throughputs.put(threads, x);
+
+                if (last == null || last.getParams().getThreads() < threads) {
+                    last = rr;
+                }
+            }
+
+            ScalabilityLaw usl = ScalabilityLaw.fit(throughputs);
+            if (usl == null) {
+                continue;
+            }
+
+            String unit = "ops/" + TimeValue.tuToString(last.getParams().getTimeUnit());
+            String prefix = org.openjdk.jmh.results.Defaults.PREFIX;
+            BenchmarkResult br = last.getBenchmarkResults().iterator().next();
+            br.addBenchmarkResult(new ScalarResult(prefix + "usl.contention", usl.getContention(), "#", AggregationPolicy.AVG));
+            br.addBenchmarkResult(new ScalarResult(prefix + "usl.coherency", usl.getCoherency(), "#", AggregationPolicy.AVG));
+            if (!Double.isInfinite(usl.getPeakThreads())) {
+                br.addBenchmarkResult(new ScalarResult(prefix + "usl.peak.threads", usl.getPeakThreads(), "threads", AggregationPolicy.AVG));
+                br.addBenchmarkResult(new ScalarResult(prefix + "usl.peak.thrpt", usl.getPeakThroughput(), unit, AggregationPolicy.AVG));
+            }
         }
     }
 
@@ -597,8 +1106,13 @@ public class Runner extends BaseRunner {
     private Multimap<BenchmarkParams, BenchmarkResult> runSeparate(ActionPlan actionPlan) {
         Multimap<BenchmarkParams, BenchmarkResult> results = new HashMultimap<>();
 
-        if (actionPlan.getMeasurementActions().size() != 1) {
-            throw new IllegalStateException("Expect only single benchmark in the action plan, but was " + actionPlan.getMeasurementActions().size());
+        // Fork group runs several benchmarks in the same forks; all of them share the fork settings.
+        List<BenchmarkParams> benchmarks = new ArrayList<>();
+        for (Action action : actionPlan.getMeasurementActions()) {
+            benchmarks.add(action.getParams());
+        }
+        if (benchmarks.isEmpty()) {
+            throw new IllegalStateException("Expect at least one benchmark in the action plan");
         }
 
         BinaryLinkServer server = null;
@@ -607,7 +1121,8 @@ public class Runner extends BaseRunner {
 
             server.setPlan(actionPlan);
 
-            BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+            BenchmarkParams params = benchmarks.get(0);
+            boolean grouped = benchmarks.size() > 1;
 
             List<ExternalProfiler> profilers = ProfilerFactory.getSupportedExternal(options.getProfilers());
 
@@ -625,84 +1140,125 @@ public class Runner extends BaseRunner {
             printOut = forcePrint || printOut;
             printErr = forcePrint || printErr;
 
-            out.startBenchmark(params);
+            if (grouped) {
+                // forked VM announces each benchmark as it starts
+                out.println("# Fork group: " + benchmarks.size() + " benchmarks run one after another in the same forks");
+            } else {
+                out.startBenchmark(params);
+            }
             out.println("");
 
             int forkCount = params.getForks();
             int warmupForkCount = params.getWarmupForks();
             int totalForks = warmupForkCount + forkCount;
 
-            for (int i = 0; i < totalForks; i++) {
+            // The CDS archive is dumped by the fork which results are discarded: the first
+            // warmup fork, or the extra one, if there are no warmup forks. The extra fork
+            // only loads the benchmarks, and runs no iterations.
+            List<String> cdsDumpString = null;
+            if (useCDSArchive()) {
+                List<String> cmd = getForkedMainCommand(params, profilers, server.getHost(), server.getPort(),
+                        Collections.<String>emptyList(), true);
+                if (CDSArchives.isDumping(cmd)) {
+                    cdsDumpString = cmd;
+                }
+            }
+            int cdsForkCount = (cdsDumpString != null && warmupForkCount == 0) ? 1 : 0;
+            if (cdsForkCount > 0) {
+                server.setPlan(loadPlan(actionPlan));
+            }
+
+            for (int i = -cdsForkCount; i < totalForks; i++) {
                 boolean warmupFork = (i < warmupForkCount);
-                List<String> forkedString  = getForkedMainCommand(params, profilers, server.getHost(), server.getPort());
+                List<String> forkedString = (cdsDumpString != null && i == -cdsForkCount) ?
+                        cdsDumpString :
+                        getForkedMainCommand(params, profilers, server.getHost(), server.getPort());
+                if (i == 0 && cdsForkCount > 0) {
+                    server.setPlan(actionPlan);
+                }
+
+                // pick up the pre-launched VM, if there is one, and hand it the plan
+                WarmForkPool.WarmFork warm = (forkPool != null) ? forkPool.acquire(forkedString) : null;
+                BinaryLinkServer link = server;
+                if (warm != null) {
+                    link = warm.server();
+                    forkedString = warm.command();
+                }
 
                 etaBeforeBenchmark();
 
-                if (warmupFork) {
-                    out.verbosePrintln("Warmup forking using command: " + forkedString);
-                    out.println("# Warmup Fork: " + (i + 1) + " of " + warmupForkCount);
-                } else {
-                    out.verbosePrintln("Forking using command: " + forkedString);
-                    out.println("# Fork: " + (i + 1 - warmupForkCount) + " of " + forkCount);
-                }
+                printForkHeader(out, forkedString, i, warmupForkCount, forkCount);
 
-                TempFile stdErr = FileUtils.weakTempFile("stderr");
-                TempFile stdOut = FileUtils.weakTempFile("stdout");
+                List<BenchmarkResult> brs;
+                try {
+                    if (warm != null) {
+                        link.setPlan(actionPlan);
+                    }
 
-                if (!profilers.isEmpty()) {
-                    out.print("# Preparing profilers: ");
-                    for (ExternalProfiler profiler : profilers) {
-                        out.print(profiler.getClass().getSimpleName() + " ");
-                        profiler.beforeTrial(params);
+                    // pre-launch the VMs for the next forks, while this one runs;
+                    // the fork that dumps the CDS archive changes the command line for the next ones
+                    if (forkPool != null && !CDSArchives.isDumping(forkedString)) {
+                        forkPool.replenish(forkedString);
                     }
-                    out.println("");
 
-                    List<String> consumed = new ArrayList<>();
-                    if (!printOut) consumed.add("stdout");
-                    if (!printErr) consumed.add("stderr");
-                    if (!consumed.isEmpty()) {
-                        out.println("# Profilers consume " + Utils.join(consumed, " and ") + " from target VM, use -v " + VerboseMode.EXTRA + " to copy to console");
+                    brs = runFork(link, (warm != null) ? warm.process() : null, benchmarks, forkedString,
+                            profilers, profilersRev, printOut, printErr, out);
+                } finally {
+                    if (warm != null) {
+                        warm.server().terminate();
                     }
                 }
 
-                long startTime = System.currentTimeMillis();
-
-                List<IterationResult> result = doFork(server, forkedString, stdOut.file(), stdErr.file(), printOut, printErr);
-                if (!result.isEmpty()) {
-                    long pid = server.getClientPid();
-
-                    BenchmarkResultMetaData md = server.getMetadata();
-                    if (md != null) {
-                        md.adjustStart(startTime);
+                if (!warmupFork) {
+                    for (BenchmarkResult br : brs) {
+                        results.put(br.getParams(), br);
                     }
+                }
 
-                    BenchmarkResult br = new BenchmarkResult(params, result, md);
+                if (i >= 0) {
+                    for (BenchmarkParams bp : benchmarks) {
+                        etaAfterBenchmark(bp);
+                    }
+                }
 
-                    if (!profilersRev.isEmpty()) {
-                        out.print("# Processing profiler results: ");
-                        for (ExternalProfiler profiler : profilersRev) {
-                            out.print(profiler.getClass().getSimpleName() + " ");
-                            for (Result profR : profiler.afterTrial(br, pid, stdOut.file(), stdErr.file())) {
-                                br.addBenchmarkResult(profR);
+                // skip the remaining forks only when all benchmarks in the group had converged
+                Optional<Double> targetError = options.getTargetError();
+                if (targetError.hasValue() && i < totalForks - 1) {
+                    List<Result> converged = new ArrayList<>();
+                    for (BenchmarkParams bp : benchmarks) {
+                        Collection<BenchmarkResult> measured = results.get(bp);
+                        if (measured.size() < ADAPTIVE_MIN_FORKS) {
+                            break;
+                        }
+                        Result r = new RunResult(bp, measured).getPrimaryResult();
+                        if (!isConverged(r, targetError.get())) {
+                            break;
+                        }
+                        converged.add(r);
+                    }
+                    if (converged.size() == benchmarks.size()) {
+                        int skipped = totalForks - 1 - i;
+                        if (grouped) {
+                            out.println(String.format("# Score errors converged for all %d benchmarks, skipping the remaining %d fork(s)", benchmarks.size(), skipped));
+                        } else {
+                            out.println(String.format("# Score error converged: %s, skipping the remaining %d fork(s)", formatError(converged.get(0)), skipped));
+                        }
+                        for (int c = 0; c < skipped; c++) {
+                            for (BenchmarkParams bp : benchmarks) {
+                                etaAfterBenchmark(bp);
                             }
                         }
                         out.println("");
-                    }
-
-                    if (!warmupFork) {
-                        results.put(params, br);
+                        break;
                     }
                 }
 
-                etaAfterBenchmark(params);
                 out.println("");
-
-                // we know these are not needed anymore, proactively delete
-                stdOut.delete();
-                stdErr.delete();
             }
 
-            out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
+            for (BenchmarkParams bp : benchmarks) {
+                out.endBenchmark(new RunResult(bp, results.get(bp)).getAggregatedResult());
+            }
 
         } catch (IOException e) {
             results.clear();
@@ -723,12 +1279,127 @@ public class Runner extends BaseRunner {
         return results;
     }
 
-    private List<IterationResult> doFork(BinaryLinkServer reader, List<String> commandString,
-                                                              File stdOut, File stdErr, boolean printOut, boolean printErr) {
+    /**
+     * @return the plan that loads the same benchmarks, and runs no iterations
+     */
+    static ActionPlan loadPlan(ActionPlan actionPlan) {
+        ActionPlan plan = new ActionPlan(actionPlan.getType());
+        for (Action action : actionPlan.getActions()) {
+            plan.add(new Action(action.getParams(), ActionMode.LOAD));
+        }
+        return plan;
+    }
+
+    private void printForkHeader(OutputFormat out, List<String> forkedString, int fork, int warmupForkCount, int forkCount) {
+        if (fork < 0) {
+            out.verbosePrintln("CDS archive dump forking using command: " + forkedString);
+            out.println("# CDS Archive Dump Fork: loads the benchmarks, runs no iterations");
+        } else if (fork < warmupForkCount) {
+            out.verbosePrintln("Warmup forking using command: " + forkedString);
+            out.println("# Warmup Fork: " + (fork + 1) + " of " + warmupForkCount);
+        } else {
+            out.verbosePrintln("Forking using command: " + forkedString);
+            out.println("# Fork: " + (fork + 1 - warmupForkCount) + " of " + forkCount);
+        }
+    }
+
+    /**
+     * Runs a single fork. The fork runs all the given benchmarks one after another,
+     * the results are then split back per benchmark.
+     *
+     * @return results for the benchmarks that had completed
+     */
+    private List<BenchmarkResult> runFork(BinaryLinkServer server, Process warmProcess, List<BenchmarkParams> benchmarks, List<String> forkedString,
+                                          List<ExternalProfiler> profilers, List<ExternalProfiler> profilersRev,
+                                          boolean printOut, boolean printErr, OutputFormat out) throws IOException {
+        TempFile stdErr = FileUtils.weakTempFile("stderr");
+        TempFile stdOut = FileUtils.weakTempFile("stdout");
+
+        if (!profilers.isEmpty()) {
+            out.print("# Preparing profilers: ");
+            for (ExternalProfiler profiler : profilers) {
+                out.print(profiler.getClass().getSimpleName() + " ");
+                for (BenchmarkParams params : benchmarks) {
+                    profiler.beforeTrial(params);
+                }
+            }
+            out.println("");
+
+            List<String> consumed = new ArrayList<>();
+            if (!printOut) consumed.add("stdout");
+            if (!printErr) consumed.add("stderr");
+            if (!consumed.isEmpty()) {
+                out.println("# Profilers consume " + Utils.join(consumed, " and ") + " from target VM, use -v " + VerboseMode.EXTRA + " to copy to console");
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        List<BenchmarkResult> brs = new ArrayList<>();
+        List<IterationResult> result;
+        try {
+            result = doFork(server, warmProcess, forkedString, stdOut.file(), stdErr.file(), printOut, printErr, out);
+        } finally {
+            cdsArchives.afterFork(forkedString);
+        }
+        if (!result.isEmpty()) {
+            long pid = server.getClientPid();
+
+            Map<BenchmarkParams, BenchmarkResultMetaData> mds = server.getMetadata();
+
+            for (BenchmarkParams params : benchmarks) {
+                List<IterationResult> res = new ArrayList<>();
+                for (IterationResult ir : result) {
+                    if (params.equals(ir.getBenchmarkParams())) {
+                        res.add(ir);
+                    }
+                }
+                if (res.isEmpty()) {
+                    // benchmark had failed, and the fork went on with the others
+                    continue;
+                }
+
+                BenchmarkResultMetaData md = mds.get(params);
+                if (md != null) {
+                    md.adjustStart(startTime);
+                }
+
+                BenchmarkResult br = new BenchmarkResult(params, res, md);
+
+                if (!profilersRev.isEmpty()) {
+                    out.print("# Processing profiler results: ");
+                    for (ExternalProfiler profiler : profilersRev) {
+                        out.print(profiler.getClass().getSimpleName() + " ");
+                        for (Result profR : profiler.afterTrial(br, pid, stdOut.file(), stdErr.file())) {
+                            br.addBenchmarkResult(profR);
+                        }
+                    }
+                    out.println("");
+                }
+
+                brs.add(br);
+            }
+        }
+
+        // we know these are not needed anymore, proactively delete
+        stdOut.delete();
+        stdErr.delete();
+
+        return brs;
+    }
+
+    private List<IterationResult> doFork(BinaryLinkServer reader, Process warmProcess, List<String> commandString,
+                                         File stdOut, File stdErr, boolean printOut, boolean printErr,
+                                         OutputFormat out) {
+        Process p = null;
         try (FileOutputStream fosErr = new FileOutputStream(stdErr);
              FileOutputStream fosOut = new FileOutputStream(stdOut)) {
-            ProcessBuilder pb = new ProcessBuilder(commandString);
-            Process p = pb.start();
+            if (warmProcess != null) {
+                p = warmProcess;
+            } else {
+                ProcessBuilder pb = new ProcessBuilder(commandString);
+                p = pb.start();
+            }
 
             // drain streams, else we might lock up
             InputStreamDrainer errDrainer = new InputStreamDrainer(p.getErrorStream(), fosErr);
@@ -786,6 +1457,9 @@ public class Runner extends BaseRunner {
             out.println("");
             throw new BenchmarkException(ex);
         } catch (InterruptedException ex) {
+            if (p != null) {
+                p.destroy();
+            }
             out.println("<host VM has been interrupted waiting for forked VM: " + ex.getMessage() + ">");
             out.println("");
             throw new BenchmarkException(ex);
@@ -798,6 +1472,30 @@ public class Runner extends BaseRunner {
      * @return
      */
     List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers, String host, int port) {
+        return getForkedMainCommand(benchmark, profilers, host, port, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param host host VM host
+     * @param port host VM port
+     * @param affinity command prefix that pins the forked VM to its CPUs, if any
+     * @return
+     */
+    List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers, String host, int port,
+                                      List<String> affinity) {
+        return getForkedMainCommand(benchmark, profilers, host, port, affinity, false);
+    }
+
+    /**
+     * @param host host VM host
+     * @param port host VM port
+     * @param affinity command prefix that pins the forked VM to its CPUs, if any
+     * @param cdsDump true, if the forked VM should dump the CDS archive, when there is none yet;
+     *                the results of such VM should be discarded
+     * @return
+     */
+    List<String> getForkedMainCommand(BenchmarkParams benchmark, List<ExternalProfiler> profilers, String host, int port,
+                                      List<String> affinity, boolean cdsDump) {
         // Poll profilers for options
         List<String> javaInvokeOptions = new ArrayList<>();
         List<String> javaOptions = new ArrayList<>();
@@ -808,12 +1506,28 @@ public class Runner extends BaseRunner {
 
         List<String> command = new ArrayList<>();
 
+        // pin to the CPU set, if requested
+        command.addAll(affinity);
+
         // prefix java invoke options, if any profiler wants it
         command.addAll(javaInvokeOptions);
 
         // use supplied jvm, if given
         command.add(benchmark.getJvm());
 
+        // share or dump the CDS archive, if requested; supplied jvm args go after, and take precedence
+        if (useCDSArchive()) {
+            String classpath = System.getProperty("java.class.path");
+            command.addAll(cdsDump ?
+                    cdsArchives.dumpOptions(benchmark.getJvm(), benchmark.getJvmArgs(), classpath) :
+                    cdsArchives.options(benchmark.getJvm(), benchmark.getJvmArgs(), classpath));
+        }
+
+        // share the state snapshots within the run
+        if (snapshotDir != null) {
+            command.add("-D" + StateSnapshots.RUN_DIR_PROPERTY + "=" + snapshotDir.getAbsolutePath());
+        }
+
         // use supplied jvm args, if given
         command.addAll(benchmark.getJvmArgs());
 
@@ -821,7 +1535,7 @@ public class Runner extends BaseRunner {
         command.addAll(javaOptions);
 
         // add any compiler oracle hints
-        CompilerHints.addCompilerHints(command);
+        CompilerHints.addCompilerHints(command, benchmark.getBlackholeMode());
 
         // assemble final process command
         addClasspath(command);
@@ -851,12 +1565,15 @@ public class Runner extends BaseRunner {
         return command;
     }
 
-    private void addClasspath(List<String> command) {
-        command.add("-cp");
-
-        String cpProp = System.getProperty("java.class.path");
-        File tmpFile = null;
+    /**
+     * Forked VMs share CDS archive only when they have the same classpath, which is
+     * not the case for the classpath JARs generated anew for every fork.
+     */
+    private boolean useCDSArchive() {
+        return options.shouldUseCDSArchive().orElse(Defaults.CDS_ARCHIVE) && !separateClasspathJAR();
+    }
 
+    private boolean separateClasspathJAR() {
         String jvmargs = ""
                 + options.getJvmArgs().orElse(Collections.<String>emptyList())
                 + options.getJvmArgsPrepend().orElse(Collections.<String>emptyList())
@@ -866,8 +1583,17 @@ public class Runner extends BaseRunner {
         // the options properly. Looking at you, JMH Gradle plugin. In this case, we explicitly
         // check if the option is provided by the user.
 
-        if (Boolean.getBoolean("jmh.separateClasspathJAR")
-                || jvmargs.contains("jmh.separateClasspathJAR=true")) {
+        return Boolean.getBoolean("jmh.separateClasspathJAR")
+                || jvmargs.contains("jmh.separateClasspathJAR=true");
+    }
+
+    private void addClasspath(List<String> command) {
+        command.add("-cp");
+
+        String cpProp = System.getProperty("java.class.path");
+        File tmpFile = null;
+
+        if (separateClasspathJAR()) {
 
             // Classpath can be too long and overflow the command line length.
             // Looking at you, Windows.
@@ -921,4 +1647,232 @@ public class Runner extends BaseRunner {
         }
     }
 
+    /**
+     * Runs the forks concurrently, each fork in its own VM, pinned to its own CPU set,
+     * and talking back to its own link server. The output of every fork is captured,
+     * and replayed in plan order, so that the human-readable log stays the same as
+     * if forks were executed one after another.
+     */
+    private class ForkScheduler {
+        private final String tool;
+        private final int forkCpus;
+        private final int cpuShare;
+        private final BlockingQueue<List<Integer>> slots;
+        private final ReadWriteLock exclusive;
+        private final ExecutorService executor;
+        private final Map<ActionPlan, List<Future<ForkOutcome>>> submitted;
+        private List<ActionPlan> plans;
+
+        ForkScheduler(String tool, List<List<Integer>> slots, int cpuShare) {
+            this.tool = tool;
+            this.forkCpus = (tool == null) ? 0 : slots.get(0).size();
+            this.cpuShare = cpuShare;
+            this.slots = new LinkedBlockingQueue<>(slots);
+            this.exclusive = new ReentrantReadWriteLock(true);
+            this.executor = Executors.newFixedThreadPool(slots.size(), new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "jmh-fork-scheduler-" + (count++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            this.submitted = new IdentityHashMap<>();
+        }
+
+        int forkCpus() {
+            return forkCpus;
+        }
+
+        int cpuShare() {
+            return cpuShare;
+        }
+
+        void setPlans(List<ActionPlan> plans) {
+            this.plans = plans;
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        /**
+         * Submits all forks of the given forked plan, and all forked plans right after it.
+         * Submission stops at the first embedded plan, which should not run while forks
+         * are still busy.
+         */
+        private void submitFrom(ActionPlan actionPlan) {
+            if (submitted.containsKey(actionPlan)) {
+                return;
+            }
+            for (int p = plans.indexOf(actionPlan); p < plans.size(); p++) {
+                ActionPlan plan = plans.get(p);
+                if (plan.getType() != ActionType.FORKED) {
+                    break;
+                }
+
+                if (plan.getMeasurementActions().size() != 1) {
+                    throw new IllegalStateException("Expect only single benchmark in the action plan, but was " + plan.getMeasurementActions().size());
+                }
+
+                BenchmarkParams params = plan.getMeasurementActions().get(0).getParams();
+                AtomicBoolean failed = new AtomicBoolean();
+                List<Future<ForkOutcome>> forks = new ArrayList<>();
+                for (int i = 0; i < params.getWarmupForks() + params.getForks(); i++) {
+                    forks.add(executor.submit(new ForkTask(plan, params, i, failed)));
+                }
+                submitted.put(plan, forks);
+            }
+        }
+
+        Multimap<BenchmarkParams, BenchmarkResult> runSeparate(ActionPlan actionPlan) {
+            Multimap<BenchmarkParams, BenchmarkResult> results = new HashMultimap<>();
+
+            submitFrom(actionPlan);
+
+            BenchmarkParams params = actionPlan.getMeasurementActions().get(0).getParams();
+            List<Future<ForkOutcome>> forks = submitted.remove(actionPlan);
+
+            try {
+                out.startBenchmark(params);
+                out.println("");
+
+                for (int i = 0; i < forks.size(); i++) {
+                    boolean warmupFork = (i < params.getWarmupForks());
+
+                    etaBeforeBenchmark();
+
+                    ForkOutcome outcome = await(forks.get(i));
+
+                    outcome.output.replay(out);
+                    if (outcome.ioException != null) {
+                        throw outcome.ioException;
+                    }
+                    if (outcome.exception != null) {
+                        throw outcome.exception;
+                    }
+                    if (outcome.result != null && !warmupFork) {
+                        results.put(params, outcome.result);
+                    }
+
+                    etaAfterBenchmark(params);
+                    out.println("");
+                }
+
+                out.endBenchmark(new RunResult(params, results.get(params)).getAggregatedResult());
+
+            } catch (IOException e) {
+                results.clear();
+                throw new BenchmarkException(e);
+            } catch (BenchmarkException e) {
+                results.clear();
+                if (options.shouldFailOnError().orElse(Defaults.FAIL_ON_ERROR)) {
+                    out.println("Benchmark had encountered error, and fail on error was requested");
+                    throw e;
+                }
+            } finally {
+                FileUtils.purgeTemps();
+            }
+
+            return results;
+        }
+
+        private ForkOutcome await(Future<ForkOutcome> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                throw new BenchmarkException(e);
+            } catch (ExecutionException e) {
+                throw new BenchmarkException(e.getCause());
+            }
+        }
+
+        private class ForkTask implements Callable<ForkOutcome> {
+            private final ActionPlan actionPlan;
+            private final BenchmarkParams params;
+            private final int fork;
+            private final AtomicBoolean failed;
+
+            ForkTask(ActionPlan actionPlan, BenchmarkParams params, int fork, AtomicBoolean failed) {
+                this.actionPlan = actionPlan;
+                this.params = params;
+                this.fork = fork;
+                this.failed = failed;
+            }
+
+            @Override
+            public ForkOutcome call() {
+                DeferredOutputFormat output = new DeferredOutputFormat();
+
+                // Warmup forks run alone, without measurement forks running next to them.
+                // The lock is fair, and forks acquire it in submission order.
+                boolean warmupFork = (fork < params.getWarmupForks());
+                Lock lock = warmupFork ? exclusive.writeLock() : exclusive.readLock();
+
+                List<Integer> slot;
+                try {
+                    lock.lockInterruptibly();
+                } catch (InterruptedException e) {
+                    return new ForkOutcome(output, null, new BenchmarkException(e), null);
+                }
+                try {
+                    slot = slots.take();
+                } catch (InterruptedException e) {
+                    lock.unlock();
+                    return new ForkOutcome(output, null, new BenchmarkException(e), null);
+                }
+
+                BinaryLinkServer server = null;
+                try {
+                    if (failed.get()) {
+                        // one of the previous forks had failed, the results would be discarded anyway
+                        return new ForkOutcome(output, null, null, null);
+                    }
+
+                    server = new BinaryLinkServer(options, output, true);
+                    server.setPlan(actionPlan);
+
+                    // the first warmup fork runs alone, and may dump the CDS archive for the forks after it
+                    List<String> forkedString = getForkedMainCommand(params, Collections.<ExternalProfiler>emptyList(),
+                            server.getHost(), server.getPort(), CpuAffinity.pinningPrefix(tool, slot), fork == 0 && warmupFork);
+
+                    printForkHeader(output, forkedString, fork, params.getWarmupForks(), params.getForks());
+
+                    List<BenchmarkResult> brs = runFork(server, null, Collections.singletonList(params), forkedString,
+                            Collections.<ExternalProfiler>emptyList(), Collections.<ExternalProfiler>emptyList(),
+                            true, true, output);
+                    return new ForkOutcome(output, brs.isEmpty() ? null : brs.get(0), null, null);
+                } catch (IOException e) {
+                    failed.set(true);
+                    return new ForkOutcome(output, null, null, e);
+                } catch (BenchmarkException e) {
+                    failed.set(true);
+                    return new ForkOutcome(output, null, e, null);
+                } finally {
+                    if (server != null) {
+                        server.terminate();
+                    }
+                    slots.add(slot);
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static class ForkOutcome {
+        private final DeferredOutputFormat output;
+        private final BenchmarkResult result;
+        private final BenchmarkException exception;
+        private final IOException ioException;
+
+        ForkOutcome(DeferredOutputFormat output, BenchmarkResult result, BenchmarkException exception, IOException ioException) {
+            this.output = output;
+            this.result = result;
+            this.exception = exception;
+            this.ioException = ioException;
+        }
+    }
+
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps {@link org.openjdk.jmh.annotations.Scope#Benchmark} state objects alive between
+ * the benchmarks that run in the same forked VM. The generated code publishes every state
+ * it had set up at trial level, along with the generated method that tears it down. The next
+ * benchmark that needs the state of the same type, with the same parameters, picks up the
+ * published instance instead of creating and setting up another one. All published states are
+ * torn down when the forked VM is done with all benchmarks.
+ *
+ * <p>The registry is disabled by default, and the generated code then behaves as if it is
+ * not there.
+ */
+class SharedTrialStates {
+
+    private static boolean enabled;
+    private static final Map<String, Entry> STATES = new LinkedHashMap<>();
+
+    private SharedTrialStates() {
+        // prevent instantiation
+    }
+
+    static synchronized void enable() {
+        enabled = true;
+    }
+
+    static synchronized Object get(BenchmarkParams params, String type, String[] paramNames) {
+        if (!enabled) {
+            return null;
+        }
+        Entry e = STATES.get(key(params, type, paramNames));
+        return (e != null) ? e.state : null;
+    }
+
+    static synchronized void put(BenchmarkParams params, String type, String[] paramNames,
+                                 Object state, Object owner, String tearDown, Object[] args) {
+        if (!enabled) {
+            return;
+        }
+        STATES.put(key(params, type, paramNames), new Entry(state, owner, tearDown, args));
+    }
+
+    static synchronized boolean contains(Object state) {
+        if (!enabled) {
+            return false;
+        }
+        for (Entry e : STATES.values()) {
+            if (e.state == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tears down all published states, in the reverse order of their setup:
+     * the states are published after the states they depend on.
+     *
+     * @return the exceptions thrown by the tear down methods
+     */
+    static synchronized List<Throwable> tearDownAll() {
+        List<Entry> entries = new ArrayList<>(STATES.values());
+        Collections.reverse(entries);
+        STATES.clear();
+
+        List<Throwable> errors = new ArrayList<>();
+        for (Entry e : entries) {
+            if (e.tearDown == null) {
+                continue;
+            }
+            try {
+                findMethod(e.owner.getClass(), e.tearDown).invoke(e.owner, e.args);
+            } catch (InvocationTargetException ex) {
+                errors.add(ex.getCause());
+            } catch (Exception ex) {
+                errors.add(ex);
+            }
+        }
+        return errors;
+    }
+
+    private static Method findMethod(Class<?> klass, String name) throws NoSuchMethodException {
+        for (Method m : klass.getMethods()) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new NoSuchMethodException(klass.getName() + "." + name);
+    }
+
+    private static String key(BenchmarkParams params, String type, String[] paramNames) {
+        StringBuilder sb = new StringBuilder(type);
+        for (String name : paramNames) {
+            sb.append(',').append(name).append('=').append(params.getParam(name));
+        }
+        return sb.toString();
+    }
+
+    private static class Entry {
+        private final Object state;
+        private final Object owner;
+        private final String tearDown;
+        private final Object[] args;
+
+        Entry(Object state, Object owner, String tearDown, Object[] args) {
+            this.state = state;
+            this.owner = owner;
+            this.tearDown = tearDown;
+            this.args = args;
+        }
+    }
+
+}
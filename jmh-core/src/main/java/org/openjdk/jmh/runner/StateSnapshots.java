@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.annotations.Snapshot;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.StateSnapshot;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists the snapshots of {@link Snapshot} states, and restores them in
+ * the subsequent forks. Snapshot file is written once, and then only mapped
+ * read-only. Snapshot file layout:
+ *
+ * <pre>
+ *     int   magic
+ *     int   format version
+ *     long  payload length
+ *     long  payload CRC32
+ *     UTF   key: state class and benchmark parameters
+ *     UTF   fingerprint: snapshot version and state class bytecode hash
+ *     byte* payload
+ * </pre>
+ *
+ * The snapshot that does not match the expected key, fingerprint, length, or
+ * checksum, is stale or corrupted, and is discarded.
+ *
+ * <p>Snapshots live in the directory the host VM creates for the run, and deletes
+ * when the run is over. Users can keep the snapshots between the runs in the directory
+ * they set with {@link #DIR_PROPERTY}.</p>
+ */
+class StateSnapshots {
+
+    static final String DIR_PROPERTY = "jmh.snapshot.dir";
+
+    /**
+     * The run directory the host VM passes to the forked VMs.
+     */
+    static final String RUN_DIR_PROPERTY = "jmh.snapshot.runDir";
+
+    private static final int MAGIC = 0x4A4D4853;
+    private static final int FORMAT = 1;
+
+    /**
+     * Offset of payload length, to patch it after the payload is written.
+     */
+    private static final int LENGTH_OFFSET = 8;
+
+    /**
+     * The run directory in host VM, for the benchmarks that run embedded.
+     */
+    private static volatile File runDir;
+
+    private final File dir;
+
+    StateSnapshots(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return snapshots in the user directory, if set; otherwise, in the run directory
+     */
+    static StateSnapshots getInstance() {
+        String dir = System.getProperty(DIR_PROPERTY, System.getProperty(RUN_DIR_PROPERTY));
+        if (dir != null) {
+            return new StateSnapshots(new File(dir));
+        }
+        return new StateSnapshots(runDir);
+    }
+
+    /**
+     * Creates the run directory. This is called in host VM before the run.
+     *
+     * @return run directory
+     * @throws IOException if directory cannot be created
+     */
+    static File createRunDir() throws IOException {
+        File dir = Files.createTempDirectory("jmh-snapshots").toFile();
+        runDir = dir;
+        return dir;
+    }
+
+    /**
+     * Deletes the run directory with all the snapshots. This is called in host VM after the run.
+     *
+     * @param dir run directory
+     */
+    static void deleteRunDir(File dir) {
+        runDir = null;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Restores the state from the snapshot, if there is a valid one.
+     *
+     * @param state state instance, not yet set up
+     * @param stateClass user state class
+     * @param params benchmark parameters
+     * @return true, if state was restored; false, if it should be set up as usual
+     */
+    boolean restore(Object state, Class<?> stateClass, BenchmarkParams params) {
+        if (dir == null) {
+            // nowhere to look for the snapshots
+            return false;
+        }
+
+        String key = key(stateClass, params);
+        File file = file(key);
+        if (!file.exists()) {
+            return false;
+        }
+
+        try {
+            ByteBuffer payload = map(file, key, fingerprint(stateClass));
+            if (payload == null) {
+                discard(file, stateClass, "stale");
+                return false;
+            }
+
+            if (state instanceof StateSnapshot) {
+                ((StateSnapshot) state).readSnapshot(payload);
+            } else {
+                readFields(state, stateClass, payload);
+            }
+            return true;
+        } catch (IOException | ClassNotFoundException | IllegalAccessException e) {
+            discard(file, stateClass, "unreadable: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Saves the snapshot of the state which was just set up.
+     * Failure to save the snapshot is reported, but does not fail the benchmark.
+     *
+     * @param state state instance, already set up
+     * @param stateClass user state class
+     * @param params benchmark parameters
+     */
+    void save(Object state, Class<?> stateClass, BenchmarkParams params) {
+        if (dir == null) {
+            // nowhere to keep the snapshots
+            return;
+        }
+
+        String key = key(stateClass, params);
+        File file = file(key);
+        if (file.exists()) {
+            return;
+        }
+
+        File tmp = null;
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                throw new IOException("Cannot create " + dir);
+            }
+
+            // Concurrent forks write their own temp files, and the first rename wins.
+            tmp = File.createTempFile(key + "-", ".tmp", dir);
+            write(tmp, state, stateClass, key, fingerprint(stateClass));
+            if (file.exists()) {
+                return;
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | IllegalAccessException e) {
+            System.err.println("WARNING: Cannot save the snapshot of " + stateClass.getName() + ": " + e);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File file(String key) {
+        return new File(dir, key + ".snapshot");
+    }
+
+    private void discard(File file, Class<?> stateClass, String reason) {
+        System.err.println("WARNING: Snapshot of " + stateClass.getName() + " is " + reason + ", discarding");
+        file.delete();
+    }
+
+    private void write(File tmp, Object state, Class<?> stateClass, String key, String fingerprint)
+            throws IOException, IllegalAccessException {
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            FileChannel ch = raf.getChannel();
+
+            DataOutputStream header = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT);
+            header.writeLong(0);
+            header.writeLong(0);
+            header.writeUTF(key);
+            header.writeUTF(fingerprint);
+            header.flush();
+
+            long start = ch.position();
+
+            CRC32 crc = new CRC32();
+            OutputStream payload = new BufferedOutputStream(new CheckedOutputStream(new UnclosedOutputStream(Channels.newOutputStream(ch)), crc));
+            if (state instanceof StateSnapshot) {
+                ((StateSnapshot) state).writeSnapshot(payload);
+            } else {
+                writeFields(state, stateClass, payload);
+            }
+            payload.flush();
+
+            ByteBuffer patch = ByteBuffer.allocate(16);
+            patch.putLong(ch.position() - start);
+            patch.putLong(crc.getValue());
+            patch.flip();
+            while (patch.hasRemaining()) {
+                ch.write(patch, LENGTH_OFFSET + patch.position());
+            }
+
+            ch.force(true);
+        }
+    }
+
+    /**
+     * Maps the snapshot file, and checks its integrity.
+     *
+     * @return read-only payload; null, if snapshot is stale
+     */
+    private ByteBuffer map(File file, String key, String fingerprint) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file.toPath())) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        DataInputStream header = new DataInputStream(new BufferInputStream(buf));
+        if (header.readInt() != MAGIC || header.readInt() != FORMAT) {
+            return null;
+        }
+        long length = header.readLong();
+        long checksum = header.readLong();
+        if (!key.equals(header.readUTF()) || !fingerprint.equals(header.readUTF())) {
+            return null;
+        }
+
+        ByteBuffer payload = buf.slice();
+        if (payload.remaining() != length) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer view = payload.duplicate();
+        byte[] chunk = new byte[64 * 1024];
+        while (view.hasRemaining()) {
+            int n = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+
+        return payload;
+    }
+
+    private static void writeFields(Object state, Class<?> stateClass, OutputStream out) throws IOException, IllegalAccessException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        for (Field f : snapshotFields(stateClass)) {
+            oos.writeObject(f.get(state));
+        }
+        oos.flush();
+    }
+
+    private static void readFields(Object state, Class<?> stateClass, ByteBuffer payload)
+            throws IOException, ClassNotFoundException, IllegalAccessException {
+        ObjectInputStream ois = new ObjectInputStream(new BufferInputStream(payload.duplicate()));
+        for (Field f : snapshotFields(stateClass)) {
+            f.set(state, ois.readObject());
+        }
+    }
+
+    /**
+     * @return non-static non-transient fields of the state class and its superclasses, in stable order
+     */
+    static List<Field> snapshotFields(Class<?> stateClass) {
+        List<Field> result = new ArrayList<>();
+        for (Class<?> c = stateClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            List<Field> declared = new ArrayList<>();
+            for (Field f : c.getDeclaredFields()) {
+                int mods = f.getModifiers();
+                if (Modifier.isStatic(mods) || Modifier.isTransient(mods) || f.isSynthetic()) {
+                    continue;
+                }
+                f.setAccessible(true);
+                declared.add(f);
+            }
+            Collections.sort(declared, new Comparator<Field>() {
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            result.addAll(declared);
+        }
+        return result;
+    }
+
+    /**
+     * Snapshot is keyed by the state class and all benchmark parameters.
+     */
+    static String key(Class<?> stateClass, BenchmarkParams params) {
+        MessageDigest md = digest();
+        update(md, stateClass.getName());
+        for (String k : new TreeSet<>(params.getParamsKeys())) {
+            update(md, k + "=" + params.getParam(k));
+        }
+        return hex(md);
+    }
+
+    /**
+     * Snapshot is stale when the state class, or any of its superclasses change,
+     * or when the user bumps the snapshot version.
+     */
+    static String fingerprint(Class<?> stateClass) throws IOException {
+        MessageDigest md = digest();
+        Snapshot ann = stateClass.getAnnotation(Snapshot.class);
+        update(md, (ann != null) ? ann.version() : "");
+        for (Class<?> c = stateClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            String name = c.getName();
+            InputStream is = c.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+            if (is == null) {
+                throw new IOException("Cannot read the class file for " + name);
+            }
+            try {
+                byte[] buf = new byte[8192];
+                int read;
+                while ((read = is.read(buf)) != -1) {
+                    md.update(buf, 0, read);
+                }
+            } finally {
+                FileUtils.safelyClose(is);
+            }
+            md.update((byte) 0);
+        }
+        return hex(md);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String part) {
+        md.update(part.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static String hex(MessageDigest md) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Input stream over the byte buffer.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            return buf.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+
+    /**
+     * Keeps the user code from closing the snapshot file before we patch the header.
+     */
+    private static class UnclosedOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        UnclosedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.util.ListStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detects the steady state during warmup.
+ *
+ * <p>The recent window of iteration scores is split in halves, and the state is steady
+ * when the halves agree: the difference of their means is within the relative tolerance,
+ * or within the noise estimated from the pooled variance of both halves, whichever is larger.
+ * Additionally, if JIT compilation times are known, the compiler should be mostly idle
+ * in the newer half of the window.</p>
+ */
+class SteadyStateDetector {
+
+    /**
+     * Number of recent iterations to consider. Each half needs at least three
+     * iterations for its variance to mean anything.
+     */
+    static final int WINDOW = 6;
+
+    /**
+     * Relative difference between the halves of the window that is considered no drift.
+     */
+    static final double SCORE_TOLERANCE = 0.02;
+
+    /**
+     * Fraction of iteration time spent in JIT compilation that is considered idle.
+     */
+    static final double JIT_TOLERANCE = 0.01;
+
+    private final List<Double> scores;
+    private final List<Long> durations;
+    private final List<Long> compileTimes;
+
+    SteadyStateDetector() {
+        scores = new ArrayList<>();
+        durations = new ArrayList<>();
+        compileTimes = new ArrayList<>();
+    }
+
+    /**
+     * Records the iteration.
+     *
+     * @param score iteration score
+     * @param durationNs iteration duration, in nanoseconds
+     * @param compileTimeNs time spent in JIT compilation during the iteration, in nanoseconds;
+     *                      negative if unknown
+     */
+    void add(double score, long durationNs, long compileTimeNs) {
+        scores.add(score);
+        durations.add(durationNs);
+        compileTimes.add(compileTimeNs);
+    }
+
+    boolean isSteady() {
+        int n = scores.size();
+        if (n < WINDOW) {
+            return false;
+        }
+
+        int half = WINDOW / 2;
+        ListStatistics older = new ListStatistics();
+        ListStatistics newer = new ListStatistics();
+        for (int i = n - WINDOW; i < n - half; i++) {
+            older.addValue(scores.get(i));
+        }
+        for (int i = n - half; i < n; i++) {
+            newer.addValue(scores.get(i));
+        }
+
+        double diff = Math.abs(older.getMean() - newer.getMean());
+        long n1 = older.getN();
+        long n2 = newer.getN();
+        double pooled = ((n1 - 1) * older.getVariance() + (n2 - 1) * newer.getVariance()) / (n1 + n2 - 2);
+        double noise = 2 * Math.sqrt(pooled * (1.0 / n1 + 1.0 / n2));
+        double tolerance = Math.max(SCORE_TOLERANCE * Math.abs(newer.getMean()), noise);
+        if (!(diff <= tolerance)) {
+            return false;
+        }
+
+        long compile = 0;
+        long duration = 0;
+        for (int i = n - half; i < n; i++) {
+            if (compileTimes.get(i) < 0) {
+                // JIT activity is unknown, trust the scores
+                return true;
+            }
+            compile += compileTimes.get(i);
+            duration += durations.get(i);
+        }
+        return compile <= JIT_TOLERANCE * duration;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.link.BinaryLinkServer;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the idle forked VMs that were launched ahead of time. Every idle VM
+ * connects to its own link server, performs the handshake, and then waits for
+ * the action plan. The fork that needs the VM with the same command line takes
+ * it from the pool, and hands it the action plan, skipping the VM startup.
+ */
+class WarmForkPool {
+
+    private final Options options;
+    private final OutputFormat out;
+    private final int size;
+    private final List<WarmFork> idle;
+
+    WarmForkPool(Options options, OutputFormat out, int size) {
+        this.options = options;
+        this.out = out;
+        this.size = size;
+        this.idle = new ArrayList<>();
+    }
+
+    /**
+     * Takes the idle VM launched with the given command line.
+     * Link addresses at the end of command lines are not compared.
+     *
+     * @param command forked VM command line
+     * @return idle VM; null, if there is none
+     */
+    WarmFork acquire(List<String> command) {
+        Iterator<WarmFork> it = idle.iterator();
+        while (it.hasNext()) {
+            WarmFork fork = it.next();
+            if (!fork.isAlive()) {
+                fork.destroy();
+                it.remove();
+            } else if (sameCommand(fork.command(), command)) {
+                it.remove();
+                return fork;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Launches idle VMs with the given command line, until the pool is full.
+     * Idle VMs with the other command lines are destroyed: forks that need them
+     * would have most likely passed already.
+     *
+     * @param command forked VM command line
+     */
+    void replenish(List<String> command) {
+        Iterator<WarmFork> it = idle.iterator();
+        while (it.hasNext()) {
+            WarmFork fork = it.next();
+            if (!sameCommand(fork.command(), command)) {
+                fork.destroy();
+                it.remove();
+            }
+        }
+
+        while (idle.size() < size) {
+            try {
+                idle.add(launch(command));
+            } catch (IOException e) {
+                out.verbosePrintln("Cannot pre-launch the forked VM, caught IOException: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Destroys all idle VMs.
+     */
+    void shutdown() {
+        for (WarmFork fork : idle) {
+            fork.destroy();
+        }
+        idle.clear();
+    }
+
+    private WarmFork launch(List<String> command) throws IOException {
+        BinaryLinkServer server = new BinaryLinkServer(options, out);
+        try {
+            List<String> cmd = withAddress(command, server.getHost(), server.getPort());
+            Process process = new ProcessBuilder(cmd).start();
+            return new WarmFork(server, process, cmd);
+        } catch (IOException e) {
+            server.terminate();
+            throw e;
+        }
+    }
+
+    /**
+     * Forked VM command line ends with the host and port to back-connect,
+     * see {@link Runner#getForkedMainCommand}.
+     */
+    static boolean sameCommand(List<String> c1, List<String> c2) {
+        return c1.size() == c2.size() && c1.size() >= 2 &&
+                c1.subList(0, c1.size() - 2).equals(c2.subList(0, c2.size() - 2));
+    }
+
+    static List<String> withAddress(List<String> command, String host, int port) {
+        List<String> result = new ArrayList<>(command.subList(0, command.size() - 2));
+        result.add(host);
+        result.add(String.valueOf(port));
+        return result;
+    }
+
+    static class WarmFork {
+        private final BinaryLinkServer server;
+        private final Process process;
+        private final List<String> command;
+
+        WarmFork(BinaryLinkServer server, Process process, List<String> command) {
+            this.server = server;
+            this.process = process;
+            this.command = command;
+        }
+
+        BinaryLinkServer server() {
+            return server;
+        }
+
+        Process process() {
+            return process;
+        }
+
+        List<String> command() {
+            return command;
+        }
+
+        boolean isAlive() {
+            try {
+                process.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        void destroy() {
+            server.terminate();
+            process.destroy();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            FileUtils.safelyClose(process.getInputStream());
+            FileUtils.safelyClose(process.getErrorStream());
+            FileUtils.safelyClose(process.getOutputStream());
+        }
+    }
+
+}
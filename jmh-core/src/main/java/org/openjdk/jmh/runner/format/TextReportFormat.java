@@ -79,6 +79,12 @@ class TextReportFormat extends AbstractOutputFormat {
 
         println("# VM invoker: " + params.getJvm());
         println("# VM options: " + opts);
+        if (params.getForkCpus() > 0) {
+            println("# VM affinity: " + params.getForkCpus() + " " + getCPUsString(params.getForkCpus()) + " per fork, forks run in parallel");
+        }
+        if (params.getBlackholeMode() != null) {
+            println("# Blackhole mode: " + params.getBlackholeMode().desc());
+        }
 
         IterationParams warmup = params.getWarmup();
         if (warmup.getCount() > 0) {
@@ -125,6 +131,9 @@ class TextReportFormat extends AbstractOutputFormat {
 
 
         out.println("# Benchmark mode: " + params.getMode().longLabel());
+        if (params.getMode() == Mode.RateLimited) {
+            out.println("# Target rate: " + params.getRate() + " ops/s per thread");
+        }
         out.println("# Benchmark: " + params.getBenchmark());
         if (!params.getParamsKeys().isEmpty()) {
             String s = "";
@@ -164,6 +173,14 @@ class TextReportFormat extends AbstractOutputFormat {
         }
     }
 
+    protected static String getCPUsString(int c) {
+        if (c > 1) {
+            return "CPUs";
+        } else {
+            return "CPU";
+        }
+    }
+
     protected static String getGroupsString(int g) {
         if (g > 1) {
             return "groups";
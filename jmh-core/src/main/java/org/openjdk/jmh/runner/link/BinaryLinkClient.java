@@ -24,8 +24,12 @@
  */
 package org.openjdk.jmh.runner.link;
 
+import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.results.BenchmarkResultMetaData;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.Defaults;
 import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.ScalarResult;
 import org.openjdk.jmh.runner.ActionPlan;
 import org.openjdk.jmh.runner.BenchmarkException;
 import org.openjdk.jmh.runner.format.OutputFormat;
@@ -33,11 +37,7 @@ import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.util.FileUtils;
 import org.openjdk.jmh.util.Utils;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
@@ -46,37 +46,49 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 public final class BinaryLinkClient {
 
-    private static final int RESET_EACH = Integer.getInteger("jmh.link.resetEach", 100);
-    private static final int BUFFER_SIZE = Integer.getInteger("jmh.link.bufferSize", 64*1024);
+    /**
+     * Output buffer size, rounded down to the power of two. Forked VM output that
+     * does not fit is dropped.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = Integer.highestOneBit(Math.max(1024, Integer.getInteger("jmh.link.outputBuffer", 1024 * 1024)));
 
     private final Object lock;
 
-    private final Socket clientSocket;
-    private final ObjectOutputStream oos;
-    private final ObjectInputStream ois;
+    private final Socket socket;
+    private final StreamChannel channel;
+    private final FrameWriter writer;
+    private final FrameReader reader;
     private final ForwardingPrintStream streamErr;
     private final ForwardingPrintStream streamOut;
+    private final OutputBuffer output;
+    private final OutputFlusher flusher;
     private final OutputFormat outputFormat;
     private volatile boolean failed;
-    private int resetToGo;
     private final List<Serializable> delayedFrames;
     private boolean inFrame;
+    private volatile String telemetryFile;
+    private ActionPlan plan;
 
     public BinaryLinkClient(String hostName, int hostPort) throws IOException {
         this.lock = new Object();
-        this.clientSocket = new Socket(hostName, hostPort);
+        // Blocking socket streams, not the interruptible SocketChannel: the interrupt
+        // that comes in the middle of the write would otherwise close the link.
+        this.socket = new Socket(hostName, hostPort);
+        this.channel = new StreamChannel(socket.getInputStream(), socket.getOutputStream());
 
-        // Initialize the OOS first, and flush, letting the other party read the stream header.
-        this.oos = new ObjectOutputStream(new BufferedOutputStream(clientSocket.getOutputStream(), BUFFER_SIZE));
-        this.oos.flush();
+        // Initialize the writer first, and flush, letting the other party read the stream header.
+        this.writer = new FrameWriter(channel);
+        this.writer.flush();
 
-        this.ois = new ObjectInputStream(new BufferedInputStream(clientSocket.getInputStream(), BUFFER_SIZE));
+        this.reader = new FrameReader(channel);
 
+        this.output = new OutputBuffer(OUTPUT_BUFFER_SIZE);
+        this.flusher = new OutputFlusher();
         this.streamErr = new ForwardingPrintStream(OutputFrame.Type.ERR);
         this.streamOut = new ForwardingPrintStream(OutputFrame.Type.OUT);
         this.outputFormat = (OutputFormat) Proxy.newProxyInstance(
@@ -86,12 +98,20 @@ public final class BinaryLinkClient {
                     @Override
                     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
                         pushFrame(new OutputFormatFrame(ClassConventions.getMethodName(method), args));
+                        if (method.getName().equals("iteration")) {
+                            // new iteration starts, account the output from here
+                            synchronized (lock) {
+                                output.resetCounters();
+                            }
+                        }
                         return null; // expect null
                     }
                 }
         );
 
         this.delayedFrames = new ArrayList<>();
+
+        this.flusher.start();
     }
 
     private void pushFrame(Serializable frame) throws IOException {
@@ -99,12 +119,7 @@ public final class BinaryLinkClient {
             throw new IOException("Link had failed already");
         }
 
-        // It is important to reset the OOS to avoid garbage buildup in internal identity
-        // tables. However, we cannot do that after each frame since the huge referenced
-        // objects like benchmark and iteration parameters will be duplicated on the receiver
-        // side. This is why we reset only each RESET_EACH frames.
-        //
-        // It is as much as important to flush the stream to let the other party know we
+        // It is important to flush the stream to let the other party know we
         // pushed something out.
 
         synchronized (lock) {
@@ -117,16 +132,20 @@ public final class BinaryLinkClient {
                 return;
             }
 
+            // The thread might have been interrupted: socket I/O in virtual threads
+            // is interruptible, and the interrupt would close the link. Write the frame
+            // with interrupt status cleared, and restore it afterwards.
+            boolean interrupted = Thread.interrupted();
             try {
                 inFrame = true;
 
-                if (resetToGo-- < 0) {
-                    oos.reset();
-                    resetToGo = RESET_EACH;
+                // Let the output produced so far go before this frame.
+                for (OutputFrame f : output.drain()) {
+                    writer.write(f);
                 }
 
-                oos.writeObject(frame);
-                oos.flush();
+                writer.write(frame);
+                writer.flush();
 
                 // Do all delayed frames now. On the off-chance their writes produce more frames,
                 // drain them recursively.
@@ -134,22 +153,53 @@ public final class BinaryLinkClient {
                     List<Serializable> frames = new ArrayList<>(delayedFrames);
                     delayedFrames.clear();
                     for (Serializable f : frames) {
-                        oos.writeObject(f);
+                        writer.write(f);
                     }
-                    oos.flush();
+                    writer.flush();
                 }
             } catch (IOException e) {
                 failed = true;
                 throw e;
             } finally {
                 inFrame = false;
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered output to the host VM.
+     *
+     * @return true, if there was anything to send
+     * @throws IOException if link had failed
+     */
+    private boolean flushOutput() throws IOException {
+        synchronized (lock) {
+            if (failed || inFrame) {
+                return false;
+            }
+            List<OutputFrame> frames = output.drain();
+            if (frames.isEmpty()) {
+                return false;
+            }
+            try {
+                for (OutputFrame f : frames) {
+                    writer.write(f);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
             }
+            return true;
         }
     }
 
     private Object readFrame() throws IOException, ClassNotFoundException {
         try {
-            return ois.readObject();
+            return reader.read();
         } catch (ClassNotFoundException | IOException ex) {
             failed = true;
             throw ex;
@@ -164,11 +214,16 @@ public final class BinaryLinkClient {
         FileUtils.safelyClose(streamErr);
         FileUtils.safelyClose(streamOut);
 
+        flusher.shutdown();
+
         synchronized (lock) {
-            oos.writeObject(new FinishingFrame());
-            FileUtils.safelyClose(ois);
-            FileUtils.safelyClose(oos);
-            clientSocket.close();
+            for (OutputFrame f : output.drain()) {
+                writer.write(f);
+            }
+            writer.write(new FinishingFrame());
+            writer.flush();
+            channel.close();
+            socket.close();
         }
     }
 
@@ -178,7 +233,9 @@ public final class BinaryLinkClient {
 
             Object reply = readFrame();
             if (reply instanceof HandshakeResponseFrame) {
-                return (((HandshakeResponseFrame) reply).getOpts());
+                HandshakeResponseFrame response = (HandshakeResponseFrame) reply;
+                telemetryFile = response.getTelemetryFile();
+                return response.getOpts();
             } else {
                 throw new IllegalStateException("Got the erroneous reply: " + reply);
             }
@@ -191,7 +248,8 @@ public final class BinaryLinkClient {
 
             Object reply = readFrame();
             if (reply instanceof ActionPlanFrame) {
-                return ((ActionPlanFrame) reply).getActionPlan();
+                plan = ((ActionPlanFrame) reply).getActionPlan();
+                return plan;
             } else {
                 throw new IllegalStateException("Got the erroneous reply: " + reply);
             }
@@ -199,15 +257,44 @@ public final class BinaryLinkClient {
     }
 
     public void pushResults(IterationResult res) throws IOException {
-        pushFrame(new ResultsFrame(res));
+        synchronized (lock) {
+            // Account for the output this iteration had produced. The output is already
+            // in the buffer, drain it to count everything.
+            flushOutput();
+            long printed = output.getConsumed();
+            long dropped = output.getDropped();
+            if (printed > 0 || dropped > 0) {
+                res.addResult(new ScalarResult(Defaults.PREFIX + "output.bytes", printed + dropped, "bytes", AggregationPolicy.AVG));
+            }
+            if (dropped > 0) {
+                res.addResult(new ScalarResult(Defaults.PREFIX + "output.dropped", dropped, "bytes", AggregationPolicy.SUM));
+            }
+            output.resetCounters();
+            pushFrame(new ResultsFrame(res));
+        }
     }
 
     public void pushException(BenchmarkException error) throws IOException {
         pushFrame(new ExceptionFrame(error));
     }
 
-    public void pushResultMetadata(BenchmarkResultMetaData res) throws IOException {
-        pushFrame(new ResultMetadataFrame(res));
+    public void pushResultMetadata(BenchmarkParams params, BenchmarkResultMetaData res) throws IOException {
+        // host VM has the same plan, refer to the benchmark by its index there
+        int benchmark;
+        synchronized (lock) {
+            benchmark = plan.getMeasurementParams().indexOf(params);
+        }
+        if (benchmark < 0) {
+            throw new IllegalStateException("Benchmark is not in the action plan: " + params.getBenchmark());
+        }
+        pushFrame(new ResultMetadataFrame(benchmark, res));
+    }
+
+    /**
+     * @return telemetry file name host VM had offered during the handshake, or null
+     */
+    public String getTelemetryFile() {
+        return telemetryFile;
     }
 
     public PrintStream getOutStream() {
@@ -222,25 +309,83 @@ public final class BinaryLinkClient {
         return outputFormat;
     }
 
+    /**
+     * Forwards the forked VM output to the host VM. Writes only go to the output buffer,
+     * and never block on the link: the buffer is flushed by {@link OutputFlusher} in
+     * background, and before any other frame is sent.
+     */
     class ForwardingPrintStream extends PrintStream {
         public ForwardingPrintStream(final OutputFrame.Type type) {
             super(new OutputStream() {
                 @Override
                 public void write(int b) throws IOException {
-                    pushFrame(new OutputFrame(type, new byte[]{(byte) (b & 0xFF)}));
+                    output.write(type, b);
+                    flusher.wakeup();
                 }
 
                 @Override
                 public void write(byte[] b) throws IOException {
-                    pushFrame(new OutputFrame(type, Arrays.copyOf(b, b.length)));
+                    write(b, 0, b.length);
                 }
 
                 @Override
                 public void write(byte[] b, int off, int len) throws IOException {
-                    pushFrame(new OutputFrame(type, Arrays.copyOfRange(b, off, len + off)));
+                    output.write(type, b, off, len);
+                    flusher.wakeup();
                 }
             });
         }
     }
 
+    /**
+     * Sends the buffered output in background. Sleeps until the writers wake it up,
+     * so it does not disturb the measurement when nothing is printed.
+     */
+    private class OutputFlusher extends Thread {
+        private volatile boolean shutdown;
+        private volatile boolean parked;
+
+        OutputFlusher() {
+            setName("jmh-output-flusher");
+            setDaemon(true);
+        }
+
+        void wakeup() {
+            if (parked) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        void shutdown() {
+            shutdown = true;
+            LockSupport.unpark(this);
+            try {
+                join();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!shutdown && !failed) {
+                    if (flushOutput()) {
+                        continue;
+                    }
+
+                    // Announce the park before checking for the output: either the writer
+                    // sees the flag and wakes us up, or we see the record it had published.
+                    parked = true;
+                    if (!output.hasPublished() && !shutdown) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            } catch (IOException e) {
+                // link had failed, nothing to do
+            }
+        }
+    }
+
 }
@@ -24,6 +24,7 @@
  */
 package org.openjdk.jmh.runner.link;
 
+import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.results.BenchmarkResultMetaData;
 import org.openjdk.jmh.results.IterationResult;
 import org.openjdk.jmh.runner.ActionPlan;
@@ -32,29 +33,26 @@ import org.openjdk.jmh.runner.Defaults;
 import org.openjdk.jmh.runner.format.OutputFormat;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.VerboseMode;
+import org.openjdk.jmh.util.FileUtils;
 import org.openjdk.jmh.util.Utils;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -64,23 +62,38 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public final class BinaryLinkServer {
 
-    private static final int BUFFER_SIZE = Integer.getInteger("jmh.link.bufferSize", 64*1024);
-
     private final Options opts;
     private final OutputFormat out;
+    private final boolean captureOutput;
     private final Map<String, Method> methods;
     private final Set<String> forbidden;
     private final Acceptor acceptor;
     private final AtomicReference<Handler> handler;
     private final AtomicReference<List<IterationResult>> results;
-    private final AtomicReference<BenchmarkResultMetaData> metadata;
+    private final AtomicReference<Map<BenchmarkParams, BenchmarkResultMetaData>> metadata;
     private final AtomicReference<BenchmarkException> exception;
     private final AtomicReference<ActionPlan> plan;
+    private volatile boolean terminated;
     private volatile long clientPid;
+    private volatile TelemetryRing telemetry;
+    private boolean telemetryFailed;
+    private TelemetryDrainer drainer;
 
     public BinaryLinkServer(Options opts, OutputFormat out) throws IOException {
+        this(opts, out, false);
+    }
+
+    /**
+     * @param opts options
+     * @param out output format to forward the forked VM callbacks to
+     * @param captureOutput if true, forked VM stdout/stderr are forwarded to output format as well,
+     *                      instead of going straight to host VM stdout/stderr
+     * @throws IOException if the server cannot be started
+     */
+    public BinaryLinkServer(Options opts, OutputFormat out, boolean captureOutput) throws IOException {
         this.opts = opts;
         this.out = out;
+        this.captureOutput = captureOutput;
         this.methods = new HashMap<>();
         this.forbidden = new HashSet<>();
 
@@ -102,13 +115,18 @@ public final class BinaryLinkServer {
         acceptor.start();
 
         handler = new AtomicReference<>();
-        metadata = new AtomicReference<>();
+        metadata = new AtomicReference<Map<BenchmarkParams, BenchmarkResultMetaData>>(new HashMap<BenchmarkParams, BenchmarkResultMetaData>());
         results = new AtomicReference<List<IterationResult>>(new ArrayList<IterationResult>());
         exception = new AtomicReference<>();
         plan = new AtomicReference<>();
     }
 
     public void terminate() {
+        synchronized (plan) {
+            terminated = true;
+            plan.notifyAll();
+        }
+
         acceptor.close();
 
         Handler h = handler.getAndSet(null);
@@ -116,14 +134,58 @@ public final class BinaryLinkServer {
             h.close();
         }
 
+        TelemetryDrainer d;
+        synchronized (this) {
+            d = drainer;
+            drainer = null;
+        }
+        if (d != null) {
+            d.interrupt();
+        }
+
         try {
             acceptor.join();
             if (h != null) {
                 h.join();
             }
+            if (d != null) {
+                d.join();
+            }
         } catch (InterruptedException e) {
             // ignore
         }
+
+        TelemetryRing ring = telemetry;
+        if (ring != null) {
+            ring.getFile().delete();
+        }
+    }
+
+    /**
+     * Prepares the telemetry ring for the next forked VM: creates one on the first
+     * call, and clears the leftovers of the previous forked VM on the later calls.
+     *
+     * @return telemetry ring, or null, if telemetry is not available
+     */
+    private synchronized TelemetryRing prepareTelemetry() {
+        if (telemetryFailed) {
+            return null;
+        }
+
+        if (telemetry == null) {
+            try {
+                telemetry = TelemetryRing.create(FileUtils.tempFile("telemetry"));
+            } catch (IOException e) {
+                telemetryFailed = true;
+                out.verbosePrintln("Telemetry is not available: " + e.getMessage());
+                return null;
+            }
+            drainer = new TelemetryDrainer(telemetry);
+            drainer.start();
+        } else {
+            telemetry.reset();
+        }
+        return telemetry;
     }
 
     public void waitFinish() {
@@ -150,12 +212,37 @@ public final class BinaryLinkServer {
         }
     }
 
-    public BenchmarkResultMetaData getMetadata() {
-        return metadata.getAndSet(null);
+    /**
+     * @return result metadata for the benchmarks that had completed in the forked VM
+     */
+    public Map<BenchmarkParams, BenchmarkResultMetaData> getMetadata() {
+        return metadata.getAndSet(new HashMap<BenchmarkParams, BenchmarkResultMetaData>());
     }
 
+    /**
+     * Sets the action plan for the forked VM. The forked VM that requests the plan
+     * before it is set waits until it gets one: this allows to launch the forked VM
+     * ahead of time, and hand it the plan later.
+     *
+     * @param actionPlan action plan
+     */
     public void setPlan(ActionPlan actionPlan) {
-        this.plan.set(actionPlan);
+        synchronized (plan) {
+            plan.set(actionPlan);
+            plan.notifyAll();
+        }
+    }
+
+    private ActionPlan awaitPlan() throws InterruptedException, EOFException {
+        synchronized (plan) {
+            while (plan.get() == null) {
+                if (terminated) {
+                    throw new EOFException("Server is terminated before the action plan was set");
+                }
+                plan.wait();
+            }
+            return plan.get();
+        }
     }
 
     private InetAddress getListenAddress() {
@@ -206,26 +293,27 @@ public final class BinaryLinkServer {
 
     private final class Acceptor extends Thread {
 
-        private final ServerSocket server;
+        private final ServerSocketChannel server;
         private final InetAddress listenAddress;
 
         public Acceptor() throws IOException {
             listenAddress = getListenAddress();
-            server = new ServerSocket(getListenPort(), 50, listenAddress);
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(listenAddress, getListenPort()), 50);
         }
 
         @Override
         public void run() {
             try {
                 while (!Thread.interrupted()) {
-                    Socket clientSocket = server.accept();
-                    Handler r = new Handler(clientSocket);
+                    SocketChannel clientChannel = server.accept();
+                    Handler r = new Handler(clientChannel);
                     if (!handler.compareAndSet(null, r)) {
                         throw new IllegalStateException("The handler is already registered");
                     }
                     r.start();
                 }
-            } catch (SocketException e) {
+            } catch (ClosedChannelException e) {
                 // assume this is "Socket closed", return
             } catch (IOException e) {
                 throw new IllegalStateException(e);
@@ -240,7 +328,7 @@ public final class BinaryLinkServer {
 
         public int getPort() {
             // Poll the actual listen port, in case it is ephemeral
-            return server.getLocalPort();
+            return server.socket().getLocalPort();
         }
 
         public void close() {
@@ -260,31 +348,52 @@ public final class BinaryLinkServer {
         return acceptor.getPort();
     }
 
+    /**
+     * Drains the telemetry ring in background, so that the forked VM does not drop the
+     * records when the iteration produces more of them than the ring can hold. Drains
+     * more frequently when the ring is filling up.
+     */
+    private static final class TelemetryDrainer extends Thread {
+        private final TelemetryRing ring;
+
+        TelemetryDrainer(TelemetryRing ring) {
+            this.ring = ring;
+            setName("jmh-telemetry-drainer");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.interrupted()) {
+                    double fill = ring.drain();
+                    TimeUnit.MILLISECONDS.sleep(fill > 0.5 ? 1 : 10);
+                }
+            } catch (InterruptedException e) {
+                // done
+            }
+        }
+    }
+
     private final class Handler extends Thread {
-        private final InputStream is;
-        private final Socket socket;
-        private ObjectInputStream ois;
-        private final OutputStream os;
-        private ObjectOutputStream oos;
+        private final SocketChannel channel;
+        private final FrameReader reader;
+        private final FrameWriter writer;
 
-        public Handler(Socket socket) throws IOException {
-            this.socket = socket;
-            this.is = socket.getInputStream();
-            this.os = socket.getOutputStream();
+        public Handler(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.reader = new FrameReader(channel);
 
-            // eager OOS initialization, let the other party read the stream header
-            oos = new ObjectOutputStream(new BufferedOutputStream(os, BUFFER_SIZE));
-            oos.flush();
+            // eager writer initialization, let the other party read the stream header
+            this.writer = new FrameWriter(channel);
+            this.writer.flush();
         }
 
         @Override
         public void run() {
             try {
-                // late OIS initialization, otherwise we'll block reading the header
-                ois = new ObjectInputStream(new BufferedInputStream(is, BUFFER_SIZE));
-
                 Object obj;
-                while ((obj = ois.readObject()) != null) {
+                while ((obj = reader.read()) != null) {
                     if (obj instanceof OutputFormatFrame) {
                         handleOutputFormat((OutputFormatFrame) obj);
                     }
@@ -314,6 +423,10 @@ public final class BinaryLinkServer {
             } catch (EOFException e) {
                 // ignore
             } catch (Exception e) {
+                if (terminated) {
+                    // the link was closed deliberately, the failure is expected
+                    return;
+                }
                 out.println("<binary link had failed, forked VM corrupted the stream? Use " + VerboseMode.EXTRA + " verbose to print exception>");
                 if (opts.verbosity().orElse(Defaults.VERBOSITY).equalsOrHigherThan(VerboseMode.EXTRA)) {
                     out.println(Utils.throwableToString(e));
@@ -324,11 +437,16 @@ public final class BinaryLinkServer {
         }
 
         private void handleResultMetadata(ResultMetadataFrame obj) {
-            metadata.set(obj.getMD());
+            BenchmarkParams params = plan.get().getMeasurementParams().get(obj.getBenchmark());
+            metadata.get().put(params, obj.getMD());
         }
 
         private void handleOutput(OutputFrame obj) {
             try {
+                if (captureOutput) {
+                    out.write(obj.getData());
+                    return;
+                }
                 switch (obj.getType()) {
                     case OUT:
                         System.out.write(obj.getData());
@@ -347,20 +465,30 @@ public final class BinaryLinkServer {
         }
 
         private void handleResults(ResultsFrame obj) {
-            results.get().add(obj.getRes());
+            IterationResult res = obj.getRes();
+
+            // Everything the forked VM had written since the iteration start
+            // belongs to this iteration.
+            TelemetryRing ring = telemetry;
+            if (ring != null) {
+                res.addResults(ring.takeResults());
+            }
+
+            results.get().add(res);
         }
 
         private void handleHandshake(HandshakeInitFrame obj) throws IOException {
             clientPid = obj.getPid();
-            oos.writeObject(new HandshakeResponseFrame(opts));
-            oos.flush();
+            TelemetryRing ring = prepareTelemetry();
+            writer.write(new HandshakeResponseFrame(opts, (ring != null) ? ring.getFile().getAbsolutePath() : null));
+            writer.flush();
         }
 
-        private void handleInfra(InfraFrame req) throws IOException {
+        private void handleInfra(InfraFrame req) throws IOException, InterruptedException {
             switch (req.getType()) {
                 case ACTION_PLAN_REQUEST:
-                    oos.writeObject(new ActionPlanFrame(plan.get()));
-                    oos.flush();
+                    writer.write(new ActionPlanFrame(awaitPlan()));
+                    writer.flush();
                     break;
                 default:
                     throw new IllegalStateException("Unknown infrastructure request: " + req);
@@ -379,13 +507,20 @@ public final class BinaryLinkServer {
                 return true;
             }
 
+            // New iteration is about to start, drop the telemetry left from the previous
+            // one, e.g. from the warmup iterations that are not reported back to host VM.
+            TelemetryRing ring = telemetry;
+            if (ring != null && m.getName().equals("iteration")) {
+                ring.takeResults();
+            }
+
             m.invoke(out, frame.args);
             return false;
         }
 
         public void close() {
             try {
-                socket.close();
+                channel.close();
             } catch (IOException e) {
                 // ignore
             }
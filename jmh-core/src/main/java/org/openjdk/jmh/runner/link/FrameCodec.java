@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+/**
+ * Binary link wire format.
+ *
+ * <p>Each party starts its stream with {@link #MAGIC} and {@link #VERSION}, and then
+ * writes frames. Each frame is the tag byte, the payload length, and the payload itself.
+ * The frames that are produced frequently are encoded by hand; the rest are carried
+ * as the chunks of the long-living Java serialization stream, which lets the receiver
+ * to share the repeating objects, e.g. benchmark and iteration parameters.
+ */
+final class FrameCodec {
+
+    static final int MAGIC = 0x4A4D484C; // "JMHL"
+    static final byte VERSION = 8;
+
+    static final byte HANDSHAKE_INIT     = 1;
+    static final byte HANDSHAKE_RESPONSE = 2;
+    static final byte INFRA              = 3;
+    static final byte ACTION_PLAN        = 4;
+    static final byte OUTPUT             = 5;
+    static final byte OUTPUT_FORMAT      = 6;
+    static final byte RESULTS            = 7;
+    static final byte RESULT_METADATA    = 8;
+    static final byte EXCEPTION          = 9;
+    static final byte FINISHING          = 10;
+
+    /**
+     * Marks the result encoded by {@link org.openjdk.jmh.results.ResultCodec}.
+     */
+    static final byte RESULT_NATIVE = 1;
+
+    /**
+     * Marks the result carried by Java serialization.
+     */
+    static final byte RESULT_SERIALIZED = 2;
+
+    static final int BUFFER_SIZE = Integer.getInteger("jmh.link.bufferSize", 64*1024);
+
+    private FrameCodec() {
+        // prevent instantiation
+    }
+
+}
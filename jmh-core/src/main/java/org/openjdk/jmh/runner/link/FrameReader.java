@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.BenchmarkResultMetaData;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ResultCodec;
+import org.openjdk.jmh.runner.ActionPlan;
+import org.openjdk.jmh.runner.BenchmarkException;
+import org.openjdk.jmh.runner.options.Options;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the link frames from the channel.
+ * This class is not thread-safe, callers are expected to serialize access.
+ */
+final class FrameReader {
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer in;
+    private boolean headerRead;
+
+    private final BufferStream payload;
+    private final DataInputStream dis;
+
+    private final ChunkStream serialized;
+    private ObjectInputStream ois;
+
+    public FrameReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.in = ByteBuffer.allocateDirect(FrameCodec.BUFFER_SIZE);
+        this.in.limit(0);
+        this.payload = new BufferStream();
+        this.dis = new DataInputStream(payload);
+        this.serialized = new ChunkStream(dis);
+    }
+
+    public Object read() throws IOException, ClassNotFoundException {
+        if (!headerRead) {
+            fill(5);
+            int magic = in.getInt();
+            byte version = in.get();
+            if (magic != FrameCodec.MAGIC) {
+                throw new IOException("Stream corrupted, unexpected magic: " + Integer.toHexString(magic));
+            }
+            if (version != FrameCodec.VERSION) {
+                throw new IOException("Protocol version mismatch, expected " + FrameCodec.VERSION + ", got " + version);
+            }
+            headerRead = true;
+        }
+
+        fill(5);
+        byte tag = in.get();
+        int len = in.getInt();
+        fill(len);
+
+        ByteBuffer frame = in.duplicate();
+        frame.limit(frame.position() + len);
+        in.position(in.position() + len);
+        payload.buf = frame;
+
+        switch (tag) {
+            case FrameCodec.OUTPUT: {
+                OutputFrame.Type type = OutputFrame.Type.values()[dis.readUnsignedByte()];
+                byte[] data = new byte[frame.remaining()];
+                dis.readFully(data);
+                return new OutputFrame(type, data);
+            }
+            case FrameCodec.RESULTS:
+                return new ResultsFrame(readIterationResult());
+            case FrameCodec.OUTPUT_FORMAT: {
+                String method = dis.readUTF();
+                Object[] args = (Object[]) readSerialized();
+                return new OutputFormatFrame(method, args);
+            }
+            case FrameCodec.INFRA:
+                return new InfraFrame(InfraFrame.Type.values()[dis.readUnsignedByte()]);
+            case FrameCodec.RESULT_METADATA: {
+                int benchmark = dis.readInt();
+                long warmupTime = dis.readLong();
+                long measurementTime = dis.readLong();
+                long stopTime = dis.readLong();
+                long warmupOps = dis.readLong();
+                long measurementOps = dis.readLong();
+                int warmupIterations = dis.readInt();
+                boolean warmupSteady = dis.readBoolean();
+                return new ResultMetadataFrame(benchmark, new BenchmarkResultMetaData(warmupTime, measurementTime, stopTime, warmupOps, measurementOps,
+                        warmupIterations, warmupSteady));
+            }
+            case FrameCodec.HANDSHAKE_INIT:
+                return new HandshakeInitFrame(dis.readLong());
+            case FrameCodec.HANDSHAKE_RESPONSE:
+                return readHandshakeResponse();
+            case FrameCodec.ACTION_PLAN:
+                return new ActionPlanFrame((ActionPlan) readSerialized());
+            case FrameCodec.EXCEPTION:
+                return new ExceptionFrame((BenchmarkException) readSerialized());
+            case FrameCodec.FINISHING:
+                return new FinishingFrame();
+            default:
+                throw new IOException("Stream corrupted, unknown frame tag: " + tag);
+        }
+    }
+
+    private HandshakeResponseFrame readHandshakeResponse() throws IOException, ClassNotFoundException {
+        Options opts = (Options) readSerialized();
+        String telemetryFile = dis.readUTF();
+        return new HandshakeResponseFrame(opts, telemetryFile.isEmpty() ? null : telemetryFile);
+    }
+
+    private IterationResult readIterationResult() throws IOException, ClassNotFoundException {
+        BenchmarkParams benchmarkParams = (BenchmarkParams) readSerialized();
+        IterationParams params = (IterationParams) readSerialized();
+
+        long allOps = dis.readLong();
+        long measuredOps = dis.readLong();
+        long startTime = dis.readLong();
+        long stopTime = dis.readLong();
+
+        IterationResult ir = new IterationResult(benchmarkParams, params, new IterationResultMetaData(allOps, measuredOps, startTime, stopTime));
+
+        int count = dis.readInt();
+        for (int c = 0; c < count; c++) {
+            byte kind = dis.readByte();
+            switch (kind) {
+                case FrameCodec.RESULT_NATIVE:
+                    ir.addResult(ResultCodec.read(dis));
+                    break;
+                case FrameCodec.RESULT_SERIALIZED:
+                    ir.addResult((Result) readSerialized());
+                    break;
+                default:
+                    throw new IOException("Stream corrupted, unknown result kind: " + kind);
+            }
+        }
+        return ir;
+    }
+
+    private Object readSerialized() throws IOException, ClassNotFoundException {
+        serialized.next(dis.readInt());
+        if (ois == null) {
+            // late OIS initialization: the first chunk carries the stream header
+            ois = new ObjectInputStream(serialized);
+        }
+        Object o = ois.readObject();
+        serialized.skipRest();
+        return o;
+    }
+
+    /**
+     * Makes sure there are at least given number of bytes available in the buffer.
+     */
+    private void fill(int len) throws IOException {
+        if (in.capacity() < len) {
+            ByteBuffer nb = ByteBuffer.allocateDirect(Integer.highestOneBit(len) << 1);
+            nb.put(in);
+            nb.flip();
+            in = nb;
+        }
+
+        if (in.remaining() >= len) {
+            return;
+        }
+
+        in.compact();
+        while (in.position() < len) {
+            if (channel.read(in) < 0) {
+                throw new EOFException();
+            }
+        }
+        in.flip();
+    }
+
+    /**
+     * Input stream over the current frame payload.
+     */
+    private static class BufferStream extends InputStream {
+        ByteBuffer buf;
+
+        @Override
+        public int read() {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            return buf.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+
+    /**
+     * Input stream over the next serialized chunk in the current frame payload.
+     * The serialization stream is long-living, and never sees the chunk boundaries.
+     */
+    private static class ChunkStream extends InputStream {
+        private final InputStream src;
+        private int left;
+
+        ChunkStream(InputStream src) {
+            this.src = src;
+        }
+
+        void next(int len) {
+            left = len;
+        }
+
+        void skipRest() throws IOException {
+            while (left > 0) {
+                long skipped = src.skip(left);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                left -= skipped;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (left <= 0) {
+                return -1;
+            }
+            int v = src.read();
+            if (v >= 0) {
+                left--;
+            }
+            return v;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (left <= 0) {
+                return -1;
+            }
+            int n = src.read(b, off, Math.min(len, left));
+            if (n > 0) {
+                left -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return left;
+        }
+    }
+
+}
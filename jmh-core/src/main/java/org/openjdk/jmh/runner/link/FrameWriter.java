@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.openjdk.jmh.results.BenchmarkResultMetaData;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ResultCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Writes the link frames to the channel.
+ * This class is not thread-safe, callers are expected to serialize access.
+ */
+final class FrameWriter {
+
+    private static final int RESET_EACH = Integer.getInteger("jmh.link.resetEach", 100);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer out;
+
+    private final Chunk payload;
+    private final DataOutputStream dos;
+
+    private final Chunk serialized;
+    private final ObjectOutputStream oos;
+    private int resetToGo;
+
+    public FrameWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.out = ByteBuffer.allocateDirect(FrameCodec.BUFFER_SIZE);
+
+        this.payload = new Chunk();
+        this.dos = new DataOutputStream(payload);
+
+        // OOS writes the stream header right away. It would stay in the buffer,
+        // and would be sent along with the first serialized object.
+        this.serialized = new Chunk();
+        this.oos = new ObjectOutputStream(serialized);
+
+        out.putInt(FrameCodec.MAGIC);
+        out.put(FrameCodec.VERSION);
+    }
+
+    public void write(Object frame) throws IOException {
+        if (frame instanceof OutputFrame) {
+            OutputFrame f = (OutputFrame) frame;
+            dos.writeByte(f.getType().ordinal());
+            dos.write(f.getData());
+            emit(FrameCodec.OUTPUT);
+        } else if (frame instanceof ResultsFrame) {
+            writeIterationResult(((ResultsFrame) frame).getRes());
+            emit(FrameCodec.RESULTS);
+        } else if (frame instanceof OutputFormatFrame) {
+            OutputFormatFrame f = (OutputFormatFrame) frame;
+            dos.writeUTF(f.method);
+            writeSerialized(f.args);
+            emit(FrameCodec.OUTPUT_FORMAT);
+        } else if (frame instanceof InfraFrame) {
+            dos.writeByte(((InfraFrame) frame).getType().ordinal());
+            emit(FrameCodec.INFRA);
+        } else if (frame instanceof ResultMetadataFrame) {
+            ResultMetadataFrame f = (ResultMetadataFrame) frame;
+            BenchmarkResultMetaData md = f.getMD();
+            dos.writeInt(f.getBenchmark());
+            dos.writeLong(md.getWarmupTime());
+            dos.writeLong(md.getMeasurementTime());
+            dos.writeLong(md.getStopTime());
+            dos.writeLong(md.getWarmupOps());
+            dos.writeLong(md.getMeasurementOps());
+            dos.writeInt(md.getWarmupIterations());
+            dos.writeBoolean(md.isWarmupSteady());
+            emit(FrameCodec.RESULT_METADATA);
+        } else if (frame instanceof HandshakeInitFrame) {
+            dos.writeLong(((HandshakeInitFrame) frame).getPid());
+            emit(FrameCodec.HANDSHAKE_INIT);
+        } else if (frame instanceof HandshakeResponseFrame) {
+            HandshakeResponseFrame f = (HandshakeResponseFrame) frame;
+            writeSerialized(f.getOpts());
+            dos.writeUTF(f.getTelemetryFile() != null ? f.getTelemetryFile() : "");
+            emit(FrameCodec.HANDSHAKE_RESPONSE);
+        } else if (frame instanceof ActionPlanFrame) {
+            writeSerialized(((ActionPlanFrame) frame).getActionPlan());
+            emit(FrameCodec.ACTION_PLAN);
+        } else if (frame instanceof ExceptionFrame) {
+            writeSerialized(((ExceptionFrame) frame).getError());
+            emit(FrameCodec.EXCEPTION);
+        } else if (frame instanceof FinishingFrame) {
+            emit(FrameCodec.FINISHING);
+        } else {
+            throw new IllegalArgumentException("Unknown frame: " + frame);
+        }
+    }
+
+    private void writeIterationResult(IterationResult ir) throws IOException {
+        // Parameters are the same for all iterations, serialization stream
+        // would send the back-references for them after the first time.
+        writeSerialized(ir.getBenchmarkParams());
+        writeSerialized(ir.getParams());
+
+        dos.writeLong(ir.getMetadata().getAllOps());
+        dos.writeLong(ir.getMetadata().getMeasuredOps());
+        dos.writeLong(ir.getMetadata().getStartTime());
+        dos.writeLong(ir.getMetadata().getStopTime());
+
+        // Result roles are disjoint, but be defensive about the same result
+        // appearing in both primary and secondary results.
+        Set<Result> rs = Collections.newSetFromMap(new IdentityHashMap<Result, Boolean>());
+        rs.addAll(ir.getRawPrimaryResults());
+        rs.addAll(ir.getRawSecondaryResults().values());
+
+        dos.writeInt(rs.size());
+        for (Result r : rs) {
+            if (ResultCodec.isSupported(r)) {
+                dos.writeByte(FrameCodec.RESULT_NATIVE);
+                ResultCodec.write(r, dos);
+            } else {
+                dos.writeByte(FrameCodec.RESULT_SERIALIZED);
+                writeSerialized(r);
+            }
+        }
+    }
+
+    private void writeSerialized(Object o) throws IOException {
+        // It is important to reset the OOS to avoid garbage buildup in internal identity
+        // tables. However, we cannot do that after each object since the huge referenced
+        // objects like benchmark and iteration parameters will be duplicated on the receiver
+        // side. This is why we reset only each RESET_EACH objects.
+        if (resetToGo-- < 0) {
+            oos.reset();
+            resetToGo = RESET_EACH;
+        }
+
+        oos.writeObject(o);
+        oos.flush();
+
+        dos.writeInt(serialized.size());
+        serialized.writeTo(dos);
+        serialized.reset();
+    }
+
+    private void emit(byte tag) throws IOException {
+        dos.flush();
+
+        if (out.remaining() < 5) {
+            drain();
+        }
+        out.put(tag);
+        out.putInt(payload.size());
+
+        byte[] buf = payload.array();
+        int off = 0;
+        int len = payload.size();
+        while (len > 0) {
+            if (!out.hasRemaining()) {
+                drain();
+            }
+            int n = Math.min(out.remaining(), len);
+            out.put(buf, off, n);
+            off += n;
+            len -= n;
+        }
+
+        payload.reset();
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Reusable byte array stream, with access to the backing array.
+     */
+    private static class Chunk extends ByteArrayOutputStream {
+        Chunk() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+}
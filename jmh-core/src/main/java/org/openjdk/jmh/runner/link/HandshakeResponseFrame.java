@@ -32,12 +32,21 @@ class HandshakeResponseFrame implements Serializable {
     private static final long serialVersionUID = 2082214387637725282L;
 
     private final Options opts;
+    private final String telemetryFile;
 
-    public HandshakeResponseFrame(Options opts) {
+    public HandshakeResponseFrame(Options opts, String telemetryFile) {
         this.opts = opts;
+        this.telemetryFile = telemetryFile;
     }
 
     public Options getOpts() {
         return opts;
     }
+
+    /**
+     * @return telemetry file name, or null, if telemetry is not available
+     */
+    public String getTelemetryFile() {
+        return telemetryFile;
+    }
 }
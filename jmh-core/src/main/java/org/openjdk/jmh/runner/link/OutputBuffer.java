@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free buffer for the forked VM stdout/stderr.
+ *
+ * <p>Any number of threads write into the buffer, and the only consumer drains
+ * it into {@link OutputFrame}-s. Writers claim the space with CAS, copy their bytes,
+ * and publish the record by setting its header. Writer never waits for the consumer:
+ * when there is no space left, the bytes are dropped and counted.</p>
+ *
+ * <p>Records are aligned, and their headers live in the separate array, one slot per
+ * alignment unit. The header is zero while the record is not yet published, carries
+ * the length and the stream type for the published record, and is negative for the
+ * padding that skips the tail end of the buffer.</p>
+ */
+class OutputBuffer {
+
+    private static final int ALIGN_SHIFT = 4;
+    private static final int ALIGN = 1 << ALIGN_SHIFT;
+
+    private static final OutputFrame.Type[] TYPES = OutputFrame.Type.values();
+
+    private final byte[] data;
+    private final AtomicIntegerArray headers;
+    private final int capacity;
+    private final int mask;
+    private final int maxRecord;
+
+    private final AtomicLong tail;
+    private volatile long head;
+    private final AtomicLong dropped;
+
+    // Accessed by consumer only
+    private long consumed;
+    private long droppedBase;
+
+    OutputBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 4 * ALIGN) {
+            throw new IllegalArgumentException("Capacity should be the power of two, at least " + (4 * ALIGN) + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxRecord = capacity / 4;
+        this.data = new byte[capacity];
+        this.headers = new AtomicIntegerArray(capacity >> ALIGN_SHIFT);
+        this.tail = new AtomicLong();
+        this.dropped = new AtomicLong();
+    }
+
+    private static int align(int len) {
+        return (len + ALIGN - 1) & -ALIGN;
+    }
+
+    /**
+     * Writes the bytes into the buffer, or drops them if buffer is full.
+     *
+     * @param type stream type
+     * @param b bytes
+     * @param off offset
+     * @param len length
+     */
+    void write(OutputFrame.Type type, byte[] b, int off, int len) {
+        while (len > 0) {
+            int chunk = Math.min(len, maxRecord);
+            int pos = claim(chunk);
+            if (pos >= 0) {
+                System.arraycopy(b, off, data, pos, chunk);
+                publish(type, pos, chunk);
+            }
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Writes the single byte into the buffer, or drops it if buffer is full.
+     *
+     * @param type stream type
+     * @param b byte to write
+     */
+    void write(OutputFrame.Type type, int b) {
+        int pos = claim(1);
+        if (pos >= 0) {
+            data[pos] = (byte) b;
+            publish(type, pos, 1);
+        }
+    }
+
+    /**
+     * Claims the space for the record.
+     *
+     * @param len record length
+     * @return record position; negative, if there is no space, and the record is dropped
+     */
+    private int claim(int len) {
+        int recLen = align(len);
+        while (true) {
+            long t = tail.get();
+            long h = head;
+
+            int pos = (int) (t & mask);
+            int toEnd = capacity - pos;
+            int need = (recLen <= toEnd) ? recLen : (toEnd + recLen);
+
+            if (t + need - h > capacity) {
+                dropped.addAndGet(len);
+                return -1;
+            }
+
+            if (!tail.compareAndSet(t, t + need)) {
+                continue;
+            }
+
+            if (recLen > toEnd) {
+                headers.set(pos >> ALIGN_SHIFT, -toEnd);
+                pos = 0;
+            }
+            return pos;
+        }
+    }
+
+    private void publish(OutputFrame.Type type, int pos, int len) {
+        // publish the record after the data is in place
+        headers.set(pos >> ALIGN_SHIFT, (len << 1) | type.ordinal());
+    }
+
+    /**
+     * @return true, if there is the published record to drain
+     */
+    boolean hasPublished() {
+        return headers.get((int) (head & mask) >> ALIGN_SHIFT) != 0;
+    }
+
+    /**
+     * Drains the published records. Consecutive records of the same stream are merged
+     * into a single frame. Only one thread at a time is allowed to drain.
+     *
+     * @return frames to send
+     */
+    List<OutputFrame> drain() {
+        List<OutputFrame> frames = new ArrayList<>();
+
+        long h = head;
+        int batchType = -1;
+        byte[] batch = new byte[0];
+        int batchLen = 0;
+
+        while (true) {
+            int pos = (int) (h & mask);
+            int slot = pos >> ALIGN_SHIFT;
+            int v = headers.get(slot);
+            if (v == 0) {
+                // not yet published, or nothing is there
+                break;
+            }
+
+            headers.set(slot, 0);
+
+            if (v < 0) {
+                // padding, skip to the buffer start
+                h += -v;
+                continue;
+            }
+
+            int len = v >>> 1;
+            int type = v & 1;
+            if (type != batchType && batchLen > 0) {
+                frames.add(new OutputFrame(TYPES[batchType], Arrays.copyOf(batch, batchLen)));
+                batchLen = 0;
+            }
+            batchType = type;
+
+            if (batch.length < batchLen + len) {
+                batch = Arrays.copyOf(batch, Math.max(batch.length * 2, batchLen + len));
+            }
+            System.arraycopy(data, pos, batch, batchLen, len);
+            batchLen += len;
+            consumed += len;
+
+            h += align(len);
+        }
+
+        if (batchLen > 0) {
+            frames.add(new OutputFrame(TYPES[batchType], Arrays.copyOf(batch, batchLen)));
+        }
+
+        // release the space after the data was read
+        head = h;
+        return frames;
+    }
+
+    /**
+     * @return bytes drained since the last {@link #resetCounters()}
+     */
+    long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return bytes dropped since the last {@link #resetCounters()}
+     */
+    long getDropped() {
+        return dropped.get() - droppedBase;
+    }
+
+    void resetCounters() {
+        consumed = 0;
+        droppedBase = dropped.get();
+    }
+
+}
@@ -31,12 +31,21 @@ import java.io.Serializable;
 class ResultMetadataFrame implements Serializable {
     private static final long serialVersionUID = -5627086531281515824L;
 
+    private final int benchmark;
     private final BenchmarkResultMetaData md;
 
-    public ResultMetadataFrame(BenchmarkResultMetaData md) {
+    public ResultMetadataFrame(int benchmark, BenchmarkResultMetaData md) {
+        this.benchmark = benchmark;
         this.md = md;
     }
 
+    /**
+     * @return index of the benchmark among the measurement actions of the plan
+     */
+    public int getBenchmark() {
+        return benchmark;
+    }
+
     public BenchmarkResultMetaData getMD() {
         return md;
     }
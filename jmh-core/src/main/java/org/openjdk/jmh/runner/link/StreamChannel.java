@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Byte channel over the blocking socket streams.
+ *
+ * <p>Unlike {@link java.nio.channels.SocketChannel}, this channel is not interruptible:
+ * the benchmark threads get interrupted on timeouts, and the interrupt that comes
+ * while the thread is writing the frame should not close the link.</p>
+ */
+final class StreamChannel implements ByteChannel {
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final byte[] readBuf;
+    private final byte[] writeBuf;
+    private volatile boolean open;
+
+    StreamChannel(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+        this.readBuf = new byte[FrameCodec.BUFFER_SIZE];
+        this.writeBuf = new byte[FrameCodec.BUFFER_SIZE];
+        this.open = true;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        int len = Math.min(dst.remaining(), readBuf.length);
+        int n = in.read(readBuf, 0, len);
+        if (n > 0) {
+            dst.put(readBuf, 0, n);
+        }
+        return n;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int total = 0;
+        while (src.hasRemaining()) {
+            int n = Math.min(src.remaining(), writeBuf.length);
+            src.get(writeBuf, 0, n);
+            out.write(writeBuf, 0, n);
+            total += n;
+        }
+        out.flush();
+        return total;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        try {
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+import sun.misc.Unsafe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Telemetry channel between the forked VM and the host VM.
+ *
+ * <p>The channel is the memory-mapped file, which holds the table of telemetry keys,
+ * and a number of single-producer/single-consumer rings. Every producing thread in the
+ * forked VM claims its own ring, and then writes the records there without locks,
+ * allocations, or system calls. Host VM drains all rings concurrently, and aggregates
+ * the records per key.</p>
+ *
+ * <p>Producers and consumer publish the ring tail and head with the ordered writes,
+ * and read them with the volatile reads, right at the mapped memory: the record is
+ * visible to the other side before the index that covers it.</p>
+ */
+public final class TelemetryRing {
+
+    /**
+     * Values are summed up within the iteration.
+     */
+    public static final int KIND_COUNTER = 1;
+
+    /**
+     * Values are averaged within the iteration.
+     */
+    public static final int KIND_SAMPLE = 2;
+
+    private static final int MAGIC = 0x4A4D4854;
+
+    // File header
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_RINGS = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_MAX_KEYS = 12;
+    private static final int HEADER_KEY_COUNT = 16;
+    private static final int HEADER_RINGLESS_DROPPED = 24;
+    private static final int HEADER_SIZE = 128;
+
+    // Key table entry: kind, name, unit
+    private static final int KEY_KIND = 0;
+    private static final int KEY_NAME = 1;
+    private static final int KEY_UNIT = 64;
+    private static final int KEY_SIZE = 96;
+
+    // Ring header: producer and consumer fields are in the different cache lines
+    private static final int RING_TAIL = 0;
+    private static final int RING_DROPPED = 8;
+    private static final int RING_HEAD = 128;
+    private static final int RING_HEADER_SIZE = 256;
+
+    // Record: key, value
+    private static final int RECORD_KEY = 0;
+    private static final int RECORD_VALUE = 8;
+    private static final int RECORD_SIZE = 16;
+
+    static final int DEFAULT_RINGS = 32;
+    static final int DEFAULT_CAPACITY = 4096;
+    static final int DEFAULT_MAX_KEYS = 256;
+
+    private static final Unsafe U;
+    private static final long BUFFER_ADDRESS;
+
+    static {
+        try {
+            Field unsafe = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafe.setAccessible(true);
+            U = (Unsafe) unsafe.get(null);
+            BUFFER_ADDRESS = U.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final File file;
+    private final ByteBuffer buf;
+    private final long address;
+    private final int rings;
+    private final int capacity;
+    private final int maxKeys;
+    private final int ringsOffset;
+    private final int ringSize;
+
+    private TelemetryRing(File file, ByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        this.address = U.getLong(buf, BUFFER_ADDRESS);
+        buf.order(ByteOrder.nativeOrder());
+
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Not a telemetry file: " + file);
+        }
+
+        rings = buf.getInt(HEADER_RINGS);
+        capacity = buf.getInt(HEADER_CAPACITY);
+        maxKeys = buf.getInt(HEADER_MAX_KEYS);
+        ringsOffset = HEADER_SIZE + maxKeys * KEY_SIZE;
+        ringSize = RING_HEADER_SIZE + capacity * RECORD_SIZE;
+
+        if (Integer.bitCount(capacity) != 1 || buf.capacity() < ringsOffset + rings * ringSize) {
+            throw new IOException("Corrupted telemetry file: " + file);
+        }
+
+        producers = new ThreadLocal<>();
+        claimedRings = new AtomicInteger();
+        keyIds = new HashMap<>();
+    }
+
+    private static ByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel ch = raf.getChannel()) {
+            if (size > 0) {
+                raf.setLength(size);
+            }
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        }
+    }
+
+    /**
+     * Creates the new telemetry file. This is called in host VM.
+     *
+     * @param file file to use
+     * @return telemetry ring
+     * @throws IOException if file cannot be created
+     */
+    public static TelemetryRing create(File file) throws IOException {
+        return create(file, DEFAULT_RINGS, DEFAULT_CAPACITY, DEFAULT_MAX_KEYS);
+    }
+
+    static TelemetryRing create(File file, int rings, int capacity, int maxKeys) throws IOException {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be the power of two: " + capacity);
+        }
+        long size = HEADER_SIZE + (long) maxKeys * KEY_SIZE + (long) rings * (RING_HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        ByteBuffer buf = map(file, size);
+        buf.order(ByteOrder.nativeOrder());
+        buf.putInt(HEADER_MAGIC, MAGIC);
+        buf.putInt(HEADER_RINGS, rings);
+        buf.putInt(HEADER_CAPACITY, capacity);
+        buf.putInt(HEADER_MAX_KEYS, maxKeys);
+        buf.putInt(HEADER_KEY_COUNT, 0);
+        buf.putLong(HEADER_RINGLESS_DROPPED, 0);
+        return new TelemetryRing(file, buf);
+    }
+
+    /**
+     * Opens the telemetry file created by host VM. This is called in forked VM.
+     *
+     * @param file file to use
+     * @return telemetry ring
+     * @throws IOException if file cannot be opened
+     */
+    public static TelemetryRing open(File file) throws IOException {
+        return new TelemetryRing(file, map(file, 0));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // ------------------------------ Producer side ------------------------------
+
+    private static volatile TelemetryRing current;
+
+    private final ThreadLocal<Producer> producers;
+    private final AtomicInteger claimedRings;
+    private final Map<String, Integer> keyIds;
+
+    /**
+     * Makes the given telemetry ring available to forked VM code.
+     *
+     * @param ring telemetry ring, or null to disable telemetry
+     */
+    public static void setCurrent(TelemetryRing ring) {
+        current = ring;
+    }
+
+    /**
+     * @return telemetry ring in forked VM, or null, if telemetry is not available
+     */
+    public static TelemetryRing getCurrent() {
+        return current;
+    }
+
+    /**
+     * Registers the telemetry key. Registering the same name again returns the same key.
+     *
+     * @param kind key kind, either {@link #KIND_COUNTER} or {@link #KIND_SAMPLE}
+     * @param name key name
+     * @param unit value unit
+     * @return key, or -1 if key table is full
+     */
+    public synchronized int register(int kind, String name, String unit) {
+        Integer id = keyIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int count = buf.getInt(HEADER_KEY_COUNT);
+        if (count >= maxKeys) {
+            return -1;
+        }
+
+        int off = HEADER_SIZE + count * KEY_SIZE;
+        buf.put(off + KEY_KIND, (byte) kind);
+        putString(off + KEY_NAME, KEY_UNIT - KEY_NAME, name);
+        putString(off + KEY_UNIT, KEY_SIZE - KEY_UNIT, unit);
+
+        // publish the entry, synchronized section orders it before the count update
+        buf.putInt(HEADER_KEY_COUNT, count + 1);
+        keyIds.put(name, count);
+        return count;
+    }
+
+    /**
+     * Writes the record into the calling thread ring. If the ring is full, or there
+     * are no rings left for this thread, the record is dropped.
+     *
+     * @param key telemetry key
+     * @param value value
+     */
+    public void write(int key, long value) {
+        Producer p = producers.get();
+        if (p == null) {
+            int idx = claimedRings.getAndIncrement();
+            p = new Producer(idx < rings ? ringsOffset + idx * ringSize : -1);
+            producers.set(p);
+        }
+        p.write(key, value);
+    }
+
+    private void putString(int off, int maxLen, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, maxLen - 1);
+        for (int i = 0; i < len; i++) {
+            buf.put(off + i, bytes[i]);
+        }
+        buf.put(off + len, (byte) 0);
+    }
+
+    private String getString(int off, int maxLen) {
+        int len = 0;
+        while (len < maxLen && buf.get(off + len) != 0) {
+            len++;
+        }
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buf.get(off + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final class Producer {
+        private final int base;
+        private final long mask;
+        private long tail;
+        private long head;
+        private long dropped;
+
+        Producer(int base) {
+            this.base = base;
+            this.mask = capacity - 1;
+        }
+
+        void write(int key, long value) {
+            if (base < 0) {
+                // No ring for this thread, this is the slow path anyway
+                synchronized (TelemetryRing.this) {
+                    buf.putLong(HEADER_RINGLESS_DROPPED, buf.getLong(HEADER_RINGLESS_DROPPED) + 1);
+                }
+                return;
+            }
+
+            long t = tail;
+            if (t - head >= capacity) {
+                // Looks full, see how far the consumer went
+                head = U.getLongVolatile(null, address + base + RING_HEAD);
+                if (t - head >= capacity) {
+                    buf.putLong(base + RING_DROPPED, ++dropped);
+                    return;
+                }
+            }
+
+            int off = base + RING_HEADER_SIZE + (int) (t & mask) * RECORD_SIZE;
+            buf.putInt(off + RECORD_KEY, key);
+            buf.putLong(off + RECORD_VALUE, value);
+
+            // publish the record after it was written
+            U.putOrderedLong(null, address + base + RING_TAIL, t + 1);
+            tail = t + 1;
+        }
+    }
+
+    // ------------------------------ Consumer side ------------------------------
+
+    private long[] counts = new long[0];
+    private long[] sums = new long[0];
+    private long[] lastDropped = new long[0];
+    private long lastRinglessDropped;
+    private long dropped;
+
+    /**
+     * Forgets everything the previous forked VM had written. Host VM calls this
+     * before the next forked VM attaches to the same file.
+     */
+    public synchronized void reset() {
+        buf.putInt(HEADER_KEY_COUNT, 0);
+        buf.putLong(HEADER_RINGLESS_DROPPED, 0);
+        for (int r = 0; r < rings; r++) {
+            int base = ringsOffset + r * ringSize;
+            buf.putLong(base + RING_TAIL, 0);
+            buf.putLong(base + RING_DROPPED, 0);
+            buf.putLong(base + RING_HEAD, 0);
+        }
+        counts = new long[0];
+        sums = new long[0];
+        lastDropped = new long[0];
+        lastRinglessDropped = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Reads all the available records, and accumulates them until the next {@link #takeResults()}.
+     *
+     * @return the largest fraction of the ring capacity that was occupied before drain
+     */
+    public synchronized double drain() {
+        if (lastDropped.length < rings) {
+            lastDropped = new long[rings];
+        }
+
+        long maxFill = 0;
+        for (int r = 0; r < rings; r++) {
+            int base = ringsOffset + r * ringSize;
+
+            long tail = U.getLongVolatile(null, address + base + RING_TAIL);
+            long head = buf.getLong(base + RING_HEAD);
+
+            maxFill = Math.max(maxFill, tail - head);
+
+            for (long h = head; h < tail; h++) {
+                int off = base + RING_HEADER_SIZE + (int) (h & (capacity - 1)) * RECORD_SIZE;
+                int key = buf.getInt(off + RECORD_KEY);
+                long value = buf.getLong(off + RECORD_VALUE);
+                if (key < 0 || key >= maxKeys) {
+                    continue;
+                }
+                if (key >= counts.length) {
+                    counts = Arrays.copyOf(counts, maxKeys);
+                    sums = Arrays.copyOf(sums, maxKeys);
+                }
+                counts[key]++;
+                sums[key] += value;
+            }
+
+            // release the slots after they were read
+            U.putOrderedLong(null, address + base + RING_HEAD, tail);
+
+            long d = buf.getLong(base + RING_DROPPED);
+            dropped += d - lastDropped[r];
+            lastDropped[r] = d;
+        }
+
+        long d = buf.getLong(HEADER_RINGLESS_DROPPED);
+        dropped += d - lastRinglessDropped;
+        lastRinglessDropped = d;
+
+        return 1D * maxFill / capacity;
+    }
+
+    /**
+     * Drains the rings, and returns the results accumulated since the last call.
+     *
+     * @return telemetry results
+     */
+    public synchronized List<Result> takeResults() {
+        drain();
+
+        List<Result> results = new ArrayList<>();
+        int keys = Math.min(buf.getInt(HEADER_KEY_COUNT), counts.length);
+        for (int k = 0; k < keys; k++) {
+            if (counts[k] == 0) {
+                continue;
+            }
+            int off = HEADER_SIZE + k * KEY_SIZE;
+            int kind = buf.get(off + KEY_KIND);
+            String name = getString(off + KEY_NAME, KEY_UNIT - KEY_NAME);
+            String unit = getString(off + KEY_UNIT, KEY_SIZE - KEY_UNIT);
+
+            double value = (kind == KIND_SAMPLE) ? 1D * sums[k] / counts[k] : sums[k];
+            results.add(new ScalarResult(Defaults.PREFIX + name, value, unit, AggregationPolicy.AVG));
+            counts[k] = 0;
+            sums[k] = 0;
+        }
+
+        if (dropped > 0) {
+            results.add(new ScalarResult(Defaults.PREFIX + "telemetry.dropped", dropped, "records", AggregationPolicy.SUM));
+            dropped = 0;
+        }
+        return results;
+    }
+
+}
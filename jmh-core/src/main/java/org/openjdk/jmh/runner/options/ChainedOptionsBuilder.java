@@ -89,6 +89,35 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder result(String filename);
 
+    /**
+     * Append results to the result file as soon as each benchmark completes,
+     * instead of writing them all at the end of the run. Only JSON, CSV and SCSV
+     * result formats support this. The file stays valid if the run is interrupted.
+     * @param value flag
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#STREAM_RESULTS
+     */
+    ChainedOptionsBuilder streamResults(boolean value);
+
+    /**
+     * Skip the benchmarks which results are already present in the result file,
+     * and append the results for the rest. Implies streaming the results.
+     * @param value flag
+     * @return builder
+     * @see #streamResults(boolean)
+     * @see org.openjdk.jmh.runner.Defaults#RESUME
+     */
+    ChainedOptionsBuilder resume(boolean value);
+
+    /**
+     * Re-use the results from the previous JSON results file. Only the benchmarks
+     * which results are missing or failed there would be run, and the old results
+     * are merged with the new ones.
+     * @param filename previous results file
+     * @return builder
+     */
+    ChainedOptionsBuilder previousResults(String filename);
+
     /**
      * Should do GC between measurementIterations?
      * @param value flag
@@ -152,6 +181,17 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder threads(int count);
 
+    /**
+     * Thread counts to sweep through. Each benchmark runs once for every thread count,
+     * overriding the other thread count settings, and the Universal Scalability Law
+     * model is fitted to the throughput at these points. The model is reported with
+     * the secondary results of the sweep point with the most threads.
+     * @param counts thread counts
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#THREADS_SWEEP_PARAM
+     */
+    ChainedOptionsBuilder threadsSweep(int... counts);
+
     /**
      * Subgroups thread distribution.
      * @param groups thread distribution
@@ -179,6 +219,18 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder warmupIterations(int value);
 
+    /**
+     * Detect the end of warmup automatically: stop warmup once the recent scores
+     * stop drifting and the JIT compiler settles. Warmup iteration count becomes
+     * the upper bound then, and the warmup length found is reported with the results.
+     * Detection needs more than 6 warmup iterations; unless set explicitly, warmup
+     * runs up to {@link org.openjdk.jmh.runner.Defaults#WARMUP_ITERATIONS_DETECT} iterations.
+     * @param value flag
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#DETECT_WARMUP
+     */
+    ChainedOptionsBuilder detectWarmup(boolean value);
+
     /**
      * How large warmup batchSize should be?
      * @param value batch size
@@ -222,6 +274,42 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder measurementIterations(int count);
 
+    /**
+     * Measure adaptively: stop adding measurement iterations and forks once
+     * the score error relative to the score drops below the target. The
+     * measurement iteration and fork counts become the upper bounds then.
+     * Once converged, one more iteration runs to complete the trial, and it
+     * is included in the results.
+     * @param relativeError target relative error, e.g. 0.01 for 1%
+     * @return builder
+     */
+    ChainedOptionsBuilder targetError(double relativeError);
+
+    /**
+     * Amortize the iteration end checks in {@link org.openjdk.jmh.annotations.Mode#Throughput}
+     * and {@link org.openjdk.jmh.annotations.Mode#AverageTime} modes: check once per several
+     * benchmark invocations, instead of after every invocation. The number of invocations
+     * between the checks is calibrated after the first warmup iteration, so that the measurement
+     * loop runs past the iteration end by no more than this time. Needs at least 2 warmup
+     * iterations. The operation counts stay exact.
+     * @param value time bound
+     * @return builder
+     */
+    ChainedOptionsBuilder pollOvershoot(TimeValue value);
+
+    /**
+     * Run the empty-body twin of each benchmark in the same fork, to measure the
+     * cost of the harness itself. The twin iteration runs before each warmup and
+     * measurement iteration, for up to 100 ms, which adds to the trial time.
+     * Only {@link org.openjdk.jmh.annotations.Mode#Throughput},
+     * {@link org.openjdk.jmh.annotations.Mode#AverageTime} and
+     * {@link org.openjdk.jmh.annotations.Mode#SampleTime} modes are supported.
+     * @param mode baseline mode
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#BASELINE_MODE
+     */
+    ChainedOptionsBuilder baselineMode(BaselineMode mode);
+
     /**
      * How large measurement batchSize should be?
      * @param value batch size
@@ -269,6 +357,15 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder operationsPerInvocation(int value);
 
+    /**
+     * Target operation rate for rate-limited mode.
+     * @param value operations per second, per thread
+     * @return builder
+     * @see org.openjdk.jmh.annotations.Rate
+     * @see org.openjdk.jmh.annotations.Mode#RateLimited
+     */
+    ChainedOptionsBuilder rate(int value);
+
     /**
      * Number of forks to use in the run
      * @param value number of forks
@@ -287,6 +384,50 @@ public interface ChainedOptionsBuilder {
      */
     ChainedOptionsBuilder warmupForks(int value);
 
+    /**
+     * Number of forked VMs to run concurrently. Every concurrent fork is
+     * pinned to its own disjoint set of CPUs, when the platform allows.
+     * Max threads in each fork only take the fork's share of CPUs, and
+     * warmup forks run alone.
+     * @param value number of concurrent forks
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#PARALLEL_FORKS
+     */
+    ChainedOptionsBuilder parallelForks(int value);
+
+    /**
+     * Number of idle forked VMs to keep pre-launched. These VMs start up
+     * while the current fork runs, and pick up the next fork immediately.
+     * @param value number of warm forks
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#WARM_FORKS
+     */
+    ChainedOptionsBuilder warmForks(int value);
+
+    /**
+     * Share the dynamic CDS archive between forked VMs. When there is no archive
+     * for the given VM, VM options and classpath yet, the first warmup fork, or
+     * the extra fork that loads the benchmarks and runs no iterations, dumps its
+     * classes into the archive, and the measured forks load the classes from it.
+     * Archives are cached in the directory set by "jmh.cds.dir" property, and
+     * need JDK 13+.
+     * @param value flag
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#CDS_ARCHIVE
+     */
+    ChainedOptionsBuilder cdsArchive(boolean value);
+
+    /**
+     * Fork grouping policy. Benchmarks in the same group run one after another
+     * in the same forked VMs, and share the trial setup and teardown of
+     * {@link org.openjdk.jmh.annotations.Scope#Benchmark} states. Only benchmarks
+     * with the same fork settings are grouped together.
+     * @param value fork grouping
+     * @return builder
+     * @see org.openjdk.jmh.runner.Defaults#FORK_GROUPING
+     */
+    ChainedOptionsBuilder forkGrouping(ForkGrouping value);
+
     /**
      * Forked JVM to use.
      *
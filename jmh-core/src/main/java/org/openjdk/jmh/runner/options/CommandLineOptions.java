@@ -45,15 +45,20 @@ public class CommandLineOptions implements Options {
     private static final long serialVersionUID = 5565183446360224399L;
 
     private final Optional<Integer> iterations;
+    private final Optional<Double> targetError;
+    private final Optional<TimeValue> pollOvershoot;
+    private final Optional<BaselineMode> baselineMode;
     private final Optional<TimeValue> timeout;
     private final Optional<TimeValue> runTime;
     private final Optional<Integer> batchSize;
     private final Optional<Integer> warmupIterations;
+    private final Optional<Boolean> detectWarmup;
     private final Optional<TimeValue> warmupTime;
     private final Optional<Integer> warmupBatchSize;
     private final List<Mode> benchMode = new ArrayList<>();
     private final Optional<Integer> threads;
     private final List<Integer> threadGroups = new ArrayList<>();
+    private final List<Integer> threadsSweep = new ArrayList<>();
     private final Optional<Boolean> synchIterations;
     private final Optional<Boolean> gcEachIteration;
     private final Optional<VerboseMode> verbose;
@@ -61,11 +66,19 @@ public class CommandLineOptions implements Options {
     private final List<ProfilerConfig> profilers = new ArrayList<>();
     private final Optional<TimeUnit> timeUnit;
     private final Optional<Integer> opsPerInvocation;
+    private final Optional<Integer> rate;
     private final List<String> regexps = new ArrayList<>();
     private final Optional<Integer> fork;
     private final Optional<Integer> warmupFork;
+    private final Optional<Integer> parallelForks;
+    private final Optional<Integer> warmForks;
+    private final Optional<Boolean> cdsArchive;
+    private final Optional<ForkGrouping> forkGrouping;
     private final Optional<String> output;
     private final Optional<String> result;
+    private final Optional<Boolean> streamResults;
+    private final Optional<Boolean> resume;
+    private final Optional<String> previousResults;
     private final Optional<ResultFormatType> resultFormat;
     private final Optional<String> jvm;
     private final Optional<Collection<String>> jvmArgs;
@@ -80,6 +93,8 @@ public class CommandLineOptions implements Options {
     private final boolean listResultFormats;
     private final boolean help;
     private final boolean listProfilers;
+    private final List<String> compareFiles = new ArrayList<>();
+    private final double compareThreshold;
 
     private final transient OptionParser parser;
 
@@ -98,6 +113,28 @@ public class CommandLineOptions implements Options {
                 Defaults.MEASUREMENT_ITERATIONS + " for all other modes)")
                 .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int");
 
+        OptionSpec<Double> optTargetError = parser.accepts("te", "Target relative score error, e.g. 0.01 for 1%. When set, measurement stops adding " +
+                "iterations and forks once the score error relative to the score drops below the target. " +
+                "Measurement iterations and forks counts become the upper bounds then. " +
+                "Once converged, one more iteration runs to complete the trial, and it is included in the results. " +
+                "(default: none, run all iterations and forks)")
+                .withRequiredArg().ofType(Double.class).describedAs("double");
+
+        OptionSpec<TimeValue> optPollOvershoot = parser.accepts("po", "Check for the iteration end once per several " +
+                "benchmark invocations in " + Mode.Throughput + " and " + Mode.AverageTime + " modes, instead of after every " +
+                "invocation. The number of invocations between the checks is calibrated after the first warmup iteration, so that " +
+                "the measurement loop runs past the iteration end by no more than this time. Needs at least 2 warmup iterations. " +
+                "Operation counts stay exact. " +
+                "(default: none, check after every invocation)")
+                .withRequiredArg().ofType(TimeValue.class).describedAs("time");
+
+        OptionSpec<String> optBaselineMode = parser.accepts("bl", "Run the empty-body twin of each benchmark before " +
+                "each warmup and measurement iteration, to measure the harness cost. Twin iterations take up to " +
+                "100 ms each, on top of the benchmark iterations. Only " + Mode.Throughput + ", " + Mode.AverageTime +
+                " and " + Mode.SampleTime + " modes are supported. Baseline modes are: " + baselineModesDesc() +
+                "(default: " + Defaults.BASELINE_MODE + ")")
+                .withRequiredArg().ofType(String.class).describedAs("mode");
+
         OptionSpec<Integer> optMeasureBatchSize = parser.accepts("bs", "Batch size: number of benchmark method " +
                 "calls per operation. Some benchmark modes may ignore this setting, please check this separately. " +
                 "(default: " + Defaults.MEASUREMENT_BATCHSIZE + ")")
@@ -111,9 +148,17 @@ public class CommandLineOptions implements Options {
         OptionSpec<Integer> optWarmupCount = parser.accepts("wi", "Number of warmup iterations to do. Warmup " +
                 "iterations are not counted towards the benchmark score. " +
                 "(default: " + Defaults.WARMUP_ITERATIONS_SINGLESHOT + " for " + Mode.SingleShotTime + ", and " +
-                Defaults.WARMUP_ITERATIONS + " for all other modes)")
+                Defaults.WARMUP_ITERATIONS + " for all other modes, " + Defaults.WARMUP_ITERATIONS_DETECT +
+                " with -wauto)")
                 .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.NON_NEGATIVE).describedAs("int");
 
+        OptionSpec<Boolean> optDetectWarmup = parser.accepts("wauto", "Detect the end of warmup automatically. Warmup stops once the scores of recent " +
+                "warmup iterations stop drifting, and the JIT compiler is mostly idle. Warmup iterations count becomes " +
+                "the upper bound then, and the warmup length found is reported with the results. Detection needs more than " +
+                "6 warmup iterations; the default warmup iteration count becomes " + Defaults.WARMUP_ITERATIONS_DETECT + ". " +
+                "(default: " + Defaults.DETECT_WARMUP + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
         OptionSpec<Integer> optWarmupBatchSize = parser.accepts("wbs", "Warmup batch size: number of benchmark " +
                 "method calls per operation. Some benchmark modes may ignore this setting. " +
                 "(default: " + Defaults.WARMUP_BATCHSIZE + ")")
@@ -135,6 +180,13 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.THREADS + ")")
                 .withRequiredArg().withValuesConvertedBy(ThreadsValueConverter.INSTANCE).describedAs("int");
 
+        OptionSpec<Integer> optThreadsSweep = parser.accepts("tsweep", "Run each benchmark with every thread count " +
+                "from this comma-separated list, overriding the other thread count settings, and fit the Universal " +
+                "Scalability Law model to the throughput at these points. The model is reported with the secondary " +
+                "results of the point with the most threads.")
+                .withRequiredArg().withValuesSeparatedBy(',').ofType(Integer.class)
+                .withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int+");
+
         OptionSpec<String> optBenchmarkMode = parser.accepts("bm", "Benchmark mode. Available modes are: " + Mode.getKnown() + ". " +
                 "(default: " + Defaults.BENCHMARK_MODE + ")")
                 .withRequiredArg().ofType(String.class).withValuesSeparatedBy(',').describedAs("mode");
@@ -177,6 +229,34 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.WARMUP_FORKS + ")")
                 .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.NON_NEGATIVE).describedAs("int");
 
+        OptionSpec<Integer> optParallelForks = parser.accepts("fp", "How many forks to run concurrently. Each concurrent " +
+                "fork is pinned to its own disjoint set of CPUs with taskset or numactl, if available. Max threads " +
+                "in each fork only take the fork's share of CPUs, pinned or not. Warmup forks run alone. Forks with " +
+                "external profilers always run one after another. " +
+                "(default: " + Defaults.PARALLEL_FORKS + ")")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int");
+
+        OptionSpec<Integer> optWarmForks = parser.accepts("fwarm", "How many idle forked VMs to pre-launch while the current fork runs. The next fork " +
+                "with the same command line picks up the warm VM and starts immediately. Forks with external profilers " +
+                "or parallel forks are always launched on demand. Use 0 to disable. " +
+                "(default: " + Defaults.WARM_FORKS + ")")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.NON_NEGATIVE).describedAs("int");
+
+        OptionSpec<Boolean> optCDSArchive = parser.accepts("cds", "Share the dynamic CDS archive between forked VMs. When there is no archive for the given VM, " +
+                "VM options and classpath yet, the first warmup fork, or the extra fork that loads the benchmarks and runs " +
+                "no iterations, dumps its classes into the archive, and the measured forks load the classes from it. " +
+                "Archives are cached in the " +
+                "directory set by jmh.cds.dir property, the least recently used are evicted. Needs JDK 13+, and the " +
+                "classpath without non-empty directories. " +
+                "(default: " + Defaults.CDS_ARCHIVE + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
+        OptionSpec<String> optForkGrouping = parser.accepts("fg", "Fork grouping policy. Benchmarks in the same group run one after another in the same " +
+                "forked VMs, and share the trial setup and teardown of Scope.Benchmark states. Only benchmarks with the " +
+                "same fork settings are grouped. Policies are: " + forkGroupingDesc() +
+                "(default: " + Defaults.FORK_GROUPING + ")")
+                .withRequiredArg().ofType(String.class).describedAs("policy");
+
         OptionSpec<String> optOutput = parser.accepts("o", "Redirect human-readable output to a given file.")
                 .withRequiredArg().ofType(String.class).describedAs("filename");
 
@@ -186,6 +266,22 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.RESULT_FILE_PREFIX + ".<result-format>)")
                 .withRequiredArg().ofType(String.class).describedAs("filename");
 
+        OptionSpec<Boolean> optStreamResults = parser.accepts("rfs", "Append machine-readable results to the result file as soon as each benchmark " +
+                "completes, instead of writing them all at the end of the run. The file stays valid if the run is " +
+                "interrupted. Only JSON, CSV and SCSV result formats support this. " +
+                "(default: " + Defaults.STREAM_RESULTS + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
+        OptionSpec<Boolean> optResume = parser.accepts("resume", "Skip the benchmarks which results are already present in the result file, " +
+                "for example after the interrupted run, and append the results for the rest. Implies -rfs. " +
+                "(default: " + Defaults.RESUME + ")")
+                .withRequiredArg().ofType(Boolean.class).describedAs("bool");
+
+        OptionSpec<String> optPreviousResults = parser.accepts("prev", "Previous JSON results file. Benchmarks which results are present there are not " +
+                "run again, and their results are merged with the results of this run. Failed or missing benchmarks " +
+                "are run as usual.")
+                .withRequiredArg().ofType(String.class).describedAs("filename");
+
         OptionSpec<String> optProfilers = parser.accepts("prof", "Use profilers to collect additional benchmark data. " +
                 "Some profilers are not available on all JVMs and/or all OSes. Please see the list of available " +
                 "profilers with -lprof.")
@@ -224,6 +320,11 @@ public class CommandLineOptions implements Options {
                 "(default: " + Defaults.OPS_PER_INVOCATION + ")")
                 .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int");
 
+        OptionSpec<Integer> optRate = parser.accepts("rate", "Target operation rate for " + Mode.RateLimited + " mode, " +
+                "in operations per second per thread, see @Rate Javadoc for details. " +
+                "(default: " + Defaults.RATE + ")")
+                .withRequiredArg().withValuesConvertedBy(IntegerValueConverter.POSITIVE).describedAs("int");
+
         OptionSpec<String> optResultFormat = parser.accepts("rf", "Format type for machine-readable results. These " +
                 "results are written to a separate file (see -rff). See the list of available result formats with -lrf. " +
                 "(default: " + Defaults.RESULT_FORMAT +")")
@@ -253,6 +354,16 @@ public class CommandLineOptions implements Options {
         parser.accepts("lprof", "List profilers, and exit.");
         parser.accepts("h", "Display help, and exit.");
 
+        OptionSpec<String> optCompare = parser.accepts("compare", "Compare the baseline and candidate JSON result files, " +
+                "report significant changes, and exit. Exit code is non-zero if there are significant regressions " +
+                "above the threshold (see -ct).")
+                .withRequiredArg().withValuesSeparatedBy(',').ofType(String.class).describedAs("baseline,candidate");
+
+        OptionSpec<Double> optCompareThreshold = parser.accepts("ct", "Regression threshold for -compare, in percent. " +
+                "Significant changes below the threshold are not treated as regressions. " +
+                "(default: " + Defaults.COMPARE_THRESHOLD + ")")
+                .withRequiredArg().ofType(Double.class).describedAs("double");
+
         try {
             OptionSet set = parser.parse(argv);
 
@@ -288,6 +399,7 @@ public class CommandLineOptions implements Options {
             }
 
             opsPerInvocation = toOptional(optOPI, set);
+            rate = toOptional(optRate, set);
 
             if (set.has(optWarmupMode)) {
                 try {
@@ -299,6 +411,26 @@ public class CommandLineOptions implements Options {
                 warmupMode = Optional.none();
             }
 
+            if (set.has(optBaselineMode)) {
+                try {
+                    baselineMode = Optional.of(BaselineMode.valueOf(optBaselineMode.value(set).toUpperCase()));
+                } catch (IllegalArgumentException iae) {
+                    throw new CommandLineOptionException(iae.getMessage(), iae);
+                }
+            } else {
+                baselineMode = Optional.none();
+            }
+
+            if (set.has(optForkGrouping)) {
+                try {
+                    forkGrouping = Optional.of(ForkGrouping.valueOf(optForkGrouping.value(set).toUpperCase()));
+                } catch (IllegalArgumentException iae) {
+                    throw new CommandLineOptionException(iae.getMessage(), iae);
+                }
+            } else {
+                forkGrouping = Optional.none();
+            }
+
             if (set.has(optResultFormat)) {
                 try {
                     resultFormat = Optional.of(ResultFormatType.valueOf(optResultFormat.value(set).toUpperCase()));
@@ -315,10 +447,31 @@ public class CommandLineOptions implements Options {
             listResultFormats = set.has("lrf");
             listProfilers = set.has("lprof");
 
+            if (set.has(optCompare)) {
+                compareFiles.addAll(optCompare.values(set));
+                if (compareFiles.size() != 2) {
+                    throw new CommandLineOptionException("Expected baseline and candidate files to compare, but got " + compareFiles);
+                }
+            }
+            if (set.has(optCompareThreshold)) {
+                compareThreshold = optCompareThreshold.value(set);
+                if (!(compareThreshold >= 0)) {
+                    throw new CommandLineOptionException("Compare threshold should be non-negative, but was " + compareThreshold);
+                }
+            } else {
+                compareThreshold = Defaults.COMPARE_THRESHOLD;
+            }
+
             iterations = toOptional(optMeasureCount, set);
+            targetError = toOptional(optTargetError, set);
+            if (targetError.hasValue() && !(targetError.get() > 0)) {
+                throw new CommandLineOptionException("Target error should be positive, but was " + targetError.get());
+            }
+            pollOvershoot = toOptional(optPollOvershoot, set);
             batchSize = toOptional(optMeasureBatchSize, set);
             runTime = toOptional(optMeasureTime, set);
             warmupIterations = toOptional(optWarmupCount, set);
+            detectWarmup = toOptional(optDetectWarmup, set);
             warmupBatchSize = toOptional(optWarmupBatchSize, set);
             warmupTime = toOptional(optWarmupTime, set);
             timeout = toOptional(optTimeoutTime, set);
@@ -328,8 +481,14 @@ public class CommandLineOptions implements Options {
             failOnError = toOptional(optFOE, set);
             fork = toOptional(optForks, set);
             warmupFork = toOptional(optWarmupForks, set);
+            parallelForks = toOptional(optParallelForks, set);
+            warmForks = toOptional(optWarmForks, set);
+            cdsArchive = toOptional(optCDSArchive, set);
             output = toOptional(optOutput, set);
             result = toOptional(optOutputResults, set);
+            streamResults = toOptional(optStreamResults, set);
+            resume = toOptional(optResume, set);
+            previousResults = toOptional(optPreviousResults, set);
 
             if (set.has(optBenchmarkMode)) {
                 try {
@@ -372,6 +531,10 @@ public class CommandLineOptions implements Options {
                 }
             }
 
+            if (set.has(optThreadsSweep)) {
+                threadsSweep.addAll(set.valuesOf(optThreadsSweep));
+            }
+
             if (set.has(optThreadGroups)) {
                 threadGroups.addAll(set.valuesOf(optThreadGroups));
                 int total = 0;
@@ -429,6 +592,46 @@ public class CommandLineOptions implements Options {
         return sb.toString();
     }
 
+    private String baselineModesDesc() {
+        StringBuilder sb = new StringBuilder();
+        for (BaselineMode mode : BaselineMode.values()) {
+            sb.append(mode);
+            sb.append(" = ");
+            switch (mode) {
+                case NONE:
+                    sb.append("Do not run the baseline. ");
+                    break;
+                case REPORT:
+                    sb.append("Report the baseline score as the secondary result. ");
+                    break;
+                case CORRECT:
+                    sb.append("Report the baseline, and the primary score corrected for it. ");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private String forkGroupingDesc() {
+        StringBuilder sb = new StringBuilder();
+        for (ForkGrouping fg : ForkGrouping.values()) {
+            sb.append(fg);
+            sb.append(" = ");
+            switch (fg) {
+                case NONE:
+                    sb.append("run each benchmark in its own forks. ");
+                    break;
+                case CLASS:
+                    sb.append("run all benchmarks of the same class in the same forks. ");
+                    break;
+                case ALL:
+                    sb.append("run all selected benchmarks in the same forks. ");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
     private static <T> Optional<T> toOptional(OptionSpec<T> option, OptionSet set) {
         if (set.has(option)) {
             return Optional.eitherOf(option.value(set));
@@ -493,6 +696,18 @@ public class CommandLineOptions implements Options {
         return listProfilers;
     }
 
+    public boolean shouldCompare() {
+        return !compareFiles.isEmpty();
+    }
+
+    public List<String> getCompareFiles() {
+        return compareFiles;
+    }
+
+    public double getCompareThreshold() {
+        return compareThreshold;
+    }
+
     @Override
     public Optional<WarmupMode> getWarmupMode() {
         return warmupMode;
@@ -553,6 +768,26 @@ public class CommandLineOptions implements Options {
         return warmupFork;
     }
 
+    @Override
+    public Optional<Integer> getParallelForks() {
+        return parallelForks;
+    }
+
+    @Override
+    public Optional<Integer> getWarmForks() {
+        return warmForks;
+    }
+
+    @Override
+    public Optional<Boolean> shouldUseCDSArchive() {
+        return cdsArchive;
+    }
+
+    @Override
+    public Optional<ForkGrouping> getForkGrouping() {
+        return forkGrouping;
+    }
+
     @Override
     public Optional<String> getOutput() {
         return output;
@@ -568,11 +803,41 @@ public class CommandLineOptions implements Options {
         return result;
     }
 
+    @Override
+    public Optional<Boolean> shouldStreamResults() {
+        return streamResults;
+    }
+
+    @Override
+    public Optional<Boolean> shouldResume() {
+        return resume;
+    }
+
+    @Override
+    public Optional<String> getPreviousResults() {
+        return previousResults;
+    }
+
     @Override
     public Optional<Integer> getMeasurementIterations() {
         return iterations;
     }
 
+    @Override
+    public Optional<Double> getTargetError() {
+        return targetError;
+    }
+
+    @Override
+    public Optional<TimeValue> getPollOvershoot() {
+        return pollOvershoot;
+    }
+
+    @Override
+    public Optional<BaselineMode> getBaselineMode() {
+        return baselineMode;
+    }
+
     @Override
     public Optional<Integer> getMeasurementBatchSize() {
         return batchSize;
@@ -593,6 +858,11 @@ public class CommandLineOptions implements Options {
         return warmupIterations;
     }
 
+    @Override
+    public Optional<Boolean> shouldDetectWarmup() {
+        return detectWarmup;
+    }
+
     @Override
     public Optional<Integer> getWarmupBatchSize() {
         return warmupBatchSize;
@@ -603,6 +873,19 @@ public class CommandLineOptions implements Options {
         return threads;
     }
 
+    @Override
+    public Optional<int[]> getThreadsSweep() {
+        if (threadsSweep.isEmpty()) {
+            return Optional.none();
+        } else {
+            int[] r = new int[threadsSweep.size()];
+            for (int c = 0; c < r.length; c++) {
+                r[c] = threadsSweep.get(c);
+            }
+            return Optional.of(r);
+        }
+    }
+
     @Override
     public Optional<int[]> getThreadGroups() {
         if (threadGroups.isEmpty()) {
@@ -641,6 +924,11 @@ public class CommandLineOptions implements Options {
         return opsPerInvocation;
     }
 
+    @Override
+    public Optional<Integer> getRate() {
+        return rate;
+    }
+
     @Override
     public Optional<Boolean> shouldFailOnError() {
         return failOnError;
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.options;
+
+/**
+ * Fork grouping policy: which benchmarks run one after another in the same forked VM.
+ * Benchmarks in a fork group share {@link org.openjdk.jmh.annotations.Scope#Benchmark} states:
+ * the trial setup runs once, when the first benchmark needs the state, and the trial
+ * teardown runs once, after all benchmarks in the fork are done.
+ */
+public enum ForkGrouping {
+
+    /**
+     * Every benchmark runs in its own forks.
+     */
+    NONE,
+
+    /**
+     * All benchmarks of the same class run in the same forks.
+     */
+    CLASS,
+
+    /**
+     * All selected benchmarks run in the same forks.
+     */
+    ALL,
+
+}
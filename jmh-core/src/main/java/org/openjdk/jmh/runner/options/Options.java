@@ -65,6 +65,24 @@ public interface Options extends Serializable {
      */
     Optional<String> getResult();
 
+    /**
+     * Should results be appended to the result file as soon as each benchmark completes?
+     * @return should stream?
+     */
+    Optional<Boolean> shouldStreamResults();
+
+    /**
+     * Should the run skip the benchmarks which results are already present in the result file?
+     * @return should resume?
+     */
+    Optional<Boolean> shouldResume();
+
+    /**
+     * Previous JSON results file to re-use the results from.
+     * @return file name
+     */
+    Optional<String> getPreviousResults();
+
     /**
      * Should force GC between iterations?
      * @return should GC?
@@ -97,6 +115,13 @@ public interface Options extends Serializable {
      */
     Optional<Integer> getThreads();
 
+    /**
+     * Thread counts to sweep through.
+     * @return array of thread counts, each run as the separate benchmark
+     * @see ChainedOptionsBuilder#threadsSweep(int...)
+     */
+    Optional<int[]> getThreadsSweep();
+
     /**
      * Thread subgroups distribution.
      * @return array of thread ratios
@@ -118,6 +143,12 @@ public interface Options extends Serializable {
      */
     Optional<Integer> getWarmupIterations();
 
+    /**
+     * Should detect the end of warmup automatically?
+     * @return should detect warmup
+     */
+    Optional<Boolean> shouldDetectWarmup();
+
     /**
      * The duration for warmup iterations
      * @return duration
@@ -152,6 +183,26 @@ public interface Options extends Serializable {
      */
     Optional<Integer> getMeasurementIterations();
 
+    /**
+     * Target relative score error for adaptive measurement.
+     * @return target relative error
+     */
+    Optional<Double> getTargetError();
+
+    /**
+     * Bound on how far the measurement loop may run past the iteration end.
+     * @return time bound
+     * @see ChainedOptionsBuilder#pollOvershoot(TimeValue)
+     */
+    Optional<TimeValue> getPollOvershoot();
+
+    /**
+     * Baseline mode
+     * @return baseline mode
+     * @see ChainedOptionsBuilder#baselineMode(BaselineMode)
+     */
+    Optional<BaselineMode> getBaselineMode();
+
     /**
      * The duration for measurement iterations
      * @return duration
@@ -187,6 +238,13 @@ public interface Options extends Serializable {
      */
     Optional<Integer> getOperationsPerInvocation();
 
+    /**
+     * Target operation rate for rate-limited mode.
+     * @return operations per second, per thread
+     * @see org.openjdk.jmh.annotations.Rate
+     */
+    Optional<Integer> getRate();
+
     /**
      * Fork count
      * @return fork count; 0, to prohibit forking
@@ -201,6 +259,30 @@ public interface Options extends Serializable {
      */
     Optional<Integer> getWarmupForkCount();
 
+    /**
+     * Number of forked VMs to run concurrently
+     * @return parallel fork count; 1, to run forks one after another
+     */
+    Optional<Integer> getParallelForks();
+
+    /**
+     * Number of idle forked VMs to pre-launch ahead of time
+     * @return warm fork count; 0, to launch every fork on demand
+     */
+    Optional<Integer> getWarmForks();
+
+    /**
+     * Should forked VMs share the dynamic CDS archive?
+     * @return should use CDS archive?
+     */
+    Optional<Boolean> shouldUseCDSArchive();
+
+    /**
+     * Fork grouping policy
+     * @return fork grouping
+     */
+    Optional<ForkGrouping> getForkGrouping();
+
     /**
      * JVM executable to use for forks
      * @return path to JVM executable
@@ -173,6 +173,63 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Boolean> streamResults = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder streamResults(boolean value) {
+        this.streamResults = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldStreamResults() {
+        if (otherOptions != null) {
+            return streamResults.orAnother(otherOptions.shouldStreamResults());
+        } else {
+            return streamResults;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Boolean> resume = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder resume(boolean value) {
+        this.resume = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldResume() {
+        if (otherOptions != null) {
+            return resume.orAnother(otherOptions.shouldResume());
+        } else {
+            return resume;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<String> previousResults = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder previousResults(String filename) {
+        this.previousResults = Optional.of(filename);
+        return this;
+    }
+
+    @Override
+    public Optional<String> getPreviousResults() {
+        if (otherOptions != null) {
+            return previousResults.orAnother(otherOptions.getPreviousResults());
+        } else {
+            return previousResults;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<Boolean> shouldDoGC = Optional.none();
 
     @Override
@@ -290,6 +347,31 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<int[]> threadsSweep = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder threadsSweep(int... counts) {
+        if (counts != null) {
+            checkGreaterOrEqual(counts.length, 1, "Thread sweep point count");
+            for (int i = 0; i < counts.length; i++) {
+                checkGreaterOrEqual(counts[i], 1, "Thread sweep point #" + i + " thread count");
+            }
+        }
+        this.threadsSweep = Optional.eitherOf(counts);
+        return this;
+    }
+
+    @Override
+    public Optional<int[]> getThreadsSweep() {
+        if (otherOptions != null) {
+            return threadsSweep.orAnother(otherOptions.getThreadsSweep());
+        } else {
+            return threadsSweep;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<int[]> threadGroups = Optional.none();
 
     @Override
@@ -354,6 +436,25 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Boolean> detectWarmup = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder detectWarmup(boolean value) {
+        this.detectWarmup = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldDetectWarmup() {
+        if (otherOptions != null) {
+            return detectWarmup.orAnother(otherOptions.shouldDetectWarmup());
+        } else {
+            return detectWarmup;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<Integer> warmupBatchSize = Optional.none();
 
     @Override
@@ -452,6 +553,66 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Double> targetError = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder targetError(double relativeError) {
+        if (!(relativeError > 0)) {
+            throw new IllegalArgumentException("Target error should be positive, but was " + relativeError);
+        }
+        this.targetError = Optional.of(relativeError);
+        return this;
+    }
+
+    @Override
+    public Optional<Double> getTargetError() {
+        if (otherOptions != null) {
+            return targetError.orAnother(otherOptions.getTargetError());
+        } else {
+            return targetError;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<TimeValue> pollOvershoot = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder pollOvershoot(TimeValue value) {
+        this.pollOvershoot = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<TimeValue> getPollOvershoot() {
+        if (otherOptions != null) {
+            return pollOvershoot.orAnother(otherOptions.getPollOvershoot());
+        } else {
+            return pollOvershoot;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<BaselineMode> baselineMode = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder baselineMode(BaselineMode mode) {
+        this.baselineMode = Optional.of(mode);
+        return this;
+    }
+
+    @Override
+    public Optional<BaselineMode> getBaselineMode() {
+        if (otherOptions != null) {
+            return baselineMode.orAnother(otherOptions.getBaselineMode());
+        } else {
+            return baselineMode;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<TimeValue> measurementTime = Optional.none();
 
     @Override
@@ -550,6 +711,26 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Integer> rate = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder rate(int value) {
+        checkGreaterOrEqual(value, 1, "Rate");
+        this.rate = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Integer> getRate() {
+        if (otherOptions != null) {
+            return rate.orAnother(otherOptions.getRate());
+        } else {
+            return rate;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<Integer> forks = Optional.none();
 
     @Override
@@ -590,6 +771,84 @@ public class OptionsBuilder implements Options, ChainedOptionsBuilder {
 
     // ---------------------------------------------------------------------------
 
+    private Optional<Integer> parallelForks = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder parallelForks(int value) {
+        checkGreaterOrEqual(value, 1, "Parallel forks");
+        this.parallelForks = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Integer> getParallelForks() {
+        if (otherOptions != null) {
+            return parallelForks.orAnother(otherOptions.getParallelForks());
+        } else {
+            return parallelForks;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Integer> warmForks = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder warmForks(int value) {
+        checkGreaterOrEqual(value, 0, "Warm forks");
+        this.warmForks = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Integer> getWarmForks() {
+        if (otherOptions != null) {
+            return warmForks.orAnother(otherOptions.getWarmForks());
+        } else {
+            return warmForks;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<Boolean> cdsArchive = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder cdsArchive(boolean value) {
+        this.cdsArchive = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<Boolean> shouldUseCDSArchive() {
+        if (otherOptions != null) {
+            return cdsArchive.orAnother(otherOptions.shouldUseCDSArchive());
+        } else {
+            return cdsArchive;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
+    private Optional<ForkGrouping> forkGrouping = Optional.none();
+
+    @Override
+    public ChainedOptionsBuilder forkGrouping(ForkGrouping value) {
+        this.forkGrouping = Optional.of(value);
+        return this;
+    }
+
+    @Override
+    public Optional<ForkGrouping> getForkGrouping() {
+        if (otherOptions != null) {
+            return forkGrouping.orAnother(otherOptions.getForkGrouping());
+        } else {
+            return forkGrouping;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+
     private Optional<String> jvmBinary = Optional.none();
 
     @Override
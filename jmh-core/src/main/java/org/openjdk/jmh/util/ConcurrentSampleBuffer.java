@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sampling buffer that accepts samples concurrently.
+ *
+ * <p>Uses the same log-linear bucketing as {@link SampleBuffer}, but keeps the
+ * counters in one flat array per stripe, allocated with the buffer: recording a sample
+ * never allocates, even if it is the first outlier to land in its bucket. All buckets
+ * but the first one only use the upper half of their sub-buckets, and the counters
+ * array only has room for those. Recording is lock-free, and can be striped to let several threads share the buffer without contending on the same
+ * counters. The buffer tracks the touched buckets in the bitmap, so that draining it
+ * into {@link SampleBuffer} only visits the non-empty buckets.
+ *
+ * <p>Draining and halving are expected to run when no other thread is recording.
+ */
+public class ConcurrentSampleBuffer {
+
+    private static final int PRECISION_BITS = SampleBuffer.PRECISION_BITS;
+    private static final int BUCKETS = SampleBuffer.BUCKETS;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+
+    private static final int WORDS_PER_BUCKET = SUB_BUCKETS / Long.SIZE;
+    private static final int WORDS = BUCKETS * WORDS_PER_BUCKET;
+
+    // stride for per-stripe bucket bitmaps, keeps them on different cache lines
+    private static final int BUCKET_WORD_STRIDE = 8;
+
+    // bucket 0 takes all sub-buckets, the rest take the upper half only
+    private static final int COUNTERS = (BUCKETS + 1) << (PRECISION_BITS - 1);
+
+    private final int stripes;
+    private final AtomicLongArray[] counts;
+    private final AtomicLongArray touchedSlots;
+    private final AtomicLongArray touchedBuckets;
+
+    public ConcurrentSampleBuffer() {
+        this(1);
+    }
+
+    public ConcurrentSampleBuffer(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Should have at least one stripe: " + stripes);
+        }
+        this.stripes = stripes;
+        this.counts = new AtomicLongArray[stripes];
+        for (int s = 0; s < stripes; s++) {
+            counts[s] = new AtomicLongArray(COUNTERS);
+        }
+        this.touchedSlots = new AtomicLongArray(stripes * WORDS);
+        this.touchedBuckets = new AtomicLongArray(stripes * BUCKET_WORD_STRIDE);
+    }
+
+    public int stripes() {
+        return stripes;
+    }
+
+    /**
+     * Records the sample into the stripe selected by the current thread.
+     * @param sample sample to record
+     */
+    public void add(long sample) {
+        int stripe = (stripes == 1) ? 0 : (int) (Thread.currentThread().getId() % stripes);
+        add(stripe, sample);
+    }
+
+    /**
+     * Records the sample into the given stripe.
+     * @param stripe stripe to record to, usually the thread index
+     * @param sample sample to record
+     */
+    public void add(int stripe, long sample) {
+        sample = SampleBuffer.clamp(sample);
+        int bucket = SampleBuffer.bucketOf(sample);
+        int slot = (bucket << PRECISION_BITS) + SampleBuffer.subBucketOf(sample, bucket);
+
+        counts[stripe].getAndIncrement(counterOf(bucket, slot & (SUB_BUCKETS - 1)));
+
+        int word = stripe * WORDS + (slot >>> 6);
+        long bit = 1L << (slot & 63);
+        if ((touchedSlots.get(word) & bit) == 0) {
+            setBit(touchedSlots, word, bit);
+            setBit(touchedBuckets, stripe * BUCKET_WORD_STRIDE, 1L << bucket);
+        }
+    }
+
+    /**
+     * Sub-buckets of the non-zero buckets are at least half of {@link #SUB_BUCKETS},
+     * so the buckets can overlap by half in the counters array.
+     */
+    static int counterOf(int bucket, int subBucket) {
+        return (bucket << (PRECISION_BITS - 1)) + subBucket;
+    }
+
+    private static void setBit(AtomicLongArray arr, int idx, long bit) {
+        long v;
+        do {
+            v = arr.get(idx);
+            if ((v & bit) != 0) {
+                return;
+            }
+        } while (!arr.compareAndSet(idx, v, v | bit));
+    }
+
+    /**
+     * Halves all non-empty counters, but does not let them drop to zero.
+     */
+    public void half() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            long bucketBits = touchedBuckets.get(stripe * BUCKET_WORD_STRIDE);
+            while (bucketBits != 0) {
+                int bucket = Long.numberOfTrailingZeros(bucketBits);
+                bucketBits &= bucketBits - 1;
+                for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+                    int wordBase = bucket * WORDS_PER_BUCKET + w;
+                    long bits = touchedSlots.get(stripe * WORDS + wordBase);
+                    while (bits != 0) {
+                        int slot = wordBase * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+
+                        AtomicLongArray c = counts[stripe];
+                        int idx = counterOf(bucket, slot & (SUB_BUCKETS - 1));
+                        long v;
+                        long nV;
+                        do {
+                            v = c.get(idx);
+                            nV = v / 2;
+                            if (nV == 0) { // prevent halving to zero
+                                break;
+                            }
+                        } while (!c.compareAndSet(idx, v, nV));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves all recorded samples into the target buffer, and resets this buffer,
+     * making it ready for reuse.
+     *
+     * @param dst target buffer
+     */
+    public void drainTo(SampleBuffer dst) {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int bucketIdx = stripe * BUCKET_WORD_STRIDE;
+            long bucketBits = touchedBuckets.get(bucketIdx);
+            touchedBuckets.set(bucketIdx, 0);
+            while (bucketBits != 0) {
+                int bucket = Long.numberOfTrailingZeros(bucketBits);
+                bucketBits &= bucketBits - 1;
+                for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+                    int wordBase = bucket * WORDS_PER_BUCKET + w;
+                    int wordIdx = stripe * WORDS + wordBase;
+                    long bits = touchedSlots.get(wordIdx);
+                    if (bits == 0) {
+                        continue;
+                    }
+                    touchedSlots.set(wordIdx, 0);
+                    while (bits != 0) {
+                        int slot = wordBase * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+
+                        long c = counts[stripe].getAndSet(counterOf(bucket, slot & (SUB_BUCKETS - 1)), 0);
+                        if (c > 0) {
+                            dst.add(bucket, slot & (SUB_BUCKETS - 1), c);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public long count() {
+        long count = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            long bucketBits = touchedBuckets.get(stripe * BUCKET_WORD_STRIDE);
+            while (bucketBits != 0) {
+                int bucket = Long.numberOfTrailingZeros(bucketBits);
+                bucketBits &= bucketBits - 1;
+                for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+                    int wordBase = bucket * WORDS_PER_BUCKET + w;
+                    long bits = touchedSlots.get(stripe * WORDS + wordBase);
+                    while (bits != 0) {
+                        int slot = wordBase * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        count += counts[stripe].get(counterOf(bucket, slot & (SUB_BUCKETS - 1)));
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Statistics over the log-linear histogram of {@link SampleBuffer}.
+ *
+ * <p>All computations walk the bucket arrays directly, without expanding the histogram
+ * into the boxed values. The non-empty cells are visited in ascending value order, which
+ * gives the same results as {@link MultisetStatistics} over the same samples.</p>
+ */
+class HistogramStatistics extends AbstractStatistics {
+    private static final long serialVersionUID = 3187463213548213391L;
+
+    private final long[][] hdr;
+    private final double multiplier;
+    private final long n;
+
+    /**
+     * @param hdr bucket arrays, the statistics takes the snapshot of them
+     * @param multiplier multiplier to convert the sample to the value
+     */
+    HistogramStatistics(long[][] hdr, double multiplier) {
+        this.hdr = new long[hdr.length][];
+        this.multiplier = multiplier;
+
+        long count = 0;
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (long c : bucket) {
+                    count += c;
+                }
+                this.hdr[i] = bucket.clone();
+            }
+        }
+        this.n = count;
+    }
+
+    private double valueAt(int bucket, int subBucket) {
+        long ns = (long) subBucket << bucket;
+        return multiplier * ns;
+    }
+
+    @Override
+    public double getMax() {
+        for (int i = hdr.length - 1; i >= 0; i--) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = bucket.length - 1; j >= 0; j--) {
+                    if (bucket[j] != 0) {
+                        return valueAt(i, j);
+                    }
+                }
+            }
+        }
+        return Double.NaN;
+    }
+
+    @Override
+    public double getMin() {
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = 0; j < bucket.length; j++) {
+                    if (bucket[j] != 0) {
+                        return valueAt(i, j);
+                    }
+                }
+            }
+        }
+        return Double.NaN;
+    }
+
+    @Override
+    public long getN() {
+        return n;
+    }
+
+    @Override
+    public double getSum() {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = 0; j < bucket.length; j++) {
+                    if (bucket[j] != 0) {
+                        sum += valueAt(i, j) * bucket[j];
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public double getVariance() {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double v = 0;
+        double m = getMean();
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = 0; j < bucket.length; j++) {
+                    if (bucket[j] != 0) {
+                        v += Math.pow(valueAt(i, j) - m, 2) * bucket[j];
+                    }
+                }
+            }
+        }
+        return v / (n - 1);
+    }
+
+    @Override
+    public double getPercentile(double rank) {
+        if (rank < 0.0d || rank > 100.0d)
+            throw new IllegalArgumentException("Rank should be within [0; 100]");
+
+        if (rank == 0.0d) {
+            return getMin();
+        }
+
+        double pos = rank * (n + 1) / 100;
+        double floorPos = Math.floor(pos);
+
+        double flooredValue = get((long) floorPos);
+        double nextValue = get((long) floorPos + 1);
+
+        return flooredValue + (nextValue - flooredValue) * (pos - floorPos);
+    }
+
+    /**
+     * @param index 1-based index of the sample in the sorted order
+     * @return value of the sample, or maximum if index is out of range
+     */
+    private double get(long index) {
+        long cur = 0;
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = 0; j < bucket.length; j++) {
+                    if (bucket[j] != 0) {
+                        cur += bucket[j];
+                        if (cur >= index) {
+                            return valueAt(i, j);
+                        }
+                    }
+                }
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public int[] getHistogram(double[] levels) {
+        if (levels.length < 2) {
+            throw new IllegalArgumentException("Expected more than two levels");
+        }
+
+        long[] counts = new long[levels.length - 1];
+
+        int c = 0;
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket != null) {
+                for (int j = 0; j < bucket.length; j++) {
+                    if (bucket[j] == 0) {
+                        continue;
+                    }
+                    double v = valueAt(i, j);
+                    while (levels[c] > v || v >= levels[c + 1]) {
+                        c++;
+                        if (c > levels.length - 2) {
+                            return toHistogram(counts);
+                        }
+                    }
+                    counts[c] += bucket[j];
+                }
+            }
+        }
+
+        return toHistogram(counts);
+    }
+
+    /**
+     * Histogram bins are the ints in {@link Statistics}; the counts that do not fit
+     * saturate instead of wrapping around to the negative values.
+     */
+    private static int[] toHistogram(long[] counts) {
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = (int) Math.min(counts[i], Integer.MAX_VALUE);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Double, Long>> getRawData() {
+        return new Iterator<Map.Entry<Double, Long>>() {
+            private int bucket;
+            private int subBucket = -1;
+
+            {
+                advance();
+            }
+
+            private void advance() {
+                subBucket++;
+                while (bucket < hdr.length) {
+                    long[] b = hdr[bucket];
+                    if (b != null) {
+                        while (subBucket < b.length) {
+                            if (b[subBucket] != 0) {
+                                return;
+                            }
+                            subBucket++;
+                        }
+                    }
+                    bucket++;
+                    subBucket = 0;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return bucket < hdr.length;
+            }
+
+            @Override
+            public Map.Entry<Double, Long> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Double, Long> e = new AbstractMap.SimpleImmutableEntry<>(
+                        valueAt(bucket, subBucket), hdr[bucket][subBucket]);
+                advance();
+                return e;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
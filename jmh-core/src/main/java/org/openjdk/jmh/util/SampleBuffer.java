@@ -24,28 +24,31 @@
  */
 package org.openjdk.jmh.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
  * Sampling buffer accepts samples.
  */
 public class SampleBuffer implements Serializable {
-    private static final long serialVersionUID = 6124923853916845327L;
+    private static final long serialVersionUID = -2385930184326215702L;
 
-    private static final int PRECISION_BITS = 10;
-    private static final int BUCKETS = Long.SIZE - PRECISION_BITS;
+    static final int PRECISION_BITS = 10;
+    static final int BUCKETS = Long.SIZE - PRECISION_BITS;
 
-    private final int[][] hdr;
+    private final long[][] hdr;
 
     public SampleBuffer() {
-        hdr = new int[BUCKETS][];
+        hdr = new long[BUCKETS][];
     }
 
     public void half() {
-        for (int[] bucket : hdr) {
+        for (long[] bucket : hdr) {
             if (bucket != null) {
                 for (int j = 0; j < bucket.length; j++) {
-                    int nV = bucket[j] / 2;
+                    long nV = bucket[j] / 2;
                     if (nV != 0) { // prevent halving to zero
                         bucket[j] = nV;
                     }
@@ -55,38 +58,60 @@ public class SampleBuffer implements Serializable {
     }
 
     public void add(long sample) {
-        int bucket = Math.max(0, BUCKETS - Long.numberOfLeadingZeros(sample));
-        int subBucket = (int) (sample >> bucket);
+        sample = clamp(sample);
+        int bucket = bucketOf(sample);
+        int subBucket = subBucketOf(sample, bucket);
+        add(bucket, subBucket, 1);
+    }
+
+    /**
+     * Adds the same sample multiple times.
+     * @param sample sample to add
+     * @param count number of times to add
+     */
+    public void add(long sample, long count) {
+        sample = clamp(sample);
+        int bucket = bucketOf(sample);
+        int subBucket = subBucketOf(sample, bucket);
+        add(bucket, subBucket, count);
+    }
 
-        int[] b = hdr[bucket];
+    void add(int bucket, int subBucket, long count) {
+        long[] b = hdr[bucket];
         if (b == null) {
-            b = new int[1 << PRECISION_BITS];
+            b = new long[1 << PRECISION_BITS];
             hdr[bucket] = b;
         }
-        b[subBucket]++;
+        b[subBucket] += count;
+    }
+
+    /**
+     * Negative samples come from the clocks going backwards, or from the timestamps
+     * taken before the event; the histogram counts them as zeros.
+     */
+    static long clamp(long sample) {
+        return Math.max(0, sample);
+    }
+
+    static int bucketOf(long sample) {
+        return Math.max(0, BUCKETS - Long.numberOfLeadingZeros(sample));
+    }
+
+    static int subBucketOf(long sample, int bucket) {
+        return (int) (sample >> bucket);
     }
 
     public Statistics getStatistics(double multiplier) {
-        MultisetStatistics stat = new MultisetStatistics();
-        for (int i = 0; i < hdr.length; i++) {
-            int[] bucket = hdr[i];
-            if (bucket != null) {
-                for (int j = 0; j < bucket.length; j++) {
-                    long ns = (long) j << i;
-                    stat.addValue(multiplier * ns, bucket[j]);
-                }
-            }
-        }
-        return stat;
+        return new HistogramStatistics(hdr, multiplier);
     }
 
     public void addAll(SampleBuffer other) {
         for (int i = 0; i < other.hdr.length; i++) {
-            int[] otherBucket = other.hdr[i];
+            long[] otherBucket = other.hdr[i];
             if (otherBucket != null) {
-                int[] myBucket = hdr[i];
+                long[] myBucket = hdr[i];
                 if (myBucket == null) {
-                    myBucket = new int[1 << PRECISION_BITS];
+                    myBucket = new long[1 << PRECISION_BITS];
                     hdr[i] = myBucket;
                 }
                 for (int j = 0; j < otherBucket.length; j++) {
@@ -96,15 +121,75 @@ public class SampleBuffer implements Serializable {
         }
     }
 
-    public int count() {
-        int count = 0;
-        for (int[] bucket : hdr) {
+    public long count() {
+        long count = 0;
+        for (long[] bucket : hdr) {
             if (bucket != null) {
-                for (int v : bucket) {
+                for (long v : bucket) {
                     count += v;
                 }
             }
         }
         return count;
     }
+
+    /**
+     * Writes the sparse representation of this buffer: only the non-empty
+     * buckets and their non-zero counters are written out.
+     *
+     * @param out output to write to
+     * @throws IOException if output fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int buckets = 0;
+        for (long[] bucket : hdr) {
+            if (bucket != null) {
+                buckets++;
+            }
+        }
+        out.writeByte(buckets);
+
+        for (int i = 0; i < hdr.length; i++) {
+            long[] bucket = hdr[i];
+            if (bucket == null) continue;
+
+            int nonZero = 0;
+            for (long v : bucket) {
+                if (v != 0) {
+                    nonZero++;
+                }
+            }
+
+            out.writeByte(i);
+            out.writeShort(nonZero);
+            for (int j = 0; j < bucket.length; j++) {
+                if (bucket[j] != 0) {
+                    out.writeShort(j);
+                    out.writeLong(bucket[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the buffer written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in input to read from
+     * @return sample buffer
+     * @throws IOException if input fails
+     */
+    public static SampleBuffer readFrom(DataInput in) throws IOException {
+        SampleBuffer buffer = new SampleBuffer();
+        int buckets = in.readUnsignedByte();
+        for (int b = 0; b < buckets; b++) {
+            int bucket = in.readUnsignedByte();
+            int nonZero = in.readUnsignedShort();
+            for (int c = 0; c < nonZero; c++) {
+                int subBucket = in.readUnsignedShort();
+                long count = in.readLong();
+                buffer.add(bucket, subBucket, count);
+            }
+        }
+        return buffer;
+    }
 }
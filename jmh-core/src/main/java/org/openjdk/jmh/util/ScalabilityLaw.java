@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Universal Scalability Law model: {@code X(N) = lambda * N / (1 + sigma * (N - 1) + kappa * N * (N - 1))},
+ * where {@code X(N)} is the throughput at {@code N} threads, {@code lambda} is the single-thread
+ * throughput, {@code sigma} is the contention (serialization) coefficient, and {@code kappa} is the
+ * coherency (crosstalk) coefficient.
+ *
+ * <p>The model is fitted by the linear least squares over {@code N/X(N) = (1 + sigma * (N - 1) + kappa * N * (N - 1)) / lambda},
+ * keeping the coefficients non-negative.</p>
+ */
+public class ScalabilityLaw {
+
+    private static final int[][] TERM_SETS = {
+            {0, 1, 2},
+            {0, 1},
+            {0, 2},
+            {0},
+    };
+
+    private final double lambda;
+    private final double sigma;
+    private final double kappa;
+
+    public ScalabilityLaw(double lambda, double sigma, double kappa) {
+        this.lambda = lambda;
+        this.sigma = sigma;
+        this.kappa = kappa;
+    }
+
+    /**
+     * Fits the model to the measured throughputs.
+     *
+     * @param throughputs thread count -&gt; throughput at that thread count
+     * @return fitted model; null, if there are less than three distinct positive thread counts,
+     *         or the data does not fit
+     */
+    public static ScalabilityLaw fit(Map<Integer, Double> throughputs) {
+        SortedMap<Integer, Double> points = new TreeMap<>();
+        for (Map.Entry<Integer, Double> e : throughputs.entrySet()) {
+            double x = e.getValue();
+            if (e.getKey() > 0 && x > 0 && !Double.isInfinite(x)) {
+                points.put(e.getKey(), x);
+            }
+        }
+        if (points.size() < 3) {
+            return null;
+        }
+
+        int size = points.size();
+        double[][] terms = new double[size][3];
+        double[] ys = new double[size];
+        int i = 0;
+        for (Map.Entry<Integer, Double> e : points.entrySet()) {
+            double n = e.getKey();
+            terms[i][0] = 1;
+            terms[i][1] = n - 1;
+            terms[i][2] = n * (n - 1);
+            ys[i] = n / e.getValue();
+            i++;
+        }
+
+        // Take the best fit among the term sets that yield non-negative coefficients.
+        double[] best = null;
+        double bestError = Double.POSITIVE_INFINITY;
+        for (int[] set : TERM_SETS) {
+            double[] coeffs = solve(terms, ys, set);
+            if (coeffs == null || coeffs[0] <= 0 || coeffs[1] < 0 || coeffs[2] < 0) {
+                continue;
+            }
+            double error = 0;
+            for (int p = 0; p < size; p++) {
+                double d = ys[p] - (coeffs[0] * terms[p][0] + coeffs[1] * terms[p][1] + coeffs[2] * terms[p][2]);
+                error += d * d;
+            }
+            if (error < bestError) {
+                best = coeffs;
+                bestError = error;
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        return new ScalabilityLaw(1 / best[0], best[1] / best[0], best[2] / best[0]);
+    }
+
+    /**
+     * Solves the normal equations for the given subset of terms.
+     *
+     * @return coefficients for all terms, zero for the terms not in the subset; null, if the system is singular
+     */
+    private static double[] solve(double[][] terms, double[] ys, int[] set) {
+        int k = set.length;
+        double[][] m = new double[k][k + 1];
+        for (int r = 0; r < k; r++) {
+            for (int c = 0; c < k; c++) {
+                for (int p = 0; p < ys.length; p++) {
+                    m[r][c] += terms[p][set[r]] * terms[p][set[c]];
+                }
+            }
+            for (int p = 0; p < ys.length; p++) {
+                m[r][k] += terms[p][set[r]] * ys[p];
+            }
+        }
+
+        // Gaussian elimination with partial pivoting
+        for (int c = 0; c < k; c++) {
+            int pivot = c;
+            for (int r = c + 1; r < k; r++) {
+                if (Math.abs(m[r][c]) > Math.abs(m[pivot][c])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(m[pivot][c]) < 1e-300) {
+                return null;
+            }
+            double[] t = m[c];
+            m[c] = m[pivot];
+            m[pivot] = t;
+
+            for (int r = 0; r < k; r++) {
+                if (r != c) {
+                    double f = m[r][c] / m[c][c];
+                    for (int q = c; q <= k; q++) {
+                        m[r][q] -= f * m[c][q];
+                    }
+                }
+            }
+        }
+
+        double[] coeffs = new double[3];
+        for (int r = 0; r < k; r++) {
+            coeffs[set[r]] = m[r][k] / m[r][r];
+        }
+        return coeffs;
+    }
+
+    /**
+     * @return single-thread throughput, lambda
+     */
+    public double getLambda() {
+        return lambda;
+    }
+
+    /**
+     * @return contention coefficient, sigma
+     */
+    public double getContention() {
+        return sigma;
+    }
+
+    /**
+     * @return coherency coefficient, kappa
+     */
+    public double getCoherency() {
+        return kappa;
+    }
+
+    /**
+     * @param threads thread count
+     * @return predicted throughput at the given thread count
+     */
+    public double predict(double threads) {
+        return lambda * threads / (1 + sigma * (threads - 1) + kappa * threads * (threads - 1));
+    }
+
+    /**
+     * @return thread count at which the throughput peaks; {@link Double#POSITIVE_INFINITY},
+     *         if throughput grows without bound, or approaches the asymptote
+     */
+    public double getPeakThreads() {
+        if (sigma >= 1) {
+            // adding threads only hurts
+            return 1;
+        }
+        if (kappa <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(1, Math.sqrt((1 - sigma) / kappa));
+    }
+
+    /**
+     * @return peak throughput; asymptotic throughput, if there is no peak
+     */
+    public double getPeakThroughput() {
+        double n = getPeakThreads();
+        if (Double.isInfinite(n)) {
+            return (sigma > 0) ? lambda / sigma : Double.POSITIVE_INFINITY;
+        }
+        return predict(n);
+    }
+
+    @Override
+    public String toString() {
+        return "USL{lambda = " + lambda + ", sigma = " + sigma + ", kappa = " + kappa + "}";
+    }
+
+}
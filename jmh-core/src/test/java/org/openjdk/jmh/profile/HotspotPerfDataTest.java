@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class HotspotPerfDataTest {
+
+    private static final int SIZE = 4096;
+    private static final int FIRST_ENTRY = 32;
+
+    private static ByteBuffer prologue(ByteOrder order) {
+        ByteBuffer bb = ByteBuffer.allocate(SIZE);
+        bb.order(ByteOrder.BIG_ENDIAN);
+        bb.putInt(0, 0xCAFEC0C0);
+        bb.put(4, (byte) (order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+        bb.put(5, (byte) 2);
+        bb.put(6, (byte) 0);
+        bb.put(7, (byte) 1);
+        bb.order(order);
+        bb.putInt(24, FIRST_ENTRY);
+        bb.putInt(28, 0);
+        return bb;
+    }
+
+    private static int longEntry(ByteBuffer bb, int off, String name, int units, int variability, long value) {
+        byte[] n = (name + "\0").getBytes(StandardCharsets.UTF_8);
+        int dataOffset = (20 + n.length + 7) & ~7;
+        int length = dataOffset + 8;
+        bb.putInt(off, length);
+        bb.putInt(off + 4, 20);
+        bb.putInt(off + 8, 0);
+        bb.put(off + 12, (byte) 'J');
+        bb.put(off + 14, (byte) units);
+        bb.put(off + 15, (byte) variability);
+        bb.putInt(off + 16, dataOffset);
+        for (int i = 0; i < n.length; i++) {
+            bb.put(off + 20 + i, n[i]);
+        }
+        bb.putLong(off + dataOffset, value);
+        return off + length;
+    }
+
+    private static int stringEntry(ByteBuffer bb, int off, String name, String value) {
+        byte[] n = (name + "\0").getBytes(StandardCharsets.UTF_8);
+        byte[] v = (value + "\0").getBytes(StandardCharsets.UTF_8);
+        int dataOffset = 20 + n.length;
+        int length = dataOffset + v.length;
+        bb.putInt(off, length);
+        bb.putInt(off + 4, 20);
+        bb.putInt(off + 8, v.length);
+        bb.put(off + 12, (byte) 'B');
+        bb.put(off + 14, (byte) HotspotPerfData.UNITS_STRING);
+        bb.put(off + 15, (byte) HotspotPerfData.VARIABILITY_CONSTANT);
+        bb.putInt(off + 16, dataOffset);
+        for (int i = 0; i < n.length; i++) {
+            bb.put(off + 20 + i, n[i]);
+        }
+        for (int i = 0; i < v.length; i++) {
+            bb.put(off + dataOffset + i, v[i]);
+        }
+        return off + length;
+    }
+
+    private static void write(File f, ByteBuffer bb) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(0);
+            raf.write(bb.array());
+        }
+    }
+
+    private void testRead(ByteOrder order) throws IOException {
+        File f = FileUtils.tempFile("perfdata");
+
+        ByteBuffer bb = prologue(order);
+        int off = FIRST_ENTRY;
+        off = stringEntry(bb, off, "java.rt.vmArgs", "-Dfoo=bar");
+        int counter = off;
+        off = longEntry(bb, off, "sun.rt.safepoints", HotspotPerfData.UNITS_EVENTS, HotspotPerfData.VARIABILITY_MONOTONIC, 42);
+        bb.putInt(28, 2);
+        write(f, bb);
+
+        HotspotPerfData data = new HotspotPerfData(f);
+        Assert.assertTrue(data.isAccessible());
+
+        List<HotspotPerfData.Entry> entries = data.refresh();
+        Assert.assertEquals(2, entries.size());
+
+        HotspotPerfData.Entry args = data.get("java.rt.vmArgs");
+        Assert.assertTrue(args.isString());
+        Assert.assertEquals("-Dfoo=bar", args.stringValue());
+
+        HotspotPerfData.Entry sp = data.get("sun.rt.safepoints");
+        Assert.assertTrue(sp.isLong());
+        Assert.assertEquals(HotspotPerfData.UNITS_EVENTS, sp.getUnits());
+        Assert.assertEquals(HotspotPerfData.VARIABILITY_MONOTONIC, sp.getVariability());
+        Assert.assertEquals(42, sp.longValue());
+
+        // Target VM updates the counter, and announces the entry it did not fill yet
+        longEntry(bb, counter, "sun.rt.safepoints", HotspotPerfData.UNITS_EVENTS, HotspotPerfData.VARIABILITY_MONOTONIC, 43);
+        bb.putInt(28, 3);
+        write(f, bb);
+
+        Assert.assertEquals(43, sp.longValue());
+        Assert.assertEquals(2, data.refresh().size());
+
+        // Target VM fills the entry
+        longEntry(bb, off, "sun.rt.safepointTime", HotspotPerfData.UNITS_TICKS, HotspotPerfData.VARIABILITY_MONOTONIC, 100);
+        write(f, bb);
+
+        Assert.assertEquals(3, data.refresh().size());
+        Assert.assertEquals(100, data.get("sun.rt.safepointTime").longValue());
+    }
+
+    @Test
+    public void testLittleEndian() throws IOException {
+        testRead(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void testBigEndian() throws IOException {
+        testRead(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    public void testNotYetCreated() throws IOException {
+        File f = FileUtils.tempFile("perfdata");
+        HotspotPerfData data = new HotspotPerfData(f);
+        Assert.assertFalse(data.isAccessible());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotPerfData() throws IOException {
+        File f = FileUtils.tempFile("perfdata");
+        ByteBuffer bb = ByteBuffer.allocate(SIZE);
+        bb.putInt(0, 0xDEADBEEF);
+        write(f, bb);
+        new HotspotPerfData(f);
+    }
+
+}
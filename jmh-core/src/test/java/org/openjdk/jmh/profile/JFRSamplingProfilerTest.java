@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.HashMultiset;
+import org.openjdk.jmh.util.Multiset;
+
+import java.util.Arrays;
+
+public class JFRSamplingProfilerTest {
+
+    private static JFRSamplingProfiler.JFRSampleResult result(String method, long samples, String site, long bytes) {
+        Multiset<String> methods = new HashMultiset<>();
+        methods.add(method, samples);
+        Multiset<String> allocations = new HashMultiset<>();
+        allocations.add(site, bytes);
+        return new JFRSamplingProfiler.JFRSampleResult(methods, allocations, 10);
+    }
+
+    @Test
+    public void testAggregate() {
+        JFRSamplingProfiler.JFRSampleResult r = new JFRSamplingProfiler.JFRSampleResultAggregator().aggregate(Arrays.asList(
+                result("a.B.hot", 3, "byte[] @ a.B.alloc", 100),
+                result("a.B.hot", 1, "byte[] @ a.B.alloc", 300)));
+
+        String info = r.extendedInfo();
+        Assert.assertTrue(info, info.contains("100.0% a.B.hot"));
+        Assert.assertTrue(info, info.contains("4 samples total"));
+        Assert.assertTrue(info, info.contains("100.0% byte[] @ a.B.alloc"));
+        Assert.assertTrue(info, info.contains("400 bytes total"));
+    }
+
+    @Test
+    public void testNoSamples() {
+        JFRSamplingProfiler.JFRSampleResult r = new JFRSamplingProfiler.JFRSampleResult(
+                new HashMultiset<String>(), new HashMultiset<String>(), 10);
+        Assert.assertTrue(r.extendedInfo().contains("<no samples>"));
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.profile;
+
+import junit.framework.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PerfControlTest {
+
+    private static File fifo(String suffix) throws IOException {
+        File f = File.createTempFile("jmh", suffix);
+        f.delete();
+        f.deleteOnExit();
+        Assume.assumeTrue(Utils.tryWith("mkfifo", f.getAbsolutePath()).isEmpty());
+        return f;
+    }
+
+    @Test
+    public void testProtocol() throws Exception {
+        final File ctl = fifo(".ctl");
+        final File ack = fifo(".ack");
+
+        final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+
+        // Pretend to be perf: read the commands, acknowledge each with "ack\n\0"
+        Thread perf = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(ctl), StandardCharsets.US_ASCII));
+                     OutputStream w = new FileOutputStream(ack)) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        commands.add(line);
+                        w.write("ack\n\0".getBytes(StandardCharsets.US_ASCII));
+                        w.flush();
+                    }
+                } catch (IOException e) {
+                    commands.add("error: " + e.getMessage());
+                }
+            }
+        });
+        perf.start();
+
+        PerfControl.Channel channel = new PerfControl.Channel(ctl.getAbsolutePath(), ack.getAbsolutePath());
+        for (int c = 0; c < 3; c++) {
+            channel.command("enable");
+            Assert.assertEquals(2 * c + 1, commands.size());
+            channel.command("disable");
+            Assert.assertEquals(2 * c + 2, commands.size());
+        }
+        channel.close();
+        perf.join();
+
+        Assert.assertEquals(6, commands.size());
+        for (int c = 0; c < 3; c++) {
+            Assert.assertEquals("enable", commands.get(2 * c));
+            Assert.assertEquals("disable", commands.get(2 * c + 1));
+        }
+    }
+
+    @Test
+    public void testPerfGone() throws Exception {
+        final File ctl = fifo(".ctl");
+        final File ack = fifo(".ack");
+
+        // Pretend to be perf that exits without acknowledging
+        Thread perf = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (InputStream r = new FileInputStream(ctl);
+                     OutputStream w = new FileOutputStream(ack)) {
+                    r.read();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        });
+        perf.start();
+
+        PerfControl.Channel channel = new PerfControl.Channel(ctl.getAbsolutePath(), ack.getAbsolutePath());
+        try {
+            channel.command("enable");
+            Assert.fail("Should have failed");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            channel.close();
+        }
+        perf.join();
+    }
+
+    @Test
+    public void testNoControl() {
+        // Outside of controlled perf, these are no-ops
+        PerfControl.enable();
+        PerfControl.disable();
+    }
+
+}
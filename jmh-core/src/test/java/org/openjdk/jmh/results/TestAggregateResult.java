@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.BlackholeMode;
 import org.openjdk.jmh.runner.IterationType;
 import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.util.Utils;
@@ -58,7 +59,7 @@ public class TestAggregateResult {
                         Mode.Throughput, null, TimeUnit.SECONDS, 1,
                         Utils.getCurrentJvm(), Collections.<String>emptyList(),
                         System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
-                        TimeValue.days(1)),
+                        TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0),
                 new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.days(1), 1),
                 null
         );
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results;
+
+import org.junit.Test;
+import org.openjdk.jmh.util.ListStatistics;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TestBaselineResult {
+
+    private static Result corrected(BaselineResult r) {
+        Collection<? extends Result> rs = r.getDerivativeResults();
+        assertEquals(1, rs.size());
+        Result c = rs.iterator().next();
+        assertEquals(ResultRole.SECONDARY_DERIVATIVE, c.getRole());
+        assertEquals(Defaults.PREFIX + "baseline.corrected", c.getLabel());
+        return c;
+    }
+
+    @Test
+    public void testReport() {
+        BaselineResult r1 = new BaselineResult(1, 10, "ns/op", false, false);
+        BaselineResult r2 = new BaselineResult(3, 20, "ns/op", false, false);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2));
+
+        assertEquals(Defaults.PREFIX + "baseline", r.getLabel());
+        assertEquals(2.0, r.getScore());
+        assertEquals("ns/op", r.getScoreUnit());
+        assertTrue(r.getDerivativeResults().isEmpty());
+    }
+
+    @Test
+    public void testCorrectTime() {
+        BaselineResult r1 = new BaselineResult(1, 10, "ns/op", false, true);
+        BaselineResult r2 = new BaselineResult(3, 20, "ns/op", false, true);
+        BaselineResult r3 = new BaselineResult(2, 15, "ns/op", false, true);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2, r3));
+
+        Result c = corrected(r);
+        assertEquals(13.0, c.getScore(), 1e-9);
+        assertEquals("ns/op", c.getScoreUnit());
+
+        // error comes from the per-iteration differences
+        ListStatistics diffs = new ListStatistics(new double[] {9, 17, 13});
+        assertEquals(diffs.getMeanErrorAt(0.999), c.getScoreError(), 1e-9);
+        assertEquals(13.0 - c.getScoreError(), c.getScoreConfidence()[0], 1e-9);
+        assertEquals(13.0 + c.getScoreError(), c.getScoreConfidence()[1], 1e-9);
+    }
+
+    @Test
+    public void testCorrectTimeSharedDrift() {
+        // both scores drift together, the difference stays the same
+        BaselineResult r1 = new BaselineResult(1, 10, "ns/op", false, true);
+        BaselineResult r2 = new BaselineResult(11, 20, "ns/op", false, true);
+        BaselineResult r3 = new BaselineResult(21, 30, "ns/op", false, true);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2, r3));
+
+        Result c = corrected(r);
+        assertEquals(9.0, c.getScore(), 1e-9);
+        assertEquals(0.0, c.getScoreError(), 1e-9);
+    }
+
+    @Test
+    public void testCorrectThroughput() {
+        // 10 ns/op in total, 2 ns/op of baseline: 8 ns/op of payload
+        BaselineResult r = new BaselineResult(500, 100, "ops/us", true, true);
+        assertEquals(125.0, corrected(r).getScore(), 1e-9);
+    }
+
+    @Test
+    public void testCorrectThroughputPaired() {
+        BaselineResult r1 = new BaselineResult(500, 100, "ops/us", true, true);
+        BaselineResult r2 = new BaselineResult(520, 110, "ops/us", true, true);
+        BaselineResult r3 = new BaselineResult(480, 90, "ops/us", true, true);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2, r3));
+
+        ListStatistics scores = new ListStatistics(new double[] {
+                100.0 * 500 / 400,
+                110.0 * 520 / 410,
+                90.0 * 480 / 390,
+        });
+
+        Result c = corrected(r);
+        assertEquals(scores.getMean(), c.getScore(), 1e-9);
+        assertEquals(scores.getMeanErrorAt(0.999), c.getScoreError(), 1e-9);
+    }
+
+    @Test
+    public void testCorrectThroughputSkipsSlowBaseline() {
+        BaselineResult r1 = new BaselineResult(500, 100, "ops/us", true, true);
+        BaselineResult r2 = new BaselineResult(100, 200, "ops/us", true, true);
+        BaselineResult r3 = new BaselineResult(520, 110, "ops/us", true, true);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2, r3));
+
+        // the iteration with the slow baseline is skipped
+        ListStatistics scores = new ListStatistics(new double[] {
+                100.0 * 500 / 400,
+                110.0 * 520 / 410,
+        });
+
+        Result c = corrected(r);
+        assertEquals(scores.getMean(), c.getScore(), 1e-9);
+        assertEquals(scores.getMeanErrorAt(0.999), c.getScoreError(), 1e-9);
+
+        // the baseline itself is still averaged over all iterations
+        assertEquals(1120.0 / 3, r.getScore(), 1e-9);
+    }
+
+    @Test
+    public void testCorrectThroughputAllSlowBaseline() {
+        BaselineResult r1 = new BaselineResult(100, 200, "ops/us", true, true);
+        BaselineResult r2 = new BaselineResult(150, 200, "ops/us", true, true);
+        BaselineResult r = r1.getIterationAggregator().aggregate(Arrays.asList(r1, r2));
+        assertTrue(Double.isNaN(corrected(r).getScore()));
+    }
+
+    @Test
+    public void testCorrectThroughputSlowBaseline() {
+        BaselineResult r = new BaselineResult(100, 200, "ops/us", true, true);
+        assertTrue(Double.isNaN(corrected(r).getScore()));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.BlackholeMode;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.WorkloadParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that warmup length found by the steady state detection makes it to the result formats.
+ */
+public class DetectedWarmupFormatTest {
+
+    private static RunResult runResult(boolean... steady) {
+        BenchmarkParams params = new BenchmarkParams("bench", "bench", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                steady.length, 0,
+                new IterationParams(IterationType.WARMUP, 20, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.AverageTime, new WorkloadParams(), TimeUnit.NANOSECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.minutes(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
+
+        List<BenchmarkResult> forks = new ArrayList<>();
+        for (int f = 0; f < steady.length; f++) {
+            IterationResult ir = new IterationResult(params, params.getMeasurement(), null);
+            ir.addResult(new AverageTimeResult(ResultRole.PRIMARY, "bench", 1000, 2000, TimeUnit.NANOSECONDS));
+            int warmup = steady[f] ? 7 + f : 20;
+            forks.add(new BenchmarkResult(params, Collections.singleton(ir),
+                    new BenchmarkResultMetaData(0, 0, 0, 0, 0, warmup, steady[f])));
+        }
+        return new RunResult(params, forks);
+    }
+
+    private static String write(ResultFormatType type, RunResult rr) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(bos);
+        ResultFormatFactory.getInstance(type, ps).writeOut(Collections.singleton(rr));
+        ps.flush();
+        return bos.toString();
+    }
+
+    @Test
+    public void testDetected() {
+        RunResult rr = runResult(true, false);
+        assertEquals(2, rr.getDetectedWarmupIterations().size());
+        assertEquals(7, (int) rr.getDetectedWarmupIterations().get(0));
+        assertEquals(20, (int) rr.getDetectedWarmupIterations().get(1));
+
+        String json = write(ResultFormatType.JSON, rr).replaceAll("\\s", "");
+        assertTrue(json.contains("\"detectedWarmupIterations\":[7,20]"));
+        assertTrue(write(ResultFormatType.TEXT, rr).contains("[7, 20]"));
+    }
+
+    @Test
+    public void testNotDetected() {
+        RunResult rr = runResult(false, false);
+        assertTrue(rr.getDetectedWarmupIterations().isEmpty());
+
+        assertFalse(write(ResultFormatType.JSON, rr).contains("detectedWarmupIterations"));
+        assertFalse(write(ResultFormatType.TEXT, rr).contains("steady state"));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.BlackholeMode;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.WorkloadParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JSONResultReaderTest {
+
+    private static RunResult runResult(int[] threadGroups, TimeUnit tu) {
+        BenchmarkParams params = new BenchmarkParams("bench", "bench", false,
+                Utils.sum(threadGroups), threadGroups, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 2, TimeValue.seconds(1), 1),
+                Mode.AverageTime, new WorkloadParams(), tu, 1,
+                Utils.getCurrentJvm(), Arrays.asList("-Xmx1g", "-Dfoo=bar"),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.minutes(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
+
+        IterationResult ir1 = new IterationResult(params, params.getMeasurement(), null);
+        ir1.addResult(new AverageTimeResult(ResultRole.PRIMARY, "bench", 1000, 2000, tu));
+        IterationResult ir2 = new IterationResult(params, params.getMeasurement(), null);
+        ir2.addResult(new AverageTimeResult(ResultRole.PRIMARY, "bench", 1000, 3000, tu));
+
+        BenchmarkResult br = new BenchmarkResult(params, Arrays.asList(ir1, ir2));
+        return new RunResult(params, Collections.singleton(br));
+    }
+
+    private static RunResult roundTrip(RunResult rr) throws IOException {
+        File f = FileUtils.tempFile("jmh-json-reader");
+        try {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, f.getAbsolutePath())
+                    .writeOut(Collections.singleton(rr));
+            Collection<RunResult> read = ResultFormatFactory.readResults(ResultFormatType.JSON, f.getAbsolutePath());
+            assertEquals(1, read.size());
+            return read.iterator().next();
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testRestoresRunConfiguration() throws IOException {
+        RunResult read = roundTrip(runResult(new int[]{2, 1}, TimeUnit.MICROSECONDS));
+        BenchmarkParams params = read.getParams();
+        assertEquals(3, params.getThreads());
+        assertArrayEquals(new int[]{2, 1}, params.getThreadGroups());
+        assertEquals(TimeUnit.MICROSECONDS, params.getTimeUnit());
+        assertEquals(Arrays.asList("-Xmx1g", "-Dfoo=bar"), new ArrayList<>(params.getJvmArgs()));
+        assertEquals(Utils.getCurrentJvm(), params.getJvm());
+    }
+
+    @Test
+    public void testSingleGroup() throws IOException {
+        RunResult read = roundTrip(runResult(new int[]{4}, TimeUnit.MILLISECONDS));
+        assertEquals(4, read.getParams().getThreads());
+        assertArrayEquals(new int[]{4}, read.getParams().getThreadGroups());
+        assertEquals(TimeUnit.MILLISECONDS, read.getParams().getTimeUnit());
+    }
+
+}
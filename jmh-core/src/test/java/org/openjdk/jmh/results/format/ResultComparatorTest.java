@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.results.format;
+
+import junit.framework.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.BlackholeMode;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.WorkloadParams;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class ResultComparatorTest {
+
+    private static RunResult result(String name, Mode mode, String param, double base, double spread) {
+        WorkloadParams ps = new WorkloadParams();
+        ps.put("size", param, 0);
+        BenchmarkParams params = new BenchmarkParams(
+                name, name + "_" + mode, false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP, 1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 10, TimeValue.seconds(1), 1),
+                mode, ps,
+                TimeUnit.NANOSECONDS, 1,
+                "javadummy", Collections.<String>emptyList(),
+                "1.8-dummy", "DummyVM", "4711", "1.18",
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
+
+        Random r = new Random(12345);
+        Collection<IterationResult> iterResults = new ArrayList<>();
+        for (int c = 0; c < 10; c++) {
+            double score = base + (r.nextDouble() - 0.5) * spread;
+            IterationResult res = new IterationResult(params, params.getMeasurement(), null);
+            res.addResult(StoredResults.primary(mode, "test", score, mode == Mode.Throughput ? "ops/ns" : "ns/op"));
+            iterResults.add(res);
+        }
+        return new RunResult(params, Collections.singleton(new BenchmarkResult(params, iterResults)));
+    }
+
+    private static String write(String name, RunResult... results) throws IOException {
+        String file = FileUtils.tempFile(name).getAbsolutePath();
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, file).writeOut(Arrays.asList(results));
+        return file;
+    }
+
+    private static int compare(String baseline, String candidate, StringBuilder report) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(bos);
+        int regressions = new ResultComparator(5).compare(baseline, candidate, ps);
+        ps.flush();
+        report.append(bos.toString());
+        return regressions;
+    }
+
+    @Test
+    public void testSame() throws IOException {
+        String base = write("cmp-base.json",
+                result("bench.a", Mode.Throughput, "1", 100, 2),
+                result("bench.b", Mode.AverageTime, "1", 100, 2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(0, compare(base, base, report));
+        Assert.assertFalse(report.toString(), report.toString().contains("REGRESSION"));
+    }
+
+    @Test
+    public void testThroughputRegression() throws IOException {
+        String base = write("cmp-base.json", result("bench.a", Mode.Throughput, "1", 100, 2));
+        String cand = write("cmp-cand.json", result("bench.a", Mode.Throughput, "1", 80, 2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(1, compare(base, cand, report));
+        Assert.assertTrue(report.toString(), report.toString().contains("REGRESSION"));
+    }
+
+    @Test
+    public void testAverageTimeRegression() throws IOException {
+        String base = write("cmp-base.json", result("bench.a", Mode.AverageTime, "1", 100, 2));
+        String cand = write("cmp-cand.json", result("bench.a", Mode.AverageTime, "1", 120, 2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(1, compare(base, cand, report));
+    }
+
+    @Test
+    public void testImprovement() throws IOException {
+        String base = write("cmp-base.json", result("bench.a", Mode.AverageTime, "1", 100, 2));
+        String cand = write("cmp-cand.json", result("bench.a", Mode.AverageTime, "1", 80, 2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(0, compare(base, cand, report));
+        Assert.assertTrue(report.toString(), report.toString().contains("improvement"));
+    }
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        String base = write("cmp-base.json", result("bench.a", Mode.Throughput, "1", 100, 0.2));
+        String cand = write("cmp-cand.json", result("bench.a", Mode.Throughput, "1", 98, 0.2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(0, compare(base, cand, report));
+    }
+
+    @Test
+    public void testNoise() throws IOException {
+        String base = write("cmp-base.json", result("bench.a", Mode.Throughput, "1", 100, 200));
+        String cand = write("cmp-cand.json", result("bench.a", Mode.Throughput, "1", 90, 200));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(0, compare(base, cand, report));
+    }
+
+    @Test
+    public void testMatchByParams() throws IOException {
+        String base = write("cmp-base.json",
+                result("bench.a", Mode.Throughput, "1", 100, 2),
+                result("bench.a", Mode.Throughput, "2", 100, 2));
+        String cand = write("cmp-cand.json",
+                result("bench.a", Mode.Throughput, "2", 80, 2),
+                result("bench.a", Mode.Throughput, "3", 80, 2));
+        StringBuilder report = new StringBuilder();
+        Assert.assertEquals(1, compare(base, cand, report));
+        String s = report.toString();
+        Assert.assertTrue(s, s.contains("Missing in candidate:"));
+        Assert.assertTrue(s, s.contains("bench.a(size=1)"));
+        Assert.assertTrue(s, s.contains("Missing in baseline:"));
+        Assert.assertTrue(s, s.contains("bench.a(size=3)"));
+    }
+
+}
@@ -30,6 +30,7 @@ import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.infra.BenchmarkParams;
 import org.openjdk.jmh.infra.IterationParams;
 import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.BlackholeMode;
 import org.openjdk.jmh.runner.IterationType;
 import org.openjdk.jmh.runner.WorkloadParams;
 import org.openjdk.jmh.runner.options.TimeValue;
@@ -91,7 +92,7 @@ public class ResultFormatTest {
                     JVM_DUMMY,
                     Collections.<String>emptyList(),
                     JDK_VERSION_DUMMY, VM_NAME_DUMMY, VM_VERSION_DUMMY, JMH_VERSION_DUMMY,
-                    TimeValue.days(1));
+                    TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
 
             Collection<BenchmarkResult> benchmarkResults = new ArrayList<>();
             for (int f = 0; f < r.nextInt(10); f++) {
@@ -235,4 +236,129 @@ public class ResultFormatTest {
         test(ResultFormatType.TEXT, new Locale("RU"), ".ru");
     }
 
+    /*
+     * Streamed results should end up the same as the ones written at once.
+     */
+
+    private Collection<String> getStubParamKeys() {
+        Collection<String> keys = new TreeSet<>();
+        for (RunResult r : getStub()) {
+            keys.addAll(r.getParams().getParamsKeys());
+        }
+        return keys;
+    }
+
+    public void testStreaming(ResultFormatType type, String suffix) throws IOException {
+        Locale prevLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+
+        String actualFileName = "test-stream." + type.toString().toLowerCase() + suffix;
+        String goldenFileName = "output-golden." + type.toString().toLowerCase() + suffix;
+
+        try {
+            String actualFile = FileUtils.tempFile(actualFileName).getAbsolutePath();
+            StreamingResultFormat rf = ResultFormatFactory.getStreamingInstance(type, actualFile, getStubParamKeys(), false);
+            for (RunResult r : getStub()) {
+                rf.append(r);
+            }
+            compare(actualFile, goldenFileName);
+        } finally {
+            Locale.setDefault(prevLocale);
+        }
+    }
+
+    public void testResume(ResultFormatType type, String suffix) throws IOException {
+        Locale prevLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+
+        String actualFileName = "test-resume." + type.toString().toLowerCase() + suffix;
+        String goldenFileName = "output-golden." + type.toString().toLowerCase() + suffix;
+
+        try {
+            File actualFile = FileUtils.tempFile(actualFileName);
+            String name = actualFile.getAbsolutePath();
+
+            List<RunResult> stub = new ArrayList<>(getStub());
+            Assert.assertTrue("Stub is too small", stub.size() >= 2);
+            int done = stub.size() / 2;
+
+            StreamingResultFormat rf = ResultFormatFactory.getStreamingInstance(type, name, getStubParamKeys(), false);
+            for (RunResult r : stub.subList(0, done)) {
+                rf.append(r);
+            }
+            long len = actualFile.length();
+
+            // Simulate the run that died in the middle of appending the next result
+            rf.append(stub.get(done));
+            try (RandomAccessFile raf = new RandomAccessFile(actualFile, "rw")) {
+                raf.setLength(len + 5);
+            }
+
+            rf = ResultFormatFactory.getStreamingInstance(type, name, getStubParamKeys(), true);
+            for (int c = 0; c < stub.size(); c++) {
+                BenchmarkParams params = stub.get(c).getParams();
+                WorkloadParams ps = new WorkloadParams();
+                for (String k : params.getParamsKeys()) {
+                    ps.put(k, params.getParam(k), 0);
+                }
+                Assert.assertEquals("Presence of " + params.getBenchmark(), c < done,
+                        rf.isPresent(params.getBenchmark(), params.getMode(), ps));
+            }
+
+            for (RunResult r : stub.subList(done, stub.size())) {
+                rf.append(r);
+            }
+            compare(name, goldenFileName);
+        } finally {
+            Locale.setDefault(prevLocale);
+        }
+    }
+
+    @Test
+    public void jsonStreamTest() throws IOException {
+        testStreaming(ResultFormatType.JSON, "");
+    }
+
+    @Test
+    public void csvStreamTest() throws IOException {
+        testStreaming(ResultFormatType.CSV, ".root");
+    }
+
+    @Test
+    public void scsvStreamTest() throws IOException {
+        testStreaming(ResultFormatType.SCSV, ".root");
+    }
+
+    @Test
+    public void jsonResumeTest() throws IOException {
+        testResume(ResultFormatType.JSON, "");
+    }
+
+    @Test
+    public void csvResumeTest() throws IOException {
+        testResume(ResultFormatType.CSV, ".root");
+    }
+
+    @Test
+    public void scsvResumeTest() throws IOException {
+        testResume(ResultFormatType.SCSV, ".root");
+    }
+
+    /*
+     * JSON results read back should be written out the same.
+     */
+
+    @Test
+    public void jsonReadBackTest() throws IOException {
+        String actualFile = FileUtils.tempFile("test-read.json").getAbsolutePath();
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, actualFile).writeOut(getStub());
+
+        Collection<RunResult> read = new TreeSet<>(RunResult.DEFAULT_SORT_COMPARATOR);
+        read.addAll(ResultFormatFactory.readResults(ResultFormatType.JSON, actualFile));
+        Assert.assertEquals(getStub().size(), read.size());
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, actualFile).writeOut(read);
+        compare(actualFile, "output-golden.json");
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CDSArchivesTest {
+
+    @Test
+    public void testKey() throws IOException {
+        File jar = FileUtils.tempFile("cds.jar");
+        String cp = jar.getAbsolutePath() + File.pathSeparator + "nonexistent";
+        List<String> args = Collections.singletonList("-Xmx1g");
+
+        String key = CDSArchives.key("java", args, cp);
+        Assert.assertEquals(key, CDSArchives.key("java", args, cp));
+        Assert.assertFalse(key.equals(CDSArchives.key("java2", args, cp)));
+        Assert.assertFalse(key.equals(CDSArchives.key("java", Collections.singletonList("-Xmx2g"), cp)));
+        Assert.assertFalse(key.equals(CDSArchives.key("java", args, jar.getAbsolutePath())));
+
+        // rebuilt classpath JAR should not reuse the stale archive
+        FileUtils.writeLines(jar, Collections.singleton("updated"));
+        Assert.assertFalse(key.equals(CDSArchives.key("java", args, cp)));
+    }
+
+    @Test
+    public void testIsDumping() {
+        Assert.assertTrue(CDSArchives.isDumping(Arrays.asList("java", "-XX:ArchiveClassesAtExit=/tmp/a.tmp", "Main")));
+        Assert.assertFalse(CDSArchives.isDumping(Arrays.asList("java", "-XX:SharedArchiveFile=/tmp/a.jsa", "Main")));
+    }
+
+    private static File tempDir(String suffix) throws IOException {
+        File dir = FileUtils.tempFile(suffix);
+        dir.delete();
+        Assert.assertTrue(dir.mkdirs());
+        return dir;
+    }
+
+    private static String currentJvm() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    /**
+     * Runs the trivial VM in place of the fork.
+     */
+    private static void runFork(String jvm, List<String> options, String cp) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(jvm);
+        cmd.addAll(options);
+        cmd.add("-cp");
+        cmd.add(cp);
+        cmd.add("-version");
+        Utils.runWith(cmd);
+    }
+
+    @Test
+    public void testPublish() throws IOException {
+        File dir = tempDir("cds");
+        String cp = tempDir("cp").getAbsolutePath();
+        String jvm = currentJvm();
+        List<String> args = Collections.emptyList();
+
+        CDSArchives cds = new CDSArchives(dir);
+        List<String> dump = cds.dumpOptions(jvm, args, cp);
+        if (dump.isEmpty()) {
+            // dynamic archives are not supported by this VM
+            return;
+        }
+        Assert.assertTrue(CDSArchives.isDumping(dump));
+
+        // nothing to share, and nobody else dumps while the archive is being dumped
+        Assert.assertTrue(cds.options(jvm, args, cp).isEmpty());
+        Assert.assertTrue(cds.dumpOptions(jvm, args, cp).isEmpty());
+
+        runFork(jvm, dump, cp);
+        cds.afterFork(dump);
+
+        File archive = new File(dir, CDSArchives.key(jvm, args, cp) + ".jsa");
+        Assert.assertTrue(archive.isFile());
+        Assert.assertTrue(cds.options(jvm, args, cp).contains("-XX:SharedArchiveFile=" + archive.getAbsolutePath()));
+        Assert.assertTrue(cds.dumpOptions(jvm, args, cp).isEmpty());
+
+        // the next run rejects the broken archive, and dumps it again
+        Assert.assertTrue(archive.delete());
+        FileUtils.writeLines(archive, Collections.singleton("broken"));
+
+        CDSArchives next = new CDSArchives(dir);
+        Assert.assertTrue(next.options(jvm, args, cp).isEmpty());
+        Assert.assertFalse(archive.exists());
+        Assert.assertTrue(CDSArchives.isDumping(next.dumpOptions(jvm, args, cp)));
+    }
+
+    @Test
+    public void testEvict() throws IOException {
+        File dir = tempDir("cds");
+        String cp = tempDir("cp").getAbsolutePath();
+        String jvm = currentJvm();
+
+        long now = System.currentTimeMillis();
+        List<File> archives = new ArrayList<>();
+        for (int i = 0; i < CDSArchives.MAX_ARCHIVES + 2; i++) {
+            File f = new File(dir, "archive" + i + ".jsa");
+            FileUtils.writeLines(f, Collections.singleton("archive"));
+            Assert.assertTrue(f.setLastModified(now - i * 60_000L));
+            archives.add(f);
+        }
+        File staleTemp = new File(dir, "stale.tmp");
+        FileUtils.writeLines(staleTemp, Collections.singleton("stale"));
+        Assert.assertTrue(staleTemp.setLastModified(now - 48 * 3600_000L));
+        File freshTemp = new File(dir, "fresh.tmp");
+        FileUtils.writeLines(freshTemp, Collections.singleton("fresh"));
+
+        List<String> dump = new CDSArchives(dir).dumpOptions(jvm, Collections.<String>emptyList(), cp);
+        if (dump.isEmpty()) {
+            // dynamic archives are not supported by this VM
+            return;
+        }
+
+        // the most recent archives stay, leaving room for the one being dumped
+        for (int i = 0; i < archives.size(); i++) {
+            Assert.assertEquals(archives.get(i).getName(), i < CDSArchives.MAX_ARCHIVES - 1, archives.get(i).exists());
+        }
+        Assert.assertFalse(staleTemp.exists());
+        Assert.assertTrue(freshTemp.exists());
+    }
+
+}
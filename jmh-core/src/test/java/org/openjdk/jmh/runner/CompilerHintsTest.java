@@ -27,9 +27,11 @@ package org.openjdk.jmh.runner;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.openjdk.jmh.util.Utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -81,6 +83,35 @@ public class CompilerHintsTest {
         assertTrue(args.isEmpty());
     }
 
+    @Test
+    public void testCompilerBlackholes() {
+        List<String> args = new ArrayList<>();
+        CompilerHints.addCompilerHints(args, BlackholeMode.COMPILER);
+        assertTrue(args.contains("-D" + BlackholeMode.PROPERTY + "=compiler"));
+        assertTrue(args.contains("-XX:CompileCommand=blackhole," + CompilerHints.BLACKHOLE_COMPILER_METHODS));
+
+        Set<String> hints = CompilerHints.fromFile(CompilerHints.hintsFile(BlackholeMode.COMPILER)).get();
+        assertFalse(hints.contains("dontinline,org/openjdk/jmh/infra/Blackhole.*"));
+    }
+
+    @Test
+    public void testFullBlackholes() {
+        List<String> args = new ArrayList<>();
+        CompilerHints.addCompilerHints(args, BlackholeMode.FULL_DONTINLINE);
+        assertTrue(args.contains("-D" + BlackholeMode.PROPERTY + "=full-dontinline"));
+        assertFalse(args.contains("-XX:CompileCommand=blackhole," + CompilerHints.BLACKHOLE_COMPILER_METHODS));
+
+        Set<String> hints = CompilerHints.fromFile(CompilerHints.hintsFile(BlackholeMode.FULL_DONTINLINE)).get();
+        assertTrue(hints.contains("dontinline,org/openjdk/jmh/infra/Blackhole.*"));
+    }
+
+    @Test
+    public void testProbeCurrentJvm() {
+        // Modern VMs support compiler blackholes, but probe should not fail on older ones either
+        CompilerHints.isCompilerBlackholeSupported(Utils.getCurrentJvm());
+        assertFalse(CompilerHints.isCompilerBlackholeSupported("/nonexistent/java"));
+    }
+
     @After
     public void restoreCurrentVM() {
         System.setProperty("java.vm.name", vmName);
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CpuAffinityTest {
+
+    @Test
+    public void testParseList() {
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 8, 10, 11), CpuAffinity.parseList("0-3,8,10-11\n"));
+        Assert.assertEquals(Arrays.asList(5), CpuAffinity.parseList(" 5 "));
+        Assert.assertEquals(Collections.<Integer>emptyList(), CpuAffinity.parseList(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseList_Malformed() {
+        CpuAffinity.parseList("0-x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseList_Reversed() {
+        CpuAffinity.parseList("3-1");
+    }
+
+    @Test
+    public void testFormatList() {
+        Assert.assertEquals("0-3,8,10-11", CpuAffinity.formatList(Arrays.asList(11, 0, 1, 2, 3, 8, 10)));
+        Assert.assertEquals("7", CpuAffinity.formatList(Arrays.asList(7)));
+        Assert.assertEquals("", CpuAffinity.formatList(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void testPartition() {
+        List<List<Integer>> sets = CpuAffinity.partition(CpuAffinity.parseList("0-6"), 3);
+        Assert.assertEquals(3, sets.size());
+        Assert.assertEquals(Arrays.asList(0, 1), sets.get(0));
+        Assert.assertEquals(Arrays.asList(2, 3), sets.get(1));
+        Assert.assertEquals(Arrays.asList(4, 5), sets.get(2));
+    }
+
+    @Test
+    public void testPartition_NotEnough() {
+        Assert.assertTrue(CpuAffinity.partition(CpuAffinity.parseList("0-2"), 4).isEmpty());
+    }
+
+    @Test
+    public void testPinningPrefix() {
+        List<Integer> cpus = Arrays.asList(4, 5, 6, 7);
+        Assert.assertEquals(Arrays.asList("taskset", "-c", "4-7"), CpuAffinity.pinningPrefix(CpuAffinity.TASKSET, cpus));
+        Assert.assertEquals(Arrays.asList("numactl", "--physcpubind=4-7"), CpuAffinity.pinningPrefix(CpuAffinity.NUMACTL, cpus));
+        Assert.assertTrue(CpuAffinity.pinningPrefix(null, cpus).isEmpty());
+    }
+
+    @Test
+    public void testAllowedCpus() {
+        List<Integer> cpus = CpuAffinity.allowedCpus();
+        Assert.assertFalse(cpus.isEmpty());
+    }
+
+}
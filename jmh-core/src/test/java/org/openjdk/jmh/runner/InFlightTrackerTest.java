@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.util.ConcurrentSampleBuffer;
+import org.openjdk.jmh.util.SampleBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+public class InFlightTrackerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroLimit() {
+        new InFlightTracker(0);
+    }
+
+    @Test
+    public void testCountsCompletionsInMeasurement() throws Throwable {
+        InFlightTracker tracker = new InFlightTracker(2);
+
+        long warm = tracker.acquire();
+        tracker.complete(warm, null);
+
+        ConcurrentSampleBuffer buffer = new ConcurrentSampleBuffer();
+        tracker.startMeasurement(buffer, 1);
+        tracker.complete(tracker.acquire(), null);
+        tracker.complete(tracker.acquire(), null);
+        long late = tracker.acquire();
+        Assert.assertEquals(2, tracker.stopMeasurement());
+
+        tracker.complete(late, null);
+        tracker.drain();
+
+        SampleBuffer sb = new SampleBuffer();
+        buffer.drainTo(sb);
+        Assert.assertEquals(2, sb.getStatistics(1).getN());
+    }
+
+    @Test
+    public void testSkipsWarmupRamp() throws Throwable {
+        InFlightTracker tracker = new InFlightTracker(2);
+
+        // issued during warmup, completes during measurement
+        long ramp = tracker.acquire();
+        TimeUnit.MILLISECONDS.sleep(1);
+
+        ConcurrentSampleBuffer buffer = new ConcurrentSampleBuffer();
+        tracker.startMeasurement(buffer, 1);
+        tracker.complete(ramp, null);
+        tracker.complete(tracker.acquire(), null);
+        Assert.assertEquals(1, tracker.stopMeasurement());
+        tracker.drain();
+
+        SampleBuffer sb = new SampleBuffer();
+        buffer.drainTo(sb);
+        Assert.assertEquals(1, sb.getStatistics(1).getN());
+    }
+
+    @Test
+    public void testWaitsForSlot() throws Throwable {
+        final InFlightTracker tracker = new InFlightTracker(1);
+        final long start = tracker.acquire();
+
+        Thread completer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    // do nothing
+                }
+                tracker.complete(start, null);
+            }
+        };
+        completer.start();
+
+        long second = tracker.acquire();
+        Assert.assertTrue("Second operation waits for the first one", second - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        completer.join();
+
+        tracker.complete(second, null);
+        tracker.drain();
+    }
+
+    @Test
+    public void testDrainRethrowsFailure() throws Throwable {
+        InFlightTracker tracker = new InFlightTracker(4);
+        tracker.complete(tracker.acquire(), new IllegalStateException("Expected"));
+        tracker.complete(tracker.acquire(), null);
+        try {
+            tracker.drain();
+            Assert.fail("Should have thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Expected", e.getMessage());
+        }
+
+        // failure is reported once
+        tracker.drain();
+    }
+
+}
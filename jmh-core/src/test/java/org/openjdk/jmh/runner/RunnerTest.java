@@ -67,7 +67,7 @@ public class RunnerTest {
                 Mode.Throughput, null, TimeUnit.SECONDS, 1,
                 Utils.getCurrentJvm(), Collections.<String>emptyList(),
                 System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
-                TimeValue.days(1));
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
         List<String> command = blade.getForkedMainCommand(bp, Collections.<ExternalProfiler>emptyList(), DUMMY_HOST, DUMMY_PORT);
 
         // expecting 1 compile command file
@@ -84,6 +84,24 @@ public class RunnerTest {
         assertEquals(hints, defaultHints);
     }
 
+    @Test
+    public void testAffinityPrefixGoesFirst() {
+        Runner blade = new Runner(new OptionsBuilder());
+        BenchmarkParams bp = new BenchmarkParams("Foo", "bar", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 1,
+                new IterationParams(IterationType.WARMUP,      1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.Throughput, null, TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1), 2, BlackholeMode.FULL_DONTINLINE, 0);
+        List<String> command = blade.getForkedMainCommand(bp, Collections.<ExternalProfiler>emptyList(), DUMMY_HOST, DUMMY_PORT,
+                CpuAffinity.pinningPrefix(CpuAffinity.TASKSET, Arrays.asList(2, 3)));
+
+        assertEquals(Arrays.asList("taskset", "-c", "2-3", Utils.getCurrentJvm()), command.subList(0, 4));
+    }
+
     @Test
     public void testOptsWithCompileCommandFileResultInMergedCompileCommandFile() throws IOException {
         // add a hints file
@@ -99,7 +117,7 @@ public class RunnerTest {
                 Mode.Throughput, null, TimeUnit.SECONDS, 1,
                 Utils.getCurrentJvm(), Collections.singletonList(CompilerHints.XX_COMPILE_COMMAND_FILE + tempHints),
                 System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
-                TimeValue.days(1));
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
         List<String> command = blade.getForkedMainCommand(bp, Collections.<ExternalProfiler>emptyList(), DUMMY_HOST, DUMMY_PORT);
 
         // expecting 1 compile command file
@@ -136,7 +154,7 @@ public class RunnerTest {
                 Utils.getCurrentJvm(),
                 Arrays.asList(CompilerHints.XX_COMPILE_COMMAND_FILE + tempHints1, CompilerHints.XX_COMPILE_COMMAND_FILE + tempHints2),
                 System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
-                TimeValue.days(1));
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
         List<String> command = blade.getForkedMainCommand(bp, Collections.<ExternalProfiler>emptyList(), DUMMY_HOST, DUMMY_PORT);
 
         // expecting 1 compile command file
@@ -154,4 +172,30 @@ public class RunnerTest {
         assertTrue(hints.containsAll(extraHints1));
         assertTrue(hints.containsAll(extraHints2));
     }
+
+    @Test
+    public void testLoadPlan() {
+        BenchmarkParams bp = new BenchmarkParams("Foo", "bar", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 0,
+                new IterationParams(IterationType.WARMUP,      5, TimeValue.seconds(10), 1),
+                new IterationParams(IterationType.MEASUREMENT, 5, TimeValue.seconds(10), 1),
+                Mode.Throughput, null, TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
+
+        ActionPlan plan = new ActionPlan(ActionType.FORKED);
+        plan.add(new Action(bp, ActionMode.WARMUP));
+        plan.add(new Action(bp, ActionMode.WARMUP_MEASUREMENT));
+
+        ActionPlan load = Runner.loadPlan(plan);
+        assertEquals(ActionType.FORKED, load.getType());
+        assertEquals(2, load.getActions().size());
+        for (Action a : load.getActions()) {
+            assertEquals(ActionMode.LOAD, a.getMode());
+            assertEquals(bp, a.getParams());
+        }
+        assertTrue(load.getMeasurementActions().isEmpty());
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Snapshot;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.StateSnapshot;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.FileUtils;
+import org.openjdk.jmh.util.Utils;
+import org.openjdk.jmh.util.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class StateSnapshotsTest {
+
+    private StateSnapshots snapshots;
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = FileUtils.tempFile("snapshots");
+        dir.delete();
+        snapshots = new StateSnapshots(dir);
+    }
+
+    @Snapshot
+    public static class FieldState {
+        int[] data;
+        String name;
+        transient Object scratch;
+    }
+
+    @Snapshot
+    public static class CustomState implements StateSnapshot {
+        ByteBuffer data;
+
+        @Override
+        public void writeSnapshot(OutputStream out) throws IOException {
+            out.write(new byte[] {1, 2, 3});
+            out.close();
+        }
+
+        @Override
+        public void readSnapshot(ByteBuffer snapshot) {
+            data = snapshot;
+        }
+    }
+
+    private static BenchmarkParams params(String value) {
+        WorkloadParams ps = new WorkloadParams();
+        ps.put("size", value, 0);
+        return new BenchmarkParams("Foo", "bar", false,
+                1, new int[]{1}, Collections.<String>emptyList(),
+                1, 1,
+                new IterationParams(IterationType.WARMUP,      1, TimeValue.seconds(1), 1),
+                new IterationParams(IterationType.MEASUREMENT, 1, TimeValue.seconds(1), 1),
+                Mode.Throughput, ps, TimeUnit.SECONDS, 1,
+                Utils.getCurrentJvm(), Collections.<String>emptyList(),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), Version.getPlainVersion(),
+                TimeValue.days(1), 0, BlackholeMode.FULL_DONTINLINE, 0);
+    }
+
+    private File snapshotFile(Class<?> stateClass, BenchmarkParams params) {
+        return new File(dir, StateSnapshots.key(stateClass, params) + ".snapshot");
+    }
+
+    @Test
+    public void testFields() {
+        FieldState s = new FieldState();
+        s.data = new int[] {1, 2, 3};
+        s.name = "name";
+        s.scratch = new Object();
+
+        Assert.assertFalse(snapshots.restore(new FieldState(), FieldState.class, params("1")));
+        snapshots.save(s, FieldState.class, params("1"));
+
+        FieldState r = new FieldState();
+        Assert.assertTrue(snapshots.restore(r, FieldState.class, params("1")));
+        Assert.assertArrayEquals(s.data, r.data);
+        Assert.assertEquals(s.name, r.name);
+        Assert.assertNull(r.scratch);
+
+        // other parameters need their own snapshot
+        Assert.assertFalse(snapshots.restore(new FieldState(), FieldState.class, params("2")));
+    }
+
+    @Test
+    public void testCustom() {
+        snapshots.save(new CustomState(), CustomState.class, params("1"));
+
+        CustomState r = new CustomState();
+        Assert.assertTrue(snapshots.restore(r, CustomState.class, params("1")));
+        Assert.assertTrue(r.data.isReadOnly());
+        Assert.assertEquals(3, r.data.remaining());
+        Assert.assertEquals(3, r.data.get(2));
+    }
+
+    @Test
+    public void testCorrupted() throws IOException {
+        snapshots.save(new CustomState(), CustomState.class, params("1"));
+
+        File file = snapshotFile(CustomState.class, params("1"));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write(42);
+        }
+
+        Assert.assertFalse(snapshots.restore(new CustomState(), CustomState.class, params("1")));
+        Assert.assertFalse("Corrupted snapshot is discarded", file.exists());
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        snapshots.save(new CustomState(), CustomState.class, params("1"));
+
+        File file = snapshotFile(CustomState.class, params("1"));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        Assert.assertFalse(snapshots.restore(new CustomState(), CustomState.class, params("1")));
+        Assert.assertFalse("Truncated snapshot is discarded", file.exists());
+    }
+
+    @Test
+    public void testRunDir() throws IOException {
+        File runDir = StateSnapshots.createRunDir();
+        StateSnapshots inRun = StateSnapshots.getInstance();
+        inRun.save(new CustomState(), CustomState.class, params("1"));
+        Assert.assertTrue(new File(runDir, StateSnapshots.key(CustomState.class, params("1")) + ".snapshot").isFile());
+        Assert.assertTrue(inRun.restore(new CustomState(), CustomState.class, params("1")));
+
+        StateSnapshots.deleteRunDir(runDir);
+        Assert.assertFalse("Snapshots are deleted after the run", runDir.exists());
+
+        // out of the run, there is nowhere to keep the snapshots
+        StateSnapshots outOfRun = StateSnapshots.getInstance();
+        outOfRun.save(new CustomState(), CustomState.class, params("1"));
+        Assert.assertFalse(outOfRun.restore(new CustomState(), CustomState.class, params("1")));
+    }
+
+    @Test
+    public void testFingerprint() throws IOException {
+        Assert.assertEquals(StateSnapshots.fingerprint(FieldState.class), StateSnapshots.fingerprint(FieldState.class));
+        Assert.assertFalse(StateSnapshots.fingerprint(FieldState.class).equals(StateSnapshots.fingerprint(CustomState.class)));
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SteadyStateDetectorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testNotEnoughIterations() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        for (int c = 1; c < SteadyStateDetector.WINDOW; c++) {
+            d.add(100, SECOND, 0);
+            Assert.assertFalse(d.isSteady());
+        }
+        d.add(100, SECOND, 0);
+        Assert.assertTrue(d.isSteady());
+    }
+
+    @Test
+    public void testDrifting() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        for (int c = 1; c <= 10; c++) {
+            d.add(100 * c, SECOND, 0);
+            Assert.assertFalse(d.isSteady());
+        }
+    }
+
+    @Test
+    public void testSettles() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        double[] scores = {10, 50, 90, 99, 100, 101, 100};
+        int steadyAt = -1;
+        for (int c = 0; c < scores.length; c++) {
+            d.add(scores[c], SECOND, 0);
+            if (steadyAt < 0 && d.isSteady()) {
+                steadyAt = c;
+            }
+        }
+        Assert.assertEquals(6, steadyAt);
+    }
+
+    @Test
+    public void testNoisyButFlat() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        double[] scores = {80, 120, 100, 120, 80, 100};
+        for (double s : scores) {
+            d.add(s, SECOND, 0);
+        }
+        Assert.assertTrue(d.isSteady());
+    }
+
+    @Test
+    public void testPooledNoise() {
+        // newer half is flat, yet the older half shows the scores are noisy
+        SteadyStateDetector d = new SteadyStateDetector();
+        double[] scores = {95, 115, 99, 100, 100, 100};
+        for (double s : scores) {
+            d.add(s, SECOND, 0);
+        }
+        Assert.assertTrue(d.isSteady());
+    }
+
+    @Test
+    public void testBusyCompiler() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        for (int c = 0; c < 10; c++) {
+            d.add(100, SECOND, SECOND / 10);
+        }
+        Assert.assertFalse(d.isSteady());
+
+        for (int c = 0; c < SteadyStateDetector.WINDOW / 2; c++) {
+            d.add(100, SECOND, 0);
+        }
+        Assert.assertTrue(d.isSteady());
+    }
+
+    @Test
+    public void testUnknownCompiler() {
+        SteadyStateDetector d = new SteadyStateDetector();
+        for (int c = 0; c < SteadyStateDetector.WINDOW; c++) {
+            d.add(100, SECOND, -1);
+        }
+        Assert.assertTrue(d.isSteady());
+    }
+
+}
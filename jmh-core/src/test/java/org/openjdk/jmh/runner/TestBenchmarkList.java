@@ -71,6 +71,7 @@ public class TestBenchmarkList {
                 Optional.<Map<String, String[]>>none(),
                 Optional.<TimeUnit>none(),
                 Optional.<Integer>none(),
+                Optional.<Integer>none(),
                 Optional.<TimeValue>none()
         );
 
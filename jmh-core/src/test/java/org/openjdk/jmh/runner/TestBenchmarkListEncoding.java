@@ -65,6 +65,7 @@ public class TestBenchmarkListEncoding {
                 Optional.<Map<String, String[]>>none(),
                 Optional.<TimeUnit>none(),
                 Optional.<Integer>none(),
+                Optional.<Integer>none(),
                 Optional.<TimeValue>none()
         );
         return br;
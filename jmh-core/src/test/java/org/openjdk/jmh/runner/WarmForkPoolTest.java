@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.link.BinaryLinkClient;
+import org.openjdk.jmh.runner.link.BinaryLinkServer;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.openjdk.jmh.util.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WarmForkPoolTest {
+
+    private static final Options OPTIONS = new OptionsBuilder().build();
+    private static final OutputFormat OUT = OutputFormatFactory.createFormatInstance(System.out, VerboseMode.SILENT);
+
+    /**
+     * Stands for the pre-launched forked VM: connects, waits for the plan, and reports its type.
+     */
+    public static class PlanClient {
+        public static void main(String[] args) throws Exception {
+            BinaryLinkClient link = new BinaryLinkClient(args[0], Integer.parseInt(args[1]));
+            ActionPlan plan = link.requestPlan();
+            link.close();
+            System.out.println(plan.getType());
+            System.exit(0);
+        }
+    }
+
+    @Test
+    public void testSameCommand() {
+        List<String> c1 = Arrays.asList("java", "-Xmx1g", "ForkedMain", "127.0.0.1", "40001");
+        List<String> c2 = Arrays.asList("java", "-Xmx1g", "ForkedMain", "127.0.0.1", "40002");
+        List<String> c3 = Arrays.asList("java", "-Xmx2g", "ForkedMain", "127.0.0.1", "40001");
+        List<String> c4 = Arrays.asList("java", "ForkedMain", "127.0.0.1", "40001");
+
+        Assert.assertTrue(WarmForkPool.sameCommand(c1, c2));
+        Assert.assertFalse(WarmForkPool.sameCommand(c1, c3));
+        Assert.assertFalse(WarmForkPool.sameCommand(c1, c4));
+    }
+
+    @Test
+    public void testWithAddress() {
+        List<String> c = Arrays.asList("java", "ForkedMain", "127.0.0.1", "40001");
+        Assert.assertEquals(Arrays.asList("java", "ForkedMain", "::1", "40002"),
+                WarmForkPool.withAddress(c, "::1", 40002));
+    }
+
+    private static List<String> planClientCommand() {
+        return Arrays.asList(Utils.getCurrentJvm(), "-cp", System.getProperty("java.class.path"),
+                PlanClient.class.getName(), "127.0.0.1", "0");
+    }
+
+    @Test
+    public void testPooledHandOff() throws Exception {
+        List<String> command = planClientCommand();
+        WarmForkPool pool = new WarmForkPool(OPTIONS, OUT, 1);
+        try {
+            pool.replenish(command);
+
+            List<String> other = Arrays.asList(Utils.getCurrentJvm(), "-Xmx64m", "-cp", System.getProperty("java.class.path"),
+                    PlanClient.class.getName(), "127.0.0.1", "0");
+            Assert.assertNull("Different command line should not get the idle VM", pool.acquire(other));
+
+            WarmForkPool.WarmFork fork = pool.acquire(WarmForkPool.withAddress(command, "localhost", 1));
+            Assert.assertNotNull("Idle VM should be handed off", fork);
+            Assert.assertNull("Idle VM should be handed off only once", pool.acquire(command));
+
+            try {
+                fork.server().setPlan(new ActionPlan(ActionType.FORKED));
+                Assert.assertEquals(0, fork.process().waitFor());
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(fork.process().getInputStream()));
+                Assert.assertEquals(ActionType.FORKED.toString(), reader.readLine());
+            } finally {
+                fork.destroy();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Thread requestPlan(final BinaryLinkClient client, final AtomicReference<Object> reply) {
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reply.set(client.requestPlan());
+                } catch (Exception e) {
+                    reply.set(e);
+                }
+            }
+        });
+        t.start();
+        return t;
+    }
+
+    private static void close(BinaryLinkClient client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            // link may be gone already
+        }
+    }
+
+    @Test
+    public void testAwaitPlanWokenBySetPlan() throws Exception {
+        BinaryLinkServer server = new BinaryLinkServer(OPTIONS, OUT);
+        BinaryLinkClient client = new BinaryLinkClient(server.getHost(), server.getPort());
+        try {
+            AtomicReference<Object> reply = new AtomicReference<>();
+            Thread t = requestPlan(client, reply);
+
+            t.join(TimeUnit.MILLISECONDS.toMillis(500));
+            Assert.assertTrue("Plan request should wait for the plan", t.isAlive());
+
+            server.setPlan(new ActionPlan(ActionType.FORKED));
+            t.join(TimeUnit.SECONDS.toMillis(30));
+            Assert.assertFalse("Plan request should be woken up", t.isAlive());
+            Assert.assertTrue(String.valueOf(reply.get()), reply.get() instanceof ActionPlan);
+            Assert.assertEquals(ActionType.FORKED, ((ActionPlan) reply.get()).getType());
+        } finally {
+            close(client);
+            server.terminate();
+        }
+    }
+
+    @Test
+    public void testAwaitPlanWokenByTerminate() throws Exception {
+        BinaryLinkServer server = new BinaryLinkServer(OPTIONS, OUT);
+        BinaryLinkClient client = new BinaryLinkClient(server.getHost(), server.getPort());
+        try {
+            AtomicReference<Object> reply = new AtomicReference<>();
+            Thread t = requestPlan(client, reply);
+
+            t.join(TimeUnit.MILLISECONDS.toMillis(500));
+            Assert.assertTrue("Plan request should wait for the plan", t.isAlive());
+
+            server.terminate();
+            t.join(TimeUnit.SECONDS.toMillis(30));
+            Assert.assertFalse("Plan request should be woken up", t.isAlive());
+            Assert.assertTrue(String.valueOf(reply.get()), reply.get() instanceof IOException);
+        } finally {
+            close(client);
+        }
+    }
+
+}
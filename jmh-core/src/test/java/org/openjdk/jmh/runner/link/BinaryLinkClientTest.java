@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+public class BinaryLinkClientTest {
+
+    @Test
+    public void testPushFromInterruptedThread() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            BinaryLinkClient client = new BinaryLinkClient(server.getInetAddress().getHostAddress(), server.getLocalPort());
+            try (Socket s = server.accept()) {
+                FrameReader reader = new FrameReader(new StreamChannel(s.getInputStream(), s.getOutputStream()));
+
+                Thread.currentThread().interrupt();
+                try {
+                    client.getOutputFormat().println("Hello");
+                    Assert.assertTrue("Interrupt status is kept", Thread.currentThread().isInterrupted());
+                } finally {
+                    Thread.interrupted();
+                }
+
+                OutputFormatFrame f = (OutputFormatFrame) reader.read();
+                Assert.assertTrue(f.method.startsWith("println"));
+                Assert.assertArrayEquals(new Object[]{"Hello"}, f.args);
+
+                // link is still alive
+                client.getOutputFormat().println("World");
+                f = (OutputFormatFrame) reader.read();
+                Assert.assertArrayEquals(new Object[]{"World"}, f.args);
+
+                client.close();
+                Assert.assertTrue(reader.read() instanceof FinishingFrame);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class OutputBufferTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(List<OutputFrame> frames, OutputFrame.Type type) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (OutputFrame f : frames) {
+            if (f.getType() == type) {
+                bos.write(f.getData(), 0, f.getData().length);
+            }
+        }
+        return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSingleBytes() {
+        OutputBuffer buf = new OutputBuffer(1024);
+        Assert.assertFalse(buf.hasPublished());
+
+        for (byte b : bytes("Hi!")) {
+            buf.write(OutputFrame.Type.OUT, b);
+        }
+        Assert.assertTrue(buf.hasPublished());
+
+        List<OutputFrame> frames = buf.drain();
+        Assert.assertEquals("Hi!", text(frames, OutputFrame.Type.OUT));
+        Assert.assertFalse(buf.hasPublished());
+    }
+
+    @Test
+    public void testBatching() {
+        OutputBuffer buf = new OutputBuffer(1024);
+        buf.write(OutputFrame.Type.OUT, bytes("Hello, "), 0, 7);
+        buf.write(OutputFrame.Type.OUT, bytes("World"), 0, 5);
+        buf.write(OutputFrame.Type.ERR, bytes("Oops"), 0, 4);
+        buf.write(OutputFrame.Type.OUT, bytes("!"), 0, 1);
+
+        List<OutputFrame> frames = buf.drain();
+        Assert.assertEquals(3, frames.size());
+        Assert.assertEquals(OutputFrame.Type.OUT, frames.get(0).getType());
+        Assert.assertEquals("Hello, World", new String(frames.get(0).getData(), StandardCharsets.UTF_8));
+        Assert.assertEquals(OutputFrame.Type.ERR, frames.get(1).getType());
+        Assert.assertEquals("Oops", new String(frames.get(1).getData(), StandardCharsets.UTF_8));
+        Assert.assertEquals("!", new String(frames.get(2).getData(), StandardCharsets.UTF_8));
+
+        Assert.assertEquals(17, buf.getConsumed());
+        Assert.assertEquals(0, buf.getDropped());
+        Assert.assertTrue(buf.drain().isEmpty());
+    }
+
+    @Test
+    public void testWraparound() {
+        OutputBuffer buf = new OutputBuffer(256);
+        StringBuilder expected = new StringBuilder();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            byte[] b = bytes("line " + i + "\n");
+            buf.write(OutputFrame.Type.OUT, b, 0, b.length);
+            expected.append("line ").append(i).append("\n");
+            if (i % 7 == 0) {
+                actual.append(text(buf.drain(), OutputFrame.Type.OUT));
+            }
+        }
+        actual.append(text(buf.drain(), OutputFrame.Type.OUT));
+        Assert.assertEquals(expected.toString(), actual.toString());
+        Assert.assertEquals(0, buf.getDropped());
+    }
+
+    @Test
+    public void testDropped() {
+        OutputBuffer buf = new OutputBuffer(256);
+        byte[] b = new byte[50];
+        for (int i = 0; i < 10; i++) {
+            buf.write(OutputFrame.Type.OUT, b, 0, b.length);
+        }
+
+        // 64-byte aligned records, only four fit
+        Assert.assertEquals(200, text(buf.drain(), OutputFrame.Type.OUT).length());
+        Assert.assertEquals(200, buf.getConsumed());
+        Assert.assertEquals(300, buf.getDropped());
+
+        buf.resetCounters();
+        Assert.assertEquals(0, buf.getConsumed());
+        Assert.assertEquals(0, buf.getDropped());
+
+        // Space is available again
+        buf.write(OutputFrame.Type.OUT, b, 0, b.length);
+        Assert.assertEquals(50, text(buf.drain(), OutputFrame.Type.OUT).length());
+    }
+
+    @Test
+    public void testLargeWrite() {
+        OutputBuffer buf = new OutputBuffer(1024);
+        byte[] b = new byte[600];
+        buf.write(OutputFrame.Type.ERR, b, 0, b.length);
+        Assert.assertEquals(600, text(buf.drain(), OutputFrame.Type.ERR).length());
+        Assert.assertEquals(0, buf.getDropped());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final OutputBuffer buf = new OutputBuffer(4096);
+        final int perThread = 10_000;
+
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final byte[] line = bytes("thread " + t + "\n");
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        buf.write(OutputFrame.Type.OUT, line, 0, line.length);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        boolean alive = true;
+        while (alive) {
+            sb.append(text(buf.drain(), OutputFrame.Type.OUT));
+            alive = false;
+            for (Thread t : writers) {
+                alive |= t.isAlive();
+            }
+        }
+        sb.append(text(buf.drain(), OutputFrame.Type.OUT));
+
+        // Every line is intact, and the lost lines are accounted for
+        String[] lines = sb.toString().split("\n");
+        for (String l : lines) {
+            Assert.assertTrue(l, l.matches("thread \\d"));
+        }
+        Assert.assertEquals(writers.length * perThread * "thread 0\n".length(), buf.getConsumed() + buf.getDropped());
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.results.Defaults;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TelemetryRingTest {
+
+    private static Map<String, Result> byLabel(List<Result> results) {
+        Map<String, Result> map = new HashMap<>();
+        for (Result r : results) {
+            map.put(r.getLabel(), r);
+        }
+        return map;
+    }
+
+    @Test
+    public void testRoundtrip() throws IOException {
+        File f = FileUtils.tempFile("telemetry");
+        TelemetryRing host = TelemetryRing.create(f, 4, 16, 8);
+        TelemetryRing fork = TelemetryRing.open(f);
+
+        int c = fork.register(TelemetryRing.KIND_COUNTER, "allocs", "objects");
+        int s = fork.register(TelemetryRing.KIND_SAMPLE, "depth", "entries");
+        Assert.assertEquals(c, fork.register(TelemetryRing.KIND_COUNTER, "allocs", "objects"));
+
+        fork.write(c, 10);
+        fork.write(c, 32);
+        fork.write(s, 2);
+        fork.write(s, 4);
+
+        Map<String, Result> rs = byLabel(host.takeResults());
+        Assert.assertEquals(2, rs.size());
+        Assert.assertEquals(42, rs.get(Defaults.PREFIX + "allocs").getScore(), 0);
+        Assert.assertEquals("objects", rs.get(Defaults.PREFIX + "allocs").getScoreUnit());
+        Assert.assertEquals(3, rs.get(Defaults.PREFIX + "depth").getScore(), 0);
+
+        // Accumulated values are gone
+        Assert.assertTrue(host.takeResults().isEmpty());
+    }
+
+    @Test
+    public void testWraparound() throws IOException {
+        File f = FileUtils.tempFile("telemetry");
+        TelemetryRing host = TelemetryRing.create(f, 1, 16, 8);
+        TelemetryRing fork = TelemetryRing.open(f);
+
+        int c = fork.register(TelemetryRing.KIND_COUNTER, "count", "ops");
+
+        long expected = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 12; i++) {
+                fork.write(c, i);
+                expected += i;
+            }
+            host.drain();
+        }
+
+        Map<String, Result> rs = byLabel(host.takeResults());
+        Assert.assertEquals(1, rs.size());
+        Assert.assertEquals(expected, rs.get(Defaults.PREFIX + "count").getScore(), 0);
+    }
+
+    @Test
+    public void testDropped() throws IOException {
+        File f = FileUtils.tempFile("telemetry");
+        TelemetryRing host = TelemetryRing.create(f, 1, 16, 8);
+        TelemetryRing fork = TelemetryRing.open(f);
+
+        int c = fork.register(TelemetryRing.KIND_COUNTER, "count", "ops");
+        for (int i = 0; i < 20; i++) {
+            fork.write(c, 1);
+        }
+
+        Map<String, Result> rs = byLabel(host.takeResults());
+        Assert.assertEquals(16, rs.get(Defaults.PREFIX + "count").getScore(), 0);
+        Assert.assertEquals(4, rs.get(Defaults.PREFIX + "telemetry.dropped").getScore(), 0);
+
+        // After drain, the ring accepts the values again
+        fork.write(c, 1);
+        rs = byLabel(host.takeResults());
+        Assert.assertEquals(1, rs.get(Defaults.PREFIX + "count").getScore(), 0);
+        Assert.assertNull(rs.get(Defaults.PREFIX + "telemetry.dropped"));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        File f = FileUtils.tempFile("telemetry");
+        final TelemetryRing host = TelemetryRing.create(f, 4, 64, 8);
+        final TelemetryRing fork = TelemetryRing.open(f);
+
+        final int c = fork.register(TelemetryRing.KIND_COUNTER, "count", "ops");
+        final int perThread = 100_000;
+
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        fork.write(c, 1);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+
+        boolean alive = true;
+        while (alive) {
+            host.drain();
+            alive = false;
+            for (Thread t : producers) {
+                alive |= t.isAlive();
+            }
+        }
+
+        Map<String, Result> rs = byLabel(host.takeResults());
+        double received = rs.get(Defaults.PREFIX + "count").getScore();
+        Result dropped = rs.get(Defaults.PREFIX + "telemetry.dropped");
+        Assert.assertEquals(producers.length * perThread, received + (dropped != null ? dropped.getScore() : 0), 0);
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        File f = FileUtils.tempFile("telemetry");
+        TelemetryRing host = TelemetryRing.create(f, 1, 16, 8);
+
+        TelemetryRing fork1 = TelemetryRing.open(f);
+        fork1.write(fork1.register(TelemetryRing.KIND_COUNTER, "first", "ops"), 1);
+
+        host.reset();
+
+        TelemetryRing fork2 = TelemetryRing.open(f);
+        fork2.write(fork2.register(TelemetryRing.KIND_COUNTER, "second", "ops"), 2);
+
+        Map<String, Result> rs = byLabel(host.takeResults());
+        Assert.assertEquals(1, rs.size());
+        Assert.assertEquals(2, rs.get(Defaults.PREFIX + "second").getScore(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotTelemetry() throws IOException {
+        TelemetryRing.open(FileUtils.tempFile("telemetry"));
+    }
+
+}
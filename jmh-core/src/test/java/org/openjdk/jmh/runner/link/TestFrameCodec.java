@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.runner.link;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.SampleBuffer;
+
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+
+public class TestFrameCodec {
+
+    private FrameWriter writer;
+    private FrameReader reader;
+
+    @Before
+    public void setUp() throws IOException {
+        Pipe pipe = Pipe.open();
+        writer = new FrameWriter(pipe.sink());
+        reader = new FrameReader(pipe.source());
+    }
+
+    private Object roundtrip(Object frame) throws IOException, ClassNotFoundException {
+        writer.write(frame);
+        writer.flush();
+        return reader.read();
+    }
+
+    @Test
+    public void testOutput() throws Exception {
+        OutputFrame f = (OutputFrame) roundtrip(new OutputFrame(OutputFrame.Type.ERR, "Hello".getBytes()));
+        Assert.assertEquals(OutputFrame.Type.ERR, f.getType());
+        Assert.assertEquals("Hello", new String(f.getData()));
+    }
+
+    @Test
+    public void testInfra() throws Exception {
+        InfraFrame f = (InfraFrame) roundtrip(new InfraFrame(InfraFrame.Type.ACTION_PLAN_REQUEST));
+        Assert.assertEquals(InfraFrame.Type.ACTION_PLAN_REQUEST, f.getType());
+    }
+
+    @Test
+    public void testHandshake() throws Exception {
+        HandshakeInitFrame f = (HandshakeInitFrame) roundtrip(new HandshakeInitFrame(42));
+        Assert.assertEquals(42, f.getPid());
+    }
+
+    @Test
+    public void testHandshakeResponse() throws Exception {
+        HandshakeResponseFrame f = (HandshakeResponseFrame) roundtrip(new HandshakeResponseFrame(new OptionsBuilder().forks(3).build(), "/tmp/telemetry"));
+        Assert.assertEquals(3, (int) f.getOpts().getForkCount().get());
+        Assert.assertEquals("/tmp/telemetry", f.getTelemetryFile());
+
+        f = (HandshakeResponseFrame) roundtrip(new HandshakeResponseFrame(new OptionsBuilder().build(), null));
+        Assert.assertNull(f.getTelemetryFile());
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        ResultMetadataFrame f = (ResultMetadataFrame) roundtrip(new ResultMetadataFrame(2, new BenchmarkResultMetaData(1, 2, 3, 4, 5, 6, true)));
+        BenchmarkResultMetaData md = f.getMD();
+        Assert.assertEquals(2, f.getBenchmark());
+        Assert.assertEquals(1, md.getWarmupTime());
+        Assert.assertEquals(2, md.getMeasurementTime());
+        Assert.assertEquals(3, md.getStopTime());
+        Assert.assertEquals(4, md.getWarmupOps());
+        Assert.assertEquals(5, md.getMeasurementOps());
+        Assert.assertEquals(6, md.getWarmupIterations());
+        Assert.assertTrue(md.isWarmupSteady());
+    }
+
+    @Test
+    public void testOutputFormat() throws Exception {
+        OutputFormatFrame f = (OutputFormatFrame) roundtrip(new OutputFormatFrame("println", new Object[]{"Hello"}));
+        Assert.assertEquals("println", f.method);
+        Assert.assertArrayEquals(new Object[]{"Hello"}, f.args);
+    }
+
+    @Test
+    public void testResults() throws Exception {
+        SampleBuffer sb = new SampleBuffer();
+        sb.add(1000);
+        sb.add(2000);
+        sb.add(100500);
+
+        IterationResult ir = new IterationResult(null, null, new IterationResultMetaData(10, 20, 1000, 2000));
+        ir.addResult(new ThroughputResult(ResultRole.PRIMARY, "tp", 1000, 1000 * 1000, TimeUnit.MILLISECONDS));
+        ir.addResult(new AverageTimeResult(ResultRole.SECONDARY, "avgt", 1000, 1000 * 1000, TimeUnit.MILLISECONDS));
+        ir.addResult(new SampleTimeResult(ResultRole.SECONDARY, "sample", sb, TimeUnit.NANOSECONDS));
+        ir.addResult(new ScalarResult("scalar", 42, "units", AggregationPolicy.MAX));
+        ir.addResult(new CustomResult("custom", 43, "units", AggregationPolicy.SUM));
+        ir.addResult(new BaselineResult(100, 10, "ops/ms", true, true));
+
+        // push several times to exercise the serialization stream state
+        for (int c = 0; c < 3; c++) {
+            ResultsFrame f = (ResultsFrame) roundtrip(new ResultsFrame(ir));
+            IterationResult act = f.getRes();
+
+            Assert.assertEquals(10, act.getMetadata().getAllOps());
+            Assert.assertEquals(20, act.getMetadata().getMeasuredOps());
+            Assert.assertEquals(1000, act.getMetadata().getStartTime());
+            Assert.assertEquals(2000, act.getMetadata().getStopTime());
+            Assert.assertEquals(ir.getPrimaryResult().getScore(), act.getPrimaryResult().getScore(), 0.0001);
+            Assert.assertEquals(ir.getPrimaryResult().getScoreUnit(), act.getPrimaryResult().getScoreUnit());
+
+            for (String label : new String[] {"avgt", "sample", "scalar", "custom", Defaults.PREFIX + "baseline"}) {
+                Result exp = ir.getSecondaryResults().get(label);
+                Result res = act.getSecondaryResults().get(label);
+                Assert.assertEquals(label, exp.getClass(), res.getClass());
+                Assert.assertEquals(label, exp.getScore(), res.getScore(), 0.0001);
+                Assert.assertEquals(label, exp.getScoreUnit(), res.getScoreUnit());
+                Assert.assertEquals(label, exp.getStatistics().getN(), res.getStatistics().getN());
+            }
+        }
+    }
+
+    @Test
+    public void testMixed() throws Exception {
+        writer.write(new OutputFrame(OutputFrame.Type.OUT, "1".getBytes()));
+        writer.write(new OutputFormatFrame("println", new Object[]{"2"}));
+        writer.write(new FinishingFrame());
+        writer.flush();
+
+        Assert.assertTrue(reader.read() instanceof OutputFrame);
+        Assert.assertTrue(reader.read() instanceof OutputFormatFrame);
+        Assert.assertTrue(reader.read() instanceof FinishingFrame);
+    }
+
+    static class CustomResult extends ScalarResult {
+        private static final long serialVersionUID = 1L;
+
+        public CustomResult(String label, double n, String unit, AggregationPolicy policy) {
+            super(label, n, unit, policy);
+        }
+    }
+
+}
@@ -299,6 +299,38 @@ public class TestOptions {
         Assert.assertEquals(builder.getThreads(), cmdLine.getThreads());
     }
 
+    @Test
+    public void testThreadsSweep() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-tsweep", "1,2,4");
+        Options builder = new OptionsBuilder().threadsSweep(1, 2, 4).build();
+        Assert.assertArrayEquals(builder.getThreadsSweep().get(), cmdLine.getThreadsSweep().get());
+    }
+
+    @Test
+    public void testThreadsSweep_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getThreadsSweep(), EMPTY_CMDLINE.getThreadsSweep());
+    }
+
+    @Test
+    public void testThreadsSweep_WithZero() {
+        try {
+            new CommandLineOptions("-tsweep", "1,0");
+            Assert.fail();
+        } catch (CommandLineOptionException e) {
+            Assert.assertEquals("Cannot parse argument '0' of option ['tsweep']. The given value 0 should be positive", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testThreadsSweep_WithZero_OptionsBuilder() {
+        try {
+            new OptionsBuilder().threadsSweep(1, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Thread sweep point #1 thread count (0) should be positive", e.getMessage());
+        }
+    }
+
     @Test
     public void testThreadGroups_Default() {
         Assert.assertEquals(EMPTY_BUILDER.getThreadGroups(), EMPTY_CMDLINE.getThreadGroups());
@@ -534,6 +566,38 @@ public class TestOptions {
         Assert.assertEquals(EMPTY_BUILDER.getOperationsPerInvocation(), EMPTY_CMDLINE.getOperationsPerInvocation());
     }
 
+    @Test
+    public void testRate() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-rate", "1000");
+        Options builder = new OptionsBuilder().rate(1000).build();
+        Assert.assertEquals(builder.getRate(), cmdLine.getRate());
+    }
+
+    @Test
+    public void testRate_Zero() {
+        try {
+            new CommandLineOptions("-rate", "0");
+            Assert.fail();
+        } catch (CommandLineOptionException e) {
+            Assert.assertEquals("Cannot parse argument '0' of option ['rate']. The given value 0 should be positive", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRate_Zero_OptionsBuilder() {
+        try {
+            new OptionsBuilder().rate(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Rate (0) should be positive", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRate_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getRate(), EMPTY_CMDLINE.getRate());
+    }
+
     @Test
     public void testFork_0() throws Exception {
         CommandLineOptions cmdLine = new CommandLineOptions("-f", "0");
@@ -612,6 +676,38 @@ public class TestOptions {
         }
     }
 
+    @Test
+    public void testParallelForks() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-fp", "4");
+        Options builder = new OptionsBuilder().parallelForks(4).build();
+        Assert.assertEquals(builder.getParallelForks(), cmdLine.getParallelForks());
+    }
+
+    @Test
+    public void testParallelForks_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getParallelForks(), EMPTY_CMDLINE.getParallelForks());
+    }
+
+    @Test
+    public void testParallelForks_Zero() {
+        try {
+            new CommandLineOptions("-fp", "0");
+            Assert.fail();
+        } catch (CommandLineOptionException e) {
+            Assert.assertEquals("Cannot parse argument '0' of option ['fp']. The given value 0 should be positive", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParallelForks_Zero_OptionsBuilder() {
+        try {
+            new OptionsBuilder().parallelForks(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Parallel forks (0) should be positive", e.getMessage());
+        }
+    }
+
     @Test
     public void testJvm() throws Exception {
         CommandLineOptions cmdLine = new CommandLineOptions("--jvm", "sample.jar");
@@ -773,4 +869,204 @@ public class TestOptions {
         Assert.assertEquals(EMPTY_BUILDER.getTimeout(), EMPTY_CMDLINE.getTimeout());
     }
 
+    @Test
+    public void testStreamResults_True() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-rfs", "true");
+        Options builder = new OptionsBuilder().streamResults(true).build();
+        Assert.assertEquals(builder.shouldStreamResults(), cmdLine.shouldStreamResults());
+    }
+
+    @Test
+    public void testStreamResults_False() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-rfs", "false");
+        Options builder = new OptionsBuilder().streamResults(false).build();
+        Assert.assertEquals(builder.shouldStreamResults(), cmdLine.shouldStreamResults());
+    }
+
+    @Test
+    public void testStreamResults_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.shouldStreamResults(), EMPTY_CMDLINE.shouldStreamResults());
+    }
+
+    @Test
+    public void testResume_True() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-resume", "true");
+        Options builder = new OptionsBuilder().resume(true).build();
+        Assert.assertEquals(builder.shouldResume(), cmdLine.shouldResume());
+    }
+
+    @Test
+    public void testResume_False() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-resume", "false");
+        Options builder = new OptionsBuilder().resume(false).build();
+        Assert.assertEquals(builder.shouldResume(), cmdLine.shouldResume());
+    }
+
+    @Test
+    public void testResume_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.shouldResume(), EMPTY_CMDLINE.shouldResume());
+    }
+
+    @Test
+    public void testPreviousResults() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-prev", "prev1.json");
+        Options builder = new OptionsBuilder().previousResults("prev1.json").build();
+        Assert.assertEquals(builder.getPreviousResults(), cmdLine.getPreviousResults());
+    }
+
+    @Test
+    public void testPreviousResults_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getPreviousResults(), EMPTY_CMDLINE.getPreviousResults());
+    }
+
+    @Test
+    public void testTargetError() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-te", "0.05");
+        Options builder = new OptionsBuilder().targetError(0.05).build();
+        Assert.assertEquals(builder.getTargetError(), cmdLine.getTargetError());
+    }
+
+    @Test
+    public void testTargetError_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getTargetError(), EMPTY_CMDLINE.getTargetError());
+    }
+
+    @Test(expected = CommandLineOptionException.class)
+    public void testTargetError_Zero() throws Exception {
+        new CommandLineOptions("-te", "0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTargetError_Negative() {
+        new OptionsBuilder().targetError(-0.1);
+    }
+
+    @Test
+    public void testPollOvershoot() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-po", "10us");
+        Options builder = new OptionsBuilder().pollOvershoot(TimeValue.microseconds(10)).build();
+        Assert.assertEquals(builder.getPollOvershoot(), cmdLine.getPollOvershoot());
+    }
+
+    @Test
+    public void testPollOvershoot_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getPollOvershoot(), EMPTY_CMDLINE.getPollOvershoot());
+    }
+
+    @Test
+    public void testBaselineMode() throws Exception {
+        for (BaselineMode mode : BaselineMode.values()) {
+            CommandLineOptions cmdLine = new CommandLineOptions("-bl", mode.toString());
+            Options builder = new OptionsBuilder().baselineMode(mode).build();
+            Assert.assertEquals(builder.getBaselineMode(), cmdLine.getBaselineMode());
+        }
+    }
+
+    @Test
+    public void testBaselineMode_Lowercase() throws Exception {
+        for (BaselineMode mode : BaselineMode.values()) {
+            CommandLineOptions cmdLine = new CommandLineOptions("-bl", mode.toString().toLowerCase());
+            Options builder = new OptionsBuilder().baselineMode(mode).build();
+            Assert.assertEquals(builder.getBaselineMode(), cmdLine.getBaselineMode());
+        }
+    }
+
+    @Test
+    public void testBaselineMode_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getBaselineMode(), EMPTY_CMDLINE.getBaselineMode());
+    }
+
+    @Test
+    public void testDetectWarmup_True() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-wauto", "true");
+        Options builder = new OptionsBuilder().detectWarmup(true).build();
+        Assert.assertEquals(builder.shouldDetectWarmup(), cmdLine.shouldDetectWarmup());
+    }
+
+    @Test
+    public void testDetectWarmup_False() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-wauto", "false");
+        Options builder = new OptionsBuilder().detectWarmup(false).build();
+        Assert.assertEquals(builder.shouldDetectWarmup(), cmdLine.shouldDetectWarmup());
+    }
+
+    @Test
+    public void testDetectWarmup_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.shouldDetectWarmup(), EMPTY_CMDLINE.shouldDetectWarmup());
+    }
+
+    @Test
+    public void testWarmForks() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-fwarm", "2");
+        Options builder = new OptionsBuilder().warmForks(2).build();
+        Assert.assertEquals(builder.getWarmForks(), cmdLine.getWarmForks());
+    }
+
+    @Test
+    public void testWarmForks_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getWarmForks(), EMPTY_CMDLINE.getWarmForks());
+    }
+
+    @Test
+    public void testWarmForks_Negative() {
+        try {
+            new CommandLineOptions("-fwarm", "-1");
+            Assert.fail();
+        } catch (CommandLineOptionException e) {
+            Assert.assertEquals("Cannot parse argument '-1' of option ['fwarm']. The given value -1 should be non-negative", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWarmForks_Negative_OptionsBuilder() {
+        try {
+            new OptionsBuilder().warmForks(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Warm forks (-1) should be non-negative", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCDSArchive_True() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-cds", "true");
+        Options builder = new OptionsBuilder().cdsArchive(true).build();
+        Assert.assertEquals(builder.shouldUseCDSArchive(), cmdLine.shouldUseCDSArchive());
+    }
+
+    @Test
+    public void testCDSArchive_False() throws Exception {
+        CommandLineOptions cmdLine = new CommandLineOptions("-cds", "false");
+        Options builder = new OptionsBuilder().cdsArchive(false).build();
+        Assert.assertEquals(builder.shouldUseCDSArchive(), cmdLine.shouldUseCDSArchive());
+    }
+
+    @Test
+    public void testCDSArchive_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.shouldUseCDSArchive(), EMPTY_CMDLINE.shouldUseCDSArchive());
+    }
+
+    @Test
+    public void testForkGrouping() throws Exception {
+        for (ForkGrouping fg : ForkGrouping.values()) {
+            CommandLineOptions cmdLine = new CommandLineOptions("-fg", fg.toString());
+            Options builder = new OptionsBuilder().forkGrouping(fg).build();
+            Assert.assertEquals(builder.getForkGrouping(), cmdLine.getForkGrouping());
+        }
+    }
+
+    @Test
+    public void testForkGrouping_LC() throws Exception {
+        for (ForkGrouping fg : ForkGrouping.values()) {
+            CommandLineOptions cmdLine = new CommandLineOptions("-fg", fg.toString().toLowerCase());
+            Options builder = new OptionsBuilder().forkGrouping(fg).build();
+            Assert.assertEquals(builder.getForkGrouping(), cmdLine.getForkGrouping());
+        }
+    }
+
+    @Test
+    public void testForkGrouping_Default() {
+        Assert.assertEquals(EMPTY_BUILDER.getForkGrouping(), EMPTY_CMDLINE.getForkGrouping());
+    }
+
 }
@@ -523,6 +523,27 @@ public class TestParentOptions {
         Assert.assertEquals(Integer.valueOf(84), builder.getWarmupForkCount().get());
     }
 
+    @Test
+    public void testParallelForks_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getParallelForks().hasValue());
+    }
+
+    @Test
+    public void testParallelForks_Parent() {
+        Options parent = new OptionsBuilder().parallelForks(42).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(Integer.valueOf(42), builder.getParallelForks().get());
+    }
+
+    @Test
+    public void testParallelForks_Merge() {
+        Options parent = new OptionsBuilder().parallelForks(42).build();
+        Options builder = new OptionsBuilder().parent(parent).parallelForks(84).build();
+        Assert.assertEquals(Integer.valueOf(84), builder.getParallelForks().get());
+    }
+
     @Test
     public void testWarmupIters_Empty() {
         Options parent = new OptionsBuilder().build();
@@ -636,4 +657,172 @@ public class TestParentOptions {
         Assert.assertEquals(TimeValue.days(42), builder.getTimeout().get());
     }
 
+    @Test
+    public void testStreamResults_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldStreamResults().hasValue());
+    }
+
+    @Test
+    public void testStreamResults_Parent() {
+        Options parent = new OptionsBuilder().streamResults(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(true, builder.shouldStreamResults().get());
+    }
+
+    @Test
+    public void testStreamResults_Merged() {
+        Options parent = new OptionsBuilder().streamResults(true).build();
+        Options builder = new OptionsBuilder().parent(parent).streamResults(false).build();
+        Assert.assertEquals(false, builder.shouldStreamResults().get());
+    }
+
+    @Test
+    public void testResume_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldResume().hasValue());
+    }
+
+    @Test
+    public void testResume_Parent() {
+        Options parent = new OptionsBuilder().resume(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(true, builder.shouldResume().get());
+    }
+
+    @Test
+    public void testResume_Merged() {
+        Options parent = new OptionsBuilder().resume(true).build();
+        Options builder = new OptionsBuilder().parent(parent).resume(false).build();
+        Assert.assertEquals(false, builder.shouldResume().get());
+    }
+
+    @Test
+    public void testPreviousResults_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getPreviousResults().hasValue());
+    }
+
+    @Test
+    public void testPreviousResults_Parent() {
+        Options parent = new OptionsBuilder().previousResults("prev1.json").build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals("prev1.json", builder.getPreviousResults().get());
+    }
+
+    @Test
+    public void testPreviousResults_Merged() {
+        Options parent = new OptionsBuilder().previousResults("prev1.json").build();
+        Options builder = new OptionsBuilder().parent(parent).previousResults("prev2.json").build();
+        Assert.assertEquals("prev2.json", builder.getPreviousResults().get());
+    }
+
+    @Test
+    public void testTargetError_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getTargetError().hasValue());
+    }
+
+    @Test
+    public void testTargetError_Parent() {
+        Options parent = new OptionsBuilder().targetError(0.1).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(0.1, builder.getTargetError().get(), 0);
+    }
+
+    @Test
+    public void testTargetError_Merged() {
+        Options parent = new OptionsBuilder().targetError(0.1).build();
+        Options builder = new OptionsBuilder().parent(parent).targetError(0.2).build();
+        Assert.assertEquals(0.2, builder.getTargetError().get(), 0);
+    }
+
+    @Test
+    public void testDetectWarmup_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldDetectWarmup().hasValue());
+    }
+
+    @Test
+    public void testDetectWarmup_Parent() {
+        Options parent = new OptionsBuilder().detectWarmup(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(true, builder.shouldDetectWarmup().get());
+    }
+
+    @Test
+    public void testDetectWarmup_Merged() {
+        Options parent = new OptionsBuilder().detectWarmup(true).build();
+        Options builder = new OptionsBuilder().parent(parent).detectWarmup(false).build();
+        Assert.assertEquals(false, builder.shouldDetectWarmup().get());
+    }
+
+    @Test
+    public void testWarmForks_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getWarmForks().hasValue());
+    }
+
+    @Test
+    public void testWarmForks_Parent() {
+        Options parent = new OptionsBuilder().warmForks(42).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(Integer.valueOf(42), builder.getWarmForks().get());
+    }
+
+    @Test
+    public void testWarmForks_Merge() {
+        Options parent = new OptionsBuilder().warmForks(42).build();
+        Options builder = new OptionsBuilder().parent(parent).warmForks(84).build();
+        Assert.assertEquals(Integer.valueOf(84), builder.getWarmForks().get());
+    }
+
+    @Test
+    public void testCDSArchive_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.shouldUseCDSArchive().hasValue());
+    }
+
+    @Test
+    public void testCDSArchive_Parent() {
+        Options parent = new OptionsBuilder().cdsArchive(true).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(true, builder.shouldUseCDSArchive().get());
+    }
+
+    @Test
+    public void testCDSArchive_Merged() {
+        Options parent = new OptionsBuilder().cdsArchive(true).build();
+        Options builder = new OptionsBuilder().parent(parent).cdsArchive(false).build();
+        Assert.assertEquals(false, builder.shouldUseCDSArchive().get());
+    }
+
+    @Test
+    public void testForkGrouping_Empty() {
+        Options parent = new OptionsBuilder().build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertFalse(builder.getForkGrouping().hasValue());
+    }
+
+    @Test
+    public void testForkGrouping_Parent() {
+        Options parent = new OptionsBuilder().forkGrouping(ForkGrouping.CLASS).build();
+        Options builder = new OptionsBuilder().parent(parent).build();
+        Assert.assertEquals(ForkGrouping.CLASS, builder.getForkGrouping().get());
+    }
+
+    @Test
+    public void testForkGrouping_Merged() {
+        Options parent = new OptionsBuilder().forkGrouping(ForkGrouping.CLASS).build();
+        Options builder = new OptionsBuilder().parent(parent).forkGrouping(ForkGrouping.ALL).build();
+        Assert.assertEquals(ForkGrouping.ALL, builder.getForkGrouping().get());
+    }
+
 }
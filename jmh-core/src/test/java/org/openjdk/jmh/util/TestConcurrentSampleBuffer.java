@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class TestConcurrentSampleBuffer {
+
+    @Test
+    public void testDrainMatchesSampleBuffer() {
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer();
+        SampleBuffer expected = new SampleBuffer();
+        for (long v : new long[] {0, 1, 1000, 1000, 2000, 123456789L, Long.MAX_VALUE / 3}) {
+            cb.add(v);
+            expected.add(v);
+        }
+
+        Assert.assertEquals(expected.count(), cb.count());
+
+        SampleBuffer actual = new SampleBuffer();
+        cb.drainTo(actual);
+
+        Statistics es = expected.getStatistics(1);
+        Statistics as = actual.getStatistics(1);
+        Assert.assertEquals(es.getN(), as.getN());
+        Assert.assertEquals(es.getMean(), as.getMean(), 0.0001);
+        Assert.assertEquals(es.getMax(), as.getMax(), 0.0001);
+        Assert.assertEquals(es.getMin(), as.getMin(), 0.0001);
+    }
+
+    @Test
+    public void testDrainResets() {
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer(2);
+        cb.add(0, 100);
+        cb.add(1, 200);
+        Assert.assertEquals(2, cb.count());
+
+        SampleBuffer first = new SampleBuffer();
+        cb.drainTo(first);
+        Assert.assertEquals(2, first.count());
+        Assert.assertEquals(0, cb.count());
+
+        cb.add(1, 300);
+        SampleBuffer second = new SampleBuffer();
+        cb.drainTo(second);
+        Assert.assertEquals(1, second.count());
+        Assert.assertEquals(300, second.getStatistics(1).getMean(), 0.0001);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        long[] samples = {0, 1, 511, 512, 1023, 1024, 1025, 2047, 2048, 4095, 4096,
+                1L << 40, (1L << 41) - 1, Long.MAX_VALUE};
+
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer(2);
+        SampleBuffer expected = new SampleBuffer();
+        for (int c = 0; c < samples.length; c++) {
+            for (int r = 0; r <= c; r++) {
+                cb.add(c % 2, samples[c]);
+                expected.add(samples[c]);
+            }
+        }
+
+        // every sample keeps its own counter
+        SampleBuffer actual = new SampleBuffer();
+        cb.drainTo(actual);
+        Statistics es = expected.getStatistics(1);
+        Statistics as = actual.getStatistics(1);
+        Assert.assertEquals(es.getN(), as.getN());
+        for (double p : new double[] {0, 10, 30, 50, 70, 90, 99, 100}) {
+            Assert.assertEquals(es.getPercentile(p), as.getPercentile(p), 0.0001);
+        }
+    }
+
+    @Test
+    public void testNegativeSamples() {
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer();
+        cb.add(-1);
+        cb.add(Long.MIN_VALUE);
+        cb.add(10);
+
+        SampleBuffer sb = new SampleBuffer();
+        cb.drainTo(sb);
+        sb.add(-100);
+
+        Statistics s = sb.getStatistics(1);
+        Assert.assertEquals(4, s.getN());
+        Assert.assertEquals(0, s.getMin(), 0.0001);
+        Assert.assertEquals(10, s.getMax(), 0.0001);
+    }
+
+    @Test
+    public void testHalf() {
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer();
+        for (int c = 0; c < 10; c++) {
+            cb.add(42);
+        }
+        cb.add(100500);
+        cb.half();
+
+        // 10 -> 5, and 1 stays 1
+        Assert.assertEquals(6, cb.count());
+    }
+
+    @Test
+    public void testConcurrentStripes() throws InterruptedException {
+        final int threads = 4;
+        final int samples = 100000;
+        final ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer(2);
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int stripe = t % cb.stripes();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int s = 0; s < samples; s++) {
+                        cb.add(stripe, s);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        Assert.assertEquals(threads * samples, cb.count());
+
+        SampleBuffer sb = new SampleBuffer();
+        cb.drainTo(sb);
+        Assert.assertEquals(threads * samples, sb.count());
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+public class TestHistogramStatistics {
+
+    private static final double ULP = 0.0000001;
+
+    /**
+     * Histogram statistics should give the same results as the expanded histogram.
+     */
+    @Test
+    public void testMatchesMultisetStatistics() {
+        Random r = new Random(12345);
+        SampleBuffer buffer = new SampleBuffer();
+        for (int c = 0; c < 100_000; c++) {
+            long v = (long) Math.abs(r.nextGaussian() * 10_000) + (r.nextInt(100) == 0 ? 5_000_000 : 0);
+            buffer.add(v);
+        }
+        buffer.add(0);
+
+        for (double multiplier : new double[]{1, 1D / 1000, 1D / 1_000_000}) {
+            Statistics expected = expand(buffer, multiplier);
+            Statistics actual = buffer.getStatistics(multiplier);
+
+            Assert.assertEquals(expected.getN(), actual.getN());
+            Assert.assertEquals(expected.getMin(), actual.getMin(), ULP);
+            Assert.assertEquals(expected.getMax(), actual.getMax(), ULP);
+            Assert.assertEquals(expected.getSum(), actual.getSum(), ULP);
+            Assert.assertEquals(expected.getMean(), actual.getMean(), ULP);
+            Assert.assertEquals(expected.getVariance(), actual.getVariance(), ULP);
+            Assert.assertEquals(expected.getMeanErrorAt(0.999), actual.getMeanErrorAt(0.999), ULP);
+
+            for (double p : new double[]{0, 1, 10, 50, 90, 99, 99.9, 99.99, 100}) {
+                Assert.assertEquals("p" + p, expected.getPercentile(p), actual.getPercentile(p), ULP);
+            }
+
+            double[] levels = {0, 1 * multiplier, 100 * multiplier, 10_000 * multiplier, 1_000_000 * multiplier, Double.MAX_VALUE};
+            Assert.assertArrayEquals(expected.getHistogram(levels), actual.getHistogram(levels));
+
+            Iterator<Map.Entry<Double, Long>> ei = expected.getRawData();
+            Iterator<Map.Entry<Double, Long>> ai = actual.getRawData();
+            while (ei.hasNext()) {
+                Assert.assertTrue(ai.hasNext());
+                Map.Entry<Double, Long> e = ei.next();
+                Map.Entry<Double, Long> a = ai.next();
+                Assert.assertEquals(e.getKey(), a.getKey(), ULP);
+                Assert.assertEquals(e.getValue(), a.getValue());
+            }
+            Assert.assertFalse(ai.hasNext());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        Statistics s = new SampleBuffer().getStatistics(1);
+        Assert.assertEquals(0, s.getN());
+        Assert.assertEquals(Double.NaN, s.getMin(), 0);
+        Assert.assertEquals(Double.NaN, s.getMax(), 0);
+        Assert.assertEquals(Double.NaN, s.getMean(), 0);
+        Assert.assertFalse(s.getRawData().hasNext());
+    }
+
+    @Test
+    public void testSnapshot() {
+        SampleBuffer buffer = new SampleBuffer();
+        buffer.add(100);
+        Statistics s = buffer.getStatistics(1);
+        buffer.add(200);
+        Assert.assertEquals(1, s.getN());
+        Assert.assertEquals(100, s.getMean(), ULP);
+    }
+
+    @Test
+    public void testLargeCounts() {
+        long big = Integer.MAX_VALUE + 10L;
+
+        SampleBuffer buffer = new SampleBuffer();
+        buffer.add(100, big);
+        SampleBuffer other = new SampleBuffer();
+        other.add(100, big);
+        other.add(200, 1);
+        buffer.addAll(other);
+        Assert.assertEquals(2 * big + 1, buffer.count());
+
+        Statistics s = buffer.getStatistics(1);
+        Assert.assertEquals(2 * big + 1, s.getN());
+        Assert.assertEquals(100, s.getMin(), ULP);
+        Assert.assertEquals(200, s.getMax(), ULP);
+        Assert.assertEquals(100, s.getPercentile(50), ULP);
+
+        Map.Entry<Double, Long> e = s.getRawData().next();
+        Assert.assertEquals(2 * big, (long) e.getValue());
+
+        int[] histogram = s.getHistogram(new double[]{0, 150, 300});
+        Assert.assertEquals(Integer.MAX_VALUE, histogram[0]);
+        Assert.assertEquals(1, histogram[1]);
+
+        ConcurrentSampleBuffer cb = new ConcurrentSampleBuffer(1);
+        cb.add(0, 100);
+        SampleBuffer drained = new SampleBuffer();
+        drained.add(100, big);
+        cb.drainTo(drained);
+        Assert.assertEquals(big + 1, drained.count());
+    }
+
+    private static Statistics expand(SampleBuffer buffer, double multiplier) {
+        MultisetStatistics stat = new MultisetStatistics();
+        for (Map.Entry<Double, Long> e : Utils.adaptForLoop(buffer.getStatistics(1).getRawData())) {
+            stat.addValue(multiplier * e.getKey(), e.getValue());
+        }
+        return stat;
+    }
+
+}
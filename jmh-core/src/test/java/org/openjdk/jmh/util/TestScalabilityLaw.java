@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, Red Hat Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.jmh.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestScalabilityLaw {
+
+    private static Map<Integer, Double> sample(ScalabilityLaw law, int... threads) {
+        Map<Integer, Double> points = new HashMap<>();
+        for (int t : threads) {
+            points.put(t, law.predict(t));
+        }
+        return points;
+    }
+
+    @Test
+    public void testExactFit() {
+        ScalabilityLaw law = new ScalabilityLaw(1000, 0.05, 0.001);
+        ScalabilityLaw fit = ScalabilityLaw.fit(sample(law, 1, 2, 4, 8, 16, 32, 64));
+        Assert.assertNotNull(fit);
+        Assert.assertEquals(1000, fit.getLambda(), 1e-6);
+        Assert.assertEquals(0.05, fit.getContention(), 1e-9);
+        Assert.assertEquals(0.001, fit.getCoherency(), 1e-9);
+        Assert.assertEquals(Math.sqrt(0.95 / 0.001), fit.getPeakThreads(), 1e-6);
+        Assert.assertEquals(law.predict(fit.getPeakThreads()), fit.getPeakThroughput(), 1e-6);
+    }
+
+    @Test
+    public void testNoSingleThreadPoint() {
+        ScalabilityLaw law = new ScalabilityLaw(500, 0.1, 0.0005);
+        ScalabilityLaw fit = ScalabilityLaw.fit(sample(law, 2, 4, 8));
+        Assert.assertNotNull(fit);
+        Assert.assertEquals(500, fit.getLambda(), 1e-6);
+        Assert.assertEquals(0.1, fit.getContention(), 1e-9);
+        Assert.assertEquals(0.0005, fit.getCoherency(), 1e-9);
+    }
+
+    @Test
+    public void testLinearScaling() {
+        ScalabilityLaw fit = ScalabilityLaw.fit(sample(new ScalabilityLaw(100, 0, 0), 1, 2, 4, 8));
+        Assert.assertNotNull(fit);
+        Assert.assertEquals(0, fit.getContention(), 1e-9);
+        Assert.assertEquals(0, fit.getCoherency(), 1e-9);
+        Assert.assertTrue(Double.isInfinite(fit.getPeakThreads()));
+    }
+
+    @Test
+    public void testCoefficientsNonNegative() {
+        // super-linear scaling should not produce negative coefficients
+        Map<Integer, Double> points = new HashMap<>();
+        points.put(1, 100.0);
+        points.put(2, 250.0);
+        points.put(4, 600.0);
+        ScalabilityLaw fit = ScalabilityLaw.fit(points);
+        Assert.assertNotNull(fit);
+        Assert.assertTrue(fit.getContention() >= 0);
+        Assert.assertTrue(fit.getCoherency() >= 0);
+    }
+
+    @Test
+    public void testNotEnoughPoints() {
+        Map<Integer, Double> points = new HashMap<>();
+        points.put(1, 100.0);
+        points.put(2, 190.0);
+        Assert.assertNull(ScalabilityLaw.fit(points));
+    }
+
+}